@@ -1,8 +1,12 @@
 package com.shopmanagement.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shopmanagement.entity.User;
 import com.shopmanagement.service.JwtService;
 import com.shopmanagement.service.TokenBlacklistService;
+import com.shopmanagement.service.VerifiedTokenCache;
+import com.shopmanagement.service.VerifiedTokenCache.VerifiedToken;
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.MalformedJwtException;
 import io.jsonwebtoken.SignatureException;
@@ -11,9 +15,11 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.MediaType;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
@@ -22,10 +28,22 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+/**
+ * Authenticates bearer tokens. A token verified once is remembered in
+ * {@link VerifiedTokenCache} until it expires, so repeat requests skip both
+ * the signature check and the user lookup. On a miss the signature is checked
+ * once; role and user id come from the signed claims, and only tokens without
+ * a role claim (issued before claims were added) or issued before the user's
+ * last access change fall back to {@link UserDetailsService}. Cached entries
+ * are checked against the user's access cut-off on every request.
+ */
+@Slf4j
 @Component
 @RequiredArgsConstructor
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
@@ -33,6 +51,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private final JwtService jwtService;
     private final UserDetailsService userDetailsService;
     private final TokenBlacklistService tokenBlacklistService;
+    private final VerifiedTokenCache verifiedTokenCache;
 
     @Override
     protected void doFilterInternal(
@@ -42,7 +61,6 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     ) throws ServletException, IOException {
         // Skip JWT filter only for login, register, and other public auth endpoints
         String path = request.getServletPath();
-        System.out.println("JWT Filter - Processing path: " + path);
 
         if (path.equals("/api/auth/login") || path.equals("/api/auth/register") ||
             path.equals("/api/auth/forgot-password") || path.equals("/api/auth/reset-password")) {
@@ -51,79 +69,108 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
 
         final String authHeader = request.getHeader("Authorization");
-        final String jwt;
-        final String username;
-
-        System.out.println("JWT Filter - Auth header: " + (authHeader != null ? "Present" : "Missing"));
-
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-            System.out.println("JWT Filter - No Bearer token, continuing without auth");
             filterChain.doFilter(request, response);
             return;
         }
-
-        jwt = authHeader.substring(7);
-        System.out.println("JWT Filter - Token extracted: " + jwt.substring(0, Math.min(20, jwt.length())) + "...");
+        final String jwt = authHeader.substring(7);
 
         // Check if token is blacklisted
         if (tokenBlacklistService.isTokenBlacklisted(jwt)) {
-            System.out.println("JWT Filter - Token is blacklisted!");
+            verifiedTokenCache.evict(jwt);
+            log.debug("JWT Filter - blacklisted token on {}", path);
             sendErrorResponse(response, HttpServletResponse.SC_UNAUTHORIZED, "TOKEN_INVALIDATED",
                     "Session has been logged out. Please login again.", path);
             return;
         }
 
-        try {
-            username = jwtService.extractUsername(jwt);
-            System.out.println("JWT Filter - Username extracted: " + username);
-        } catch (ExpiredJwtException e) {
-            System.out.println("JWT Filter - TOKEN EXPIRED: " + e.getMessage());
-            sendErrorResponse(response, HttpServletResponse.SC_UNAUTHORIZED, "TOKEN_EXPIRED",
-                    "Your session has expired. Please login again.", path);
-            return;
-        } catch (MalformedJwtException e) {
-            System.out.println("JWT Filter - MALFORMED TOKEN: " + e.getMessage());
-            sendErrorResponse(response, HttpServletResponse.SC_UNAUTHORIZED, "TOKEN_MALFORMED",
-                    "Invalid token format. Please login again.", path);
-            return;
-        } catch (SignatureException e) {
-            System.out.println("JWT Filter - INVALID SIGNATURE: " + e.getMessage());
-            sendErrorResponse(response, HttpServletResponse.SC_UNAUTHORIZED, "TOKEN_INVALID_SIGNATURE",
-                    "Token signature is invalid. Please login again.", path);
-            return;
-        } catch (Exception e) {
-            System.out.println("JWT Filter - Failed to extract username: " + e.getMessage());
-            sendErrorResponse(response, HttpServletResponse.SC_UNAUTHORIZED, "TOKEN_INVALID",
-                    "Invalid token. Please login again.", path);
-            return;
-        }
-
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+        VerifiedToken verified = verifiedTokenCache.get(jwt);
+        if (verified == null) {
+            Claims claims;
             try {
-                UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
-                System.out.println("JWT Filter - User found: " + userDetails.getUsername());
-
-                if (jwtService.isTokenValid(jwt, userDetails)) {
-                    System.out.println("JWT Filter - Token is valid, setting authentication");
-                    UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                            userDetails,
-                            null,
-                            userDetails.getAuthorities()
-                    );
-                    authToken.setDetails(
-                            new WebAuthenticationDetailsSource().buildDetails(request)
-                    );
-                    SecurityContextHolder.getContext().setAuthentication(authToken);
-                } else {
-                    System.out.println("JWT Filter - Token validation failed!");
-                }
+                claims = jwtService.parseVerifiedClaims(jwt);
+            } catch (ExpiredJwtException e) {
+                log.debug("JWT Filter - token expired: {}", e.getMessage());
+                sendErrorResponse(response, HttpServletResponse.SC_UNAUTHORIZED, "TOKEN_EXPIRED",
+                        "Your session has expired. Please login again.", path);
+                return;
+            } catch (MalformedJwtException e) {
+                log.debug("JWT Filter - malformed token: {}", e.getMessage());
+                sendErrorResponse(response, HttpServletResponse.SC_UNAUTHORIZED, "TOKEN_MALFORMED",
+                        "Invalid token format. Please login again.", path);
+                return;
+            } catch (SignatureException e) {
+                log.debug("JWT Filter - invalid signature: {}", e.getMessage());
+                sendErrorResponse(response, HttpServletResponse.SC_UNAUTHORIZED, "TOKEN_INVALID_SIGNATURE",
+                        "Token signature is invalid. Please login again.", path);
+                return;
             } catch (Exception e) {
-                System.out.println("JWT Filter - Error loading user: " + e.getMessage());
+                log.debug("JWT Filter - failed to parse token: {}", e.getMessage());
+                sendErrorResponse(response, HttpServletResponse.SC_UNAUTHORIZED, "TOKEN_INVALID",
+                        "Invalid token. Please login again.", path);
+                return;
+            }
+
+            verified = resolve(claims);
+            if (verified != null) {
+                verifiedTokenCache.put(jwt, verified);
             }
         }
+
+        if (verified != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+            UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
+                    verified,
+                    null,
+                    verified.authorities()
+            );
+            authToken.setDetails(
+                    new WebAuthenticationDetailsSource().buildDetails(request)
+            );
+            SecurityContextHolder.getContext().setAuthentication(authToken);
+        }
         filterChain.doFilter(request, response);
     }
 
+    /**
+     * Who a freshly verified token belongs to. Null leaves the request
+     * unauthenticated (unknown or disabled user), as a failed lookup always did.
+     */
+    private VerifiedToken resolve(Claims claims) {
+        String username = claims.getSubject();
+        if (username == null || claims.getExpiration() == null) {
+            return null;
+        }
+        Instant expiresAt = claims.getExpiration().toInstant();
+        String role = claims.get(JwtService.CLAIM_ROLE, String.class);
+
+        if (role != null && verifiedTokenCache.claimsTrustedFor(username, claims.getIssuedAt())) {
+            Object uid = claims.get(JwtService.CLAIM_USER_ID);
+            return new VerifiedToken(username,
+                    uid instanceof Number number ? number.longValue() : null,
+                    List.of(new SimpleGrantedAuthority("ROLE_" + role)),
+                    claims.getIssuedAt() != null ? claims.getIssuedAt().toInstant() : Instant.EPOCH,
+                    expiresAt);
+        }
+
+        // Taken before the lookup, so an access change landing during it still counts
+        Instant lookedUpAt = Instant.now();
+        try {
+            UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
+            if (!userDetails.isEnabled()) {
+                log.debug("JWT Filter - user {} is disabled", username);
+                return null;
+            }
+            return new VerifiedToken(userDetails.getUsername(),
+                    userDetails instanceof User user ? user.getId() : null,
+                    List.copyOf(userDetails.getAuthorities()),
+                    lookedUpAt,
+                    expiresAt);
+        } catch (Exception e) {
+            log.debug("JWT Filter - error loading user {}: {}", username, e.getMessage());
+            return null;
+        }
+    }
+
     private void sendErrorResponse(HttpServletResponse response, int status, String errorCode,
                                    String message, String path) throws IOException {
         response.setStatus(status);
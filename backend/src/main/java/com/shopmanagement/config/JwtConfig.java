@@ -2,6 +2,7 @@ package com.shopmanagement.config;
 
 import com.shopmanagement.service.JwtService;
 import com.shopmanagement.service.TokenBlacklistService;
+import com.shopmanagement.service.VerifiedTokenCache;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -14,9 +15,10 @@ public class JwtConfig {
     private final JwtService jwtService;
     private final UserDetailsService userDetailsService;
     private final TokenBlacklistService tokenBlacklistService;
+    private final VerifiedTokenCache verifiedTokenCache;
 
     @Bean
     public JwtAuthenticationFilter jwtAuthenticationFilter() {
-        return new JwtAuthenticationFilter(jwtService, userDetailsService, tokenBlacklistService);
+        return new JwtAuthenticationFilter(jwtService, userDetailsService, tokenBlacklistService, verifiedTokenCache);
     }
 }
\ No newline at end of file
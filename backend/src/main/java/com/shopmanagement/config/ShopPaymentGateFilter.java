@@ -1,9 +1,7 @@
 package com.shopmanagement.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.shopmanagement.service.ShopPaymentCollectService;
-import com.shopmanagement.shop.entity.Shop;
-import com.shopmanagement.shop.service.ShopService;
+import com.shopmanagement.service.ShopPaymentGateCache;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -26,14 +24,14 @@ import java.util.Map;
 /**
  * Pay-and-use hard lock: once a SHOP_OWNER's shop payment is due, every API call except
  * auth, the payment-collect endpoints, and menu permissions is rejected with 402 so the
- * Angular app has no way to route around the "Pay & Use" screen.
+ * Angular app has no way to route around the "Pay & Use" screen. The owner's shop and
+ * paid-until come from {@link ShopPaymentGateCache}, so the check is a memory lookup.
  */
 @Component
 @RequiredArgsConstructor
 public class ShopPaymentGateFilter extends OncePerRequestFilter {
 
-    private final ShopPaymentCollectService shopPaymentCollectService;
-    private final ShopService shopService;
+    private final ShopPaymentGateCache shopPaymentGateCache;
     private final ObjectMapper objectMapper;
 
     private static final List<String> ALLOWED_PREFIXES = List.of(
@@ -63,8 +61,7 @@ public class ShopPaymentGateFilter extends OncePerRequestFilter {
             return;
         }
 
-        Shop shop = shopService.getShopByOwner(auth.getName());
-        if (shop == null || shopPaymentCollectService.isCurrentlyPaid(shop.getId())) {
+        if (!shopPaymentGateCache.isPaymentDue(auth.getName())) {
             filterChain.doFilter(request, response);
             return;
         }
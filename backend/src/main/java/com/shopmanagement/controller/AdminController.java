@@ -8,10 +8,12 @@ import com.shopmanagement.repository.UserRepository;
 import com.shopmanagement.repository.OrderAssignmentRepository;
 import com.shopmanagement.repository.OrderRepository;
 import com.shopmanagement.repository.PaymentSettlementRepository;
+import com.shopmanagement.service.PartnerEarningsService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -35,6 +37,7 @@ public class AdminController {
     private final OrderAssignmentRepository orderAssignmentRepository;
     private final OrderRepository orderRepository;
     private final PaymentSettlementRepository paymentSettlementRepository;
+    private final PartnerEarningsService partnerEarningsService;
 
     @GetMapping("/settings")
     public ResponseEntity<Map<String, Object>> getSystemSettings() {
@@ -427,4 +430,47 @@ public class AdminController {
             return ResponseEntity.badRequest().body(errorResponse);
         }
     }
-}
\ No newline at end of file
+
+    @PostMapping("/delivery-partners/{partnerId}/earnings-adjustments")
+    public ResponseEntity<Map<String, Object>> addEarningsAdjustment(
+            @PathVariable Long partnerId,
+            @RequestBody Map<String, Object> adjustmentData) {
+
+        log.info("Adding earnings adjustment for partner ID: {}", partnerId);
+
+        try {
+            User partner = userRepository.findById(partnerId)
+                .filter(user -> user.getRole() == User.UserRole.DELIVERY_PARTNER)
+                .orElseThrow(() -> new RuntimeException("Partner not found with ID: " + partnerId));
+
+            Object amountValue = adjustmentData.get("amount");
+            if (amountValue == null) {
+                throw new IllegalArgumentException("Adjustment amount is required");
+            }
+            BigDecimal amount = new BigDecimal(amountValue.toString());
+            String note = (String) adjustmentData.get("note");
+            String createdBy = SecurityContextHolder.getContext().getAuthentication().getName();
+
+            // Corrections are appended to the ledger; past entries are never edited
+            partnerEarningsService.recordAdjustment(partner.getId(), amount, note, createdBy);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", "Earnings adjustment recorded");
+            response.put("partnerId", partnerId);
+            response.put("amount", amount);
+            response.put("earnings", partnerEarningsService.getSummary(partner.getId()));
+
+            return ResponseEntity.ok(response);
+
+        } catch (Exception e) {
+            log.error("Error adding earnings adjustment: {}", e.getMessage(), e);
+
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", "Error adding adjustment: " + e.getMessage());
+
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+    }
+}
@@ -2,6 +2,8 @@ package com.shopmanagement.controller;
 
 import com.shopmanagement.common.dto.ApiResponse;
 import com.shopmanagement.dto.customer.*;
+import com.shopmanagement.dto.order.OrderResponse;
+import com.shopmanagement.service.CartService;
 import com.shopmanagement.service.CustomerService;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
@@ -13,13 +15,16 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 
 import java.util.Map;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/customers")
@@ -28,6 +33,7 @@ import java.util.Map;
 public class CustomerController {
 
     private final CustomerService customerService;
+    private final CartService cartService;
 
     @GetMapping
     @PreAuthorize("hasRole('SUPER_ADMIN') or hasRole('ADMIN')")
@@ -180,28 +186,81 @@ public class CustomerController {
 
     @GetMapping("/cart")
     @PreAuthorize("hasRole('CUSTOMER') or hasRole('USER')")
-    public ResponseEntity<ApiResponse<Map<String, Object>>> getCart() {
+    public ResponseEntity<ApiResponse<CartService.CartView>> getCart(
+            @RequestParam(required = false) String deliveryType) {
         log.info("Fetching customer cart");
-        Map<String, Object> response = customerService.getCustomerCart();
-        return ResponseEntity.ok(ApiResponse.success(response, "Cart fetched successfully"));
+        return cartResponse(() -> cartService.getCart(deliveryType), "Cart fetched successfully");
     }
 
     @PostMapping("/cart/add")
     @PreAuthorize("hasRole('CUSTOMER') or hasRole('USER')")
-    public ResponseEntity<ApiResponse<Map<String, Object>>> addToCart(
+    public ResponseEntity<ApiResponse<CartService.CartView>> addToCart(
             @Valid @RequestBody CartItemRequest request) {
-        
+        log.info("Adding item to cart - product: {}, quantity: {}",
+            request.getShopProductId(), request.getQuantity());
+        return cartResponse(() -> cartService.addItem(request), "Item added to cart successfully");
+    }
+
+    @PutMapping("/cart/items")
+    @PreAuthorize("hasRole('CUSTOMER') or hasRole('USER')")
+    public ResponseEntity<ApiResponse<CartService.CartView>> updateCartItem(
+            @Valid @RequestBody CartItemRequest request) {
+        return cartResponse(() -> cartService.updateItem(request), "Cart item updated");
+    }
+
+    @DeleteMapping("/cart/items/{shopProductId}")
+    @PreAuthorize("hasRole('CUSTOMER') or hasRole('USER')")
+    public ResponseEntity<ApiResponse<CartService.CartView>> removeFromCart(@PathVariable Long shopProductId) {
+        return cartResponse(() -> cartService.removeItem(shopProductId), "Item removed from cart");
+    }
+
+    @DeleteMapping("/cart")
+    @PreAuthorize("hasRole('CUSTOMER') or hasRole('USER')")
+    public ResponseEntity<ApiResponse<CartService.CartView>> clearCart() {
+        return cartResponse(cartService::clear, "Cart cleared");
+    }
+
+    @PostMapping("/cart/promo")
+    @PreAuthorize("hasRole('CUSTOMER') or hasRole('USER')")
+    public ResponseEntity<ApiResponse<CartService.CartView>> applyPromoCode(@RequestBody Map<String, String> body) {
+        return cartResponse(() -> cartService.applyPromoCode(body.get("code")), "Promo code applied");
+    }
+
+    @DeleteMapping("/cart/promo")
+    @PreAuthorize("hasRole('CUSTOMER') or hasRole('USER')")
+    public ResponseEntity<ApiResponse<CartService.CartView>> removePromoCode() {
+        return cartResponse(cartService::removePromoCode, "Promo code removed");
+    }
+
+    @PostMapping("/cart/checkout")
+    @PreAuthorize("hasRole('CUSTOMER') or hasRole('USER')")
+    public ResponseEntity<ApiResponse<OrderResponse>> checkoutCart(@Valid @RequestBody CartCheckoutRequest request) {
         try {
-            log.info("Adding item to cart - product: {}, quantity: {}", 
-                request.getShopProductId(), request.getQuantity());
-            
-            Map<String, Object> response = customerService.addToCart(request);
-            return ResponseEntity.ok(ApiResponse.success(response, "Item added to cart successfully"));
-            
+            OrderResponse order = cartService.checkout(request);
+            return ResponseEntity.status(HttpStatus.CREATED)
+                    .body(ApiResponse.success(order, "Order placed successfully"));
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(ApiResponse.error("ORDER_CREATION_FAILED", e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error checking out cart", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("ORDER_CREATION_ERROR", "Failed to place order. Please try again."));
+        }
+    }
+
+    // Cart calls answer 400 with the reason for anything the customer can fix (stock, other shop, promo)
+    private ResponseEntity<ApiResponse<CartService.CartView>> cartResponse(
+            Supplier<CartService.CartView> call, String message) {
+        try {
+            return ResponseEntity.ok(ApiResponse.success(call.get(), message));
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(ApiResponse.error("CART_ERROR", e.getMessage()));
         } catch (Exception e) {
-            log.error("Error adding item to cart", e);
+            log.error("Error updating cart", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(ApiResponse.error("Failed to add item to cart", "CART_ERROR"));
+                    .body(ApiResponse.error("CART_ERROR", "Failed to update cart"));
         }
     }
 
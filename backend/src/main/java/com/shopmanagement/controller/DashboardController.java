@@ -7,12 +7,8 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.GetMapping;
-import com.shopmanagement.repository.*;
-import com.shopmanagement.shop.repository.ShopRepository;
-import com.shopmanagement.product.repository.MasterProductRepository;
-// import com.shopmanagement.delivery.repository.DeliveryPartnerRepository;
+import com.shopmanagement.service.PlatformMetricsService;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
@@ -23,56 +19,42 @@ import java.util.Map;
 @Slf4j
 public class DashboardController {
 
-    private final OrderRepository orderRepository;
-    private final UserRepository userRepository;
-    private final CustomerRepository customerRepository;
-    private final ShopRepository shopRepository;
-    private final MasterProductRepository productRepository;
-    // private final DeliveryPartnerRepository deliveryPartnerRepository;
+    private final PlatformMetricsService platformMetricsService;
 
     @GetMapping
     @PreAuthorize("hasRole('SUPER_ADMIN') or hasRole('ADMIN')")
     public ResponseEntity<Map<String, Object>> getDashboardStats() {
         log.info("Fetching dashboard statistics");
+        PlatformMetricsService.PlatformMetrics metrics = platformMetricsService.getMetrics();
+        PlatformMetricsService.EntityCounts counts = metrics.entityCounts();
         
         Map<String, Object> dashboard = new HashMap<>();
         
         // Overview Stats
         Map<String, Object> stats = new HashMap<>();
-        stats.put("totalOrders", orderRepository.count());
-        stats.put("totalUsers", userRepository.count());
-        stats.put("totalShops", shopRepository.count());
-        stats.put("totalProducts", productRepository.count());
-        stats.put("totalCustomers", customerRepository.count());
-        // stats.put("totalDeliveryPartners", deliveryPartnerRepository.count());
-        stats.put("totalDeliveryPartners", 0L);
+        stats.put("totalOrders", metrics.totalOrders());
+        stats.put("totalUsers", counts.users());
+        stats.put("totalShops", counts.shops());
+        stats.put("totalProducts", counts.products());
+        stats.put("totalCustomers", counts.customers());
+        stats.put("totalDeliveryPartners", counts.deliveryPartners());
         
         // Today's Stats
-        LocalDateTime startOfDay = LocalDateTime.now().withHour(0).withMinute(0).withSecond(0);
-        LocalDateTime endOfDay = LocalDateTime.now().withHour(23).withMinute(59).withSecond(59);
-        stats.put("todayOrders", orderRepository.countAnalyticsByPeriod(startOfDay, endOfDay));
+        stats.put("todayOrders", metrics.todayOrders());
         
-        // Revenue Stats (simplified)
-        stats.put("totalRevenue", BigDecimal.valueOf(1250000)); // Placeholder
-        stats.put("todayRevenue", BigDecimal.valueOf(45000)); // Placeholder
-        stats.put("monthlyRevenue", BigDecimal.valueOf(380000)); // Placeholder
+        // Revenue Stats
+        stats.put("totalRevenue", metrics.totalRevenue());
+        stats.put("todayRevenue", metrics.todayRevenue());
+        stats.put("monthlyRevenue", metrics.monthlyRevenue());
         
-        // Order Status Distribution
-        Map<String, Long> orderStatus = new HashMap<>();
-        orderStatus.put("pending", 15L);
-        orderStatus.put("confirmed", 8L);
-        orderStatus.put("preparing", 5L);
-        orderStatus.put("delivered", 45L);
-        orderStatus.put("cancelled", 3L);
-        
-        // Recent Activity
+        // Recent Activity (last 24 hours)
         Map<String, Object> recentActivity = new HashMap<>();
-        recentActivity.put("newOrders", 12);
-        recentActivity.put("newCustomers", 5);
-        recentActivity.put("newShops", 2);
+        recentActivity.put("newOrders", counts.newOrders24h());
+        recentActivity.put("newCustomers", counts.newCustomers24h());
+        recentActivity.put("newShops", counts.newShops24h());
         
         dashboard.put("stats", stats);
-        dashboard.put("orderStatus", orderStatus);
+        dashboard.put("orderStatus", metrics.statusDistribution());
         dashboard.put("recentActivity", recentActivity);
         dashboard.put("timestamp", LocalDateTime.now());
         
@@ -82,11 +64,12 @@ public class DashboardController {
     @GetMapping("/summary")
     @PreAuthorize("hasRole('SUPER_ADMIN') or hasRole('ADMIN')")
     public ResponseEntity<Map<String, Object>> getDashboardSummary() {
+        PlatformMetricsService.PlatformMetrics metrics = platformMetricsService.getMetrics();
         Map<String, Object> summary = new HashMap<>();
-        summary.put("totalOrders", orderRepository.count());
-        summary.put("totalRevenue", BigDecimal.valueOf(1250000));
-        summary.put("activeShops", shopRepository.count());
+        summary.put("totalOrders", metrics.totalOrders());
+        summary.put("totalRevenue", metrics.totalRevenue());
+        summary.put("activeShops", metrics.entityCounts().activeShops());
         summary.put("timestamp", LocalDateTime.now());
         return ResponseEntity.ok(summary);
     }
-}
\ No newline at end of file
+}
@@ -9,6 +9,7 @@ import com.shopmanagement.entity.DeliveryPartnerLocation;
 import com.shopmanagement.entity.UserFcmToken;
 import com.shopmanagement.service.UserService;
 import com.shopmanagement.service.OrderAssignmentService;
+import com.shopmanagement.service.PartnerEarningsService;
 import com.shopmanagement.service.JwtService;
 import com.shopmanagement.repository.OrderRepository;
 import com.shopmanagement.repository.OrderAssignmentRepository;
@@ -79,6 +80,9 @@ public class DeliveryPartnerController {
     @Autowired
     private SimpMessagingTemplate messagingTemplate;
 
+    @Autowired
+    private PartnerEarningsService partnerEarningsService;
+
     @PostMapping("/login")
     public ResponseEntity<Map<String, Object>> login(@RequestBody Map<String, String> request) {
         String email = request.get("email");
@@ -1228,39 +1232,51 @@ public class DeliveryPartnerController {
     }
 
     @GetMapping("/earnings/{partnerId}")
-    public ResponseEntity<Map<String, Object>> getEarnings(@PathVariable String partnerId, @RequestParam(required = false) String period) {
+    public ResponseEntity<Map<String, Object>> getEarnings(@PathVariable String partnerId, @RequestParam(required = false) String period,
+                                                           @RequestParam(defaultValue = "10") int size) {
         Map<String, Object> response = new HashMap<>();
 
         try {
             Long id = Long.parseLong(partnerId);
 
-            // Calculate earnings from completed assignments
-            List<OrderAssignment> completedAssignments = orderAssignmentService.findAssignmentsByPartnerId(id,
-                org.springframework.data.domain.Pageable.unpaged()).getContent()
-                .stream()
-                .filter(assignment -> assignment.getStatus() == OrderAssignment.AssignmentStatus.DELIVERED)
-                .collect(Collectors.toList());
+            // Period totals come from the earnings ledger's running buckets
+            PartnerEarningsService.EarningsSummary summary = partnerEarningsService.getSummary(id);
+            List<PartnerEarningsService.EarningEntry> recent = partnerEarningsService.getRecentEntries(id, 0, size);
 
-            double totalEarnings = completedAssignments.stream()
-                .mapToDouble(assignment -> assignment.getPartnerCommission() != null ? assignment.getPartnerCommission().doubleValue() : 0.0)
-                .sum();
+            response.put("success", true);
+            response.put("todayEarnings", summary.today().amount().doubleValue());
+            response.put("weeklyEarnings", summary.week().amount().doubleValue());
+            response.put("monthlyEarnings", summary.month().amount().doubleValue());
+            response.put("totalEarnings", summary.total().amount().doubleValue());
+            response.put("todayDeliveries", summary.today().deliveries());
+            response.put("weeklyDeliveries", summary.week().deliveries());
+            response.put("monthlyDeliveries", summary.month().deliveries());
+            response.put("totalDeliveries", summary.total().deliveries());
+            response.put("recentEarnings", recent.stream().map(this::earningEntryMap).collect(Collectors.toList()));
 
-            long totalDeliveries = completedAssignments.size();
+            return ResponseEntity.ok(response);
 
-            // Simple earnings calculation (can be enhanced with period filtering)
-            Map<String, Object> earnings = new HashMap<>();
-            earnings.put("todayEarnings", totalEarnings); // Simplified - shows total for now
-            earnings.put("weeklyEarnings", totalEarnings);
-            earnings.put("monthlyEarnings", totalEarnings);
-            earnings.put("totalEarnings", totalEarnings);
-            earnings.put("todayDeliveries", totalDeliveries);
-            earnings.put("weeklyDeliveries", totalDeliveries);
-            earnings.put("monthlyDeliveries", totalDeliveries);
-            earnings.put("totalDeliveries", totalDeliveries);
-            earnings.put("recentEarnings", new ArrayList<>());
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "Error fetching earnings: " + e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    @GetMapping("/earnings/{partnerId}/recent")
+    public ResponseEntity<Map<String, Object>> getRecentEarnings(@PathVariable String partnerId,
+                                                                 @RequestParam(defaultValue = "0") int page,
+                                                                 @RequestParam(defaultValue = "20") int size) {
+        Map<String, Object> response = new HashMap<>();
+
+        try {
+            Long id = Long.parseLong(partnerId);
+            List<PartnerEarningsService.EarningEntry> entries = partnerEarningsService.getRecentEntries(id, page, size);
 
             response.put("success", true);
-            response.putAll(earnings);
+            response.put("page", page);
+            response.put("earnings", entries.stream().map(this::earningEntryMap).collect(Collectors.toList()));
+            response.put("hasMore", entries.size() >= Math.max(1, Math.min(size, PartnerEarningsService.MAX_PAGE_SIZE)));
 
             return ResponseEntity.ok(response);
 
@@ -1271,6 +1287,17 @@ public class DeliveryPartnerController {
         }
     }
 
+    private Map<String, Object> earningEntryMap(PartnerEarningsService.EarningEntry entry) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("id", entry.id());
+        map.put("type", entry.type());
+        map.put("orderNumber", entry.orderNumber());
+        map.put("amount", entry.amount().doubleValue());
+        map.put("note", entry.note());
+        map.put("earnedAt", entry.earnedAt());
+        return map;
+    }
+
     // Customer Order Tracking Endpoints
 
     @GetMapping("/track/order/{orderNumber}")
@@ -3,21 +3,30 @@ package com.shopmanagement.controller;
 import com.shopmanagement.common.dto.ApiResponse;
 import com.shopmanagement.dto.order.OrderResponse;
 import com.shopmanagement.dto.order.PosOrderRequest;
+import com.shopmanagement.dto.order.PosOrderSyncResult;
 import com.shopmanagement.product.entity.ShopProduct;
+import com.shopmanagement.service.PosCatalogSyncService;
+import com.shopmanagement.service.PosOrderSyncService;
 import com.shopmanagement.service.PosService;
 import com.shopmanagement.service.BillSettingsService;
 import com.shopmanagement.common.util.ResponseUtil;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
 
 @Slf4j
 @RestController
@@ -27,6 +36,8 @@ public class PosController {
 
     private final PosService posService;
     private final BillSettingsService billSettingsService;
+    private final PosCatalogSyncService posCatalogSyncService;
+    private final PosOrderSyncService posOrderSyncService;
 
     @GetMapping("/shops/{shopId}/bill-settings")
     @PreAuthorize("hasRole('SUPER_ADMIN') or hasRole('ADMIN') or hasRole('SHOP_OWNER')")
@@ -68,19 +79,24 @@ public class PosController {
     }
 
     /**
-     * Sync multiple offline orders
+     * Sync multiple offline orders in one batch. results is keyed by
+     * offlineOrderId and says per bill whether it was created, was already
+     * synced, or failed (with the reason).
      */
     @PostMapping("/orders/sync")
     @PreAuthorize("hasRole('SUPER_ADMIN') or hasRole('ADMIN') or hasRole('SHOP_OWNER')")
     public ResponseEntity<ApiResponse<Map<String, Object>>> syncOfflineOrders(
             @Valid @RequestBody List<PosOrderRequest> requests) {
         log.info("Syncing {} offline orders", requests.size());
-        List<OrderResponse> responses = posService.syncOfflineOrders(requests);
+        Map<String, PosOrderSyncResult> results = posOrderSyncService.syncOfflineOrders(requests);
 
+        long synced = results.values().stream()
+                .filter(r -> r.getStatus() != PosOrderSyncResult.Status.FAILED)
+                .count();
         Map<String, Object> result = new HashMap<>();
-        result.put("synced", responses.size());
+        result.put("synced", synced);
         result.put("total", requests.size());
-        result.put("orders", responses);
+        result.put("results", results);
 
         return ResponseUtil.success(result, "Offline orders synced successfully");
     }
@@ -186,7 +202,8 @@ public class PosController {
 
     /**
      * Get all products for a shop (for offline caching)
-     * Returns lightweight product data optimized for POS
+     * Returns lightweight product data optimized for POS.
+     * Clients that keep a sync version use /products/{shopId}/changes instead.
      */
     @GetMapping("/products/{shopId}")
     @PreAuthorize("hasRole('SUPER_ADMIN') or hasRole('ADMIN') or hasRole('SHOP_OWNER')")
@@ -204,6 +221,50 @@ public class PosController {
         return ResponseUtil.success(productData, "Products fetched for cache");
     }
 
+    /**
+     * Catalog changes since the version returned by the client's last sync
+     * (0 on first sync). Rows are columnar in the order given by fields; removed lists product
+     * ids to drop. reset=true means the client must replace its whole cache.
+     */
+    @GetMapping("/products/{shopId}/changes")
+    @PreAuthorize("hasRole('SUPER_ADMIN') or hasRole('ADMIN') or hasRole('SHOP_OWNER')")
+    public ResponseEntity<ApiResponse<PosCatalogSyncService.CatalogChanges>> getProductChanges(
+            @PathVariable Long shopId,
+            @RequestParam(required = false) Long since) {
+        PosCatalogSyncService.CatalogChanges changes = posCatalogSyncService.changesSince(shopId, since);
+        log.debug("POS catalog sync - shop: {}, since: {}, version: {}, rows: {}, removed: {}",
+                shopId, since, changes.version(), changes.rows().size(), changes.removed().size());
+        return ResponseUtil.success(changes, "Catalog changes fetched");
+    }
+
+    /**
+     * Full catalog for a cold start, in the same shape as a reset from
+     * /changes. Sent gzipped to clients that accept it; the ETag is the
+     * version it was built at, so an unchanged catalog costs a 304.
+     */
+    @GetMapping("/products/{shopId}/snapshot")
+    @PreAuthorize("hasRole('SUPER_ADMIN') or hasRole('ADMIN') or hasRole('SHOP_OWNER')")
+    public ResponseEntity<byte[]> getProductSnapshot(
+            @PathVariable Long shopId,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) throws IOException {
+        PosCatalogSyncService.CatalogSnapshot snapshot = posCatalogSyncService.snapshot(shopId);
+        String etag = "\"catalog-" + shopId + "-" + snapshot.version() + "\"";
+        if (etag.equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(etag)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(snapshot.gzip());
+        }
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(snapshot.gzip()))) {
+            return response.body(in.readAllBytes());
+        }
+    }
+
     /**
      * Map ShopProduct to lightweight format for offline cache
      * Optimized for minimal data transfer and fast search
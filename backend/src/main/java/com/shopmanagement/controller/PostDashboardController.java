@@ -3,6 +3,7 @@ package com.shopmanagement.controller;
 import com.shopmanagement.common.dto.ApiResponse;
 import com.shopmanagement.common.util.ResponseUtil;
 import com.shopmanagement.service.PostDashboardService;
+import com.shopmanagement.service.PostExpirySchedulerService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
@@ -20,6 +21,7 @@ import java.util.Map;
 public class PostDashboardController {
 
     private final PostDashboardService postDashboardService;
+    private final PostExpirySchedulerService postExpirySchedulerService;
 
     @GetMapping("/stats")
     @PreAuthorize("hasRole('ADMIN') or hasRole('SUPER_ADMIN')")
@@ -32,4 +34,10 @@ public class PostDashboardController {
             return ResponseUtil.error(e.getMessage());
         }
     }
+
+    @GetMapping("/expiry-progress")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('SUPER_ADMIN')")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getExpiryProgress() {
+        return ResponseUtil.success(postExpirySchedulerService.getProgress(), "Post expiry job progress retrieved successfully");
+    }
 }
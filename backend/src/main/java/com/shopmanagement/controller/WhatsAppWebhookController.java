@@ -1,8 +1,7 @@
 package com.shopmanagement.controller;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.shopmanagement.service.WhatsAppInboundService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.shopmanagement.service.WhatsAppWebhookIngestionService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -31,8 +30,7 @@ import java.nio.charset.StandardCharsets;
 @Slf4j
 public class WhatsAppWebhookController {
 
-    private final WhatsAppInboundService inboundService;
-    private final ObjectMapper objectMapper;
+    private final WhatsAppWebhookIngestionService ingestionService;
 
     @Value("${whatsapp.meta.webhook-verify-token:}")
     private String verifyToken;
@@ -58,8 +56,10 @@ public class WhatsAppWebhookController {
 
     /**
      * Message delivery. Raw body is needed for the signature check, so bind it
-     * as String and parse manually. Always answers 200 after a valid signature —
-     * a non-2xx makes Meta retry the same payload for days.
+     * as String and parse manually. Answers 200 as soon as the payload is
+     * stored — the order bot runs afterwards on the ingestion workers, so a
+     * slow bot reply can no longer make Meta time out and retry. Only a
+     * payload we failed to store gets a 503, precisely so Meta retries it.
      */
     @PostMapping
     public ResponseEntity<Void> receive(
@@ -70,10 +70,12 @@ public class WhatsAppWebhookController {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
         }
         try {
-            JsonNode root = objectMapper.readTree(rawBody);
-            inboundService.processWebhook(root);
-        } catch (Exception e) {
+            ingestionService.ingest(rawBody);
+        } catch (JsonProcessingException e) {
             log.error("Unparseable WhatsApp webhook payload", e);
+        } catch (Exception e) {
+            log.error("Could not store WhatsApp webhook payload; Meta will retry", e);
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
         }
         return ResponseEntity.ok().build();
     }
@@ -0,0 +1,49 @@
+package com.shopmanagement.dto.customer;
+
+import jakarta.validation.constraints.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Places the customer's server-side cart as an order. Items, shop and promo
+ * code come from the cart; only payment and delivery details are sent.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CartCheckoutRequest {
+
+    @NotNull(message = "Payment method is required")
+    @Pattern(regexp = "CASH_ON_DELIVERY|ONLINE|UPI|CARD", message = "Payment method must be CASH_ON_DELIVERY, ONLINE, UPI, or CARD")
+    private String paymentMethod;
+
+    @Pattern(regexp = "SELF_PICKUP|HOME_DELIVERY", message = "Delivery type must be SELF_PICKUP or HOME_DELIVERY")
+    private String deliveryType;
+
+    @Size(max = 500, message = "Delivery address cannot exceed 500 characters")
+    private String deliveryAddress;
+
+    @Size(max = 100, message = "Delivery contact name cannot exceed 100 characters")
+    private String deliveryContactName;
+
+    @Pattern(regexp = "^[+]?[0-9]{10,15}$", message = "Please provide a valid delivery phone number")
+    private String deliveryPhone;
+
+    @Size(max = 100, message = "Delivery city cannot exceed 100 characters")
+    private String deliveryCity;
+
+    @Size(max = 100, message = "Delivery state cannot exceed 100 characters")
+    private String deliveryState;
+
+    @Size(max = 20, message = "Delivery postal code cannot exceed 20 characters")
+    private String deliveryPostalCode;
+
+    @Size(max = 500, message = "Notes cannot exceed 500 characters")
+    private String notes;
+
+    // Checked against the promo code's per-device limit
+    private String deviceUuid;
+}
@@ -0,0 +1,31 @@
+package com.shopmanagement.dto.order;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Outcome of one offline bill in a batch sync. DUPLICATE bills were already
+ * synced (earlier, or twice in the same batch) and carry the existing order.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PosOrderSyncResult {
+
+    public enum Status {
+        CREATED, DUPLICATE, FAILED
+    }
+
+    private String offlineOrderId;
+    private Status status;
+    private Long orderId;
+    private String orderNumber;
+    private BigDecimal totalAmount;
+    // Why a FAILED bill was rejected (unknown product, insufficient stock...)
+    private String message;
+}
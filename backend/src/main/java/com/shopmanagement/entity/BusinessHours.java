@@ -1,5 +1,6 @@
 package com.shopmanagement.entity;
 
+import com.shopmanagement.event.BusinessHoursChangeListener;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -19,7 +20,7 @@ import java.time.LocalTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
-@EntityListeners(AuditingEntityListener.class)
+@EntityListeners({AuditingEntityListener.class, BusinessHoursChangeListener.class})
 public class BusinessHours {
     
     @Id
@@ -0,0 +1,15 @@
+package com.shopmanagement.entity;
+
+/**
+ * Classified-post entities that carry an optional map location and the paid
+ * flag. Lets shared listeners (feed cache invalidation) read a post without
+ * knowing its module; the Lombok getters of each entity implement it.
+ */
+public interface LocatedPost {
+
+    Number getLatitude();
+
+    Number getLongitude();
+
+    Boolean getIsPaid();
+}
@@ -1,5 +1,6 @@
 package com.shopmanagement.entity;
 
+import com.shopmanagement.event.PostChangeListener;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -18,8 +19,8 @@ import java.time.LocalDateTime;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-@EntityListeners(AuditingEntityListener.class)
-public class MarketplacePost {
+@EntityListeners({AuditingEntityListener.class, PostChangeListener.class})
+public class MarketplacePost implements LocatedPost {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -5,6 +5,7 @@ import lombok.*;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 import com.shopmanagement.shop.entity.Shop;
+import com.shopmanagement.event.OrderChangeListener;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -20,6 +21,7 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
+@EntityListeners(OrderChangeListener.class)
 public class Order {
     
     @Id
@@ -156,6 +158,13 @@ public class Order {
     @UpdateTimestamp
     @Column(nullable = false)
     private LocalDateTime updatedAt;
+
+    // Metrics-relevant state as last loaded or saved; lets OrderChangeListener
+    // turn a save into a status/revenue delta. Java-transient, so JPA and
+    // Lombok's equals/hashCode both ignore it.
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient MetricsState loadedMetricsState;
     
     // Enums
     public enum OrderStatus {
@@ -209,6 +218,29 @@ public class Order {
         return paymentStatus == PaymentStatus.PAID;
     }
 
+    /** Counted as revenue: paid online, or delivered/completed (cash on delivery). */
+    public boolean countsAsRevenue() {
+        return isPaid() || status == OrderStatus.DELIVERED || status == OrderStatus.COMPLETED;
+    }
+
+    public MetricsState currentMetricsState() {
+        return new MetricsState(status, countsAsRevenue(),
+                totalAmount != null ? totalAmount : BigDecimal.ZERO);
+    }
+
+    public void rememberMetricsState() {
+        loadedMetricsState = currentMetricsState();
+    }
+
+    /** State as loaded from the DB (or last saved); null for a new order. */
+    public MetricsState loadedMetricsState() {
+        return loadedMetricsState;
+    }
+
+    /** What per-shop and platform order metrics are built from. */
+    public record MetricsState(OrderStatus status, boolean revenue, BigDecimal amount) {
+    }
+
     @Transient
     public Boolean getAssignedToDeliveryPartner() {
         if (orderAssignments == null || orderAssignments.isEmpty()) {
@@ -1,10 +1,14 @@
 package com.shopmanagement.entity;
 
+import com.shopmanagement.event.UserAccessChangeListener;
 import jakarta.persistence.*;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
@@ -24,7 +28,7 @@ import java.util.Set;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-@EntityListeners(AuditingEntityListener.class)
+@EntityListeners({AuditingEntityListener.class, UserAccessChangeListener.class})
 public class User implements UserDetails {
 
     @Id
@@ -171,6 +175,13 @@ public class User implements UserDetails {
     @Builder.Default
     private Set<Long> assignedShopIds = new HashSet<>();
 
+    // Role/enabled state as last loaded or saved; lets UserAccessChangeListener
+    // tell access changes apart from routine updates. Java-transient, so JPA
+    // and Lombok's equals/hashCode both ignore it.
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient String loadedAccessState;
+
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
         return List.of(new SimpleGrantedAuthority("ROLE_" + role.name()));
@@ -210,6 +221,18 @@ public class User implements UserDetails {
         return accountLockedUntil != null && accountLockedUntil.isAfter(LocalDateTime.now());
     }
     
+    public void rememberAccessState() {
+        loadedAccessState = currentAccessState();
+    }
+
+    public boolean accessStateChanged() {
+        return loadedAccessState != null && !loadedAccessState.equals(currentAccessState());
+    }
+
+    private String currentAccessState() {
+        return role + ":" + status + ":" + Boolean.TRUE.equals(isActive);
+    }
+
     public boolean isAdmin() {
         return role == UserRole.ADMIN || role == UserRole.SUPER_ADMIN;
     }
@@ -0,0 +1,57 @@
+package com.shopmanagement.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * One row per Meta webhook delivery that carried at least one new message.
+ * Written before the webhook is acknowledged; the order bot then runs on the
+ * ingestion worker pool and flips the row to PROCESSED.
+ */
+@Entity
+@Table(name = "whatsapp_webhook_payloads")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class WhatsAppWebhookPayload {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /** The JSON body exactly as Meta sent it (signature already verified). */
+    @Column(name = "raw_body", nullable = false, columnDefinition = "TEXT")
+    private String rawBody;
+
+    /** Number of new messages dispatched from this payload. */
+    @Column(name = "message_count", nullable = false)
+    @Builder.Default
+    private Integer messageCount = 0;
+
+    /** RECEIVED -> PROCESSED, or FAILED when a message escaped the bot's own error handling */
+    @Column(nullable = false, length = 20)
+    @Builder.Default
+    private String status = "RECEIVED";
+
+    @Column(length = 500)
+    private String error;
+
+    @Column(name = "received_at", nullable = false, updatable = false)
+    private LocalDateTime receivedAt;
+
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        if (receivedAt == null) {
+            receivedAt = LocalDateTime.now();
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.shopmanagement.event;
+
+import com.shopmanagement.entity.BusinessHours;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA entity listener on {@link BusinessHours}: publishes a
+ * {@link BusinessHoursChangedEvent} so the shop's open/close schedule is
+ * recompiled.
+ */
+@Component
+@RequiredArgsConstructor
+public class BusinessHoursChangeListener {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(BusinessHours hours) {
+        if (hours.getShopId() != null) {
+            eventPublisher.publishEvent(new BusinessHoursChangedEvent(this, hours.getShopId()));
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.shopmanagement.event;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * A shop's weekly business hours were created, edited or removed.
+ */
+@Getter
+public class BusinessHoursChangedEvent extends ApplicationEvent {
+
+    private final Long shopId;
+
+    public BusinessHoursChangedEvent(Object eventSource, Long shopId) {
+        super(eventSource);
+        this.shopId = shopId;
+    }
+}
@@ -0,0 +1,23 @@
+package com.shopmanagement.event;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * The external moderation provider returned a verdict for an uploaded image
+ * that was checked in the background. Published by
+ * ImageContentModerationService so posts held for that image can be approved
+ * or rejected.
+ */
+@Getter
+public class ImageModerationVerdictEvent extends ApplicationEvent {
+
+    private final String sha256;
+    private final boolean unsafe;
+
+    public ImageModerationVerdictEvent(Object eventSource, String sha256, boolean unsafe) {
+        super(eventSource);
+        this.sha256 = sha256;
+        this.unsafe = unsafe;
+    }
+}
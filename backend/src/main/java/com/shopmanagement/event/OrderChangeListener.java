@@ -0,0 +1,75 @@
+package com.shopmanagement.event;
+
+import com.shopmanagement.entity.Order;
+import com.shopmanagement.entity.OrderItem;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Hibernate;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+/**
+ * JPA entity listener on {@link Order}: remembers the metrics-relevant state
+ * on load and publishes an {@link OrderStateChangedEvent} when a save changes
+ * it (status, payment, amount), so counters are maintained wherever in the
+ * code a status transition happens.
+ */
+@Component
+@RequiredArgsConstructor
+public class OrderChangeListener {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @PostLoad
+    public void onLoad(Order order) {
+        order.rememberMetricsState();
+    }
+
+    @PostPersist
+    public void onCreate(Order order) {
+        publish(order, null, order.currentMetricsState(), itemCount(order));
+        order.rememberMetricsState();
+    }
+
+    @PostUpdate
+    public void onUpdate(Order order) {
+        Order.MetricsState previous = order.loadedMetricsState();
+        Order.MetricsState current = order.currentMetricsState();
+        if (previous != null && !previous.equals(current)) {
+            publish(order, previous, current, 0);
+        }
+        order.rememberMetricsState();
+    }
+
+    @PostRemove
+    public void onDelete(Order order) {
+        Order.MetricsState previous = order.loadedMetricsState();
+        publish(order, previous != null ? previous : order.currentMetricsState(), null, 0);
+    }
+
+    private void publish(Order order, Order.MetricsState previous, Order.MetricsState current, int itemCount) {
+        if (order.getShop() == null) {
+            return;
+        }
+        LocalDateTime createdAt = order.getCreatedAt() != null ? order.getCreatedAt() : LocalDateTime.now();
+        Long customerId = order.getCustomer() != null ? order.getCustomer().getId() : null;
+        eventPublisher.publishEvent(new OrderStateChangedEvent(this, order.getId(), order.getShop().getId(),
+                customerId, createdAt, previous, current, itemCount));
+    }
+
+    private static int itemCount(Order order) {
+        if (order.getOrderItems() == null || !Hibernate.isInitialized(order.getOrderItems())) {
+            return 0;
+        }
+        return order.getOrderItems().stream()
+                .map(OrderItem::getQuantity)
+                .filter(quantity -> quantity != null)
+                .mapToInt(Integer::intValue)
+                .sum();
+    }
+}
@@ -0,0 +1,49 @@
+package com.shopmanagement.event;
+
+import com.shopmanagement.entity.Order;
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+import java.time.LocalDateTime;
+
+/**
+ * An order was placed, changed status/payment/amount, or was deleted.
+ * Published synchronously from the JPA flush, i.e. inside the transaction
+ * that made the change: listeners that write (metrics counters) commit or
+ * roll back together with the order.
+ *
+ * previous is null for a new order, current is null for a deleted one.
+ */
+@Getter
+public class OrderStateChangedEvent extends ApplicationEvent {
+
+    private final Long orderId;
+    private final Long shopId;
+    private final Long customerId;
+    private final LocalDateTime orderCreatedAt;
+    private final Order.MetricsState previous;
+    private final Order.MetricsState current;
+    /** Total item quantity; only filled in for new orders. */
+    private final int itemCount;
+
+    public OrderStateChangedEvent(Object eventSource, Long orderId, Long shopId, Long customerId,
+                                  LocalDateTime orderCreatedAt, Order.MetricsState previous,
+                                  Order.MetricsState current, int itemCount) {
+        super(eventSource);
+        this.orderId = orderId;
+        this.shopId = shopId;
+        this.customerId = customerId;
+        this.orderCreatedAt = orderCreatedAt;
+        this.previous = previous;
+        this.current = current;
+        this.itemCount = itemCount;
+    }
+
+    public boolean isPlaced() {
+        return previous == null && current != null;
+    }
+
+    public boolean statusChanged() {
+        return previous != null && current != null && previous.status() != current.status();
+    }
+}
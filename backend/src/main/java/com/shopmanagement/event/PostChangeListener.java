@@ -0,0 +1,50 @@
+package com.shopmanagement.event;
+
+import com.shopmanagement.entity.LocatedPost;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA entity listener shared by the post entities: turns every persisted
+ * change into a {@link PostChangedEvent} carrying the entity type, and the
+ * paid flag and location for {@link LocatedPost}s.
+ * Bulk JPQL updates (e.g. expiry) bypass entity callbacks; consumers keep a
+ * TTL as a backstop.
+ */
+@Component
+@RequiredArgsConstructor
+public class PostChangeListener {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @PostPersist
+    public void onCreate(Object post) {
+        publish(post, PostChangedEvent.Change.CREATED);
+    }
+
+    @PostUpdate
+    public void onUpdate(Object post) {
+        publish(post, PostChangedEvent.Change.UPDATED);
+    }
+
+    @PostRemove
+    public void onDelete(Object post) {
+        publish(post, PostChangedEvent.Change.DELETED);
+    }
+
+    private void publish(Object post, PostChangedEvent.Change change) {
+        boolean paid = false;
+        Double latitude = null;
+        Double longitude = null;
+        if (post instanceof LocatedPost located) {
+            paid = Boolean.TRUE.equals(located.getIsPaid());
+            latitude = located.getLatitude() != null ? located.getLatitude().doubleValue() : null;
+            longitude = located.getLongitude() != null ? located.getLongitude().doubleValue() : null;
+        }
+        eventPublisher.publishEvent(new PostChangedEvent(this, post.getClass(), change, paid, latitude, longitude));
+    }
+}
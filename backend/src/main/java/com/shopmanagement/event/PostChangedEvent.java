@@ -0,0 +1,40 @@
+package com.shopmanagement.event;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * A classified post (labour, travel, parcel, marketplace, farmer, real estate,
+ * rental, women's corner, local shop) was created, updated or deleted.
+ * Published by {@link PostChangeListener} for every JPA write, so moderation
+ * stats and other post aggregates can drop stale data.
+ *
+ * latitude/longitude are null for posts without a location.
+ */
+@Getter
+public class PostChangedEvent extends ApplicationEvent {
+
+    public enum Change {
+        CREATED, UPDATED, DELETED
+    }
+
+    private final Class<?> postType;
+    private final Change change;
+    private final boolean paid;
+    private final Double latitude;
+    private final Double longitude;
+
+    public PostChangedEvent(Object eventSource, Class<?> postType, Change change,
+                            boolean paid, Double latitude, Double longitude) {
+        super(eventSource);
+        this.postType = postType;
+        this.change = change;
+        this.paid = paid;
+        this.latitude = latitude;
+        this.longitude = longitude;
+    }
+
+    public boolean hasLocation() {
+        return latitude != null && longitude != null;
+    }
+}
@@ -0,0 +1,29 @@
+package com.shopmanagement.event;
+
+import com.shopmanagement.entity.Promotion;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA entity listener on {@link Promotion}: publishes a
+ * {@link PromotionChangedEvent} so the promotion is recompiled.
+ */
+@Component
+@RequiredArgsConstructor
+public class PromotionChangeListener {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(Promotion promotion) {
+        if (promotion.getId() != null) {
+            eventPublisher.publishEvent(new PromotionChangedEvent(this, promotion.getId()));
+        }
+    }
+}
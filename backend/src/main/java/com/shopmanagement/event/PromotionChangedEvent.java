@@ -0,0 +1,18 @@
+package com.shopmanagement.event;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * A promotion was created, edited (status, dates, limits...) or deleted.
+ */
+@Getter
+public class PromotionChangedEvent extends ApplicationEvent {
+
+    private final Long promotionId;
+
+    public PromotionChangedEvent(Object eventSource, Long promotionId) {
+        super(eventSource);
+        this.promotionId = promotionId;
+    }
+}
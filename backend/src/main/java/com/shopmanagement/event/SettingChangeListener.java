@@ -0,0 +1,28 @@
+package com.shopmanagement.event;
+
+import com.shopmanagement.entity.Setting;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA entity listener on {@link Setting}: every persisted change becomes a
+ * {@link SettingsChangedEvent}, so the in-memory settings snapshot is swapped
+ * on the node that made the change.
+ */
+@Component
+@RequiredArgsConstructor
+public class SettingChangeListener {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(Setting setting) {
+        eventPublisher.publishEvent(new SettingsChangedEvent(this, setting.getSettingKey()));
+    }
+}
@@ -0,0 +1,18 @@
+package com.shopmanagement.event;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * A row in the settings table was created, updated or deleted on this node.
+ */
+@Getter
+public class SettingsChangedEvent extends ApplicationEvent {
+
+    private final String settingKey;
+
+    public SettingsChangedEvent(Object eventSource, String settingKey) {
+        super(eventSource);
+        this.settingKey = settingKey;
+    }
+}
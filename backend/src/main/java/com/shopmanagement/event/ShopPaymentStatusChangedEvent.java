@@ -0,0 +1,20 @@
+package com.shopmanagement.event;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * A shop's pay-and-use state may have changed (payment verified, price set,
+ * blocked flag recomputed). A null shopId means "any shop" (global duration
+ * change, daily recheck).
+ */
+@Getter
+public class ShopPaymentStatusChangedEvent extends ApplicationEvent {
+
+    private final Long shopId;
+
+    public ShopPaymentStatusChangedEvent(Object eventSource, Long shopId) {
+        super(eventSource);
+        this.shopId = shopId;
+    }
+}
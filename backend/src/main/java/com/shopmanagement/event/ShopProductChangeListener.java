@@ -0,0 +1,46 @@
+package com.shopmanagement.event;
+
+import com.shopmanagement.product.entity.ShopProduct;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA entity listener on {@link ShopProduct}: turns every persisted change
+ * into a {@link ShopProductChangedEvent}. Hibernate resolves it through the
+ * Spring bean container, so the publisher is injected normally.
+ * Bulk JPQL updates bypass entity callbacks; caches relying on this event
+ * keep a TTL as a backstop.
+ */
+@Component
+@RequiredArgsConstructor
+public class ShopProductChangeListener {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @PostPersist
+    public void onCreate(ShopProduct product) {
+        publish(product, ShopProductChangedEvent.Change.CREATED);
+    }
+
+    @PostUpdate
+    public void onUpdate(ShopProduct product) {
+        publish(product, ShopProductChangedEvent.Change.UPDATED);
+    }
+
+    @PostRemove
+    public void onDelete(ShopProduct product) {
+        publish(product, ShopProductChangedEvent.Change.DELETED);
+    }
+
+    private void publish(ShopProduct product, ShopProductChangedEvent.Change change) {
+        if (product.getShop() == null) {
+            return;
+        }
+        eventPublisher.publishEvent(new ShopProductChangedEvent(
+                this, product.getShop().getId(), product.getId(), change));
+    }
+}
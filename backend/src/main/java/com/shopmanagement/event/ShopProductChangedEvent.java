@@ -0,0 +1,28 @@
+package com.shopmanagement.event;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * A shop product row was inserted, updated or deleted (price, stock,
+ * availability, name...). Published by {@link ShopProductChangeListener} for
+ * every JPA write, so in-memory per-shop views can drop stale data.
+ */
+@Getter
+public class ShopProductChangedEvent extends ApplicationEvent {
+
+    public enum Change {
+        CREATED, UPDATED, DELETED
+    }
+
+    private final Long shopId;
+    private final Long shopProductId;
+    private final Change change;
+
+    public ShopProductChangedEvent(Object eventSource, Long shopId, Long shopProductId, Change change) {
+        super(eventSource);
+        this.shopId = shopId;
+        this.shopProductId = shopProductId;
+        this.change = change;
+    }
+}
@@ -0,0 +1,40 @@
+package com.shopmanagement.event;
+
+import com.shopmanagement.entity.User;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA entity listener on {@link User}: publishes a {@link UserAccessChangedEvent}
+ * whenever an update changes the role or enabled state, whichever service
+ * made it (admin edits, suspensions, shop-owner promotion...). Routine writes
+ * such as last-login or location updates publish nothing.
+ */
+@Component
+@RequiredArgsConstructor
+public class UserAccessChangeListener {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @PostLoad
+    public void onLoad(User user) {
+        user.rememberAccessState();
+    }
+
+    @PostUpdate
+    public void onUpdate(User user) {
+        if (user.accessStateChanged()) {
+            eventPublisher.publishEvent(new UserAccessChangedEvent(this, user.getId(), user.getUsername()));
+        }
+        user.rememberAccessState();
+    }
+
+    @PostRemove
+    public void onDelete(User user) {
+        eventPublisher.publishEvent(new UserAccessChangedEvent(this, user.getId(), user.getUsername()));
+    }
+}
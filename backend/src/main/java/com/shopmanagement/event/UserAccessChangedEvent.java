@@ -0,0 +1,22 @@
+package com.shopmanagement.event;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * A user's role or enabled state changed (or the user was deleted).
+ * Anything that trusts signed token claims must stop trusting tokens issued
+ * before this point.
+ */
+@Getter
+public class UserAccessChangedEvent extends ApplicationEvent {
+
+    private final Long userId;
+    private final String username;
+
+    public UserAccessChangedEvent(Object eventSource, Long userId, String username) {
+        super(eventSource);
+        this.userId = userId;
+        this.username = username;
+    }
+}
@@ -1,12 +1,14 @@
 package com.shopmanagement.product.controller;
 
 import com.shopmanagement.common.dto.ApiResponse;
+import com.shopmanagement.product.dto.BulkImportJobStatus;
 import com.shopmanagement.product.dto.BulkImportResponse;
 import com.shopmanagement.product.service.BulkProductImportService;
 import com.shopmanagement.shop.entity.Shop;
 import com.shopmanagement.shop.service.ShopService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -16,6 +18,7 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -146,6 +149,101 @@ public class BulkProductImportController {
         }
     }
 
+    /**
+     * Super Admin - Queue a master product import; returns the job id to poll
+     */
+    @PostMapping(value = "/jobs/master", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @PreAuthorize("hasRole('SUPER_ADMIN') or hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<BulkImportJobStatus>> submitMasterImport(
+            @RequestParam("file") MultipartFile excelFile,
+            @RequestParam(value = "images", required = false) List<MultipartFile> images) {
+
+        String invalid = validateExcelFile(excelFile);
+        if (invalid != null) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(invalid));
+        }
+        try {
+            BulkImportJobStatus job = bulkProductImportService.submitMasterImport(excelFile, images);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(ApiResponse.success(job, "Import queued"));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(ApiResponse.error(e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error queueing master product bulk import", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(
+                    ApiResponse.error("Import failed: " + e.getMessage())
+            );
+        }
+    }
+
+    /**
+     * Shop Owner - Queue an import into their shop; returns the job id to poll
+     */
+    @PostMapping(value = "/jobs/shop-products", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @PreAuthorize("hasRole('SHOP_OWNER') or hasRole('ADMIN') or hasRole('SUPER_ADMIN')")
+    public ResponseEntity<ApiResponse<BulkImportJobStatus>> submitShopImport(
+            @RequestParam("file") MultipartFile excelFile,
+            @RequestParam(value = "images", required = false) List<MultipartFile> images) {
+
+        String invalid = validateExcelFile(excelFile);
+        if (invalid != null) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(invalid));
+        }
+        try {
+            String currentUsername = SecurityContextHolder.getContext().getAuthentication().getName();
+            Shop currentShop = shopService.getShopByOwner(currentUsername);
+            if (currentShop == null) {
+                return ResponseEntity.badRequest().body(ApiResponse.error(
+                        "No shop found for current user. Please ensure you have a shop registered."
+                ));
+            }
+            BulkImportJobStatus job = bulkProductImportService.submitShopImport(currentShop.getId(), excelFile, images);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(ApiResponse.success(job, "Import queued"));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(ApiResponse.error(e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error queueing shop product bulk import", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(
+                    ApiResponse.error("Import failed: " + e.getMessage())
+            );
+        }
+    }
+
+    /**
+     * Progress of an import job submitted by the current user
+     */
+    @GetMapping("/jobs/{jobId}")
+    @PreAuthorize("hasRole('SHOP_OWNER') or hasRole('ADMIN') or hasRole('SUPER_ADMIN')")
+    public ResponseEntity<ApiResponse<BulkImportJobStatus>> getJobStatus(@PathVariable String jobId) {
+        return bulkProductImportService.getJobStatus(jobId)
+                .map(job -> ResponseEntity.ok(ApiResponse.success(job, "Import job status")))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).body(ApiResponse.error("Import job not found")));
+    }
+
+    /**
+     * Failed rows of an import job, as CSV
+     */
+    @GetMapping("/jobs/{jobId}/errors")
+    @PreAuthorize("hasRole('SHOP_OWNER') or hasRole('ADMIN') or hasRole('SUPER_ADMIN')")
+    public ResponseEntity<byte[]> downloadErrorReport(@PathVariable String jobId) {
+        return bulkProductImportService.getErrorReport(jobId)
+                .map(csv -> ResponseEntity.ok()
+                        .contentType(new MediaType("text", "csv", StandardCharsets.UTF_8))
+                        .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"import-errors-" + jobId + ".csv\"")
+                        .body(csv.getBytes(StandardCharsets.UTF_8)))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    private String validateExcelFile(MultipartFile excelFile) {
+        if (excelFile.isEmpty()) {
+            return "Excel file is required";
+        }
+        String filename = excelFile.getOriginalFilename();
+        if (filename == null || !filename.endsWith(".xlsx")) {
+            return "Invalid file format. Please upload an Excel file (.xlsx)";
+        }
+        return null;
+    }
+
     /**
      * Get Excel template information
      */
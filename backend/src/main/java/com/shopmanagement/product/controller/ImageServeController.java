@@ -1,88 +1,80 @@
 package com.shopmanagement.product.controller;
 
+import com.shopmanagement.service.ImageDerivativeService;
+import com.shopmanagement.service.UploadFileServer;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.util.UriUtils;
 
 import java.io.IOException;
-import java.net.MalformedURLException;
-import java.nio.file.Files;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 
+/**
+ * Serves uploaded images through {@link UploadFileServer}: ETag/Last-Modified
+ * revalidation, byte ranges, long-lived caching for content-addressed names and
+ * sendfile streaming. GET mappings answer HEAD as well.
+ */
 @RestController
 @RequestMapping("/uploads")
+@RequiredArgsConstructor
 public class ImageServeController {
 
+    private final ImageDerivativeService imageDerivativeService;
+    private final UploadFileServer uploadFileServer;
+
     @Value("${app.upload.dir:./uploads}")
     private String uploadDir;
 
+    /**
+     * Serves a product image. {@code ?size=thumb|grid|detail} picks a
+     * pre-scaled derivative (WebP when the client accepts it), falling back to
+     * the original until the derivative has been generated.
+     */
     @GetMapping("/products/{type}/{filename:.+}")
-    public ResponseEntity<Resource> serveProductImage(
+    public void serveProductImage(
             @PathVariable String type,
-            @PathVariable String filename) {
-        try {
-            Path filePath = Paths.get(uploadDir, "products", type, filename).normalize();
-            Resource resource = new UrlResource(filePath.toUri());
-            
-            if (resource.exists() && resource.isReadable()) {
-                String contentType = Files.probeContentType(filePath);
-                if (contentType == null) {
-                    contentType = "application/octet-stream";
-                }
-                
-                return ResponseEntity.ok()
-                        .contentType(MediaType.parseMediaType(contentType))
-                        .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + resource.getFilename() + "\"")
-                        .body(resource);
-            } else {
-                System.out.println("File not found: " + filePath.toString());
-                return ResponseEntity.notFound().build();
-            }
-        } catch (MalformedURLException e) {
-            System.err.println("Error constructing file URL: " + e.getMessage());
-            return ResponseEntity.badRequest().build();
-        } catch (IOException e) {
-            System.err.println("Error reading file: " + e.getMessage());
-            return ResponseEntity.internalServerError().build();
-        }
+            @PathVariable String filename,
+            @RequestParam(required = false) String size,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        serve("products/" + type + "/" + filename, size, request, response);
     }
-    
-    @GetMapping("/farmer-products/{filename:.+}")
-    public ResponseEntity<Resource> serveFarmerProductImage(
-            @PathVariable String filename) {
-        try {
-            Path filePath = Paths.get(uploadDir, "farmer-products", filename).normalize();
-            Resource resource = new UrlResource(filePath.toUri());
 
-            if (resource.exists() && resource.isReadable()) {
-                String contentType = Files.probeContentType(filePath);
-                if (contentType == null) {
-                    contentType = "application/octet-stream";
-                }
+    @GetMapping("/farmer-products/{filename:.+}")
+    public void serveFarmerProductImage(
+            @PathVariable String filename,
+            @RequestParam(required = false) String size,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        serve("farmer-products/" + filename, size, request, response);
+    }
 
-                return ResponseEntity.ok()
-                        .contentType(MediaType.parseMediaType(contentType))
-                        .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + resource.getFilename() + "\"")
-                        .body(resource);
-            } else {
-                System.out.println("Farmer product image not found: " + filePath.toString());
-                return ResponseEntity.notFound().build();
-            }
-        } catch (MalformedURLException e) {
-            System.err.println("Error constructing file URL: " + e.getMessage());
-            return ResponseEntity.badRequest().build();
-        } catch (IOException e) {
-            System.err.println("Error reading file: " + e.getMessage());
-            return ResponseEntity.internalServerError().build();
-        }
+    /**
+     * Any other upload (shop logos, post and combo images, ...) requested with
+     * {@code ?size=}; without the parameter those stay on the static /uploads
+     * resource handler.
+     */
+    @GetMapping(value = "/**", params = "size")
+    public void serveSizedUpload(
+            @RequestParam String size,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        String relative = UriUtils.decode(
+                request.getRequestURI().substring(request.getContextPath().length() + "/uploads/".length()),
+                StandardCharsets.UTF_8);
+        serve(relative, size, request, response);
     }
 
     @GetMapping("/documents/**")
@@ -90,4 +82,25 @@ public class ImageServeController {
         // Similar implementation for documents if needed
         return ResponseEntity.notFound().build();
     }
-}
\ No newline at end of file
+
+    private void serve(String relative, String size, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        Path base = Paths.get(uploadDir).toAbsolutePath().normalize();
+        Path original = base.resolve(relative).normalize();
+        if (!original.startsWith(base)) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
+        ImageDerivativeService.Size requested = ImageDerivativeService.Size.fromParam(size);
+        if (requested == null) {
+            uploadFileServer.serve(original, UploadFileServer.Caching.DEFAULT, request, response);
+            return;
+        }
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        Path file = imageDerivativeService.resolve(original, requested, accept != null && accept.contains("image/webp"));
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        // The original stands in until the derivative exists; don't let caches hold on to it
+        uploadFileServer.serve(file, file.equals(original) ? UploadFileServer.Caching.SHORT
+                : UploadFileServer.Caching.DEFAULT, request, response);
+    }
+}
@@ -0,0 +1,31 @@
+package com.shopmanagement.product.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkImportJobStatus {
+
+    private String jobId;
+    private String type;             // MASTER, SHOP
+    private Long shopId;
+    private String state;            // QUEUED, RUNNING, COMPLETED, FAILED
+    private int processedRows;       // Product rows written (or failed) so far
+    private int successCount;
+    private int failureCount;
+    private int createdCount;
+    private int updatedCount;
+    private int skippedEmptyRows;
+    private int totalExcelRows;      // Known once the sheet has been read to the end
+    private String message;
+    private LocalDateTime submittedAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+}
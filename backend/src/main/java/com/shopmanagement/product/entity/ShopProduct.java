@@ -1,5 +1,6 @@
 package com.shopmanagement.product.entity;
 
+import com.shopmanagement.event.ShopProductChangeListener;
 import com.shopmanagement.shop.entity.Shop;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
@@ -22,6 +23,7 @@ import java.util.Set;
 @NoArgsConstructor
 @AllArgsConstructor
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
+@EntityListeners(ShopProductChangeListener.class)
 public class ShopProduct {
 
     @Id
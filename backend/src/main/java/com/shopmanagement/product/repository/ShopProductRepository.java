@@ -53,6 +53,12 @@ public interface ShopProductRepository extends JpaRepository<ShopProduct, Long>,
     @Query("SELECT sp FROM ShopProduct sp WHERE sp.shop = :shop AND sp.stockQuantity = 0 AND sp.trackInventory = true")
     List<ShopProduct> findOutOfStockProducts(@Param("shop") Shop shop);
 
+    @Query("SELECT COUNT(sp) FROM ShopProduct sp WHERE sp.shop = :shop AND sp.stockQuantity <= sp.minStockLevel AND sp.trackInventory = true")
+    long countLowStockProducts(@Param("shop") Shop shop);
+
+    @Query("SELECT COUNT(sp) FROM ShopProduct sp WHERE sp.shop = :shop AND sp.stockQuantity = 0 AND sp.trackInventory = true")
+    long countOutOfStockProducts(@Param("shop") Shop shop);
+
     // Price range queries
     @Query("SELECT sp FROM ShopProduct sp WHERE sp.shop = :shop AND sp.price BETWEEN :minPrice AND :maxPrice AND sp.isAvailable = true")
     Page<ShopProduct> findByShopAndPriceRange(
@@ -81,6 +87,12 @@ public interface ShopProductRepository extends JpaRepository<ShopProduct, Long>,
            "LOWER(COALESCE(sp.masterProduct.nameTamil, '')) LIKE LOWER(CONCAT('%', :search, '%')))")
     Page<ShopProduct> searchAvailableByShopIdAndName(@Param("shopId") Long shopId, @Param("search") String search, Pageable pageable);
 
+    // WhatsApp bot catalog snapshot: every available product with its master
+    // product in one query (names are needed for in-memory search)
+    @Query("SELECT sp FROM ShopProduct sp JOIN FETCH sp.masterProduct " +
+           "WHERE sp.shop.id = :shopId AND sp.isAvailable = true ORDER BY sp.displayOrder, sp.id")
+    List<ShopProduct> findAvailableWithMasterProductByShopId(@Param("shopId") Long shopId);
+
     // Category-based queries through master product
     @Query("SELECT sp FROM ShopProduct sp WHERE sp.shop = :shop AND sp.masterProduct.category.id = :categoryId AND sp.isAvailable = true")
     Page<ShopProduct> findByShopAndCategory(@Param("shop") Shop shop, @Param("categoryId") Long categoryId, Pageable pageable);
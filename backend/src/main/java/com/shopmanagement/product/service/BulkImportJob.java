@@ -0,0 +1,158 @@
+package com.shopmanagement.product.service;
+
+import com.shopmanagement.product.dto.BulkImportJobStatus;
+import com.shopmanagement.product.dto.BulkImportResponse;
+import lombok.Getter;
+import org.springframework.security.core.Authentication;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One bulk product import: the staged upload (workbook plus any images, copied
+ * out of the multipart request so the job can outlive it), the user it runs
+ * as, and the running totals and per-row results polled by the client.
+ */
+@Getter
+class BulkImportJob {
+
+    enum Type {
+        MASTER, SHOP
+    }
+
+    enum State {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+
+    private final String id;
+    private final Type type;
+    private final Long shopId;
+    private final Authentication authentication;
+    private final Path workDir;
+    private final Path workbook;
+    /** Uploaded image original filename -> staged copy. */
+    private final Map<String, Path> uploadedImages;
+    /** Keep successful rows in the results too (synchronous imports return them all). */
+    private final boolean keepSuccessRows;
+    private final LocalDateTime submittedAt = LocalDateTime.now();
+
+    private final BulkImportResponse response = BulkImportResponse.builder()
+            .results(new ArrayList<>())
+            .build();
+    private volatile State state = State.QUEUED;
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+
+    BulkImportJob(String id, Type type, Long shopId, Authentication authentication, Path workDir,
+                  Path workbook, Map<String, Path> uploadedImages, boolean keepSuccessRows) {
+        this.id = id;
+        this.type = type;
+        this.shopId = shopId;
+        this.authentication = authentication;
+        this.workDir = workDir;
+        this.workbook = workbook;
+        this.uploadedImages = uploadedImages;
+        this.keepSuccessRows = keepSuccessRows;
+    }
+
+    String getOwner() {
+        return authentication != null ? authentication.getName() : null;
+    }
+
+    void started() {
+        startedAt = LocalDateTime.now();
+        state = State.RUNNING;
+    }
+
+    synchronized void record(BulkImportResponse.ImportResult result) {
+        response.setTotalRows(response.getTotalRows() + 1);
+        if ("SUCCESS".equals(result.getStatus())) {
+            response.setSuccessCount(response.getSuccessCount() + 1);
+            if (result.isWasUpdated()) {
+                response.setUpdatedCount(response.getUpdatedCount() + 1);
+            } else {
+                response.setCreatedCount(response.getCreatedCount() + 1);
+            }
+            if (!keepSuccessRows) {
+                return;
+            }
+        } else {
+            response.setFailureCount(response.getFailureCount() + 1);
+        }
+        response.addResult(result);
+    }
+
+    synchronized void completed(ProductSheetReader.Summary summary) {
+        // Rows rejected while planning a chunk were recorded ahead of its written rows
+        response.getResults().sort(Comparator.comparing(BulkImportResponse.ImportResult::getRowNumber));
+        response.setSkippedEmptyRows(summary.skippedEmpty());
+        response.setTotalExcelRows(summary.physicalRows());
+        response.setMessage(type == Type.SHOP
+                ? String.format("Import completed. Total: %d, Success: %d (Created: %d, Updated: %d), Failed: %d",
+                        response.getTotalRows(), response.getSuccessCount(), response.getCreatedCount(),
+                        response.getUpdatedCount(), response.getFailureCount())
+                : String.format("Import completed. Total: %d, Success: %d, Failed: %d",
+                        response.getTotalRows(), response.getSuccessCount(), response.getFailureCount()));
+        finishedAt = LocalDateTime.now();
+        state = State.COMPLETED;
+    }
+
+    synchronized void failed(String message) {
+        response.setMessage("Import failed: " + message);
+        finishedAt = LocalDateTime.now();
+        state = State.FAILED;
+    }
+
+    boolean isFinished() {
+        return state == State.COMPLETED || state == State.FAILED;
+    }
+
+    synchronized BulkImportJobStatus status() {
+        return BulkImportJobStatus.builder()
+                .jobId(id)
+                .type(type.name())
+                .shopId(shopId)
+                .state(state.name())
+                .processedRows(response.getTotalRows())
+                .successCount(response.getSuccessCount())
+                .failureCount(response.getFailureCount())
+                .createdCount(response.getCreatedCount())
+                .updatedCount(response.getUpdatedCount())
+                .skippedEmptyRows(response.getSkippedEmptyRows())
+                .totalExcelRows(response.getTotalExcelRows())
+                .message(response.getMessage())
+                .submittedAt(submittedAt)
+                .startedAt(startedAt)
+                .finishedAt(finishedAt)
+                .build();
+    }
+
+    /** Failed rows as CSV: row number, product name, reason. */
+    synchronized String errorReportCsv() {
+        StringBuilder csv = new StringBuilder("Row,Product Name,Status,Message\n");
+        List<BulkImportResponse.ImportResult> results = response.getResults();
+        for (BulkImportResponse.ImportResult result : results) {
+            if ("SUCCESS".equals(result.getStatus())) {
+                continue;
+            }
+            csv.append(result.getRowNumber()).append(',')
+                    .append(csvField(result.getProductName())).append(',')
+                    .append(csvField(result.getStatus())).append(',')
+                    .append(csvField(result.getMessage())).append('\n');
+        }
+        return csv.toString();
+    }
+
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        // Leading =,+,-,@ would be evaluated as a formula when the report is opened in Excel
+        String safe = !value.isEmpty() && "=+-@".indexOf(value.charAt(0)) >= 0 ? "'" + value : value;
+        return "\"" + safe.replace("\"", "\"\"") + "\"";
+    }
+}
@@ -1,5 +1,6 @@
 package com.shopmanagement.product.service;
 
+import com.shopmanagement.event.ShopProductChangedEvent;
 import com.shopmanagement.product.dto.*;
 import com.shopmanagement.product.entity.MasterProduct;
 import com.shopmanagement.product.entity.MasterProductImage;
@@ -9,282 +10,1034 @@ import com.shopmanagement.product.repository.MasterProductImageRepository;
 import com.shopmanagement.product.repository.MasterProductRepository;
 import com.shopmanagement.product.repository.ProductCategoryRepository;
 import com.shopmanagement.product.repository.ShopProductRepository;
-import lombok.RequiredArgsConstructor;
+import com.shopmanagement.service.ContentStoreService;
+import com.shopmanagement.service.ImageDerivativeService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Propagation;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.math.BigDecimal;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.PersistenceContext;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
-import java.util.UUID;
-
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Bulk product import from Excel, for the master catalog (admins) and for a
+ * shop's own catalog (shop owners).
+ *
+ * An import is a job: the upload is staged to a temp directory and the sheet is
+ * streamed ({@link ProductSheetReader}) in chunks of {@link #CHUNK_SIZE} rows.
+ * Per chunk, categories, master products (by SKU), existing shop products and
+ * barcodes are resolved with one query each against per-job lookup maps, the
+ * referenced images are copied on a small thread pool meanwhile, and all
+ * inserts/updates go out as JDBC batches in a single transaction. If a chunk's
+ * batch fails, its rows are re-imported one at a time through the regular
+ * product services so a single bad row only fails itself.
+ *
+ * Jobs submitted through {@link #submitShopImport}/{@link #submitMasterImport}
+ * run in the background (bulk-import.concurrent-jobs at a time) and are polled
+ * by id; finished jobs are kept for bulk-import.job-retention-minutes with a
+ * CSV report of the failed rows. The synchronous import methods run the same
+ * engine on the calling thread.
+ */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class BulkProductImportService {
 
+    /** Rows resolved and written per transaction. */
+    private static final int CHUNK_SIZE = 500;
+
+    private static final String INSERT_MASTER_PRODUCT_SQL =
+            "INSERT INTO master_products (name, name_tamil, description, sku, barcode, category_id, brand, base_unit, " +
+            "base_weight, specifications, tags, status, is_featured, is_global, created_by, updated_by, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String INSERT_SHOP_PRODUCT_SQL =
+            "INSERT INTO shop_products (shop_id, master_product_id, price, original_price, cost_price, stock_quantity, " +
+            "min_stock_level, max_stock_level, track_inventory, status, is_available, is_featured, tags, " +
+            "barcode1, barcode2, barcode3, created_by, updated_by, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    /** Same fields as updateShopProduct: values missing from the sheet keep the current ones. */
+    private static final String UPDATE_SHOP_PRODUCT_SQL =
+            "UPDATE shop_products SET price = COALESCE(?, price), original_price = COALESCE(?, original_price), " +
+            "cost_price = COALESCE(?, cost_price), stock_quantity = ?, min_stock_level = COALESCE(?, min_stock_level), " +
+            "max_stock_level = COALESCE(?, max_stock_level), track_inventory = ?, status = ?, is_available = ?, " +
+            "is_featured = ?, tags = COALESCE(?, tags), barcode1 = COALESCE(?, barcode1), " +
+            "barcode2 = COALESCE(?, barcode2), barcode3 = COALESCE(?, barcode3), updated_by = ?, updated_at = ? " +
+            "WHERE id = ?";
+
     private final MasterProductService masterProductService;
     private final ShopProductService shopProductService;
     private final MasterProductRepository masterProductRepository;
     private final MasterProductImageRepository masterProductImageRepository;
     private final ProductCategoryRepository productCategoryRepository;
     private final ShopProductRepository shopProductRepository;
-
-    // Self-injection to ensure @Transactional works on internal method calls
-    @org.springframework.context.annotation.Lazy
-    @org.springframework.beans.factory.annotation.Autowired
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ImageDerivativeService imageDerivativeService;
+    private final ContentStoreService contentStoreService;
+
+    // Self-injection so the per-row fallback goes through the Spring proxy
+    @Lazy
+    @Autowired
     private BulkProductImportService self;
 
-    @PersistenceContext
-    private EntityManager entityManager;
-
-    @Value("${app.upload.dir}")
-    private String uploadDir;
-
     @Value("${app.upload.product-images}")
     private String productImagesPath;
 
+    @Value("${bulk-import.concurrent-jobs:2}")
+    private int concurrentJobs;
+
+    @Value("${bulk-import.image-threads:4}")
+    private int imageThreads;
+
+    @Value("${bulk-import.job-retention-minutes:60}")
+    private long jobRetentionMinutes;
+
+    private final Map<String, BulkImportJob> jobs = new ConcurrentHashMap<>();
+    private ExecutorService jobExecutor;
+    private ExecutorService imageExecutor;
+
+    public BulkProductImportService(MasterProductService masterProductService,
+                                    ShopProductService shopProductService,
+                                    MasterProductRepository masterProductRepository,
+                                    MasterProductImageRepository masterProductImageRepository,
+                                    ProductCategoryRepository productCategoryRepository,
+                                    ShopProductRepository shopProductRepository,
+                                    JdbcTemplate jdbcTemplate,
+                                    PlatformTransactionManager transactionManager,
+                                    ApplicationEventPublisher eventPublisher,
+                                    ImageDerivativeService imageDerivativeService,
+                                    ContentStoreService contentStoreService) {
+        this.masterProductService = masterProductService;
+        this.shopProductService = shopProductService;
+        this.masterProductRepository = masterProductRepository;
+        this.masterProductImageRepository = masterProductImageRepository;
+        this.productCategoryRepository = productCategoryRepository;
+        this.shopProductRepository = shopProductRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.imageDerivativeService = imageDerivativeService;
+        this.contentStoreService = contentStoreService;
+    }
+
+    @PostConstruct
+    void start() {
+        jobExecutor = new ThreadPoolExecutor(concurrentJobs, concurrentJobs, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(20), daemonThreads("BulkImport"));
+        imageExecutor = Executors.newFixedThreadPool(imageThreads, daemonThreads("BulkImportImage"));
+    }
+
+    @PreDestroy
+    void stop() {
+        jobExecutor.shutdownNow();
+        imageExecutor.shutdownNow();
+    }
+
     /**
-     * Import products from Excel for shop owners
-     * NO transaction management - each service call handles its own transaction
+     * Import products from Excel for shop owners, on the calling thread.
+     * Every row's result is returned.
      */
     public BulkImportResponse importProductsForShop(Long shopId, MultipartFile excelFile,
                                                      List<MultipartFile> images) {
         log.info("Starting bulk import for shop: {}", shopId);
+        return runNow(BulkImportJob.Type.SHOP, shopId, excelFile, images);
+    }
 
-        BulkImportResponse response = BulkImportResponse.builder()
-                .totalRows(0)
-                .successCount(0)
-                .failureCount(0)
-                .results(new ArrayList<>())
-                .build();
+    /**
+     * Import master products (admin only), on the calling thread.
+     */
+    public BulkImportResponse importMasterProducts(MultipartFile excelFile, List<MultipartFile> images) {
+        log.info("Starting bulk master product import");
+        return runNow(BulkImportJob.Type.MASTER, null, excelFile, images);
+    }
+
+    /** Queue a shop product import; poll {@link #getJobStatus} with the returned job id. */
+    public BulkImportJobStatus submitShopImport(Long shopId, MultipartFile excelFile,
+                                                List<MultipartFile> images) throws IOException {
+        return submit(BulkImportJob.Type.SHOP, shopId, excelFile, images);
+    }
 
+    /** Queue a master product import; poll {@link #getJobStatus} with the returned job id. */
+    public BulkImportJobStatus submitMasterImport(MultipartFile excelFile,
+                                                  List<MultipartFile> images) throws IOException {
+        return submit(BulkImportJob.Type.MASTER, null, excelFile, images);
+    }
+
+    /** Progress of a job the current user submitted (admins see every job). */
+    public Optional<BulkImportJobStatus> getJobStatus(String jobId) {
+        return findAccessibleJob(jobId).map(BulkImportJob::status);
+    }
+
+    /** CSV of the job's failed rows so far. */
+    public Optional<String> getErrorReport(String jobId) {
+        return findAccessibleJob(jobId).map(BulkImportJob::errorReportCsv);
+    }
+
+    private BulkImportResponse runNow(BulkImportJob.Type type, Long shopId, MultipartFile excelFile,
+                                      List<MultipartFile> images) {
+        BulkImportJob job;
         try {
-            List<BulkImportRequest> requests = parseExcelFile(excelFile);
-            response.setTotalRows(requests.size());
-
-            int updatedCount = 0;
-            int createdCount = 0;
-
-            for (BulkImportRequest request : requests) {
-                // Use self to invoke through Spring proxy (ensures @Transactional REQUIRES_NEW works)
-                BulkImportResponse.ImportResult result = self.processShopProductImport(shopId, request, images);
-                response.addResult(result);
-
-                if ("SUCCESS".equals(result.getStatus())) {
-                    response.setSuccessCount(response.getSuccessCount() + 1);
-                    if (result.isWasUpdated()) {
-                        updatedCount++;
-                    } else {
-                        createdCount++;
+            job = stage(type, shopId, excelFile, images, true);
+        } catch (IOException e) {
+            log.error("Could not stage bulk import upload", e);
+            return BulkImportResponse.builder()
+                    .results(new ArrayList<>())
+                    .message("Import failed: " + e.getMessage())
+                    .build();
+        }
+        run(job);
+        return job.getResponse();
+    }
+
+    private BulkImportJobStatus submit(BulkImportJob.Type type, Long shopId, MultipartFile excelFile,
+                                       List<MultipartFile> images) throws IOException {
+        evictFinishedJobs();
+        BulkImportJob job = stage(type, shopId, excelFile, images, false);
+        jobs.put(job.getId(), job);
+        try {
+            jobExecutor.execute(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            deleteWorkDir(job.getWorkDir());
+            throw new IllegalStateException("Too many imports in progress. Please try again in a few minutes.");
+        }
+        log.info("Bulk import job {} queued ({}, shop {}, {} image(s))",
+                job.getId(), type, shopId, job.getUploadedImages().size());
+        return job.status();
+    }
+
+    /** Copy the workbook and images out of the multipart request, which is cleaned up when it ends. */
+    private BulkImportJob stage(BulkImportJob.Type type, Long shopId, MultipartFile excelFile,
+                                List<MultipartFile> images, boolean keepSuccessRows) throws IOException {
+        Path workDir = Files.createTempDirectory("bulk-import-");
+        try {
+            Path workbook = workDir.resolve("products.xlsx");
+            excelFile.transferTo(workbook);
+            Map<String, Path> uploadedImages = new HashMap<>();
+            if (images != null) {
+                for (MultipartFile image : images) {
+                    String name = image.getOriginalFilename();
+                    if (image.isEmpty() || name == null || name.isBlank()) {
+                        continue;
                     }
-                } else {
-                    response.setFailureCount(response.getFailureCount() + 1);
+                    Path staged = workDir.resolve("image-" + uploadedImages.size());
+                    image.transferTo(staged);
+                    uploadedImages.put(name.trim(), staged);
                 }
             }
+            return new BulkImportJob(UUID.randomUUID().toString(), type, shopId,
+                    SecurityContextHolder.getContext().getAuthentication(),
+                    workDir, workbook, uploadedImages, keepSuccessRows);
+        } catch (IOException | RuntimeException e) {
+            deleteWorkDir(workDir);
+            throw e;
+        }
+    }
 
-            response.setUpdatedCount(updatedCount);
-            response.setCreatedCount(createdCount);
-            response.setMessage(String.format(
-                    "Import completed. Total: %d, Success: %d (Created: %d, Updated: %d), Failed: %d",
-                    response.getTotalRows(), response.getSuccessCount(), createdCount, updatedCount, response.getFailureCount()
-            ));
+    private void run(BulkImportJob job) {
+        // Run as the submitting user: created_by, category ownership and the services' auth checks
+        SecurityContext previous = SecurityContextHolder.getContext();
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        context.setAuthentication(job.getAuthentication());
+        SecurityContextHolder.setContext(context);
+        job.started();
+        long started = System.currentTimeMillis();
+        ImportContext ctx = null;
+        try {
+            ctx = new ImportContext(job, getCurrentUsernameOrBulk());
+            List<BulkImportRequest> chunk = new ArrayList<>(CHUNK_SIZE);
+            ProductSheetReader.Summary summary = ProductSheetReader.read(job.getWorkbook(), row -> {
+                chunk.add(row);
+                if (chunk.size() == CHUNK_SIZE) {
+                    processChunk(ctx, chunk);
+                    chunk.clear();
+                }
+            });
+            if (!chunk.isEmpty()) {
+                processChunk(ctx, chunk);
+            }
+            if (job.getType() == BulkImportJob.Type.SHOP) {
+                refreshShopProductCount(job.getShopId());
+            }
+            job.completed(summary);
+            log.info("Bulk import {} finished in {} ms: {}", job.getId(),
+                    System.currentTimeMillis() - started, job.getResponse().getMessage());
+        } catch (Exception e) {
+            log.error("Bulk import {} failed", job.getId(), e);
+            job.failed(e.getMessage());
+        } finally {
+            if (ctx != null) {
+                releaseStagedImages(ctx);
+            }
+            SecurityContextHolder.setContext(previous);
+            deleteWorkDir(job.getWorkDir());
+        }
+    }
 
+    private void processChunk(ImportContext ctx, List<BulkImportRequest> rows) {
+        // A repeated SKU waits for the next pass, so it sees the product its first row wrote
+        List<BulkImportRequest> batch = new ArrayList<>(rows.size());
+        List<BulkImportRequest> repeated = new ArrayList<>();
+        Set<String> skus = new HashSet<>();
+        for (BulkImportRequest row : rows) {
+            String sku = trimToNull(row.getSku());
+            if (sku != null && !skus.add(sku)) {
+                repeated.add(row);
+            } else {
+                batch.add(row);
+            }
+        }
+
+        resolveCategories(ctx, batch);
+        stageImages(ctx, batch);
+        List<PlannedRow> planned = ctx.job.getType() == BulkImportJob.Type.SHOP
+                ? planShopRows(ctx, batch)
+                : planMasterRows(ctx, batch);
+        for (PlannedRow row : planned) {
+            String imagePath = trimToNull(row.request.getImagePath());
+            if (imagePath != null) {
+                row.image = ctx.images.get(imagePath).join();
+            }
+        }
+
+        try {
+            List<BulkImportResponse.ImportResult> results = transactionTemplate.execute(status -> write(ctx, planned));
+            results.forEach(ctx.job::record);
+            for (PlannedRow row : planned) {
+                ctx.masterIdsBySku.put(row.sku, row.masterProductId);
+            }
         } catch (Exception e) {
-            log.error("Error during bulk import for shop: {}", shopId, e);
-            response.setMessage("Import failed: " + e.getMessage());
+            log.warn("Bulk import {}: batch write of {} rows failed ({}), importing them one by one",
+                    ctx.job.getId(), planned.size(), e.getMessage());
+            for (PlannedRow row : planned) {
+                // An uploaded image is already in the content store: link that, not products/master/{imagePath}
+                String stagedImageUrl = row.image != null && row.image.stored() ? row.image.url() : null;
+                ctx.job.record(ctx.job.getType() == BulkImportJob.Type.SHOP
+                        ? self.processShopProductImport(ctx.job.getShopId(), row.request, stagedImageUrl)
+                        : self.processMasterProductImport(row.request, stagedImageUrl));
+            }
+        }
+
+        if (!repeated.isEmpty()) {
+            processChunk(ctx, repeated);
         }
+    }
 
-        return response;
+    /** Category name -> id for every row, one query for the names this job hasn't seen yet. */
+    private void resolveCategories(ImportContext ctx, List<BulkImportRequest> rows) {
+        Map<String, String> missing = new LinkedHashMap<>();
+        for (BulkImportRequest row : rows) {
+            String name = trimToNull(row.getCategoryName());
+            if (name != null && !ctx.categoryIds.containsKey(name.toLowerCase())) {
+                missing.putIfAbsent(name.toLowerCase(), name);
+            }
+        }
+        if (!missing.isEmpty()) {
+            // Oldest match per name, like findByNameIgnoreCase
+            jdbcTemplate.query("SELECT DISTINCT ON (LOWER(name)) LOWER(name) AS name_key, id, name " +
+                            "FROM product_categories WHERE LOWER(name) IN (" + placeholders(missing.size()) + ") " +
+                            "ORDER BY LOWER(name), id",
+                    rs -> {
+                        ctx.categoryIds.put(rs.getString("name_key"), rs.getLong("id"));
+                        ctx.categoryNames.put(rs.getLong("id"), rs.getString("name"));
+                    },
+                    missing.keySet().toArray());
+            missing.forEach((key, name) -> {
+                if (!ctx.categoryIds.containsKey(key)) {
+                    Long id = lookupCategoryByName(name);
+                    ctx.categoryIds.put(key, id);
+                    ctx.categoryNames.putIfAbsent(id, name);
+                }
+            });
+        }
+        for (BulkImportRequest row : rows) {
+            String name = trimToNull(row.getCategoryName());
+            row.setCategoryId(name != null ? ctx.categoryIds.get(name.toLowerCase()) : ctx.defaultCategoryId());
+        }
+    }
+
+    /** Start copying each image the chunk references (once per job) on the image pool. */
+    private void stageImages(ImportContext ctx, List<BulkImportRequest> rows) {
+        for (BulkImportRequest row : rows) {
+            String imagePath = trimToNull(row.getImagePath());
+            if (imagePath != null) {
+                ctx.images.computeIfAbsent(imagePath, name ->
+                        CompletableFuture.supplyAsync(() -> stageImage(ctx.job, name), imageExecutor));
+            }
+        }
     }
 
     /**
-     * Import master products (admin only)
-     * NO transaction management - each service call handles its own transaction
+     * Store an uploaded image in the content store, keyed by its bytes, so an
+     * import never replaces a file other products already show. Without an
+     * upload the row links products/master/{imagePath}, expected to be there.
+     * The stored reference belongs to the job: every image record that links
+     * the URL (batch or per-row fallback) counts its own, and the job releases
+     * its one when it ends, so only uploads no record linked become collectable.
      */
-    public BulkImportResponse importMasterProducts(MultipartFile excelFile, List<MultipartFile> images) {
-        log.info("Starting bulk master product import");
+    private ImageFile stageImage(BulkImportJob job, String imagePath) {
+        Path uploaded = job.getUploadedImages().get(imagePath);
+        if (uploaded != null) {
+            String extension = imagePath.contains(".") ? imagePath.substring(imagePath.lastIndexOf('.') + 1) : "";
+            try (InputStream in = Files.newInputStream(uploaded)) {
+                ContentStoreService.StoredContent stored = contentStoreService.store(in, extension);
+                if (!stored.duplicate()) {
+                    imageDerivativeService.generateAsync(stored.path());
+                }
+                return new ImageFile(stored.url(), true, null, true);
+            } catch (IOException e) {
+                log.warn("Could not store uploaded image {}: {}", imagePath, e.getMessage());
+                return new ImageFile(null, false, "Image upload failed: " + e.getMessage(), false);
+            }
+        }
+        String url = "/uploads/products/master/" + imagePath;
+        Path masterDir = Paths.get(productImagesPath, "master").toAbsolutePath().normalize();
+        Path target = masterDir.resolve(imagePath).normalize();
+        if (!target.startsWith(masterDir)) {
+            return new ImageFile(url, false, "Invalid image path: " + imagePath, false);
+        }
+        boolean exists = Files.exists(target);
+        if (!exists) {
+            log.warn("Image file not found at: {} (path will be saved anyway)", target);
+        }
+        return new ImageFile(url, exists, null, false);
+    }
 
-        BulkImportResponse response = BulkImportResponse.builder()
-                .totalRows(0)
-                .successCount(0)
-                .failureCount(0)
-                .results(new ArrayList<>())
-                .build();
+    /** Drop the job's own reference to each uploaded image; image records that linked it hold their own. */
+    private void releaseStagedImages(ImportContext ctx) {
+        for (CompletableFuture<ImageFile> staging : ctx.images.values()) {
+            try {
+                ImageFile image = staging.join();
+                if (image.stored()) {
+                    contentStoreService.release(image.url());
+                }
+            } catch (Exception e) {
+                log.warn("Could not release staged import image: {}", e.getMessage());
+            }
+        }
+    }
 
-        try {
-            List<BulkImportRequest> requests = parseExcelFile(excelFile);
-            response.setTotalRows(requests.size());
+    private List<PlannedRow> planShopRows(ImportContext ctx, List<BulkImportRequest> rows) {
+        Long shopId = ctx.job.getShopId();
+        loadMasterIdsBySku(ctx, rows);
+
+        Set<Long> knownMasterIds = new HashSet<>();
+        for (BulkImportRequest row : rows) {
+            Long masterId = ctx.masterIdsBySku.get(trimToNull(row.getSku()));
+            if (masterId != null) {
+                knownMasterIds.add(masterId);
+            }
+        }
+        Map<Long, ExistingShopProduct> existing = new HashMap<>();
+        if (!knownMasterIds.isEmpty()) {
+            List<Object> args = new ArrayList<>();
+            args.add(shopId);
+            args.addAll(knownMasterIds);
+            jdbcTemplate.query("SELECT id, master_product_id, barcode1, barcode2, barcode3 FROM shop_products " +
+                            "WHERE shop_id = ? AND master_product_id IN (" + placeholders(knownMasterIds.size()) + ")",
+                    rs -> {
+                        existing.put(rs.getLong("master_product_id"), new ExistingShopProduct(rs.getLong("id"),
+                                rs.getString("barcode1"), rs.getString("barcode2"), rs.getString("barcode3")));
+                    },
+                    args.toArray());
+        }
+        Map<String, Set<Long>> masterBarcodes = loadMasterBarcodeOwners(rows);
+        Map<String, Set<Long>> shopBarcodes = loadShopBarcodeOwners(shopId, rows);
+
+        List<PlannedRow> planned = new ArrayList<>(rows.size());
+        Set<String> chunkBarcodes = new HashSet<>();
+        for (BulkImportRequest row : rows) {
+            String sku = trimToNull(row.getSku());
+            Long masterId = sku != null ? ctx.masterIdsBySku.get(sku) : null;
+            ExistingShopProduct current = masterId != null ? existing.get(masterId) : null;
+            String barcode = trimToNull(row.getBarcode());
+            String error = null;
+
+            if (current == null && sellingPrice(row) == null) {
+                error = "Price is required when adding a product to shop";
+            } else if (barcode != null && masterId == null
+                    && (masterBarcodes.containsKey(barcode) || !chunkBarcodes.add(barcode))) {
+                error = "Barcode already exists: " + barcode;
+            } else if (barcode != null && masterId != null && ownedByOther(masterBarcodes.get(barcode), masterId)) {
+                error = "Barcode already exists: " + barcode + ". Please use a unique barcode.";
+            } else if (current != null) {
+                error = validateShopBarcodes(row, current, shopBarcodes);
+            }
+            if (error != null) {
+                ctx.job.record(failed(row, "Import failed: " + error));
+                continue;
+            }
 
-            for (BulkImportRequest request : requests) {
-                // Use self to invoke through Spring proxy (ensures @Transactional REQUIRES_NEW works)
-                BulkImportResponse.ImportResult result = self.processMasterProductImport(request, images);
-                response.addResult(result);
+            PlannedRow plannedRow = new PlannedRow(row);
+            plannedRow.masterProductId = masterId;
+            plannedRow.sku = sku;
+            plannedRow.shopProductId = current != null ? current.id() : null;
+            planned.add(plannedRow);
+        }
+        assignGeneratedSkus(ctx, planned);
+        return planned;
+    }
 
-                if ("SUCCESS".equals(result.getStatus())) {
-                    response.setSuccessCount(response.getSuccessCount() + 1);
-                } else {
-                    response.setFailureCount(response.getFailureCount() + 1);
-                }
+    private List<PlannedRow> planMasterRows(ImportContext ctx, List<BulkImportRequest> rows) {
+        loadMasterIdsBySku(ctx, rows);
+        Map<String, Set<Long>> masterBarcodes = loadMasterBarcodeOwners(rows);
+
+        List<PlannedRow> planned = new ArrayList<>(rows.size());
+        Set<String> chunkBarcodes = new HashSet<>();
+        for (BulkImportRequest row : rows) {
+            String sku = trimToNull(row.getSku());
+            String barcode = trimToNull(row.getBarcode());
+            if (sku != null && ctx.masterIdsBySku.containsKey(sku)) {
+                ctx.job.record(failed(row, "Import failed: SKU already exists: " + sku));
+                continue;
             }
+            if (barcode != null && (masterBarcodes.containsKey(barcode) || !chunkBarcodes.add(barcode))) {
+                ctx.job.record(failed(row, "Import failed: Barcode already exists: " + barcode));
+                continue;
+            }
+            PlannedRow plannedRow = new PlannedRow(row);
+            plannedRow.sku = sku;
+            planned.add(plannedRow);
+        }
+        assignGeneratedSkus(ctx, planned);
+        return planned;
+    }
 
-            response.setMessage(String.format(
-                    "Import completed. Total: %d, Success: %d, Failed: %d",
-                    response.getTotalRows(), response.getSuccessCount(), response.getFailureCount()
-            ));
+    /** Master product ids for the chunk's SKUs that this job hasn't resolved yet. */
+    private void loadMasterIdsBySku(ImportContext ctx, List<BulkImportRequest> rows) {
+        Set<String> unknown = new HashSet<>();
+        for (BulkImportRequest row : rows) {
+            String sku = trimToNull(row.getSku());
+            if (sku != null && !ctx.masterIdsBySku.containsKey(sku)) {
+                unknown.add(sku);
+            }
+        }
+        if (!unknown.isEmpty()) {
+            jdbcTemplate.query("SELECT id, sku FROM master_products WHERE sku IN (" + placeholders(unknown.size()) + ")",
+                    rs -> {
+                        ctx.masterIdsBySku.put(rs.getString("sku"), rs.getLong("id"));
+                    },
+                    unknown.toArray());
+        }
+    }
 
-        } catch (Exception e) {
-            log.error("Error during master product bulk import", e);
-            response.setMessage("Import failed: " + e.getMessage());
+    /** Master barcode -> ids of the products already using it. */
+    private Map<String, Set<Long>> loadMasterBarcodeOwners(List<BulkImportRequest> rows) {
+        Set<String> barcodes = new HashSet<>();
+        for (BulkImportRequest row : rows) {
+            String barcode = trimToNull(row.getBarcode());
+            if (barcode != null) {
+                barcodes.add(barcode);
+            }
+        }
+        Map<String, Set<Long>> owners = new HashMap<>();
+        if (!barcodes.isEmpty()) {
+            jdbcTemplate.query("SELECT id, barcode FROM master_products WHERE barcode IN (" + placeholders(barcodes.size()) + ")",
+                    rs -> {
+                        owners.computeIfAbsent(rs.getString("barcode"), key -> new HashSet<>()).add(rs.getLong("id"));
+                    },
+                    barcodes.toArray());
         }
+        return owners;
+    }
 
-        return response;
+    /** Shop-level barcode (lower case) -> ids of the shop's products already using it. */
+    private Map<String, Set<Long>> loadShopBarcodeOwners(Long shopId, List<BulkImportRequest> rows) {
+        Set<String> barcodes = new HashSet<>();
+        for (BulkImportRequest row : rows) {
+            Stream.of(row.getBarcode1(), row.getBarcode2(), row.getBarcode3())
+                    .map(BulkProductImportService::trimToNull)
+                    .filter(Objects::nonNull)
+                    .forEach(barcode -> barcodes.add(barcode.toLowerCase()));
+        }
+        Map<String, Set<Long>> owners = new HashMap<>();
+        if (!barcodes.isEmpty()) {
+            String in = placeholders(barcodes.size());
+            List<Object> args = new ArrayList<>();
+            args.add(shopId);
+            args.addAll(barcodes);
+            args.addAll(barcodes);
+            args.addAll(barcodes);
+            jdbcTemplate.query("SELECT id, LOWER(barcode1) AS b1, LOWER(barcode2) AS b2, LOWER(barcode3) AS b3 " +
+                            "FROM shop_products WHERE shop_id = ? AND (LOWER(barcode1) IN (" + in + ") " +
+                            "OR LOWER(barcode2) IN (" + in + ") OR LOWER(barcode3) IN (" + in + "))",
+                    rs -> {
+                        long id = rs.getLong("id");
+                        for (String column : new String[]{"b1", "b2", "b3"}) {
+                            String barcode = rs.getString(column);
+                            if (barcode != null) {
+                                owners.computeIfAbsent(barcode, key -> new HashSet<>()).add(id);
+                            }
+                        }
+                    },
+                    args.toArray());
+        }
+        return owners;
+    }
+
+    /** The checks updateShopProduct makes on the shop-level barcodes, or null when they pass. */
+    private String validateShopBarcodes(BulkImportRequest row, ExistingShopProduct current,
+                                        Map<String, Set<Long>> shopBarcodes) {
+        String barcode1 = Objects.requireNonNullElse(trimToNull(row.getBarcode1()), Objects.toString(current.barcode1(), ""));
+        String barcode2 = Objects.requireNonNullElse(trimToNull(row.getBarcode2()), Objects.toString(current.barcode2(), ""));
+        String barcode3 = Objects.requireNonNullElse(trimToNull(row.getBarcode3()), Objects.toString(current.barcode3(), ""));
+        if (!barcode1.isEmpty() && barcode1.equalsIgnoreCase(barcode2)) {
+            return "Barcode 1 and Barcode 2 cannot be the same.";
+        }
+        if (!barcode1.isEmpty() && barcode1.equalsIgnoreCase(barcode3)) {
+            return "Barcode 1 and Barcode 3 cannot be the same.";
+        }
+        if (!barcode2.isEmpty() && barcode2.equalsIgnoreCase(barcode3)) {
+            return "Barcode 2 and Barcode 3 cannot be the same.";
+        }
+        for (String barcode : new String[]{barcode1, barcode2, barcode3}) {
+            if (!barcode.isEmpty() && ownedByOther(shopBarcodes.get(barcode.toLowerCase()), current.id())) {
+                return "Barcode '" + barcode + "' already exists in this shop. Please use a unique barcode.";
+            }
+        }
+        return null;
     }
 
     /**
-     * Parse Excel file and extract product data
+     * SKUs for new master products that have none, using MasterProductService's
+     * scheme (CAT-BRND-NAME, then -001, -002...). Each base is checked against
+     * the table once per job; the job's own SKUs are tracked in memory.
      */
-    private List<BulkImportRequest> parseExcelFile(MultipartFile file) throws IOException {
-        List<BulkImportRequest> requests = new ArrayList<>();
-
-        try (InputStream inputStream = file.getInputStream();
-             Workbook workbook = new XSSFWorkbook(inputStream)) {
-
-            Sheet sheet = workbook.getSheetAt(0);
-            int totalPhysicalRows = sheet.getPhysicalNumberOfRows();
-            int lastRowNum = sheet.getLastRowNum();
-            log.info("EXCEL PARSING: Physical rows={}, Last row number={}", totalPhysicalRows, lastRowNum);
-
-            int rowNum = 0;
-            int skippedEmpty = 0;
-            int skippedNoName = 0;
-
-            for (Row row : sheet) {
-                // Skip header row
-                if (rowNum == 0) {
-                    rowNum++;
-                    continue;
+    private void assignGeneratedSkus(ImportContext ctx, List<PlannedRow> planned) {
+        Map<PlannedRow, String> bases = new LinkedHashMap<>();
+        for (PlannedRow row : planned) {
+            if (row.masterProductId != null) {
+                continue;
+            }
+            if (row.sku != null) {
+                ctx.takenSkus.add(row.sku);
+            } else {
+                BulkImportRequest request = row.request;
+                bases.put(row, skuBase(ctx.categoryName(request.getCategoryId()), request.getName(), request.getBrand()));
+            }
+        }
+        List<String> unchecked = bases.values().stream().distinct()
+                .filter(base -> !ctx.checkedSkuBases.contains(base))
+                .toList();
+        if (!unchecked.isEmpty()) {
+            // Bases are letters and dashes only, so they need no LIKE escaping
+            ctx.takenSkus.addAll(jdbcTemplate.queryForList(
+                    "SELECT sku FROM master_products WHERE sku LIKE ANY (ARRAY[" + placeholders(unchecked.size()) + "])",
+                    String.class, unchecked.stream().map(base -> base + "%").toArray()));
+            ctx.checkedSkuBases.addAll(unchecked);
+        }
+        bases.forEach((row, base) -> {
+            String sku = base;
+            int counter = 1;
+            while (ctx.takenSkus.contains(sku)) {
+                sku = base + "-" + String.format("%03d", counter);
+                counter++;
+                if (counter > 999) {
+                    sku = base + "-" + System.currentTimeMillis();
+                    break;
                 }
+            }
+            ctx.takenSkus.add(sku);
+            row.sku = sku;
+        });
+    }
 
-                // Skip empty rows
-                if (isRowEmpty(row)) {
-                    skippedEmpty++;
-                    rowNum++;
-                    continue;
-                }
+    /** All of a chunk's writes; runs in one transaction. */
+    private List<BulkImportResponse.ImportResult> write(ImportContext ctx, List<PlannedRow> planned) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        String user = ctx.username;
+        boolean shopImport = ctx.job.getType() == BulkImportJob.Type.SHOP;
+
+        List<PlannedRow> newMasters = planned.stream().filter(row -> row.masterProductId == null).toList();
+        if (!newMasters.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_MASTER_PRODUCT_SQL, newMasters, CHUNK_SIZE, (ps, row) -> {
+                BulkImportRequest r = row.request;
+                ps.setString(1, r.getName());
+                ps.setString(2, r.getNameTamil());
+                ps.setString(3, r.getDescription());
+                ps.setString(4, row.sku);
+                ps.setString(5, trimToNull(r.getBarcode()));
+                ps.setLong(6, r.getCategoryId());
+                ps.setString(7, r.getBrand());
+                ps.setString(8, r.getBaseUnit());
+                ps.setBigDecimal(9, r.getBaseWeight());
+                ps.setString(10, r.getSpecifications());
+                ps.setString(11, r.getTags());
+                ps.setString(12, masterStatus(r).name());
+                ps.setBoolean(13, r.getIsFeatured() != null ? r.getIsFeatured() : false);
+                ps.setBoolean(14, r.getIsGlobal() != null ? r.getIsGlobal() : true);
+                ps.setString(15, user);
+                ps.setString(16, user);
+                ps.setTimestamp(17, now);
+                ps.setTimestamp(18, now);
+            });
+            Map<String, Long> ids = new HashMap<>();
+            jdbcTemplate.query("SELECT id, sku FROM master_products WHERE sku IN (" + placeholders(newMasters.size()) + ")",
+                    rs -> {
+                        ids.put(rs.getString("sku"), rs.getLong("id"));
+                    },
+                    newMasters.stream().map(row -> row.sku).toArray());
+            newMasters.forEach(row -> row.masterProductId = ids.get(row.sku));
+        }
 
-                // Check if product name (column A) is empty - skip if so
-                String productName = getCellValueAsString(row.getCell(0));
-                if (productName == null || productName.trim().isEmpty()) {
-                    skippedNoName++;
-                    if (skippedNoName <= 10) {
-                        log.warn("Row {} skipped: Product name (column A) is empty", rowNum + 1);
-                    }
-                    rowNum++;
-                    continue;
-                }
+        if (shopImport) {
+            writeShopProducts(ctx, planned, now);
+        }
+        Map<PlannedRow, String> imageStatus = linkImages(planned);
 
-                BulkImportRequest request = parseRow(row, rowNum);
-                requests.add(request);
-                rowNum++;
-            }
+        List<BulkImportResponse.ImportResult> results = new ArrayList<>(planned.size());
+        for (PlannedRow row : planned) {
+            boolean wasUpdated = shopImport && row.existingShopProduct;
+            String message = !shopImport ? "Master product created successfully"
+                    : wasUpdated ? "Product exists - prices and image updated"
+                    : "Product imported successfully";
+            results.add(BulkImportResponse.ImportResult.builder()
+                    .rowNumber(row.request.getRowNumber())
+                    .productName(row.request.getName())
+                    .status("SUCCESS")
+                    .message(message)
+                    .productId(shopImport ? row.shopProductId : row.masterProductId)
+                    .imageUploadStatus(imageStatus.getOrDefault(row, "No image"))
+                    .wasUpdated(wasUpdated)
+                    .build());
+        }
+        return results;
+    }
+
+    private void writeShopProducts(ImportContext ctx, List<PlannedRow> planned, Timestamp now) {
+        Long shopId = ctx.job.getShopId();
+        String user = ctx.username;
+        List<PlannedRow> inserts = new ArrayList<>();
+        List<PlannedRow> updates = new ArrayList<>();
+        for (PlannedRow row : planned) {
+            row.existingShopProduct = row.shopProductId != null;
+            (row.existingShopProduct ? updates : inserts).add(row);
+        }
+
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SHOP_PRODUCT_SQL, inserts, CHUNK_SIZE, (ps, row) -> {
+                BulkImportRequest r = row.request;
+                ps.setLong(1, shopId);
+                ps.setLong(2, row.masterProductId);
+                ps.setBigDecimal(3, sellingPrice(r));
+                ps.setBigDecimal(4, r.getOriginalPrice());
+                ps.setBigDecimal(5, r.getCostPrice());
+                ps.setInt(6, r.getStockQuantity() != null ? r.getStockQuantity() : 0);
+                ps.setObject(7, r.getMinStockLevel(), Types.INTEGER);
+                ps.setObject(8, r.getMaxStockLevel(), Types.INTEGER);
+                ps.setBoolean(9, r.getTrackInventory() != null ? r.getTrackInventory() : true);
+                ps.setString(10, shopProductStatus(r).name());
+                ps.setBoolean(11, r.getIsAvailable() != null ? r.getIsAvailable() : true);
+                ps.setBoolean(12, r.getIsFeatured() != null ? r.getIsFeatured() : false);
+                ps.setString(13, r.getTags());
+                ps.setString(14, trimToNull(r.getBarcode1()));
+                ps.setString(15, trimToNull(r.getBarcode2()));
+                ps.setString(16, trimToNull(r.getBarcode3()));
+                ps.setString(17, user);
+                ps.setString(18, user);
+                ps.setTimestamp(19, now);
+                ps.setTimestamp(20, now);
+            });
+            Map<Long, Long> ids = new HashMap<>();
+            List<Object> args = new ArrayList<>();
+            args.add(shopId);
+            inserts.forEach(row -> args.add(row.masterProductId));
+            jdbcTemplate.query("SELECT id, master_product_id FROM shop_products " +
+                            "WHERE shop_id = ? AND master_product_id IN (" + placeholders(inserts.size()) + ")",
+                    rs -> {
+                        ids.put(rs.getLong("master_product_id"), rs.getLong("id"));
+                    },
+                    args.toArray());
+            inserts.forEach(row -> row.shopProductId = ids.get(row.masterProductId));
+        }
 
-            log.info("EXCEL PARSING SUMMARY: Total rows processed={}, Valid products={}, Skipped empty={}, Skipped no name={}",
-                     rowNum, requests.size(), skippedEmpty, skippedNoName);
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_SHOP_PRODUCT_SQL, updates, CHUNK_SIZE, (ps, row) -> {
+                BulkImportRequest r = row.request;
+                ps.setBigDecimal(1, sellingPrice(r));
+                ps.setBigDecimal(2, r.getOriginalPrice());
+                ps.setBigDecimal(3, r.getCostPrice());
+                ps.setInt(4, r.getStockQuantity() != null ? r.getStockQuantity() : 0);
+                ps.setObject(5, r.getMinStockLevel(), Types.INTEGER);
+                ps.setObject(6, r.getMaxStockLevel(), Types.INTEGER);
+                ps.setBoolean(7, r.getTrackInventory() != null ? r.getTrackInventory() : true);
+                ps.setString(8, shopProductStatus(r).name());
+                ps.setBoolean(9, r.getIsAvailable() != null ? r.getIsAvailable() : true);
+                ps.setBoolean(10, r.getIsFeatured() != null ? r.getIsFeatured() : false);
+                ps.setString(11, r.getTags());
+                ps.setString(12, trimToNull(r.getBarcode1()));
+                ps.setString(13, trimToNull(r.getBarcode2()));
+                ps.setString(14, trimToNull(r.getBarcode3()));
+                ps.setString(15, user);
+                ps.setTimestamp(16, now);
+                ps.setLong(17, row.shopProductId);
+            });
+            // The master barcode travels with the row on updates, as in updateShopProduct
+            List<PlannedRow> barcodeUpdates = updates.stream()
+                    .filter(row -> trimToNull(row.request.getBarcode()) != null)
+                    .toList();
+            if (!barcodeUpdates.isEmpty()) {
+                jdbcTemplate.batchUpdate("UPDATE master_products SET barcode = ?, updated_by = ?, updated_at = ? WHERE id = ?",
+                        barcodeUpdates, CHUNK_SIZE, (ps, row) -> {
+                            ps.setString(1, trimToNull(row.request.getBarcode()));
+                            ps.setString(2, user);
+                            ps.setTimestamp(3, now);
+                            ps.setLong(4, row.masterProductId);
+                        });
+            }
         }
 
-        return requests;
+        // JDBC writes skip the entity listener; one event drops the shop's cached catalog views
+        eventPublisher.publishEvent(new ShopProductChangedEvent(
+                this, shopId, null, ShopProductChangedEvent.Change.UPDATED));
     }
 
     /**
-     * Parse a single row from Excel
-     * Standard Column Mapping (0-indexed) - Matches user's Excel headers:
-     * A(0):  name               - Product name (required)
-     * B(1):  nameTamil          - Tamil name
-     * C(2):  description        - Product description
-     * D(3):  descriptionTamil   - Tamil description (SKIP)
-     * E(4):  categoryName       - Category name (auto-created if not exists)
-     * F(5):  brand              - Brand name
-     * G(6):  sku                - SKU code (used to find existing products)
-     * H(7):  searchQuery        - (SKIP)
-     * I(8):  downloadLink       - (SKIP)
-     * J(9):  baseUnit           - Unit of measurement (kg, piece, etc.)
-     * K(10): baseWeight         - Weight value
-     * L(11): originalPrice      - MRP/Original price
-     * M(12): discountPercentage - Discount percentage
-     * N(13): sellingPrice       - Selling price
-     * O(14): costPrice          - Cost price
-     * P(15): stockQuantity      - Current stock
-     * Q(16): minStockLevel      - Minimum stock alert level
-     * R(17): maxStockLevel      - Maximum stock level
-     * S(18): trackInventory     - Track inventory (TRUE/FALSE)
-     * T(19): status             - ACTIVE/INACTIVE
-     * U(20): isFeatured         - Featured product (TRUE/FALSE)
-     * V(21): isAvailable        - Available for sale (TRUE/FALSE)
-     * W(22): tags               - Comma-separated tags
-     * X(23): imagePath          - Image filename (e.g., product.jpg)
-     * Y(24): barcode            - Master product barcode
-     * Z(25): barcode1           - Shop-level barcode 1
-     * AA(26): barcode2          - Shop-level barcode 2
-     * AB(27): barcode3          - Shop-level barcode 3
+     * Make each row's image the primary one of its master product, adding the
+     * image record when the product doesn't have that URL yet. If several rows
+     * of the chunk point at one product, the last row's image wins. Each new
+     * record counts a reference to an uploaded image in the content store.
      */
-    private BulkImportRequest parseRow(Row row, int rowNumber) {
-        String categoryName = getCellValueAsString(row.getCell(4));  // E: categoryName
-        // DON'T lookup category here - do it inside the REQUIRES_NEW transaction
-
-        String name = getCellValueAsString(row.getCell(0));          // A: Item Name
-        String tags = getCellValueAsString(row.getCell(22));         // W: tags
-        String imagePath = getCellValueAsString(row.getCell(23));    // X: imagePath
-
-        log.info("parseRow #{}: name='{}', category='{}', imagePath='{}'", rowNumber, name, categoryName, imagePath);
-
-        return BulkImportRequest.builder()
-                .rowNumber(rowNumber)
-                .name(name)                                                    // A(0)
-                .nameTamil(getCellValueAsString(row.getCell(1)))              // B(1)
-                .description(getCellValueAsString(row.getCell(2)))            // C(2)
-                .categoryName(categoryName)                                    // E(4) - store name, resolve inside transaction
-                .brand(getCellValueAsString(row.getCell(5)))                  // F(5)
-                .sku(getCellValueAsString(row.getCell(6)))                    // G(6)
-                .baseUnit(getCellValueAsString(row.getCell(9)))               // J(9)
-                .baseWeight(getCellValueAsBigDecimal(row.getCell(10)))        // K(10)
-                .originalPrice(getCellValueAsBigDecimal(row.getCell(11)))     // L(11)
-                .discountPercentage(getCellValueAsBigDecimal(row.getCell(12)))// M(12)
-                .sellingPrice(getCellValueAsBigDecimal(row.getCell(13)))      // N(13)
-                .costPrice(getCellValueAsBigDecimal(row.getCell(14)))         // O(14)
-                .stockQuantity(getCellValueAsInteger(row.getCell(15)))        // P(15)
-                .minStockLevel(getCellValueAsInteger(row.getCell(16)))        // Q(16)
-                .maxStockLevel(getCellValueAsInteger(row.getCell(17)))        // R(17)
-                .trackInventory(getCellValueAsBoolean(row.getCell(18)))       // S(18)
-                .status(getCellValueAsString(row.getCell(19)))                // T(19)
-                .isFeatured(getCellValueAsBoolean(row.getCell(20)))           // U(20)
-                .isAvailable(getCellValueAsBoolean(row.getCell(21)))          // V(21)
-                .tags(tags)                                                    // W(22)
-                .imagePath(imagePath)                                          // X(23)
-                .imageFolder(null)                                             // Not in Excel
-                .barcode(getCellValueAsString(row.getCell(24)))               // Y(24)
-                .barcode1(getCellValueAsString(row.getCell(25)))              // Z(25)
-                .barcode2(getCellValueAsString(row.getCell(26)))              // AA(26)
-                .barcode3(getCellValueAsString(row.getCell(27)))              // AB(27)
+    private Map<PlannedRow, String> linkImages(List<PlannedRow> planned) {
+        Map<Long, PlannedRow> byProduct = new LinkedHashMap<>();
+        Map<PlannedRow, String> status = new HashMap<>();
+        for (PlannedRow row : planned) {
+            if (row.image == null) {
+                continue;
+            }
+            if (row.image.error() != null) {
+                status.put(row, row.image.error());
+            } else {
+                byProduct.put(row.masterProductId, row);
+            }
+        }
+        if (byProduct.isEmpty()) {
+            return status;
+        }
+        List<PlannedRow> rows = new ArrayList<>(byProduct.values());
+        jdbcTemplate.batchUpdate("UPDATE master_product_images SET is_primary = (image_url = ?) WHERE master_product_id = ?",
+                rows, CHUNK_SIZE, (ps, row) -> {
+                    ps.setString(1, row.image.url());
+                    ps.setLong(2, row.masterProductId);
+                });
+        int[][] inserted = jdbcTemplate.batchUpdate(
+                "INSERT INTO master_product_images (master_product_id, image_url, alt_text, is_primary, sort_order, created_by, created_at) " +
+                "SELECT ?, ?, ?, TRUE, 0, 'BULK_IMPORT', CURRENT_TIMESTAMP WHERE NOT EXISTS " +
+                "(SELECT 1 FROM master_product_images WHERE master_product_id = ? AND image_url = ?)",
+                rows, CHUNK_SIZE, (ps, row) -> {
+                    ps.setLong(1, row.masterProductId);
+                    ps.setString(2, row.image.url());
+                    ps.setString(3, trimToNull(row.request.getImagePath()));
+                    ps.setLong(4, row.masterProductId);
+                    ps.setString(5, row.image.url());
+                });
+        for (int i = 0; i < rows.size(); i++) {
+            PlannedRow row = rows.get(i);
+            String linked = inserted[i / CHUNK_SIZE][i % CHUNK_SIZE] == 0
+                    ? "Set as primary"
+                    : row.image.exists() ? "Linked as primary" : "Linked as primary (file not found)";
+            status.put(row, linked + ": " + row.image.url());
+            if (inserted[i / CHUNK_SIZE][i % CHUNK_SIZE] != 0) {
+                contentStoreService.retain(row.image.url());
+            }
+        }
+        // Other rows of the same product report the image that was kept
+        for (PlannedRow row : planned) {
+            if (row.image != null && row.image.error() == null && !status.containsKey(row)) {
+                status.put(row, "Superseded by a later row: " + byProduct.get(row.masterProductId).image.url());
+            }
+        }
+        return status;
+    }
+
+    private void refreshShopProductCount(Long shopId) {
+        jdbcTemplate.update("UPDATE shops SET product_count = " +
+                "(SELECT COUNT(*) FROM shop_products WHERE shop_id = ? AND is_available = TRUE) WHERE id = ?",
+                shopId, shopId);
+    }
+
+    private Optional<BulkImportJob> findAccessibleJob(String jobId) {
+        BulkImportJob job = jobs.get(jobId);
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (job == null || auth == null) {
+            return Optional.empty();
+        }
+        boolean admin = auth.getAuthorities().stream().anyMatch(a ->
+                "ROLE_ADMIN".equals(a.getAuthority()) || "ROLE_SUPER_ADMIN".equals(a.getAuthority()));
+        return admin || auth.getName().equals(job.getOwner()) ? Optional.of(job) : Optional.empty();
+    }
+
+    private void evictFinishedJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(jobRetentionMinutes);
+        jobs.values().removeIf(job -> job.isFinished() && job.getFinishedAt().isBefore(cutoff));
+    }
+
+    private void deleteWorkDir(Path workDir) {
+        try (Stream<Path> paths = Files.walk(workDir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            log.warn("Could not delete bulk import work dir {}: {}", workDir, e.getMessage());
+        }
+    }
+
+    private static BigDecimal sellingPrice(BulkImportRequest request) {
+        BigDecimal sellingPrice = request.getSellingPrice();
+        if (sellingPrice == null && request.getOriginalPrice() != null && request.getDiscountPercentage() != null) {
+            BigDecimal discount = request.getOriginalPrice()
+                    .multiply(request.getDiscountPercentage())
+                    .divide(BigDecimal.valueOf(100));
+            sellingPrice = request.getOriginalPrice().subtract(discount);
+        }
+        return sellingPrice;
+    }
+
+    private static MasterProduct.ProductStatus masterStatus(BulkImportRequest request) {
+        if (request.getStatus() != null) {
+            try {
+                return MasterProduct.ProductStatus.valueOf(request.getStatus().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                log.warn("Invalid status: {}, using ACTIVE", request.getStatus());
+            }
+        }
+        return MasterProduct.ProductStatus.ACTIVE;
+    }
+
+    private static ShopProduct.ShopProductStatus shopProductStatus(BulkImportRequest request) {
+        if (request.getShopProductStatus() != null) {
+            try {
+                return ShopProduct.ShopProductStatus.valueOf(request.getShopProductStatus().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                log.warn("Invalid shop product status: {}, using ACTIVE", request.getShopProductStatus());
+            }
+        }
+        return ShopProduct.ShopProductStatus.ACTIVE;
+    }
+
+    /** CAT-BRND-NAME from the letters of each part, as MasterProductService.generateSku. */
+    private static String skuBase(String categoryName, String productName, String brand) {
+        String brandPrefix = letterPrefix(brand, 4);
+        return letterPrefix(categoryName, 3) + "-" + (brandPrefix.isEmpty() ? "" : brandPrefix + "-")
+                + letterPrefix(productName, 4);
+    }
+
+    private static String letterPrefix(String value, int length) {
+        String letters = value == null ? "" : value.replaceAll("[^a-zA-Z]", "");
+        return letters.substring(0, Math.min(length, letters.length())).toUpperCase();
+    }
+
+    private static boolean ownedByOther(Set<Long> owners, Long id) {
+        return owners != null && owners.stream().anyMatch(owner -> !owner.equals(id));
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    private static String trimToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    private static BulkImportResponse.ImportResult failed(BulkImportRequest request, String message) {
+        return BulkImportResponse.ImportResult.builder()
+                .rowNumber(request.getRowNumber())
+                .productName(request.getName())
+                .status("FAILED")
+                .message(message)
                 .build();
     }
 
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /** Per-job lookup state, so each name/SKU/base hits the database once per job. */
+    private final class ImportContext {
+        final BulkImportJob job;
+        final String username;
+        final Map<String, Long> categoryIds = new HashMap<>();        // lower-case name -> id
+        final Map<Long, String> categoryNames = new HashMap<>();      // id -> name, for generated SKUs
+        final Map<String, Long> masterIdsBySku = new HashMap<>();
+        final Set<String> takenSkus = new HashSet<>();
+        final Set<String> checkedSkuBases = new HashSet<>();
+        final Map<String, CompletableFuture<ImageFile>> images = new HashMap<>();
+        private Long defaultCategoryId;
+
+        ImportContext(BulkImportJob job, String username) {
+            this.job = job;
+            this.username = username;
+        }
+
+        Long defaultCategoryId() {
+            if (defaultCategoryId == null) {
+                defaultCategoryId = getOrCreateDefaultCategory();
+            }
+            return defaultCategoryId;
+        }
+
+        String categoryName(Long categoryId) {
+            return categoryNames.computeIfAbsent(categoryId, id -> jdbcTemplate.queryForObject(
+                    "SELECT name FROM product_categories WHERE id = ?", String.class, id));
+        }
+    }
+
+    private static final class PlannedRow {
+        final BulkImportRequest request;
+        String sku;
+        Long masterProductId;        // null until inserted, for new master products
+        Long shopProductId;          // null until inserted, for new shop products
+        boolean existingShopProduct;
+        ImageFile image;
+
+        PlannedRow(BulkImportRequest request) {
+            this.request = request;
+        }
+    }
+
+    private record ExistingShopProduct(Long id, String barcode1, String barcode2, String barcode3) {
+    }
+
+    /** stored: the URL is a content-store upload the job holds a reference to. */
+    private record ImageFile(String url, boolean exists, String error, boolean stored) {
+    }
+
     /**
      * Look up category ID by category name, auto-create if not found
      * NEVER returns null - always returns a valid category ID
@@ -377,11 +1130,19 @@ public class BulkProductImportService {
     }
 
     /**
-     * Process single product - NO @Transactional, each service call is independent
+     * Process single product - NO @Transactional, each service call is independent.
+     * Fallback for a chunk whose batch write failed.
+     */
+    public BulkImportResponse.ImportResult processShopProductImport(Long shopId, BulkImportRequest request) {
+        return processShopProductImport(shopId, request, null);
+    }
+
+    /**
+     * As above; stagedImageUrl is the row's uploaded image the job already
+     * stored, linked instead of the file named by imagePath.
      */
-    public BulkImportResponse.ImportResult processShopProductImport(Long shopId,
-                                                                       BulkImportRequest request,
-                                                                       List<MultipartFile> images) {
+    public BulkImportResponse.ImportResult processShopProductImport(Long shopId, BulkImportRequest request,
+                                                                    String stagedImageUrl) {
         try {
             // Resolve category name to ID inside this transaction
             if (request.getCategoryId() == null && request.getCategoryName() != null) {
@@ -436,9 +1197,11 @@ public class BulkProductImportService {
             String imageStatus = "No image";
             log.info("Checking image upload condition: imagePath='{}', isEmpty={}",
                      request.getImagePath(), request.getImagePath() == null ? "null" : request.getImagePath().isEmpty());
-            if (request.getImagePath() != null && !request.getImagePath().isEmpty()) {
+            if (stagedImageUrl != null) {
+                imageStatus = linkImage(masterProduct.getId(), stagedImageUrl, request.getImagePath().trim(), true);
+            } else if (request.getImagePath() != null && !request.getImagePath().isEmpty()) {
                 imageStatus = handleImageUpload(masterProduct.getId(), request.getImagePath(),
-                                                request.getImageFolder(), images);
+                                                request.getImageFolder());
             } else {
                 log.warn("Skipping image upload: imagePath is null or empty for product '{}'", request.getName());
             }
@@ -470,10 +1233,15 @@ public class BulkProductImportService {
     }
 
     /**
-     * Process master product - NO @Transactional, each service call is independent
+     * Process master product - NO @Transactional, each service call is independent.
+     * Fallback for a chunk whose batch write failed.
      */
-    public BulkImportResponse.ImportResult processMasterProductImport(BulkImportRequest request,
-                                                                         List<MultipartFile> images) {
+    public BulkImportResponse.ImportResult processMasterProductImport(BulkImportRequest request) {
+        return processMasterProductImport(request, null);
+    }
+
+    /** As above, linking the job's stored upload when there is one (see processShopProductImport). */
+    public BulkImportResponse.ImportResult processMasterProductImport(BulkImportRequest request, String stagedImageUrl) {
         try {
             // Resolve category name to ID inside this transaction
             if (request.getCategoryId() == null && request.getCategoryName() != null) {
@@ -488,9 +1256,11 @@ public class BulkProductImportService {
             String imageStatus = "No image";
             log.info("[Master] Checking image upload: imagePath='{}', isEmpty={}",
                      request.getImagePath(), request.getImagePath() == null ? "null" : request.getImagePath().isEmpty());
-            if (request.getImagePath() != null && !request.getImagePath().isEmpty()) {
+            if (stagedImageUrl != null) {
+                imageStatus = linkImage(masterProduct.getId(), stagedImageUrl, request.getImagePath().trim(), true);
+            } else if (request.getImagePath() != null && !request.getImagePath().isEmpty()) {
                 imageStatus = handleImageUpload(masterProduct.getId(), request.getImagePath(),
-                                                request.getImageFolder(), images);
+                                                request.getImageFolder());
             } else {
                 log.warn("[Master] Skipping image upload: imagePath is null or empty for product '{}'", request.getName());
             }
@@ -519,14 +1289,7 @@ public class BulkProductImportService {
      * Build MasterProductRequest from BulkImportRequest
      */
     private MasterProductRequest buildMasterProductRequest(BulkImportRequest request) {
-        MasterProduct.ProductStatus status = MasterProduct.ProductStatus.ACTIVE;
-        if (request.getStatus() != null) {
-            try {
-                status = MasterProduct.ProductStatus.valueOf(request.getStatus().toUpperCase());
-            } catch (IllegalArgumentException e) {
-                log.warn("Invalid status: {}, using ACTIVE", request.getStatus());
-            }
-        }
+        MasterProduct.ProductStatus status = masterStatus(request);
 
         log.info("buildMasterProductRequest: name='{}', tags='{}' -> preparing to save", request.getName(), request.getTags());
 
@@ -553,22 +1316,8 @@ public class BulkProductImportService {
      */
     private ShopProductRequest buildShopProductRequest(BulkImportRequest request, Long masterProductId) {
         // Calculate price if discount is provided
-        BigDecimal sellingPrice = request.getSellingPrice();
-        if (sellingPrice == null && request.getOriginalPrice() != null && request.getDiscountPercentage() != null) {
-            BigDecimal discount = request.getOriginalPrice()
-                    .multiply(request.getDiscountPercentage())
-                    .divide(BigDecimal.valueOf(100));
-            sellingPrice = request.getOriginalPrice().subtract(discount);
-        }
-
-        ShopProduct.ShopProductStatus status = ShopProduct.ShopProductStatus.ACTIVE;
-        if (request.getShopProductStatus() != null) {
-            try {
-                status = ShopProduct.ShopProductStatus.valueOf(request.getShopProductStatus().toUpperCase());
-            } catch (IllegalArgumentException e) {
-                log.warn("Invalid shop product status: {}, using ACTIVE", request.getShopProductStatus());
-            }
-        }
+        BigDecimal sellingPrice = sellingPrice(request);
+        ShopProduct.ShopProductStatus status = shopProductStatus(request);
 
         return ShopProductRequest.builder()
                 .masterProductId(masterProductId)
@@ -601,8 +1350,7 @@ public class BulkProductImportService {
      * - If image already exists with same URL, ensure it's set as primary
      * - If new image, set as primary and demote existing primary
      */
-    private String handleImageUpload(Long productId, String imagePath, String imageFolder,
-                                     List<MultipartFile> images) {
+    private String handleImageUpload(Long productId, String imagePath, String imageFolder) {
         log.info("handleImageUpload called: productId={}, imagePath='{}', imageFolder='{}'",
                  productId, imagePath, imageFolder);
         try {
@@ -638,12 +1386,26 @@ public class BulkProductImportService {
             if (!fileExists) {
                 log.warn("Image file not found at: {} (path will be saved anyway)", imageFilePath);
             }
+            return linkImage(productId, imageUrl, imagePath.trim(), fileExists);
 
+        } catch (Exception e) {
+            log.error("Error handling image for product {}: {}", productId, e.getMessage(), e);
+            return "Image link failed: " + e.getMessage();
+        }
+    }
+
+    /**
+     * Make imageUrl the primary image of the master product, adding the image
+     * record if the product doesn't have it yet. A new record counts a
+     * reference to a content-store URL.
+     */
+    private String linkImage(Long productId, String imageUrl, String altText, boolean fileExists) {
+        try {
             // Get actual master product entity (not just reference)
             MasterProduct masterProduct = masterProductRepository.findById(productId)
                     .orElseThrow(() -> new RuntimeException("Master product not found: " + productId));
-            log.info("IMAGE UPLOAD: productId={}, imageUrl={}, folder={}, productName='{}'",
-                     productId, imageUrl, folder, masterProduct.getName());
+            log.info("IMAGE UPLOAD: productId={}, imageUrl={}, productName='{}'",
+                     productId, imageUrl, masterProduct.getName());
 
             // Check if this exact image URL already exists for this product
             Optional<MasterProductImage> existingImage = masterProductImageRepository
@@ -673,13 +1435,14 @@ public class BulkProductImportService {
             MasterProductImage productImage = MasterProductImage.builder()
                     .masterProduct(masterProduct)
                     .imageUrl(imageUrl)
-                    .altText(imagePath.trim())
+                    .altText(altText)
                     .isPrimary(true)  // Always primary for bulk import
                     .sortOrder(0)     // Primary image at top
                     .createdBy("BULK_IMPORT")
                     .build();
 
             MasterProductImage savedImage = masterProductImageRepository.saveAndFlush(productImage);
+            contentStoreService.retain(imageUrl);
             log.info("IMAGE UPLOAD: SAVED new image id={}, isPrimary={}, url={}, productId={}",
                      savedImage.getId(), savedImage.getIsPrimary(), savedImage.getImageUrl(), productId);
 
@@ -693,135 +1456,9 @@ public class BulkProductImportService {
         }
     }
 
-    /**
-     * Find image file from uploaded files by name
-     */
-    private MultipartFile findImageFile(String imagePath, List<MultipartFile> images) {
-        if (images == null || images.isEmpty()) {
-            return null;
-        }
-
-        for (MultipartFile image : images) {
-            if (image.getOriginalFilename().equals(imagePath)) {
-                return image;
-            }
-        }
-        return null;
-    }
-
-    // Helper methods for cell value extraction
-
-    private String getCellValueAsString(Cell cell) {
-        if (cell == null) {
-            return null;
-        }
-
-        switch (cell.getCellType()) {
-            case STRING:
-                return cell.getStringCellValue().trim();
-            case NUMERIC:
-                return String.valueOf((long) cell.getNumericCellValue());
-            case BOOLEAN:
-                return String.valueOf(cell.getBooleanCellValue());
-            case FORMULA:
-                return cell.getCellFormula();
-            default:
-                return null;
-        }
-    }
-
-    private Long getCellValueAsLong(Cell cell) {
-        if (cell == null) {
-            return null;
-        }
-
-        try {
-            if (cell.getCellType() == CellType.NUMERIC) {
-                return (long) cell.getNumericCellValue();
-            } else if (cell.getCellType() == CellType.STRING) {
-                String value = cell.getStringCellValue().trim();
-                return value.isEmpty() ? null : Long.parseLong(value);
-            }
-        } catch (Exception e) {
-            log.warn("Error parsing Long value from cell: {}", e.getMessage());
-        }
-        return null;
-    }
-
-    private Integer getCellValueAsInteger(Cell cell) {
-        if (cell == null) {
-            return null;
-        }
-
-        try {
-            if (cell.getCellType() == CellType.NUMERIC) {
-                return (int) cell.getNumericCellValue();
-            } else if (cell.getCellType() == CellType.STRING) {
-                String value = cell.getStringCellValue().trim();
-                return value.isEmpty() ? null : Integer.parseInt(value);
-            }
-        } catch (Exception e) {
-            log.warn("Error parsing Integer value from cell: {}", e.getMessage());
-        }
-        return null;
-    }
-
-    private BigDecimal getCellValueAsBigDecimal(Cell cell) {
-        if (cell == null) {
-            return null;
-        }
-
-        try {
-            if (cell.getCellType() == CellType.NUMERIC) {
-                return BigDecimal.valueOf(cell.getNumericCellValue());
-            } else if (cell.getCellType() == CellType.STRING) {
-                String value = cell.getStringCellValue().trim();
-                return value.isEmpty() ? null : new BigDecimal(value);
-            }
-        } catch (Exception e) {
-            log.warn("Error parsing BigDecimal value from cell: {}", e.getMessage());
-        }
-        return null;
-    }
-
-    private Boolean getCellValueAsBoolean(Cell cell) {
-        if (cell == null) {
-            return null;
-        }
-
-        try {
-            if (cell.getCellType() == CellType.BOOLEAN) {
-                return cell.getBooleanCellValue();
-            } else if (cell.getCellType() == CellType.STRING) {
-                String value = cell.getStringCellValue().trim().toLowerCase();
-                return "true".equals(value) || "yes".equals(value) || "1".equals(value);
-            } else if (cell.getCellType() == CellType.NUMERIC) {
-                return cell.getNumericCellValue() != 0;
-            }
-        } catch (Exception e) {
-            log.warn("Error parsing Boolean value from cell: {}", e.getMessage());
-        }
-        return false;
-    }
-
-    private boolean isRowEmpty(Row row) {
-        if (row == null) {
-            return true;
-        }
-
-        for (int cellNum = row.getFirstCellNum(); cellNum < row.getLastCellNum(); cellNum++) {
-            Cell cell = row.getCell(cellNum);
-            if (cell != null && cell.getCellType() != CellType.BLANK) {
-                return false;
-            }
-        }
-        return true;
-    }
-
     /** The importing user's username, or BULK_IMPORT when run without an authenticated context */
     private String getCurrentUsernameOrBulk() {
-        org.springframework.security.core.Authentication auth =
-                org.springframework.security.core.context.SecurityContextHolder.getContext().getAuthentication();
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         return (auth != null && auth.getName() != null && !auth.getName().isBlank())
                 ? auth.getName()
                 : "BULK_IMPORT";
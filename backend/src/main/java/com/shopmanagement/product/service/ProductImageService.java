@@ -10,6 +10,8 @@ import com.shopmanagement.product.repository.MasterProductRepository;
 import com.shopmanagement.product.repository.MasterProductImageRepository;
 import com.shopmanagement.product.repository.ShopProductRepository;
 import com.shopmanagement.product.repository.ShopProductImageRepository;
+import com.shopmanagement.service.ContentStoreService;
+import com.shopmanagement.service.ImageDerivativeService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -21,16 +23,13 @@ import org.springframework.web.multipart.MultipartFile;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.UUID;
 import java.util.stream.IntStream;
 
 @Service
@@ -44,6 +43,8 @@ public class ProductImageService {
     private final ShopProductRepository shopProductRepository;
     private final ShopProductImageRepository shopProductImageRepository;
     private final ProductMapper productMapper;
+    private final ImageDerivativeService imageDerivativeService;
+    private final ContentStoreService contentStoreService;
 
     @Value("${app.upload.product-images:/opt/shop-management/uploads/products}")
     private String productImageDir;
@@ -162,6 +163,7 @@ public class ProductImageService {
                 
                 masterProduct.getImages().add(masterImage);
                 masterProductRepository.save(masterProduct);
+                contentStoreService.retain(masterImage.getImageUrl());
                 log.info("Successfully copied image to master product: {}", masterProduct.getId());
             }
         }
@@ -348,51 +350,32 @@ public class ProductImageService {
         }
     }
 
+    /**
+     * Stores the image in the content-addressed store, so the same photo uploaded
+     * for many products or shops is kept once. type/ids only label the log line.
+     */
     private String saveImageFile(MultipartFile file, String type, Long... ids) {
-        try {
-            String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
-            String uuid = UUID.randomUUID().toString().substring(0, 8);
-            String extension = file.getOriginalFilename().substring(file.getOriginalFilename().lastIndexOf("."));
-            
-            String filename = String.format("%s_%s_%s_%s%s", type, String.join("_", Arrays.stream(ids).map(String::valueOf).toArray(String[]::new)), timestamp, uuid, extension);
-
-            // Create directory structure with better error handling
-            Path uploadPath = Paths.get(productImageDir, type);
-            
-            log.info("Attempting to create/access upload directory: {}", uploadPath.toAbsolutePath());
-            
-            try {
-                if (!Files.exists(uploadPath)) {
-                    Files.createDirectories(uploadPath);
-                    log.info("Created upload directory: {}", uploadPath.toAbsolutePath());
-                }
-            } catch (IOException e) {
-                log.error("Failed to create upload directory: {}. Error: {}", uploadPath.toAbsolutePath(), e.getMessage());
-                throw new RuntimeException("Failed to create upload directory: " + uploadPath.toAbsolutePath() + ". Please ensure the application has write permissions.");
-            }
-            
-            // Check if directory is writable
-            if (!Files.isWritable(uploadPath)) {
-                log.error("Upload directory is not writable: {}", uploadPath.toAbsolutePath());
-                throw new RuntimeException("Upload directory is not writable: " + uploadPath.toAbsolutePath() + ". Please check permissions.");
+        String originalFilename = file.getOriginalFilename();
+        String extension = originalFilename.substring(originalFilename.lastIndexOf(".") + 1);
+        try (InputStream in = file.getInputStream()) {
+            ContentStoreService.StoredContent stored = contentStoreService.store(in, extension);
+            if (!stored.duplicate()) {
+                imageDerivativeService.generateAsync(stored.path());
             }
-            
-            Path filePath = uploadPath.resolve(filename);
-            log.info("Saving file to: {}", filePath.toAbsolutePath());
-            
-            Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
-            log.info("Successfully saved file: {}", filePath.toAbsolutePath());
-
-            // Return the relative URL path
-            return String.format("/uploads/products/%s/%s", type, filename);
-            
+            log.info("Saved {} image for {}: {}{}", type, Arrays.toString(ids), stored.url(),
+                    stored.duplicate() ? " (duplicate of an existing file)" : "");
+            return stored.url();
         } catch (IOException e) {
             log.error("Error saving image file: {}", e.getMessage(), e);
-            throw new RuntimeException("Failed to save image file: " + productImageDir + ". " + e.getMessage());
+            throw new RuntimeException("Failed to save image file: " + e.getMessage());
         }
     }
 
     private void deleteImageFile(String imageUrl) {
+        if (contentStoreService.release(imageUrl)) {
+            log.info("Released image file: {}", imageUrl);
+            return;
+        }
         try {
             // Extract the filename from the URL path
             // imageUrl format: /uploads/products/master/filename.jpg
@@ -405,6 +388,7 @@ public class ProductImageService {
                 if (Files.exists(filePath)) {
                     Files.delete(filePath);
                     log.info("Successfully deleted image file: {}", filePath);
+                    imageDerivativeService.deleteDerivatives(filePath);
                 } else {
                     log.warn("Image file not found for deletion: {}", filePath);
                 }
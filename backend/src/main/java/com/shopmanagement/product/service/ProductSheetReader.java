@@ -0,0 +1,221 @@
+package com.shopmanagement.product.service;
+
+import com.shopmanagement.product.dto.BulkImportRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.function.Consumer;
+
+/**
+ * Streams the first sheet of a bulk-import workbook row by row (POI SAX event
+ * model) instead of loading it into an XSSFWorkbook, so memory stays flat no
+ * matter how many rows the sheet has. Each data row is handed to the consumer
+ * as a {@link BulkImportRequest} as soon as it has been read.
+ *
+ * Column mapping (0-indexed), matching the import template:
+ * A(0):  name               - Product name (required)
+ * B(1):  nameTamil          - Tamil name
+ * C(2):  description        - Product description
+ * D(3):  descriptionTamil   - Tamil description (SKIP)
+ * E(4):  categoryName       - Category name (auto-created if not exists)
+ * F(5):  brand              - Brand name
+ * G(6):  sku                - SKU code (used to find existing products)
+ * H(7):  searchQuery        - (SKIP)
+ * I(8):  downloadLink       - (SKIP)
+ * J(9):  baseUnit           - Unit of measurement (kg, piece, etc.)
+ * K(10): baseWeight         - Weight value
+ * L(11): originalPrice      - MRP/Original price
+ * M(12): discountPercentage - Discount percentage
+ * N(13): sellingPrice       - Selling price
+ * O(14): costPrice          - Cost price
+ * P(15): stockQuantity      - Current stock
+ * Q(16): minStockLevel      - Minimum stock alert level
+ * R(17): maxStockLevel      - Maximum stock level
+ * S(18): trackInventory     - Track inventory (TRUE/FALSE)
+ * T(19): status             - ACTIVE/INACTIVE
+ * U(20): isFeatured         - Featured product (TRUE/FALSE)
+ * V(21): isAvailable        - Available for sale (TRUE/FALSE)
+ * W(22): tags               - Comma-separated tags
+ * X(23): imagePath          - Image filename (e.g., product.jpg)
+ * Y(24): barcode            - Master product barcode
+ * Z(25): barcode1           - Shop-level barcode 1
+ * AA(26): barcode2          - Shop-level barcode 2
+ * AB(27): barcode3          - Shop-level barcode 3
+ */
+@Slf4j
+final class ProductSheetReader {
+
+    private static final int COLUMNS = 28;
+
+    /** Row counts of one read, for the import summary. */
+    record Summary(int physicalRows, int productRows, int skippedEmpty, int skippedNoName) {
+    }
+
+    private ProductSheetReader() {
+    }
+
+    static Summary read(Path workbook, Consumer<BulkImportRequest> rows) throws Exception {
+        try (OPCPackage pkg = OPCPackage.open(workbook.toFile(), PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+            Iterator<InputStream> sheets = reader.getSheetsData();
+            if (!sheets.hasNext()) {
+                return new Summary(0, 0, 0, 0);
+            }
+            RowCollector collector = new RowCollector(rows);
+            try (InputStream sheet = sheets.next()) {
+                XMLReader parser = XMLHelper.newXMLReader();
+                parser.setContentHandler(new XSSFSheetXMLHandler(
+                        reader.getStylesTable(), strings, collector, new RawValueFormatter(), false));
+                parser.parse(new InputSource(sheet));
+            }
+            log.info("EXCEL PARSING SUMMARY: Physical rows={}, Valid products={}, Skipped empty={}, Skipped no name={}",
+                    collector.physicalRows, collector.productRows, collector.skippedEmpty, collector.skippedNoName);
+            return new Summary(collector.physicalRows, collector.productRows,
+                    collector.skippedEmpty, collector.skippedNoName);
+        }
+    }
+
+    private static final class RowCollector implements XSSFSheetXMLHandler.SheetContentsHandler {
+
+        private final Consumer<BulkImportRequest> rows;
+        private final String[] cells = new String[COLUMNS];
+        private int nextColumn;
+        private int physicalRows;
+        private int productRows;
+        private int skippedEmpty;
+        private int skippedNoName;
+
+        RowCollector(Consumer<BulkImportRequest> rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            Arrays.fill(cells, null);
+            nextColumn = 0;
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            int column = cellReference != null ? new CellReference(cellReference).getCol() : nextColumn;
+            nextColumn = column + 1;
+            if (column < COLUMNS && formattedValue != null && !formattedValue.isBlank()) {
+                cells[column] = formattedValue.trim();
+            }
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            physicalRows++;
+            if (rowNum == 0) {
+                return; // header
+            }
+            if (Arrays.stream(cells).allMatch(value -> value == null)) {
+                skippedEmpty++;
+                return;
+            }
+            if (cells[0] == null) {
+                skippedNoName++;
+                if (skippedNoName <= 10) {
+                    log.warn("Row {} skipped: Product name (column A) is empty", rowNum + 1);
+                }
+                return;
+            }
+            productRows++;
+            rows.accept(toRequest(cells, rowNum));
+        }
+    }
+
+    private static BulkImportRequest toRequest(String[] cells, int rowNumber) {
+        return BulkImportRequest.builder()
+                .rowNumber(rowNumber)
+                .name(cells[0])                                  // A(0)
+                .nameTamil(cells[1])                             // B(1)
+                .description(cells[2])                           // C(2)
+                .categoryName(cells[4])                          // E(4) - resolved per job
+                .brand(cells[5])                                 // F(5)
+                .sku(cells[6])                                   // G(6)
+                .baseUnit(cells[9])                              // J(9)
+                .baseWeight(toBigDecimal(cells[10]))             // K(10)
+                .originalPrice(toBigDecimal(cells[11]))          // L(11)
+                .discountPercentage(toBigDecimal(cells[12]))     // M(12)
+                .sellingPrice(toBigDecimal(cells[13]))           // N(13)
+                .costPrice(toBigDecimal(cells[14]))              // O(14)
+                .stockQuantity(toInteger(cells[15]))             // P(15)
+                .minStockLevel(toInteger(cells[16]))             // Q(16)
+                .maxStockLevel(toInteger(cells[17]))             // R(17)
+                .trackInventory(toBoolean(cells[18]))            // S(18)
+                .status(cells[19])                               // T(19)
+                .isFeatured(toBoolean(cells[20]))                // U(20)
+                .isAvailable(toBoolean(cells[21]))               // V(21)
+                .tags(cells[22])                                 // W(22)
+                .imagePath(cells[23])                            // X(23)
+                .imageFolder(null)                               // Not in Excel
+                .barcode(cells[24])                              // Y(24)
+                .barcode1(cells[25])                             // Z(25)
+                .barcode2(cells[26])                             // AA(26)
+                .barcode3(cells[27])                             // AB(27)
+                .build();
+    }
+
+    private static BigDecimal toBigDecimal(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return new BigDecimal(value.replace(",", ""));
+        } catch (NumberFormatException e) {
+            log.warn("Error parsing BigDecimal value '{}'", value);
+            return null;
+        }
+    }
+
+    private static Integer toInteger(String value) {
+        BigDecimal number = toBigDecimal(value);
+        return number != null ? number.intValue() : null;
+    }
+
+    private static Boolean toBoolean(String value) {
+        if (value == null) {
+            return null;
+        }
+        String normalized = value.toLowerCase();
+        if ("true".equals(normalized) || "yes".equals(normalized)) {
+            return true;
+        }
+        if ("false".equals(normalized) || "no".equals(normalized)) {
+            return false;
+        }
+        BigDecimal number = toBigDecimal(normalized);
+        return number != null && number.signum() != 0;
+    }
+
+    /**
+     * Numeric cells as their raw value rather than the cell's display format, so
+     * barcodes and SKUs typed as numbers don't come back as "8.90123E+12" or "1,200".
+     */
+    private static final class RawValueFormatter extends DataFormatter {
+        @Override
+        public String formatRawCellContents(double value, int formatIndex, String formatString, boolean use1904Windowing) {
+            BigDecimal number = BigDecimal.valueOf(value).stripTrailingZeros();
+            return number.scale() <= 0 ? number.toBigInteger().toString() : number.toPlainString();
+        }
+    }
+}
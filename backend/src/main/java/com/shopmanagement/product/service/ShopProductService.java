@@ -14,6 +14,7 @@ import com.shopmanagement.product.repository.ShopProductRepository;
 import com.shopmanagement.shop.entity.Shop;
 import com.shopmanagement.shop.exception.ShopNotFoundException;
 import com.shopmanagement.shop.repository.ShopRepository;
+import com.shopmanagement.service.ContentStoreService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
@@ -40,6 +41,7 @@ public class ShopProductService {
     private final ShopRepository shopRepository;
     private final ProductCategoryRepository categoryRepository;
     private final ProductMapper productMapper;
+    private final ContentStoreService contentStoreService;
 
     @Transactional(readOnly = true)
     public Page<ShopProductResponse> getShopProducts(Long shopId, Specification<ShopProduct> spec, Pageable pageable) {
@@ -446,6 +448,8 @@ public class ShopProductService {
                     .toList();
             clone.getImages().addAll(copiedImages);
             clone = masterProductRepository.save(clone);
+            // The clone's image rows share the source's files; each row holds its own reference
+            copiedImages.forEach(img -> contentStoreService.retain(img.getImageUrl()));
         }
 
         return clone;
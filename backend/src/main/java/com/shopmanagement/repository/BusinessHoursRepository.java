@@ -7,6 +7,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.DayOfWeek;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -25,6 +26,9 @@ public interface BusinessHoursRepository extends JpaRepository<BusinessHours, Lo
     @Query("SELECT bh FROM BusinessHours bh WHERE bh.shopId = :shopId AND bh.dayOfWeek = :dayOfWeek AND bh.isOpen = true")
     Optional<BusinessHours> findOpenHoursByShopIdAndDay(@Param("shopId") Long shopId, @Param("dayOfWeek") DayOfWeek dayOfWeek);
     
+    @Query("SELECT bh FROM BusinessHours bh WHERE bh.shopId IN :shopIds AND bh.isOpen = true")
+    List<BusinessHours> findOpenHoursByShopIdIn(@Param("shopIds") Collection<Long> shopIds);
+    
     void deleteByShopId(Long shopId);
     
     boolean existsByShopIdAndDayOfWeek(Long shopId, DayOfWeek dayOfWeek);
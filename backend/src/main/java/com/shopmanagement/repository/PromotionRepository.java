@@ -47,6 +47,12 @@ public interface PromotionRepository extends JpaRepository<Promotion, Long> {
            "AND (p.usageLimit IS NULL OR p.usedCount < p.usageLimit)")
     List<Promotion> findAllPublicActive(@Param("now") LocalDateTime now);
 
+    /**
+     * Find promotions that are active now or will be (not yet ended), for the promotion engine
+     */
+    @Query("SELECT p FROM Promotion p WHERE p.status = 'ACTIVE' AND p.endDate >= :now")
+    List<Promotion> findNotEnded(@Param("now") LocalDateTime now);
+
     /**
      * Find all promotions for a specific shop with pagination
      */
@@ -0,0 +1,33 @@
+package com.shopmanagement.repository;
+
+import com.shopmanagement.entity.RevokedToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, Long> {
+
+    /** revoked_at comes from the DB clock so every node polls against the same timeline. */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO revoked_tokens (token_hash, expires_at, revoked_at) " +
+                   "VALUES (:tokenHash, :expiresAt, NOW()) ON CONFLICT (token_hash) DO NOTHING",
+           nativeQuery = true)
+    int insertIfAbsent(@Param("tokenHash") String tokenHash, @Param("expiresAt") LocalDateTime expiresAt);
+
+    /** Incremental refresh: revocations newer than the node's watermark that still matter. */
+    @Query("SELECT r FROM RevokedToken r WHERE r.revokedAt > :since AND r.expiresAt > :now ORDER BY r.revokedAt")
+    List<RevokedToken> findRevokedSince(@Param("since") LocalDateTime since, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM RevokedToken r WHERE r.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
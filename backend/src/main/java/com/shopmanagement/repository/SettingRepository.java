@@ -105,6 +105,11 @@ public interface SettingRepository extends JpaRepository<Setting, Long> {
     // Find read-only settings
     List<Setting> findByIsReadOnlyTrue();
     
+    // Change marker for the in-memory settings snapshot: row count plus newest update
+    @Query(value = "SELECT COUNT(*) || '@' || COALESCE(CAST(MAX(updated_at) AS VARCHAR), '') FROM settings",
+           nativeQuery = true)
+    String findVersionMarker();
+
     // Find settings by key pattern
     @Query("SELECT s FROM Setting s WHERE s.settingKey LIKE :pattern")
     List<Setting> findBySettingKeyPattern(@Param("pattern") String pattern);
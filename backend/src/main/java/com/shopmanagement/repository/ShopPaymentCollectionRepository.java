@@ -4,6 +4,8 @@ import com.shopmanagement.entity.ShopPaymentCollection;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
@@ -23,6 +25,11 @@ public interface ShopPaymentCollectionRepository extends JpaRepository<ShopPayme
     Optional<ShopPaymentCollection> findFirstByShopIdAndStatusOrderByValidUntilDesc(
             Long shopId, ShopPaymentCollection.CollectionStatus status);
 
+    /** End of the shop's latest paid period (null when it has never paid). */
+    @Query("SELECT MAX(c.validUntil) FROM ShopPaymentCollection c WHERE c.shopId = :shopId AND c.status = :status")
+    LocalDateTime findLatestValidUntil(@Param("shopId") Long shopId,
+                                       @Param("status") ShopPaymentCollection.CollectionStatus status);
+
     Page<ShopPaymentCollection> findByShopIdOrderByCreatedAtDesc(Long shopId, Pageable pageable);
 
     List<ShopPaymentCollection> findByStatusAndRazorpayOrderIdStartingWith(
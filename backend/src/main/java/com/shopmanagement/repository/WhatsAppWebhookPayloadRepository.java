@@ -0,0 +1,27 @@
+package com.shopmanagement.repository;
+
+import com.shopmanagement.entity.WhatsAppWebhookPayload;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface WhatsAppWebhookPayloadRepository extends JpaRepository<WhatsAppWebhookPayload, Long> {
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE WhatsAppWebhookPayload p SET p.status = :status, p.error = :error, p.processedAt = :at " +
+           "WHERE p.id = :id")
+    int markFinished(@Param("id") Long id, @Param("status") String status,
+                     @Param("error") String error, @Param("at") LocalDateTime at);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM WhatsAppWebhookPayload p WHERE p.status = 'PROCESSED' AND p.processedAt < :before")
+    int deleteProcessedBefore(@Param("before") LocalDateTime before);
+}
@@ -0,0 +1,117 @@
+package com.shopmanagement.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.shopmanagement.entity.Order;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.ZoneOffset;
+
+/**
+ * Rendered bills (PDF plus the WhatsApp JPEG), kept per order version.
+ * Sending a bill on WhatsApp, e-mailing it and opening share links for the
+ * same order render it once; afterwards each costs a file read at most.
+ *
+ * Files live in the content store as transient blobs (app.bills.retention-days),
+ * and the order-version -> file mapping is held in memory for a day, well inside
+ * that window. Each reuse pushes the retention out again, so a bill shared
+ * again keeps working for another full window from then. Invoices sent to
+ * customers follow the same policy as POS bills: the link works for
+ * app.bills.retention-days after the last send, and resending an invoice
+ * renews it. The version covers the order's last update, its lines and total, and the shop's
+ * bill settings, so an edited order or restyled bill renders anew.
+ */
+@Service
+@Slf4j
+public class BillArtifactService {
+
+    private final BillPdfService billPdfService;
+    private final BillSettingsService billSettingsService;
+    private final ContentStoreService contentStoreService;
+
+    @Value("${app.bills.retention-days:7}")
+    private int billRetentionDays;
+
+    private final Cache<String, BillArtifacts> artifacts = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterWrite(Duration.ofDays(1))
+            .build();
+
+    /** Stored bill files; image is null when the PDF couldn't be rasterized. */
+    public record BillArtifacts(String pdfUrl, Path pdfPath, String imageUrl, Path imagePath) {
+
+        public byte[] pdfBytes() throws IOException {
+            return Files.readAllBytes(pdfPath);
+        }
+
+        public boolean hasImage() {
+            return imageUrl != null;
+        }
+    }
+
+    public BillArtifactService(BillPdfService billPdfService, BillSettingsService billSettingsService,
+                               ContentStoreService contentStoreService) {
+        this.billPdfService = billPdfService;
+        this.billSettingsService = billSettingsService;
+        this.contentStoreService = contentStoreService;
+    }
+
+    /** The order's rendered bill, rendering and storing it on first use. */
+    public BillArtifacts artifactsFor(Order order) throws IOException {
+        String key = versionKey(order);
+        BillArtifacts cached = artifacts.getIfPresent(key);
+        if (cached != null) {
+            if (Files.exists(cached.pdfPath()) && extendRetention(cached)) {
+                return cached;
+            }
+            artifacts.invalidate(key); // collected from the store early; render again
+        }
+        try {
+            // Concurrent requests for the same version wait for one render
+            return artifacts.get(key, k -> render(order));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private boolean extendRetention(BillArtifacts bill) {
+        Duration retention = Duration.ofDays(billRetentionDays);
+        boolean pdfKept = contentStoreService.extendRetention(bill.pdfUrl(), retention);
+        boolean imageKept = !bill.hasImage() || contentStoreService.extendRetention(bill.imageUrl(), retention);
+        return pdfKept && imageKept;
+    }
+
+    private BillArtifacts render(Order order) {
+        byte[] pdf = billPdfService.generateBillPdf(order);
+        byte[] jpeg = billPdfService.renderBillJpeg(pdf, order.getOrderNumber());
+        try {
+            Duration retention = Duration.ofDays(billRetentionDays);
+            ContentStoreService.StoredContent storedPdf = contentStoreService.storeTransient(pdf, "pdf", retention);
+            ContentStoreService.StoredContent storedImage = jpeg == null ? null
+                    : contentStoreService.storeTransient(jpeg, "jpg", retention);
+            log.debug("Rendered bill {} ({} KB PDF{})", order.getOrderNumber(), pdf.length / 1024,
+                    storedImage == null ? ", no image" : ", " + jpeg.length / 1024 + " KB JPEG");
+            return new BillArtifacts(storedPdf.url(), storedPdf.path(),
+                    storedImage == null ? null : storedImage.url(),
+                    storedImage == null ? null : storedImage.path());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private String versionKey(Order order) {
+        long updated = order.getUpdatedAt() == null ? 0 : order.getUpdatedAt().toInstant(ZoneOffset.UTC).toEpochMilli();
+        int lines = order.getOrderItems() == null ? 0 : order.getOrderItems().size();
+        // The customer is attached at send time, before the update timestamp is flushed
+        Long customerId = order.getCustomer() == null ? null : order.getCustomer().getId();
+        return order.getId() + ":" + updated + ":" + lines + ":" + order.getTotalAmount() + ":" + customerId
+                + ":" + billSettingsService.settingsFor(order.getShop()).hashCode();
+    }
+}
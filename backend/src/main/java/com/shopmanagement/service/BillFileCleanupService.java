@@ -15,11 +15,12 @@ import java.time.temporal.ChronoUnit;
 import java.util.stream.Stream;
 
 /**
- * Deletes generated POS bill files (JPEG + PDF in uploads/bills) older than the
- * retention window. Every send/share writes a fresh uniquely-named file and
- * nothing else removes them, so without this the disk slowly fills up.
- * WhatsApp downloads its own copy at send time, so old files are not needed
- * for already-delivered messages.
+ * Deletes generated bill files (JPEG + PDF in uploads/bills) older than the
+ * retention window: delivery invoices, payment receipts and POS bills written
+ * before those moved to the content store (which expires them itself, see
+ * {@link ContentStoreService#storeTransient}). Nothing else removes these, so
+ * without this the disk slowly fills up. WhatsApp downloads its own copy at
+ * send time, so old files are not needed for already-delivered messages.
  */
 @Service
 @Slf4j
@@ -1,5 +1,7 @@
 package com.shopmanagement.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.lowagie.text.Anchor;
 import com.lowagie.text.Document;
 import com.lowagie.text.Element;
@@ -21,6 +23,7 @@ import com.shopmanagement.entity.Order;
 import com.shopmanagement.entity.OrderItem;
 import lombok.extern.slf4j.Slf4j;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Service;
 
@@ -34,11 +37,17 @@ import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Renders a POS order as a branded PDF bill: green shop header,
  * ITEM/MRP/RATE/QTY/AMT table, savings highlight, boxed total,
  * payment method and thank-you footer.
+ *
+ * Everything that depends only on a shop's bill settings (fonts, colours,
+ * item columns) is resolved once per distinct settings and cached, as are the
+ * shaped item-name images, so a bill costs one layout pass plus one write.
+ * {@link BillArtifactService} keeps the rendered PDF/JPEG per order version.
  */
 @Service
 @Slf4j
@@ -65,16 +74,54 @@ public class BillPdfService {
     private static final float MAX_PAGE_HEIGHT = 6000f;
     private static final float BOTTOM_PADDING = 14f;
 
+    /** Width of the WhatsApp/share JPEG; the page is rasterized straight to it. */
+    @Value("${app.bills.image-width-px:1000}")
+    private int imageWidthPx = 1000;
+
+    private final Cache<Map<String, Object>, BillLayout> layouts = Caffeine.newBuilder()
+            .maximumSize(1_000)
+            .build();
+
+    /** Shaped item names as PNG, keyed by text and size; product names repeat across bills. */
+    private final Cache<String, NameImage> itemNameImages = Caffeine.newBuilder()
+            .maximumWeight(32L * 1024 * 1024)
+            .weigher((String key, NameImage image) -> image.png().length + key.length())
+            .build();
+
+    private record NameImage(byte[] png, float fitHeight) {
+    }
+
     public byte[] generateBillPdf(Order order) {
-        // Narrow page like a receipt (80mm wide roll). Pass 1 renders onto a
-        // tall throwaway page just to measure how far the content reaches;
-        // pass 2 rebuilds the real PDF sized to exactly that height, so
-        // short bills don't carry a big blank area below the footer (which
-        // pushed the header off-screen on WhatsApp mobile) and long bills
-        // never silently overflow onto a second page that never gets sent.
+        // Narrow page like a receipt (80mm wide roll), sized to exactly the
+        // content height so short bills don't carry a big blank area below the
+        // footer (which pushed the header off-screen on WhatsApp mobile) and
+        // long bills never silently overflow onto a second page that never gets
+        // sent. The height comes from laying the tables out at the page width,
+        // so the content is built and written once.
         Map<String, Object> settings = billSettingsService.settingsFor(order.getShop());
-        float contentHeight = measureContentHeight(order, settings);
-        return renderBill(order, settings, Math.min(contentHeight + BOTTOM_PADDING, MAX_PAGE_HEIGHT));
+        BillLayout layout = layoutFor(settings);
+        List<PdfPTable> content;
+        try {
+            content = buildContent(order, settings, layout);
+        } catch (Exception e) {
+            log.error("Failed to generate bill PDF for order {}", order.getOrderNumber(), e);
+            throw new RuntimeException("Failed to generate bill PDF", e);
+        }
+        float contentHeight = measureContentHeight(content, layout.pageWidth());
+        byte[] pdf = renderBill(order, content, layout.pageWidth(),
+                Math.min(contentHeight + BOTTOM_PADDING, MAX_PAGE_HEIGHT));
+        if (pdf == null) {
+            // The measurement came up short and the bill spilled onto a second
+            // page; lay it out again on the tall page and let the JPEG crop it
+            log.warn("Bill {} overflowed its measured height, rendering at max page height", order.getOrderNumber());
+            try {
+                content = buildContent(order, settings, layout);
+            } catch (Exception e) {
+                throw new RuntimeException("Failed to generate bill PDF", e);
+            }
+            pdf = renderBill(order, content, layout.pageWidth(), MAX_PAGE_HEIGHT);
+        }
+        return pdf;
     }
 
     /**
@@ -87,15 +134,19 @@ public class BillPdfService {
                      org.apache.pdfbox.pdmodel.PDDocument.load(pdfBytes)) {
             org.apache.pdfbox.rendering.PDFRenderer renderer =
                     new org.apache.pdfbox.rendering.PDFRenderer(doc);
+            // Rasterize at the scale that lands on the target width directly
+            // (about 300 DPI for an 80mm roll) instead of a fixed DPI, so wide
+            // A4 bills aren't rendered at several times the pixels WhatsApp shows
+            float pageWidth = doc.getPage(0).getMediaBox().getWidth();
+            float scale = Math.max(1f, imageWidthPx / pageWidth);
             java.awt.image.BufferedImage image =
-                    renderer.renderImageWithDPI(0, 300, org.apache.pdfbox.rendering.ImageType.RGB);
-
-            // Thermal PDFs are initially measured on a very tall page. If that
-            // measurement falls back to the safety height, PDFBox faithfully
-            // renders thousands of blank pixels below the receipt and WhatsApp
-            // scales the useful content into an unreadable vertical strip.
-            // Crop only trailing white space; preserve the full receipt width
-            // and a small bottom margin.
+                    renderer.renderImage(0, scale, org.apache.pdfbox.rendering.ImageType.RGB);
+
+            // Pages are sized to the content, but a bill rendered at the
+            // fallback height would otherwise carry thousands of blank pixels
+            // and WhatsApp scales the useful content into an unreadable
+            // vertical strip. Crop only trailing white space; preserve the
+            // full receipt width and a small bottom margin.
             image = cropTrailingWhiteSpace(image);
 
             // Java's default JPEG quality is heavily compressed, which blurs the
@@ -155,33 +206,31 @@ public class BillPdfService {
         return true;
     }
 
-    private float measureContentHeight(Order order, Map<String, Object> settings) {
-        Rectangle pageSize = new Rectangle(pageWidth(settings), MAX_PAGE_HEIGHT);
-        Document document = new Document(pageSize, 0f, 0f, 0f, 0f);
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        try {
-            PdfWriter writer = PdfWriter.getInstance(document, out);
-            document.open();
-            buildContent(document, order, settings);
-            float bottomY = writer.getVerticalPosition(true);
-            return MAX_PAGE_HEIGHT - bottomY;
-        } catch (Exception e) {
-            log.warn("Could not measure bill content height for order {}, using max page height: {}",
-                    order.getOrderNumber(), e.getMessage());
-            return MAX_PAGE_HEIGHT;
-        } finally {
-            document.close();
+    /** Height the tables take at the page width (zero margins), without writing anything. */
+    private float measureContentHeight(List<PdfPTable> content, float pageWidth) {
+        float height = 0f;
+        for (PdfPTable table : content) {
+            table.setTotalWidth(pageWidth);
+            table.setLockedWidth(true);
+            height += table.getTotalHeight() + table.spacingBefore() + table.spacingAfter();
         }
+        return height > 0f ? height : MAX_PAGE_HEIGHT;
     }
 
-    private byte[] renderBill(Order order, Map<String, Object> settings, float pageHeight) {
-        Rectangle pageSize = new Rectangle(pageWidth(settings), pageHeight);
+    /** The PDF, or null when the content didn't fit on one page of this height. */
+    private byte[] renderBill(Order order, List<PdfPTable> content, float pageWidth, float pageHeight) {
+        Rectangle pageSize = new Rectangle(pageWidth, pageHeight);
         Document document = new Document(pageSize, 0f, 0f, 0f, 0f);
         ByteArrayOutputStream out = new ByteArrayOutputStream();
         try {
-            PdfWriter.getInstance(document, out);
+            PdfWriter writer = PdfWriter.getInstance(document, out);
             document.open();
-            buildContent(document, order, settings);
+            for (PdfPTable table : content) {
+                document.add(table);
+            }
+            if (writer.getPageNumber() > 1 && pageHeight < MAX_PAGE_HEIGHT) {
+                return null;
+            }
         } catch (Exception e) {
             log.error("Failed to generate bill PDF for order {}", order.getOrderNumber(), e);
             throw new RuntimeException("Failed to generate bill PDF", e);
@@ -194,6 +243,8 @@ public class BillPdfService {
     private static volatile BaseFont TAMIL_BASE_FONT;
     private static volatile java.awt.Font TAMIL_AWT_FONT;
     private static volatile java.awt.Font[] RECEIPT_FALLBACK_FONTS;
+    private static final Map<Integer, java.awt.Font> FALLBACK_FONT_BY_CODE_POINT = new ConcurrentHashMap<>();
+    private static final java.awt.Font NO_FALLBACK_FONT = new java.awt.Font(java.awt.Font.DIALOG, java.awt.Font.PLAIN, 1);
 
     /**
      * Loads (once) a Unicode font covering both Latin and Tamil glyphs.
@@ -267,16 +318,24 @@ public class BillPdfService {
     private java.awt.Font receiptFontFor(int codePoint, float size,
                                          java.awt.Font latinFont) throws Exception {
         if (codePoint < 0x80 && latinFont.canDisplay(codePoint)) return latinFont;
-        for (java.awt.Font candidate : receiptFallbackFonts()) {
-            if (candidate.canDisplay(codePoint)) return candidate.deriveFont(size);
+        java.awt.Font fallback = FALLBACK_FONT_BY_CODE_POINT.get(codePoint);
+        if (fallback == null) {
+            // Scanning every installed face is slow; remember the winner per code point
+            fallback = NO_FALLBACK_FONT;
+            for (java.awt.Font candidate : receiptFallbackFonts()) {
+                if (candidate.canDisplay(codePoint)) {
+                    fallback = candidate;
+                    break;
+                }
+            }
+            FALLBACK_FONT_BY_CODE_POINT.put(codePoint, fallback);
         }
-        return latinFont;
+        return fallback == NO_FALLBACK_FONT ? latinFont : fallback.deriveFont(size);
     }
 
     /** Render with Pango/HarfBuzz when available in the production container. */
-    private Image renderItemNameWithPango(String text, float fontPixels,
-                                          float maxWidthPixels,
-                                          float targetWidthPoints) throws Exception {
+    private NameImage renderItemNameWithPango(String text, float fontPixels,
+                                              float maxWidthPixels) throws Exception {
         java.nio.file.Path executable = java.nio.file.Path.of("/usr/bin/pango-view");
         if (!java.nio.file.Files.isExecutable(executable)) return null;
 
@@ -305,11 +364,10 @@ public class BillPdfService {
                         java.nio.charset.StandardCharsets.UTF_8);
                 throw new java.io.IOException("Pango receipt rendering failed: " + error);
             }
-            java.awt.image.BufferedImage rendered = javax.imageio.ImageIO.read(output.toFile());
+            byte[] png = java.nio.file.Files.readAllBytes(output);
+            java.awt.image.BufferedImage rendered = javax.imageio.ImageIO.read(new java.io.ByteArrayInputStream(png));
             if (rendered == null) throw new java.io.IOException("Pango returned an invalid image");
-            Image image = Image.getInstance(java.nio.file.Files.readAllBytes(output));
-            image.scaleToFit(targetWidthPoints, rendered.getHeight() / 3f + 2f);
-            return image;
+            return new NameImage(png, rendered.getHeight() / 3f + 2f);
         } finally {
             java.nio.file.Files.deleteIfExists(output);
         }
@@ -350,35 +408,116 @@ public class BillPdfService {
         return phrase;
     }
 
-    private void buildContent(Document document, Order order, Map<String, Object> settings) throws Exception {
-            BaseFont tamil = tamilBaseFont();
-            Color accent = colour(settings);
-            Color accentLight = blend(accent, Color.WHITE, 0.86f);
-            String template = str(settings, "templateStyle", "classic");
+    /**
+     * Settings-derived layout resources: resolved once per distinct bill
+     * settings and shared by every bill rendered with them (fonts are only read).
+     */
+    private static final class BillLayout {
+        final float pageWidth;
+        final Color accent;
+        final Color accentLight;
+        final String template;
+        final Color headerBackground;
+        final Font shopFont;
+        final Font headerSubFont;
+        final Font labelFont;
+        final Font normalFont;
+        final Font boldFont;
+        final Font tableHeadFont;
+        final Font saveFont;
+        final Font totalFont;
+        final Font footerFont;
+        final Font thanksFont;
+        final Font shopFontTamil;
+        final Font headerSubFontTamil;
+        final Font normalFontTamil;
+        final Font boldFontTamil;
+        final List<String> columns;
+        final float[] widths;
+        final float itemColumnWidth;
+        final boolean showEnglish;
+        final boolean showTamil;
+
+        BillLayout(BillPdfService service, Map<String, Object> settings, BaseFont tamil) {
+            pageWidth = service.pageWidth(settings);
+            accent = service.colour(settings);
+            accentLight = service.blend(accent, Color.WHITE, 0.86f);
+            template = service.str(settings, "templateStyle", "classic");
             boolean colouredHeader = "classic".equals(template) || "bold".equals(template)
                     || "compact".equals(template) || "invoice".equals(template);
-            Color headerBackground = switch (template) {
+            headerBackground = switch (template) {
                 case "invoice" -> new Color(23, 59, 94);
-                case "bold" -> blend(accent, new Color(22, 55, 42), 0.28f);
+                case "bold" -> service.blend(accent, new Color(22, 55, 42), 0.28f);
                 default -> colouredHeader ? accent : Color.WHITE;
             };
             Color headerText = colouredHeader ? Color.WHITE : DARK_TEXT;
-            Font shopFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, num(settings, "headerFontSize", 16), headerText);
-            Font headerSubFont = FontFactory.getFont(FontFactory.HELVETICA, Math.max(7, num(settings, "bodyFontSize", 12) - 3), colouredHeader ? Color.WHITE : MUTED_TEXT);
-            Font labelFont = FontFactory.getFont(FontFactory.HELVETICA, 7, MUTED_TEXT);
-            Font normalFont = FontFactory.getFont(FontFactory.HELVETICA, Math.max(7, num(settings, "bodyFontSize", 12) - 3), DARK_TEXT);
-            Font boldFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, Math.max(7, num(settings, "bodyFontSize", 12) - 3), DARK_TEXT);
-            Font tableHeadFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 7, MUTED_TEXT);
-            Font saveFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 8, accent);
-            Font totalFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 13, accent);
-            Font footerFont = FontFactory.getFont(FontFactory.HELVETICA, Math.max(6, num(settings, "footerFontSize", 10) - 3), MUTED_TEXT);
-            Font thanksFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 9, accent);
+            int bodySize = Math.max(7, service.num(settings, "bodyFontSize", 12) - 3);
+            shopFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, service.num(settings, "headerFontSize", 16), headerText);
+            headerSubFont = FontFactory.getFont(FontFactory.HELVETICA, bodySize, colouredHeader ? Color.WHITE : MUTED_TEXT);
+            labelFont = FontFactory.getFont(FontFactory.HELVETICA, 7, MUTED_TEXT);
+            normalFont = FontFactory.getFont(FontFactory.HELVETICA, bodySize, DARK_TEXT);
+            boldFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, bodySize, DARK_TEXT);
+            tableHeadFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 7, MUTED_TEXT);
+            saveFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 8, accent);
+            totalFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 13, accent);
+            footerFont = FontFactory.getFont(FontFactory.HELVETICA, Math.max(6, service.num(settings, "footerFontSize", 10) - 3), MUTED_TEXT);
+            thanksFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 9, accent);
 
             // Tamil-capable counterparts, only for fields that can contain Tamil text
-            Font shopFontTamil = new Font(tamil, num(settings, "headerFontSize", 16), Font.BOLD, headerText);
-            Font headerSubFontTamil = new Font(tamil, 7, Font.NORMAL, colouredHeader ? Color.WHITE : MUTED_TEXT);
-            Font normalFontTamil = new Font(tamil, 8, Font.NORMAL, DARK_TEXT);
-            Font boldFontTamil = new Font(tamil, 8, Font.BOLD, DARK_TEXT);
+            shopFontTamil = new Font(tamil, service.num(settings, "headerFontSize", 16), Font.BOLD, headerText);
+            headerSubFontTamil = new Font(tamil, 7, Font.NORMAL, colouredHeader ? Color.WHITE : MUTED_TEXT);
+            normalFontTamil = new Font(tamil, 8, Font.NORMAL, DARK_TEXT);
+            boldFontTamil = new Font(tamil, 8, Font.BOLD, DARK_TEXT);
+
+            List<String> cols = new ArrayList<>(List.of("ITEM"));
+            if (service.bool(settings,"showItemSku",false)) cols.add("SKU");
+            if (service.bool(settings,"showItemBarcode",false)) cols.add("CODE");
+            if (service.bool(settings,"showItemMrp",true)) cols.add("MRP");
+            if (service.bool(settings,"showSellingPrice",true)) cols.add("RATE");
+            if (service.bool(settings,"showItemDiscount",true)) cols.add("DISC");
+            cols.add("QTY"); cols.add("AMT");
+            columns = List.copyOf(cols);
+            widths = new float[columns.size()]; widths[0] = 4f;
+            for (int x = 1; x < widths.length; x++) widths[x] = columns.get(x).equals("QTY") ? 1f : 1.4f;
+            float widthSum = 0f;
+            for (float width : widths) widthSum += width;
+            itemColumnWidth = Math.max(45f, pageWidth * widths[0] / widthSum - 5f);
+            showEnglish = service.bool(settings, "showEnglish", true);
+            showTamil = service.bool(settings, "showTamil", true);
+        }
+    }
+
+    private BillLayout layoutFor(Map<String, Object> settings) {
+        return layouts.get(settings, key -> {
+            try {
+                return new BillLayout(this, key, tamilBaseFont());
+            } catch (Exception e) {
+                throw new IllegalStateException("Could not prepare bill layout", e);
+            }
+        });
+    }
+
+    /** The header and body tables, ready to measure and add to a page of the layout's width. */
+    private List<PdfPTable> buildContent(Order order, Map<String, Object> settings, BillLayout layout) throws Exception {
+            List<PdfPTable> content = new ArrayList<>(2);
+            Color accent = layout.accent;
+            Color accentLight = layout.accentLight;
+            String template = layout.template;
+            Color headerBackground = layout.headerBackground;
+            Font shopFont = layout.shopFont;
+            Font headerSubFont = layout.headerSubFont;
+            Font labelFont = layout.labelFont;
+            Font normalFont = layout.normalFont;
+            Font boldFont = layout.boldFont;
+            Font tableHeadFont = layout.tableHeadFont;
+            Font saveFont = layout.saveFont;
+            Font totalFont = layout.totalFont;
+            Font footerFont = layout.footerFont;
+            Font thanksFont = layout.thanksFont;
+            Font shopFontTamil = layout.shopFontTamil;
+            Font headerSubFontTamil = layout.headerSubFontTamil;
+            Font normalFontTamil = layout.normalFontTamil;
+            Font boldFontTamil = layout.boldFontTamil;
 
             // ===== Green brand header =====
             PdfPTable header = new PdfPTable(1);
@@ -416,7 +555,7 @@ public class BillPdfService {
             if (bool(settings, "showFssaiInfo", false) && !str(settings, "fssaiNumber", "").isBlank())
                 headerCell.addElement(centered("FSSAI: " + str(settings, "fssaiNumber", ""), headerSubFont));
             header.addCell(headerCell);
-            document.add(header);
+            content.add(header);
 
             // ===== Body (padded) =====
             PdfPTable body = new PdfPTable(1);
@@ -452,16 +591,8 @@ public class BillPdfService {
             bodyCell.addElement(rule());
 
             // ===== Items table =====
-            List<String> columns = new ArrayList<>(List.of("ITEM"));
-            if (bool(settings,"showItemSku",false)) columns.add("SKU");
-            if (bool(settings,"showItemBarcode",false)) columns.add("CODE");
-            if (bool(settings,"showItemMrp",true)) columns.add("MRP");
-            if (bool(settings,"showSellingPrice",true)) columns.add("RATE");
-            if (bool(settings,"showItemDiscount",true)) columns.add("DISC");
-            columns.add("QTY"); columns.add("AMT");
-            float[] widths = new float[columns.size()]; widths[0] = 4f;
-            for (int x = 1; x < widths.length; x++) widths[x] = columns.get(x).equals("QTY") ? 1f : 1.4f;
-            PdfPTable table = new PdfPTable(widths);
+            List<String> columns = layout.columns;
+            PdfPTable table = new PdfPTable(layout.widths);
             table.setWidthPercentage(100);
             for (String column : columns) addHeadCell(table, column, tableHeadFont, column.equals("ITEM") ? Element.ALIGN_LEFT : Element.ALIGN_RIGHT);
 
@@ -473,15 +604,10 @@ public class BillPdfService {
                 mrpTotal = mrpTotal.add(lineMrp);
                 totalQty += item.getQuantity();
 
-                boolean showEnglish = bool(settings, "showEnglish", true);
-                boolean showTamil = bool(settings, "showTamil", true);
-                String itemName = showEnglish ? item.getProductName() : "";
-                if (showTamil && item.getProductNameTamil() != null) itemName = joinNonBlank(itemName, item.getProductNameTamil());
+                String itemName = layout.showEnglish ? item.getProductName() : "";
+                if (layout.showTamil && item.getProductNameTamil() != null) itemName = joinNonBlank(itemName, item.getProductNameTamil());
                 if (itemName == null || itemName.isBlank()) itemName = "Item";
-                float widthSum = 0f;
-                for (float width : widths) widthSum += width;
-                float itemColumnWidth = Math.max(45f, pageWidth(settings) * widths[0] / widthSum - 5f);
-                addItemNameCell(table, itemName, normalFont, normalFontTamil, itemColumnWidth);
+                addItemNameCell(table, itemName, normalFont, normalFontTamil, layout.itemColumnWidth);
                 for (String column : columns.subList(1, columns.size())) {
                     String value = switch (column) {
                         case "SKU" -> item.getProductSku() == null ? "" : item.getProductSku();
@@ -591,7 +717,8 @@ public class BillPdfService {
             bodyCell.addElement(powered);
 
             body.addCell(bodyCell);
-            document.add(body);
+            content.add(body);
+            return content;
     }
 
     /**
@@ -705,26 +832,39 @@ public class BillPdfService {
         final float scale = 3f;
         final float fontPixels = Math.max(24f, latinPdfFont.getSize() * scale);
         final float maxWidthPixels = targetWidthPoints * scale;
+
+        String cacheKey = Math.round(fontPixels) + ":" + Math.round(maxWidthPixels) + ":" + text;
+        NameImage cached = itemNameImages.getIfPresent(cacheKey);
+        if (cached == null) {
+            cached = renderItemName(text, fontPixels, maxWidthPixels, scale);
+            itemNameImages.put(cacheKey, cached);
+        }
+        Image nameImage = Image.getInstance(cached.png());
+        nameImage.scaleToFit(targetWidthPoints, cached.fitHeight());
+        PdfPCell cell = new PdfPCell(nameImage, false);
+        cell.setBorder(Rectangle.NO_BORDER);
+        cell.setHorizontalAlignment(Element.ALIGN_LEFT);
+        cell.setPaddingTop(2f);
+        cell.setPaddingBottom(2f);
+        table.addCell(cell);
+    }
+
+    /** Shapes one item name to a PNG, through Pango when present and Java2D otherwise. */
+    private NameImage renderItemName(String text, float fontPixels, float maxWidthPixels,
+                                     float scale) throws Exception {
         java.awt.Font latinFont = new java.awt.Font(java.awt.Font.SANS_SERIF, java.awt.Font.PLAIN,
                 Math.round(fontPixels));
 
         // Pango uses HarfBuzz and FriBidi, providing reliable complex-script
         // shaping and directionality. Java2D below remains a local/dev fallback.
-        Image pangoImage = null;
+        NameImage pangoImage = null;
         try {
-            pangoImage = renderItemNameWithPango(
-                    text, fontPixels, maxWidthPixels, targetWidthPoints);
+            pangoImage = renderItemNameWithPango(text, fontPixels, maxWidthPixels);
         } catch (Exception e) {
             log.warn("Pango receipt shaping failed; using Java2D fallback: {}", e.getMessage());
         }
         if (pangoImage != null) {
-            PdfPCell cell = new PdfPCell(pangoImage, false);
-            cell.setBorder(Rectangle.NO_BORDER);
-            cell.setHorizontalAlignment(Element.ALIGN_LEFT);
-            cell.setPaddingTop(2f);
-            cell.setPaddingBottom(2f);
-            table.addCell(cell);
-            return;
+            return pangoImage;
         }
 
         java.text.AttributedString attributed = new java.text.AttributedString(text);
@@ -777,14 +917,7 @@ public class BillPdfService {
 
         ByteArrayOutputStream png = new ByteArrayOutputStream();
         javax.imageio.ImageIO.write(rendered, "PNG", png);
-        Image nameImage = Image.getInstance(png.toByteArray());
-        nameImage.scaleToFit(targetWidthPoints, imageHeight / scale + 2f);
-        PdfPCell cell = new PdfPCell(nameImage, false);
-        cell.setBorder(Rectangle.NO_BORDER);
-        cell.setHorizontalAlignment(Element.ALIGN_LEFT);
-        cell.setPaddingTop(2f);
-        cell.setPaddingBottom(2f);
-        table.addCell(cell);
+        return new NameImage(png.toByteArray(), imageHeight / scale + 2f);
     }
 
     private void addHeadCell(PdfPTable table, String text, Font font, int align) {
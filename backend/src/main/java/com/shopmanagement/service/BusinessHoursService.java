@@ -13,6 +13,8 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.ZoneId;
+import java.util.Collection;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
@@ -26,6 +28,7 @@ import java.util.stream.Collectors;
 public class BusinessHoursService {
     
     private final BusinessHoursRepository businessHoursRepository;
+    private final ShopAvailabilityEngine shopAvailabilityEngine;
     
     public List<BusinessHours> getAllBusinessHoursByShop(Long shopId) {
         log.debug("Getting all business hours for shop ID: {}", shopId);
@@ -93,7 +96,12 @@ public class BusinessHoursService {
         businessHoursRepository.deleteByShopId(shopId);
     }
     
+    /** Served from the compiled schedule in {@link ShopAvailabilityEngine}; only untracked shops query. */
     public boolean isShopOpenNow(Long shopId) {
+        Boolean scheduledOpen = shopAvailabilityEngine.isScheduledOpen(shopId);
+        if (scheduledOpen != null) {
+            return scheduledOpen;
+        }
         return isShopOpenNow(shopId, ZoneId.systemDefault());
     }
 
@@ -133,12 +141,39 @@ public class BusinessHoursService {
     }
     
     public Map<String, Object> getShopOpenStatus(Long shopId) {
+        return openStatus(openHoursByDay(businessHoursRepository.findOpenHoursByShopId(shopId)), LocalDateTime.now());
+    }
+
+    /** {@link #getShopOpenStatus} for many shops, from one query. */
+    public Map<Long, Map<String, Object>> getShopOpenStatuses(Collection<Long> shopIds) {
+        if (shopIds.isEmpty()) {
+            return Map.of();
+        }
         LocalDateTime now = LocalDateTime.now();
+        Map<Long, List<BusinessHours>> hoursByShop = businessHoursRepository.findOpenHoursByShopIdIn(shopIds).stream()
+            .collect(Collectors.groupingBy(BusinessHours::getShopId));
+        Map<Long, Map<String, Object>> statuses = new HashMap<>();
+        for (Long shopId : shopIds) {
+            statuses.put(shopId, openStatus(openHoursByDay(hoursByShop.getOrDefault(shopId, List.of())), now));
+        }
+        return statuses;
+    }
+
+    private static Map<DayOfWeek, BusinessHours> openHoursByDay(List<BusinessHours> openHours) {
+        Map<DayOfWeek, BusinessHours> byDay = new EnumMap<>(DayOfWeek.class);
+        for (BusinessHours hours : openHours) {
+            if (hours.getDayOfWeek() != null) {
+                byDay.putIfAbsent(hours.getDayOfWeek(), hours);
+            }
+        }
+        return byDay;
+    }
+
+    private Map<String, Object> openStatus(Map<DayOfWeek, BusinessHours> openHours, LocalDateTime now) {
         DayOfWeek currentDay = now.getDayOfWeek();
         LocalTime currentTime = now.toLocalTime();
         
-        Optional<BusinessHours> businessHours = businessHoursRepository
-            .findOpenHoursByShopIdAndDay(shopId, currentDay);
+        Optional<BusinessHours> businessHours = Optional.ofNullable(openHours.get(currentDay));
         
         Map<String, Object> status = new HashMap<>();
         
@@ -146,7 +181,7 @@ public class BusinessHoursService {
             status.put("isOpen", false);
             status.put("status", "CLOSED");
             status.put("message", "Business hours not configured for today");
-            status.put("nextOpenTime", getNextOpenTime(shopId, now));
+            status.put("nextOpenTime", getNextOpenTime(openHours, now));
             return status;
         }
         
@@ -161,7 +196,7 @@ public class BusinessHoursService {
         if (!hours.getIsOpen()) {
             status.put("status", "CLOSED");
             status.put("message", "Closed today");
-            status.put("nextOpenTime", getNextOpenTime(shopId, now));
+            status.put("nextOpenTime", getNextOpenTime(openHours, now));
         } else if (hours.getIs24Hours()) {
             status.put("status", "OPEN_24H");
             status.put("message", "Open 24 hours");
@@ -183,7 +218,7 @@ public class BusinessHoursService {
             } else {
                 status.put("status", "CLOSED_FOR_DAY");
                 status.put("message", "Closed for the day");
-                status.put("nextOpenTime", getNextOpenTime(shopId, now));
+                status.put("nextOpenTime", getNextOpenTime(openHours, now));
             }
         }
         
@@ -210,7 +245,7 @@ public class BusinessHoursService {
                currentTime.isBefore(hours.getBreakEndTime());
     }
     
-    private Map<String, Object> getNextOpenTime(Long shopId, LocalDateTime from) {
+    private Map<String, Object> getNextOpenTime(Map<DayOfWeek, BusinessHours> openHours, LocalDateTime from) {
         LocalDate searchDate = from.toLocalDate();
         
         // Search for next 7 days
@@ -220,8 +255,7 @@ public class BusinessHoursService {
             }
             
             DayOfWeek dayOfWeek = searchDate.getDayOfWeek();
-            Optional<BusinessHours> businessHours = businessHoursRepository
-                .findOpenHoursByShopIdAndDay(shopId, dayOfWeek);
+            Optional<BusinessHours> businessHours = Optional.ofNullable(openHours.get(dayOfWeek));
             
             if (businessHours.isPresent() && businessHours.get().getIsOpen()) {
                 BusinessHours hours = businessHours.get();
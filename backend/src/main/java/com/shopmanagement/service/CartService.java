@@ -0,0 +1,752 @@
+package com.shopmanagement.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.shopmanagement.dto.customer.CartCheckoutRequest;
+import com.shopmanagement.dto.customer.CartItemRequest;
+import com.shopmanagement.dto.customer.CustomerOrderRequest;
+import com.shopmanagement.dto.order.OrderResponse;
+import com.shopmanagement.entity.Customer;
+import com.shopmanagement.entity.Order;
+import com.shopmanagement.entity.Promotion;
+import com.shopmanagement.event.ShopProductChangedEvent;
+import com.shopmanagement.repository.CustomerRepository;
+import com.shopmanagement.repository.OrderRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Server-side customer carts (see V103). A cart lives in memory on the node
+ * that serves it; adding, changing and pricing items read that copy and an
+ * in-memory snapshot of the products involved. Once the customer and products
+ * are cached, the only database access is one primary-key read of the cart's
+ * stored updated_at (below).
+ *
+ * Changed carts are written behind the request: they wait in a dirty map and
+ * a background thread upserts them every app.cart.flush-seconds in one batch
+ * (again on shutdown). A cart dropped from the cache while still dirty is
+ * served from the dirty map, never reloaded stale from the table. The flusher
+ * runs on its own thread, not @Scheduled, because scheduling is switched off
+ * on the incoming container during zero-downtime deploys.
+ *
+ * Prices are never taken from the cart: every view reprices each line from
+ * the product snapshot, which drops a product when a write to it is published
+ * ({@link ShopProductChangedEvent}) and again after commit. Tax, delivery fee
+ * and the minimum order follow {@link OrderService#createOrder}; a promo code
+ * is validated in full when applied and at checkout, and in between only its
+ * discount is recomputed in memory. Checkout hands the lines straight to
+ * {@link CustomerService#placeOrder}.
+ *
+ * Without session affinity two nodes may each hold a copy of one cart. Before
+ * a copy with no pending changes is used, its updated_at is compared with the
+ * table's: when another node stored a newer version (or emptied the cart), the
+ * copy is reloaded. A change made on one node shows on the others once it is
+ * written behind, within app.cart.flush-seconds. Concurrent changes on two
+ * nodes resolve to the newer write (updated_at guard).
+ */
+@Service
+@Slf4j
+public class CartService {
+
+    private static final String HOME_DELIVERY = Order.DeliveryType.HOME_DELIVERY.name();
+    private static final String SELF_PICKUP = Order.DeliveryType.SELF_PICKUP.name();
+
+    /** Same cap as a single order line (CartItemRequest). */
+    private static final int MAX_LINE_QUANTITY = 100;
+
+    private static final String PRODUCT_SELECT =
+            "SELECT sp.id, sp.shop_id, COALESCE(sp.custom_name, mp.name, 'Unknown') AS name, " +
+            "(SELECT mpi.image_url FROM master_product_images mpi " +
+            " WHERE mpi.master_product_id = mp.id AND mpi.is_primary = true ORDER BY mpi.id LIMIT 1) AS image, " +
+            "sp.price, sp.stock_quantity, sp.track_inventory, sp.is_available " +
+            "FROM shop_products sp " +
+            "LEFT JOIN master_products mp ON mp.id = sp.master_product_id " +
+            "WHERE sp.id IN (%s)";
+
+    private static final String UPSERT_CART_SQL =
+            "INSERT INTO customer_carts (customer_id, shop_id, items, promo_code, updated_at) VALUES (?, ?, ?, ?, ?) " +
+            "ON CONFLICT (customer_id) DO UPDATE SET shop_id = EXCLUDED.shop_id, items = EXCLUDED.items, " +
+            "promo_code = EXCLUDED.promo_code, updated_at = EXCLUDED.updated_at " +
+            "WHERE customer_carts.updated_at <= EXCLUDED.updated_at";
+
+    private static final String DELETE_CART_SQL =
+            "DELETE FROM customer_carts WHERE customer_id = ? AND updated_at <= ?";
+
+    private static final TypeReference<List<Line>> LINES = new TypeReference<>() {
+    };
+
+    /** A priced cart line. previousPrice is set when the price changed since the item was added. */
+    public record CartLine(Long shopProductId, String productName, String imageUrl, int quantity,
+                           BigDecimal unitPrice, BigDecimal previousPrice, BigDecimal totalPrice,
+                           boolean available, Integer stockQuantity, String specialInstructions, String message) {
+    }
+
+    /**
+     * A cart priced as the order would be. Unavailable lines are listed but
+     * left out of the subtotal; amountToMinimum is what's missing to reach
+     * the minimum order.
+     */
+    public record CartView(Long shopId, List<CartLine> items, int totalItems, BigDecimal subtotal, BigDecimal tax,
+                           String deliveryType, BigDecimal deliveryFee, String promoCode, BigDecimal discount,
+                           String promoMessage, BigDecimal total, BigDecimal amountToMinimum, boolean checkoutReady) {
+    }
+
+    /** What a cart needs to know about a product; never older than the last published write. */
+    record CartProduct(Long id, Long shopId, String name, String imageUrl, BigDecimal price, Integer stock,
+                       boolean trackInventory, boolean available) {
+    }
+
+    /** Stored line, JSON in customer_carts.items. addedPrice is only used to flag price changes. */
+    record Line(Long shopProductId, int quantity, String specialInstructions, BigDecimal addedPrice) {
+    }
+
+    /** Mutable cart; every access holds its monitor. */
+    private static final class Cart {
+        final Long customerId;
+        final Map<Long, Line> lines = new LinkedHashMap<>();
+        Long shopId;
+        String promoCode;
+        // Validated promotion behind promoCode; null until checked on this node
+        Promotion promotion;
+        LocalDateTime updatedAt = LocalDateTime.now();
+        long version;
+        boolean checkingOut;
+
+        Cart(Long customerId) {
+            this.customerId = customerId;
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final CustomerService customerService;
+    private final PromotionService promotionService;
+    private final OrderRepository orderRepository;
+    private final CustomerRepository customerRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.cart.max-carts:50000}")
+    private long maxCarts;
+
+    @Value("${app.cart.idle-minutes:120}")
+    private long idleMinutes;
+
+    @Value("${app.cart.product-cache-size:50000}")
+    private long productCacheSize;
+
+    /** Backstop for product writes that bypass JPA callbacks (master product renames, raw SQL). */
+    @Value("${app.cart.product-ttl-minutes:10}")
+    private long productTtlMinutes;
+
+    @Value("${app.cart.flush-seconds:5}")
+    private long flushSeconds;
+
+    @Value("${app.cart.retention-days:30}")
+    private int retentionDays;
+
+    private LoadingCache<Long, Cart> carts;
+    private LoadingCache<Long, CartProduct> products;
+    private Cache<String, Long> customerIds;
+
+    /** Carts changed since their last write, by customer id. */
+    private final Map<Long, Cart> dirty = new ConcurrentHashMap<>();
+    private ScheduledExecutorService flusher;
+
+    public CartService(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper, CustomerService customerService,
+                       PromotionService promotionService, OrderRepository orderRepository,
+                       CustomerRepository customerRepository, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.customerService = customerService;
+        this.promotionService = promotionService;
+        this.orderRepository = orderRepository;
+        this.customerRepository = customerRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    void start() {
+        carts = Caffeine.newBuilder()
+                .maximumSize(maxCarts)
+                .expireAfterAccess(Duration.ofMinutes(idleMinutes))
+                .build(this::loadCart);
+        products = Caffeine.newBuilder()
+                .maximumSize(productCacheSize)
+                .expireAfterWrite(Duration.ofMinutes(productTtlMinutes))
+                .build(new CacheLoader<Long, CartProduct>() {
+                    @Override
+                    public CartProduct load(Long shopProductId) {
+                        return loadProducts(List.of(shopProductId)).get(shopProductId);
+                    }
+
+                    @Override
+                    public Map<Long, CartProduct> loadAll(Set<? extends Long> shopProductIds) {
+                        return loadProducts(shopProductIds);
+                    }
+                });
+        customerIds = Caffeine.newBuilder()
+                .maximumSize(maxCarts)
+                .expireAfterAccess(Duration.ofMinutes(idleMinutes))
+                .build();
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "CartWriteBehind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, flushSeconds, flushSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (flusher != null) {
+            flusher.shutdownNow();
+        }
+        flush();
+    }
+
+    /** The current customer's cart, priced for the given delivery type (HOME_DELIVERY when null). */
+    public CartView getCart(String deliveryType) {
+        return price(currentCart(), deliveryType);
+    }
+
+    /** Add the quantity to the product's line, starting the line if needed. */
+    public CartView addItem(CartItemRequest request) {
+        Long shopProductId = request.getShopProductId();
+        CartProduct product = orderableProduct(shopProductId);
+        Cart cart = currentCart();
+        change(cart, () -> {
+            requireSameShop(cart, product);
+            Line existing = cart.lines.get(shopProductId);
+            int quantity = (existing == null ? 0 : existing.quantity()) + request.getQuantity();
+            checkQuantity(product, quantity);
+            String instructions = request.getSpecialInstructions() != null || existing == null
+                    ? request.getSpecialInstructions() : existing.specialInstructions();
+            cart.shopId = product.shopId();
+            cart.lines.put(shopProductId, new Line(shopProductId, quantity, instructions, product.price()));
+        });
+        return price(cart, null);
+    }
+
+    /** Set the quantity (and instructions) of a line already in the cart. */
+    public CartView updateItem(CartItemRequest request) {
+        Long shopProductId = request.getShopProductId();
+        CartProduct product = orderableProduct(shopProductId);
+        Cart cart = currentCart();
+        change(cart, () -> {
+            Line existing = cart.lines.get(shopProductId);
+            if (existing == null) {
+                throw new IllegalArgumentException("Item is not in your cart");
+            }
+            checkQuantity(product, request.getQuantity());
+            String instructions = request.getSpecialInstructions() != null
+                    ? request.getSpecialInstructions() : existing.specialInstructions();
+            cart.lines.put(shopProductId, new Line(shopProductId, request.getQuantity(), instructions, product.price()));
+        });
+        return price(cart, null);
+    }
+
+    public CartView removeItem(Long shopProductId) {
+        Cart cart = currentCart();
+        change(cart, () -> cart.lines.remove(shopProductId));
+        return price(cart, null);
+    }
+
+    public CartView clear() {
+        Cart cart = currentCart();
+        change(cart, () -> {
+            cart.lines.clear();
+            cart.shopId = null;
+            cart.promoCode = null;
+            cart.promotion = null;
+        });
+        return price(cart, null);
+    }
+
+    /** Validate the code against the cart as it is now and keep it for the previews. */
+    public CartView applyPromoCode(String code) {
+        if (code == null || code.isBlank()) {
+            throw new IllegalArgumentException("Promo code is required");
+        }
+        Cart cart = currentCart();
+        CartView view = price(cart, null);
+        if (view.items().isEmpty()) {
+            throw new IllegalArgumentException("Your cart is empty");
+        }
+        PromotionService.PromoCodeValidationResult result = promotionService.validatePromoCode(
+                code.trim(), cart.customerId, null, null, view.subtotal(), view.shopId());
+        if (!result.isValid()) {
+            throw new IllegalArgumentException(result.getMessage());
+        }
+        change(cart, () -> {
+            cart.promoCode = code.trim();
+            cart.promotion = result.getPromotion();
+        });
+        return price(cart, null);
+    }
+
+    public CartView removePromoCode() {
+        Cart cart = currentCart();
+        change(cart, () -> {
+            cart.promoCode = null;
+            cart.promotion = null;
+        });
+        return price(cart, null);
+    }
+
+    /**
+     * Place the cart as an order and empty it. The promo code is validated
+     * once more in full and its use claimed in the order's transaction, so
+     * an order whose claim is refused is not kept; stock and prices are
+     * checked again by order creation itself.
+     */
+    public OrderResponse checkout(CartCheckoutRequest request) {
+        Cart cart = currentCart();
+        synchronized (cart) {
+            if (cart.checkingOut) {
+                throw new IllegalStateException("Checkout is already in progress");
+            }
+            cart.checkingOut = true;
+        }
+        try {
+            String deliveryType = request.getDeliveryType() != null ? request.getDeliveryType() : HOME_DELIVERY;
+            CartView view = price(cart, deliveryType);
+            if (view.items().isEmpty()) {
+                throw new IllegalArgumentException("Your cart is empty");
+            }
+            for (CartLine line : view.items()) {
+                if (!line.available()) {
+                    throw new IllegalArgumentException(line.productName() + ": " + line.message());
+                }
+            }
+
+            Promotion promotion = null;
+            BigDecimal discount = null;
+            if (view.promoCode() != null) {
+                PromotionService.PromoCodeValidationResult result = promotionService.validatePromoCode(
+                        view.promoCode(), cart.customerId, request.getDeviceUuid(), null, view.subtotal(), view.shopId());
+                if (!result.isValid()) {
+                    throw new IllegalArgumentException(result.getMessage());
+                }
+                promotion = result.getPromotion();
+                discount = result.getDiscountAmount();
+            }
+
+            List<CustomerOrderRequest.OrderItemRequest> items = new ArrayList<>(view.items().size());
+            for (CartLine line : view.items()) {
+                items.add(CustomerOrderRequest.OrderItemRequest.builder()
+                        .shopProductId(line.shopProductId())
+                        .quantity(line.quantity())
+                        .unitPrice(line.unitPrice())
+                        .specialInstructions(line.specialInstructions())
+                        .build());
+            }
+            CustomerOrderRequest orderRequest = CustomerOrderRequest.builder()
+                    .shopId(view.shopId())
+                    .items(items)
+                    .paymentMethod(request.getPaymentMethod())
+                    .deliveryType(deliveryType)
+                    .deliveryAddress(request.getDeliveryAddress())
+                    .deliveryContactName(request.getDeliveryContactName())
+                    .deliveryPhone(request.getDeliveryPhone())
+                    .deliveryCity(request.getDeliveryCity())
+                    .deliveryState(request.getDeliveryState())
+                    .deliveryPostalCode(request.getDeliveryPostalCode())
+                    .notes(request.getNotes())
+                    .discountAmount(discount)
+                    .couponCode(promotion != null ? view.promoCode() : null)
+                    .build();
+            Promotion usedPromotion = promotion;
+            BigDecimal usedDiscount = discount;
+            // Order and promo use commit together: a refused use rolls the order back
+            OrderResponse order = transactionTemplate.execute(status -> {
+                Map<String, Object> placed = customerService.placeOrder(orderRequest);
+                if (!Boolean.TRUE.equals(placed.get("success"))) {
+                    throw new IllegalArgumentException(String.valueOf(placed.get("message")));
+                }
+                OrderResponse created = (OrderResponse) placed.get("order");
+                if (usedPromotion != null && !recordPromotionUsage(usedPromotion, cart.customerId, created.getId(),
+                        request.getDeviceUuid(), usedDiscount, view.subtotal())) {
+                    throw new IllegalArgumentException(
+                            "This promo code has reached its usage limit or was already used. Please remove it and try again.");
+                }
+                return created;
+            });
+            change(cart, () -> {
+                cart.lines.clear();
+                cart.shopId = null;
+                cart.promoCode = null;
+                cart.promotion = null;
+            });
+            log.info("Cart of customer {} checked out as order {} ({} line(s))",
+                    cart.customerId, order.getOrderNumber(), items.size());
+            return order;
+        } finally {
+            synchronized (cart) {
+                cart.checkingOut = false;
+            }
+        }
+    }
+
+    @EventListener
+    public void onShopProductChanged(ShopProductChangedEvent event) {
+        dropProducts(event.getShopId(), event.getShopProductId());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dropProducts(event.getShopId(), event.getShopProductId());
+                }
+            });
+        }
+    }
+
+    /** Nightly: delete carts nobody touched for app.cart.retention-days. */
+    @Scheduled(cron = "0 35 4 * * *")
+    public void purgeAbandonedCarts() {
+        int deleted = jdbcTemplate.update("DELETE FROM customer_carts WHERE updated_at < ?",
+                Timestamp.valueOf(LocalDateTime.now().minusDays(retentionDays)));
+        if (deleted > 0) {
+            log.info("Deleted {} abandoned cart(s)", deleted);
+        }
+    }
+
+    /**
+     * Write every dirty cart in one batch. A cart changed again while being
+     * written stays dirty for the next round; a batch that fails is retried
+     * row by row, and rows the table refuses (customer deleted) are dropped.
+     */
+    synchronized void flush() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+        Map<Long, Long> versions = new HashMap<>();
+        List<Object[]> upserts = new ArrayList<>();
+        List<Object[]> deletes = new ArrayList<>();
+        for (Cart cart : dirty.values()) {
+            synchronized (cart) {
+                Timestamp updatedAt = Timestamp.valueOf(cart.updatedAt);
+                if (cart.lines.isEmpty()) {
+                    deletes.add(new Object[]{cart.customerId, updatedAt});
+                } else {
+                    upserts.add(new Object[]{cart.customerId, cart.shopId, toJson(cart.lines.values()),
+                            cart.promoCode, updatedAt});
+                }
+                versions.put(cart.customerId, cart.version);
+            }
+        }
+        try {
+            if (!upserts.isEmpty()) {
+                jdbcTemplate.batchUpdate(UPSERT_CART_SQL, upserts);
+            }
+            if (!deletes.isEmpty()) {
+                jdbcTemplate.batchUpdate(DELETE_CART_SQL, deletes);
+            }
+        } catch (DataAccessException e) {
+            log.warn("Cart write-behind batch of {} failed, writing one by one: {}", versions.size(), e.getMessage());
+            writeOneByOne(UPSERT_CART_SQL, upserts, versions);
+            writeOneByOne(DELETE_CART_SQL, deletes, versions);
+        }
+        versions.forEach((customerId, version) -> dirty.computeIfPresent(customerId, (id, cart) -> {
+            synchronized (cart) {
+                return cart.version == version ? null : cart;
+            }
+        }));
+    }
+
+    private void writeOneByOne(String sql, List<Object[]> rows, Map<Long, Long> versions) {
+        for (Object[] row : rows) {
+            Long customerId = (Long) row[0];
+            try {
+                jdbcTemplate.update(sql, row);
+            } catch (DataIntegrityViolationException e) {
+                log.warn("Dropping cart of customer {}: {}", customerId, e.getMessage());
+            } catch (DataAccessException e) {
+                versions.remove(customerId); // keep it dirty, retry next round
+            }
+        }
+    }
+
+    private Cart loadCart(Long customerId) {
+        Cart pending = dirty.get(customerId);
+        if (pending != null) {
+            return pending;
+        }
+        Cart cart = new Cart(customerId);
+        jdbcTemplate.query("SELECT shop_id, items, promo_code, updated_at FROM customer_carts WHERE customer_id = ?",
+                rs -> {
+                    cart.shopId = rs.getLong("shop_id");
+                    cart.promoCode = rs.getString("promo_code");
+                    cart.updatedAt = rs.getTimestamp("updated_at").toLocalDateTime();
+                    for (Line line : fromJson(rs.getString("items"))) {
+                        cart.lines.put(line.shopProductId(), line);
+                    }
+                },
+                customerId);
+        return cart;
+    }
+
+    private Map<Long, CartProduct> loadProducts(Collection<? extends Long> shopProductIds) {
+        Map<Long, CartProduct> loaded = new HashMap<>();
+        jdbcTemplate.query(String.format(PRODUCT_SELECT, String.join(", ", Collections.nCopies(shopProductIds.size(), "?"))),
+                rs -> {
+                    Integer stock = rs.getObject("stock_quantity") == null ? null : rs.getInt("stock_quantity");
+                    CartProduct product = new CartProduct(
+                            rs.getLong("id"),
+                            rs.getLong("shop_id"),
+                            rs.getString("name"),
+                            rs.getString("image"),
+                            rs.getBigDecimal("price"),
+                            stock,
+                            rs.getBoolean("track_inventory"),
+                            rs.getBoolean("is_available"));
+                    loaded.put(product.id(), product);
+                },
+                shopProductIds.toArray());
+        return loaded;
+    }
+
+    private void dropProducts(Long shopId, Long shopProductId) {
+        if (shopProductId != null) {
+            products.invalidate(shopProductId);
+        } else if (shopId != null) {
+            // Bulk writes name no product: drop the shop's whole share
+            products.asMap().values().removeIf(product -> shopId.equals(product.shopId()));
+        }
+    }
+
+    /**
+     * Reprice the cart: one pass over its lines, each read against the
+     * product snapshot. Only a promo code carried over from the table is
+     * validated here, once.
+     */
+    private CartView price(Cart cart, String deliveryType) {
+        List<Line> lines;
+        Long shopId;
+        String promoCode;
+        Promotion promotion;
+        synchronized (cart) {
+            lines = new ArrayList<>(cart.lines.values());
+            shopId = cart.shopId;
+            promoCode = cart.promoCode;
+            promotion = cart.promotion;
+        }
+        Map<Long, CartProduct> current = lines.isEmpty() ? Map.of()
+                : products.getAll(lines.stream().map(Line::shopProductId).toList());
+
+        List<CartLine> items = new ArrayList<>(lines.size());
+        int totalItems = 0;
+        BigDecimal subtotal = BigDecimal.ZERO;
+        for (Line line : lines) {
+            CartLine priced = priceLine(line, current.get(line.shopProductId()));
+            items.add(priced);
+            totalItems += line.quantity();
+            if (priced.available()) {
+                subtotal = subtotal.add(priced.totalPrice());
+            }
+        }
+        if (items.isEmpty()) {
+            return new CartView(null, items, 0, BigDecimal.ZERO, BigDecimal.ZERO,
+                    deliveryType != null ? deliveryType : HOME_DELIVERY, BigDecimal.ZERO, null, BigDecimal.ZERO,
+                    null, BigDecimal.ZERO, OrderService.MINIMUM_ORDER_AMOUNT, false);
+        }
+
+        if (promoCode != null && promotion == null) {
+            promotion = revalidatePromoCode(cart, promoCode, subtotal, shopId);
+            promoCode = promotion != null ? promoCode : null;
+        }
+        BigDecimal discount = BigDecimal.ZERO;
+        String promoMessage = null;
+        if (promotion != null) {
+            if (promotion.getShopId() == null || promotion.getShopId().equals(shopId)) {
+                discount = promotion.calculateDiscount(subtotal).min(subtotal);
+            }
+            if (discount.signum() == 0) {
+                BigDecimal minimum = promotion.getMinimumOrderAmount();
+                promoMessage = minimum != null && subtotal.compareTo(minimum) < 0
+                        ? String.format("Add ₹%.2f more to use %s", minimum.subtract(subtotal), promoCode)
+                        : "Promo code " + promoCode + " does not apply to this cart";
+            }
+        }
+
+        String type = deliveryType != null ? deliveryType : HOME_DELIVERY;
+        BigDecimal tax = subtotal.multiply(OrderService.TAX_RATE);
+        BigDecimal deliveryFee = SELF_PICKUP.equals(type) ? BigDecimal.ZERO : OrderService.HOME_DELIVERY_FEE;
+        BigDecimal total = subtotal.add(tax).add(deliveryFee).subtract(discount);
+        BigDecimal amountToMinimum = OrderService.MINIMUM_ORDER_AMOUNT.subtract(subtotal).max(BigDecimal.ZERO);
+        boolean checkoutReady = amountToMinimum.signum() == 0 && items.stream().allMatch(CartLine::available);
+        return new CartView(shopId, items, totalItems, subtotal, tax, type, deliveryFee, promoCode, discount,
+                promoMessage, total, amountToMinimum, checkoutReady);
+    }
+
+    private CartLine priceLine(Line line, CartProduct product) {
+        if (product == null || !product.available() || product.price() == null) {
+            return new CartLine(line.shopProductId(), product != null ? product.name() : null,
+                    product != null ? product.imageUrl() : null, line.quantity(), null, null, BigDecimal.ZERO,
+                    false, 0, line.specialInstructions(), "No longer available");
+        }
+        int stock = product.stock() != null ? product.stock() : 0;
+        boolean inStock = !product.trackInventory() || stock >= line.quantity();
+        BigDecimal previousPrice = line.addedPrice() != null && line.addedPrice().compareTo(product.price()) != 0
+                ? line.addedPrice() : null;
+        String message = !inStock ? (stock > 0 ? "Only " + stock + " left in stock" : "Out of stock")
+                : previousPrice != null ? "Price changed" : null;
+        return new CartLine(line.shopProductId(), product.name(), product.imageUrl(), line.quantity(),
+                product.price(), previousPrice, product.price().multiply(BigDecimal.valueOf(line.quantity())),
+                inStock, product.trackInventory() ? stock : null, line.specialInstructions(), message);
+    }
+
+    /** Validate a promo code restored from the table; an invalid one is dropped from the cart. */
+    private Promotion revalidatePromoCode(Cart cart, String promoCode, BigDecimal subtotal, Long shopId) {
+        PromotionService.PromoCodeValidationResult result = promotionService.validatePromoCode(
+                promoCode, cart.customerId, null, null, subtotal, shopId);
+        Promotion promotion = result.isValid() ? result.getPromotion() : null;
+        change(cart, () -> {
+            if (promoCode.equals(cart.promoCode)) {
+                cart.promoCode = promotion != null ? promoCode : null;
+                cart.promotion = promotion;
+            }
+        });
+        return promotion;
+    }
+
+    private boolean recordPromotionUsage(Promotion promotion, Long customerId, Long orderId, String deviceUuid,
+                                         BigDecimal discount, BigDecimal subtotal) {
+        Customer customer = customerRepository.findById(customerId)
+                .orElseThrow(() -> new RuntimeException("Customer not found: " + customerId));
+        Order order = orderRepository.findById(orderId)
+                .orElseThrow(() -> new RuntimeException("Order not found: " + orderId));
+        boolean firstOrder = orderRepository.countByCustomerId(customerId) <= 1;
+        return promotionService.recordPromotionUsage(promotion, customer, order, deviceUuid,
+                customer.getMobileNumber(), customer.getEmail(), discount, subtotal, firstOrder, null, null);
+    }
+
+    private CartProduct orderableProduct(Long shopProductId) {
+        CartProduct product = products.get(shopProductId);
+        if (product == null) {
+            throw new IllegalArgumentException("Product not found");
+        }
+        if (!product.available() || product.price() == null) {
+            throw new IllegalArgumentException(product.name() + " is not available");
+        }
+        return product;
+    }
+
+    private static void requireSameShop(Cart cart, CartProduct product) {
+        if (!cart.lines.isEmpty() && !product.shopId().equals(cart.shopId)) {
+            throw new IllegalArgumentException(
+                    "Your cart has items from another shop. Clear the cart to order from this shop.");
+        }
+    }
+
+    private static void checkQuantity(CartProduct product, int quantity) {
+        if (quantity > MAX_LINE_QUANTITY) {
+            throw new IllegalArgumentException("Quantity cannot exceed " + MAX_LINE_QUANTITY);
+        }
+        int stock = product.stock() != null ? product.stock() : 0;
+        if (product.trackInventory() && quantity > stock) {
+            throw new IllegalArgumentException(stock > 0
+                    ? "Only " + stock + " of " + product.name() + " left in stock"
+                    : product.name() + " is out of stock");
+        }
+    }
+
+    /** Apply a change under the cart's monitor and queue the cart for writing. */
+    private void change(Cart cart, Runnable mutation) {
+        synchronized (cart) {
+            mutation.run();
+            cart.version++;
+            cart.updatedAt = LocalDateTime.now();
+        }
+        dirty.put(cart.customerId, cart);
+    }
+
+    private Cart currentCart() {
+        Long customerId = currentCustomerId();
+        Cart cart = carts.get(customerId);
+        if (!dirty.containsKey(customerId) && storedIsNewer(cart)) {
+            carts.invalidate(customerId);
+            cart = carts.get(customerId);
+        }
+        return cart;
+    }
+
+    /** Whether another node wrote this cart (or emptied it) after this copy was loaded or changed. */
+    private boolean storedIsNewer(Cart cart) {
+        List<Timestamp> stored = jdbcTemplate.queryForList(
+                "SELECT updated_at FROM customer_carts WHERE customer_id = ?", Timestamp.class, cart.customerId);
+        synchronized (cart) {
+            if (stored.isEmpty()) {
+                // A written cart's row only goes when a newer empty cart replaces it
+                return !cart.lines.isEmpty();
+            }
+            return stored.get(0).toLocalDateTime().isAfter(cart.updatedAt);
+        }
+    }
+
+    /** Customer behind the request; the lookup is cached per login so cart calls stay off the DB. */
+    private Long currentCustomerId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || authentication.getName() == null) {
+            throw new IllegalStateException("Not authenticated");
+        }
+        Long customerId = customerIds.get(authentication.getName(), name ->
+                customerService.findCustomerByEmailOrMobile(name).map(Customer::getId).orElse(null));
+        if (customerId == null) {
+            throw new IllegalArgumentException("Customer not found");
+        }
+        return customerId;
+    }
+
+    private String toJson(Collection<Line> lines) {
+        try {
+            return objectMapper.writeValueAsString(lines);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize cart", e);
+        }
+    }
+
+    private List<Line> fromJson(String json) {
+        try {
+            return objectMapper.readValue(json, LINES);
+        } catch (JsonProcessingException e) {
+            log.warn("Discarding unreadable stored cart: {}", e.getMessage());
+            return List.of();
+        }
+    }
+}
@@ -410,8 +410,7 @@ public class ComboService {
                 return;
             }
 
-            double radiusKm = Double.parseDouble(
-                    settingService.getSettingValue("notification.radius_km", "50"));
+            double radiusKm = settingService.getDoubleValue("notification.radius_km", 50);
 
             List<User> nearbyCustomers = userRepository.findNearbyCustomers(
                     shop.getLatitude().doubleValue(), shop.getLongitude().doubleValue(), radiusKm);
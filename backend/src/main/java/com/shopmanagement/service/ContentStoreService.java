@@ -0,0 +1,348 @@
+package com.shopmanagement.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Content-addressed, deduplicating file store for uploads (table content_blobs,
+ * see V100). A file is stored once under uploads/cas/&lt;aa&gt;/&lt;bb&gt;/&lt;sha256&gt;.&lt;ext&gt;
+ * however many times the same bytes are uploaded, and its URL never changes,
+ * so it can be cached as immutable.
+ *
+ * {@link #store} counts one reference per call and {@link #release} drops one;
+ * a record that copies a stored URL into another row calls {@link #retain}.
+ * Unreferenced blobs are removed by {@link #collectGarbage} after a grace
+ * period. Bills and other files that no table points at use
+ * {@link #storeTransient}, which keeps the blob for a retention window instead.
+ *
+ * Bytes are streamed to a temp file while hashing and moved into place
+ * atomically, so a reader never sees a partial file. The reference is counted
+ * in its own short transaction before the move; the collector deletes under a
+ * row lock, so a blob being collected and the same bytes being stored again
+ * are serialized. When the caller's transaction rolls back, the reference
+ * counted for it is released again, so a failed save doesn't pin the blob.
+ */
+@Service
+@Slf4j
+public class ContentStoreService {
+
+    private static final String URL_PREFIX = "/uploads/cas/";
+
+    private static final Pattern STORED_URL = Pattern.compile(
+            "(?:^|/)uploads/cas/[0-9a-f]{2}/[0-9a-f]{2}/([0-9a-f]{64})\\.[a-z0-9]+(?:\\?.*)?$");
+    private static final Pattern EXTENSION = Pattern.compile("^[a-z0-9]{1,10}$");
+    private static final int COLLECT_BATCH = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate newTransaction;
+    private final ImageDerivativeService imageDerivativeService;
+
+    @Value("${app.upload.dir:./uploads}")
+    private String uploadDir;
+
+    @Value("${app.content-store.release-grace-minutes:60}")
+    private long releaseGraceMinutes;
+
+    /** One stored file. duplicate: the bytes were already in the store and nothing new was written. */
+    public record StoredContent(String url, Path path, String sha256, long size, boolean duplicate) {
+    }
+
+    public ContentStoreService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                               ImageDerivativeService imageDerivativeService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.imageDerivativeService = imageDerivativeService;
+    }
+
+    /** Stores the stream's bytes and counts one reference to them. The stream is not closed. */
+    public StoredContent store(InputStream content, String extension) throws IOException {
+        return write(content, extension, null);
+    }
+
+    public StoredContent store(byte[] content, String extension) throws IOException {
+        return write(new ByteArrayInputStream(content), extension, null);
+    }
+
+    /**
+     * Stores bytes nothing will hold a reference to (a shared bill): kept for at
+     * least {@code retention} after the latest store of the same bytes.
+     */
+    public StoredContent storeTransient(byte[] content, String extension, Duration retention) throws IOException {
+        return write(new ByteArrayInputStream(content), extension, retention);
+    }
+
+    /**
+     * Keeps a transient blob for at least another retention window from now,
+     * for a link handed out again. False if the blob is gone or the URL isn't
+     * a stored one; store the bytes again then.
+     */
+    public boolean extendRetention(String url, Duration retention) {
+        String sha256 = sha256Of(url);
+        if (sha256 == null) {
+            return false;
+        }
+        return jdbcTemplate.update(
+                "UPDATE content_blobs SET collectable_after = GREATEST(collectable_after, ?) WHERE sha256 = ?",
+                Timestamp.from(Instant.now().plus(retention)), sha256) == 1;
+    }
+
+    /** Counts another reference to an already stored URL; a no-op for other URLs. */
+    public void retain(String url) {
+        String sha256 = sha256Of(url);
+        if (sha256 != null) {
+            jdbcTemplate.update("UPDATE content_blobs SET ref_count = ref_count + 1 WHERE sha256 = ?", sha256);
+        }
+    }
+
+    /**
+     * Drops one reference to a stored URL. Returns false for URLs outside the
+     * store, which the caller deletes the old way. Runs in the caller's
+     * transaction, so a rolled-back delete keeps its reference.
+     */
+    public boolean release(String url) {
+        String sha256 = sha256Of(url);
+        if (sha256 == null) {
+            return false;
+        }
+        Timestamp collectableAfter = Timestamp.valueOf(LocalDateTime.now().plusMinutes(releaseGraceMinutes));
+        jdbcTemplate.update(
+                "UPDATE content_blobs SET ref_count = GREATEST(ref_count - 1, 0), " +
+                "collectable_after = CASE WHEN ref_count <= 1 THEN GREATEST(collectable_after, ?) " +
+                "ELSE collectable_after END " +
+                "WHERE sha256 = ?", collectableAfter, sha256);
+        return true;
+    }
+
+    /**
+     * Hourly: delete unreferenced blobs whose grace period or retention has
+     * passed. Only the partial index on unreferenced rows is read, so the sweep
+     * costs nothing while there is nothing to collect.
+     */
+    @Scheduled(fixedDelayString = "${app.content-store.collect-interval-ms:3600000}", initialDelay = 600000)
+    public void collectGarbage() {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        int deleted = 0;
+        long freedBytes = 0;
+        List<String> due;
+        int collected;
+        do {
+            due = jdbcTemplate.queryForList(
+                    "SELECT sha256 FROM content_blobs WHERE ref_count = 0 AND collectable_after < ? " +
+                    "ORDER BY collectable_after LIMIT " + COLLECT_BATCH, String.class, now);
+            collected = 0;
+            for (String sha256 : due) {
+                Long freed = transactionTemplate.execute(status -> collect(sha256, now));
+                if (freed != null) {
+                    collected++;
+                    freedBytes += freed;
+                }
+            }
+            deleted += collected;
+            // A batch where nothing could be deleted would come back unchanged
+        } while (due.size() == COLLECT_BATCH && collected > 0);
+        removeStaleTempFiles();
+        if (deleted > 0) {
+            log.info("Content store: collected {} unreferenced file(s), freed {} MB", deleted, freedBytes / (1024 * 1024));
+        }
+    }
+
+    /** Deletes one blob if it is still unreferenced, holding its row lock so a concurrent store waits. */
+    private Long collect(String sha256, Timestamp now) {
+        List<String> extensions = jdbcTemplate.queryForList(
+                "SELECT extension FROM content_blobs WHERE sha256 = ? AND ref_count = 0 AND collectable_after < ? " +
+                "FOR UPDATE", String.class, sha256, now);
+        if (extensions.isEmpty()) {
+            return null; // stored or retained again since the scan
+        }
+        Path blob = blobPath(sha256, extensions.get(0));
+        long size = 0;
+        try {
+            size = Files.exists(blob) ? Files.size(blob) : 0;
+            Files.deleteIfExists(blob);
+        } catch (IOException e) {
+            log.warn("Content store: could not delete {}: {}", blob, e.getMessage());
+            return null; // keep the row so the next sweep retries
+        }
+        imageDerivativeService.deleteDerivatives(blob);
+        jdbcTemplate.update("DELETE FROM content_blobs WHERE sha256 = ?", sha256);
+        return size;
+    }
+
+    private StoredContent write(InputStream content, String extension, Duration retention) throws IOException {
+        String ext = normalizeExtension(extension);
+        Path tempDir = root().resolve("tmp");
+        Files.createDirectories(tempDir);
+        Path temp = Files.createTempFile(tempDir, "upload-", ".part");
+        try {
+            MessageDigest digest = sha256Digest();
+            long size;
+            try (DigestInputStream hashing = new DigestInputStream(nonClosing(content), digest)) {
+                size = Files.copy(hashing, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            String sha256 = HexFormat.of().formatHex(digest.digest());
+
+            // Count the reference first: once this commits the collector can't take the blob
+            String storedExtension = newTransaction.execute(status -> retention == null
+                    ? jdbcTemplate.queryForObject(
+                            "INSERT INTO content_blobs (sha256, extension, size_bytes, ref_count) VALUES (?, ?, ?, 1) " +
+                            "ON CONFLICT (sha256) DO UPDATE SET ref_count = content_blobs.ref_count + 1, " +
+                            "last_stored_at = CURRENT_TIMESTAMP RETURNING extension",
+                            String.class, sha256, ext, size)
+                    : jdbcTemplate.queryForObject(
+                            "INSERT INTO content_blobs (sha256, extension, size_bytes, ref_count, collectable_after) " +
+                            "VALUES (?, ?, ?, 0, ?) " +
+                            "ON CONFLICT (sha256) DO UPDATE SET collectable_after = " +
+                            "GREATEST(content_blobs.collectable_after, EXCLUDED.collectable_after), " +
+                            "last_stored_at = CURRENT_TIMESTAMP RETURNING extension",
+                            String.class, sha256, ext, size, Timestamp.from(Instant.now().plus(retention))));
+
+            // The same bytes uploaded as .jpeg and .jpg share the first upload's name
+            String url = urlOf(sha256, storedExtension);
+            Path target = blobPath(sha256, storedExtension);
+            boolean duplicate = Files.exists(target);
+            if (!duplicate) {
+                try {
+                    Files.createDirectories(target.getParent());
+                    Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (IOException e) {
+                    if (retention == null) {
+                        release(url);
+                    }
+                    throw e;
+                }
+            }
+            if (retention == null) {
+                releaseOnRollback(url);
+            }
+            return new StoredContent(url, target, sha256, size, duplicate);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * The reference committed on its own; give it back if the caller's
+     * transaction (the one meant to save the URL) rolls back.
+     */
+    private void releaseOnRollback(String url) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_ROLLED_BACK) {
+                    return;
+                }
+                try {
+                    // The caller's connection may still be bound here; release in a transaction of its own
+                    newTransaction.executeWithoutResult(tx -> release(url));
+                } catch (Exception e) {
+                    log.warn("Content store: could not release {} after rollback: {}", url, e.getMessage());
+                }
+            }
+        });
+    }
+
+    private Path root() {
+        return Paths.get(uploadDir, "cas");
+    }
+
+    private Path blobPath(String sha256, String extension) {
+        return root().resolve(sha256.substring(0, 2)).resolve(sha256.substring(2, 4))
+                .resolve(sha256 + "." + extension);
+    }
+
+    private static String urlOf(String sha256, String extension) {
+        return URL_PREFIX + sha256.substring(0, 2) + "/" + sha256.substring(2, 4) + "/" + sha256 + "." + extension;
+    }
+
+    /** Content hash named by a store URL, or null for any other URL. */
+    public static String sha256Of(String url) {
+        if (url == null) {
+            return null;
+        }
+        Matcher matcher = STORED_URL.matcher(url.trim());
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    private static String normalizeExtension(String extension) {
+        String ext = extension == null ? "" : extension.trim().toLowerCase(Locale.ROOT);
+        if (ext.startsWith(".")) {
+            ext = ext.substring(1);
+        }
+        return EXTENSION.matcher(ext).matches() ? ext : "bin";
+    }
+
+    private static MessageDigest sha256Digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** Callers own their streams (multipart uploads are closed by the container). */
+    private static InputStream nonClosing(InputStream in) {
+        return new FilterInputStream(in) {
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    /** Temp files left behind by a crash mid-upload. */
+    private void removeStaleTempFiles() {
+        Path tempDir = root().resolve("tmp");
+        if (!Files.isDirectory(tempDir)) {
+            return;
+        }
+        Instant cutoff = Instant.now().minus(Duration.ofDays(1));
+        try (Stream<Path> files = Files.list(tempDir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                try {
+                    if (Files.getLastModifiedTime(file).toInstant().isBefore(cutoff)) {
+                        Files.deleteIfExists(file);
+                    }
+                } catch (IOException e) {
+                    log.warn("Content store: could not remove temp file {}", file, e);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Content store: failed to list {}", tempDir, e);
+        }
+    }
+}
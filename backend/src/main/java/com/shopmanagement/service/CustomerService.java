@@ -5,12 +5,10 @@ import com.shopmanagement.entity.Customer;
 import com.shopmanagement.entity.CustomerAddress;
 import com.shopmanagement.entity.Order;
 import com.shopmanagement.shop.entity.Shop;
-import com.shopmanagement.product.entity.ShopProduct;
 import com.shopmanagement.repository.CustomerRepository;
 import com.shopmanagement.repository.CustomerAddressRepository;
 import com.shopmanagement.repository.OrderRepository;
 import com.shopmanagement.shop.repository.ShopRepository;
-import com.shopmanagement.product.repository.ShopProductRepository;
 import com.shopmanagement.service.OrderService;
 import com.shopmanagement.dto.order.OrderRequest;
 import com.shopmanagement.dto.order.OrderResponse;
@@ -25,7 +23,6 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
@@ -44,7 +41,6 @@ public class CustomerService {
     private final EmailService emailService;
     private final OrderRepository orderRepository;
     private final ShopRepository shopRepository;
-    private final ShopProductRepository shopProductRepository;
     private final OrderService orderService;
     
     // Get all customers for admin
@@ -1041,6 +1037,7 @@ public class CustomerService {
                     .notes(request.getNotes())
                     .estimatedDeliveryTime(request.getEstimatedDeliveryTime())
                     .discountAmount(request.getDiscountAmount())
+                    .couponCode(request.getCouponCode())
                     .build();
 
             OrderResponse orderResponse = orderService.createOrder(orderRequest);
@@ -1061,89 +1058,6 @@ public class CustomerService {
         }
     }
     
-    /**
-     * Get customer cart (simplified implementation - in production you'd have a Cart entity)
-     */
-    public Map<String, Object> getCustomerCart() {
-        // For now, return an empty cart structure
-        // In production, implement proper cart persistence
-        return Map.of(
-            "success", true,
-            "cart", Map.of(
-                "items", List.of(),
-                "totalItems", 0,
-                "subtotal", 0.0,
-                "tax", 0.0,
-                "deliveryFee", 0.0,
-                "total", 0.0
-            )
-        );
-    }
-    
-    /**
-     * Add item to cart
-     */
-    public Map<String, Object> addToCart(CartItemRequest request) {
-        try {
-            // Validate product exists
-            ShopProduct product = shopProductRepository.findById(request.getShopProductId())
-                    .orElseThrow(() -> new RuntimeException("Product not found"));
-            
-            // In production, implement proper cart management
-            // For now, return success message
-            return Map.of(
-                "success", true,
-                "message", "Item added to cart",
-                "item", Map.of(
-                    "productId", request.getShopProductId(),
-                    "productName", product.getDisplayName(),
-                    "quantity", request.getQuantity(),
-                    "unitPrice", product.getPrice(),
-                    "totalPrice", product.getPrice().multiply(BigDecimal.valueOf(request.getQuantity()))
-                )
-            );
-            
-        } catch (Exception e) {
-            log.error("Error adding item to cart", e);
-            return Map.of(
-                "success", false,
-                "message", "Failed to add item to cart: " + e.getMessage(),
-                "errorCode", "CART_ADD_ERROR"
-            );
-        }
-    }
-    
-    /**
-     * Update cart item
-     */
-    public Map<String, Object> updateCartItem(CartItemRequest request) {
-        // Implementation similar to addToCart
-        return Map.of(
-            "success", true,
-            "message", "Cart item updated"
-        );
-    }
-    
-    /**
-     * Remove item from cart
-     */
-    public Map<String, Object> removeFromCart(Long shopProductId) {
-        return Map.of(
-            "success", true,
-            "message", "Item removed from cart"
-        );
-    }
-    
-    /**
-     * Clear cart
-     */
-    public Map<String, Object> clearCart() {
-        return Map.of(
-            "success", true,
-            "message", "Cart cleared"
-        );
-    }
-    
     // Helper methods
     
     public Optional<Customer> findCustomerByEmailOrMobile(String emailOrMobile) {
@@ -44,6 +44,7 @@ public class FarmerProductService {
     private final GlobalPostLimitService globalPostLimitService;
     private final ObjectMapper objectMapper;
     private final PostSubscriptionService postSubscriptionService;
+    private final ImageModerationHoldService imageModerationHoldService;
 
     @Transactional
     public FarmerProduct createPost(String title, String description, BigDecimal price,
@@ -85,7 +86,7 @@ public class FarmerProductService {
             int count = 0;
             for (MultipartFile image : images) {
                 if (image != null && !image.isEmpty() && count < 5) {
-                    String imageUrl = fileUploadService.uploadFile(image, "farmer-products");
+                    String imageUrl = fileUploadService.uploadPostImage(image, "farmer-products");
                     imageUrlList.add(imageUrl);
                     count++;
                 }
@@ -93,8 +94,10 @@ public class FarmerProductService {
         }
         String imageUrls = imageUrlList.isEmpty() ? null : String.join(",", imageUrlList);
 
-        boolean autoApprove = Boolean.parseBoolean(
-                settingService.getSettingValue("farmer.post.auto_approve", "false"));
+        boolean autoApprove = settingService.getBooleanValue("farmer.post.auto_approve", false);
+        // A new image still waiting for its moderation verdict keeps the post pending until it arrives
+        boolean heldForModeration = autoApprove && imageModerationHoldService.awaitingVerdict(imageUrls);
+        autoApprove = autoApprove && !heldForModeration;
 
         FarmerProduct post = FarmerProduct.builder()
                 .title(title)
@@ -115,8 +118,7 @@ public class FarmerProductService {
                 .build();
 
         // Set validity dates
-        int durationDays = Integer.parseInt(
-                settingService.getSettingValue("farmer.post.duration_days", "30"));
+        int durationDays = settingService.getIntValue("farmer.post.duration_days", 30);
         post.setValidFrom(LocalDateTime.now());
         if (durationDays > 0) {
             post.setValidTo(LocalDateTime.now().plusDays(durationDays));
@@ -134,6 +136,9 @@ public class FarmerProductService {
         }
 
         FarmerProduct saved = farmerProductRepository.save(post);
+        if (heldForModeration) {
+            imageModerationHoldService.hold(ImageModerationHoldService.PostType.FARMER, saved.getId(), imageUrls);
+        }
 
         // Consume paid token if used
         if (paidTokenId != null) {
@@ -165,7 +170,7 @@ public class FarmerProductService {
         List<PostStatus> visibleStatuses = getVisibleStatuses();
 
         if (lat != null && lng != null) {
-            double radius = (radiusKm != null) ? radiusKm : Double.parseDouble(settingService.getSettingValue("post.default_radius_km", "10"));
+            double radius = (radiusKm != null) ? radiusKm : settingService.getDoubleValue("post.default_radius_km", 10);
             String[] statuses = visibleStatuses.stream().map(Enum::name).toArray(String[]::new);
             int limit = pageable.getPageSize();
             int offset = (int) pageable.getOffset();
@@ -186,7 +191,7 @@ public class FarmerProductService {
         List<PostStatus> visibleStatuses = getVisibleStatuses();
 
         if (lat != null && lng != null) {
-            double radius = (radiusKm != null) ? radiusKm : Double.parseDouble(settingService.getSettingValue("post.default_radius_km", "10"));
+            double radius = (radiusKm != null) ? radiusKm : settingService.getDoubleValue("post.default_radius_km", 10);
             String[] statuses = visibleStatuses.stream().map(Enum::name).toArray(String[]::new);
             int limit = pageable.getPageSize();
             int offset = (int) pageable.getOffset();
@@ -376,8 +381,7 @@ public class FarmerProductService {
         int newCount = (post.getReportCount() != null ? post.getReportCount() : 0) + 1;
         post.setReportCount(newCount);
 
-        int reportThreshold = Integer.parseInt(
-                settingService.getSettingValue("farmer.post.report_threshold", "3"));
+        int reportThreshold = settingService.getIntValue("farmer.post.report_threshold", 3);
         if (newCount >= reportThreshold && post.getStatus() == PostStatus.APPROVED) {
             post.setStatus(PostStatus.FLAGGED);
             log.warn("Farmer product auto-flagged due to {} reports: id={}, title={}", newCount, postId, post.getTitle());
@@ -457,8 +461,7 @@ public class FarmerProductService {
             postPaymentService.consumeToken(paidTokenId, user.getId(), post.getId());
         }
 
-        int durationDays = Integer.parseInt(
-                settingService.getSettingValue("farmer.post.duration_days", "30"));
+        int durationDays = settingService.getIntValue("farmer.post.duration_days", 30);
 
         post.setValidFrom(LocalDateTime.now());
         if (durationDays > 0) {
@@ -550,8 +553,7 @@ public class FarmerProductService {
     }
 
     private LocalDateTime getCutoffDate() {
-        int durationDays = Integer.parseInt(
-                settingService.getSettingValue("farmer.post.duration_days", "30"));
+        int durationDays = settingService.getIntValue("farmer.post.duration_days", 30);
         if (durationDays <= 0) {
             return null;
         }
@@ -576,8 +578,7 @@ public class FarmerProductService {
                 return;
             }
 
-            double radiusKm = Double.parseDouble(
-                    settingService.getSettingValue("notification.radius_km", "50"));
+            double radiusKm = settingService.getDoubleValue("notification.radius_km", 50);
 
             List<User> nearbyCustomers = userRepository.findNearbyCustomers(
                     lat, lng, radiusKm);
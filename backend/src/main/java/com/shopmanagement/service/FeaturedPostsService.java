@@ -1,23 +1,70 @@
 package com.shopmanagement.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import com.shopmanagement.entity.*;
 import com.shopmanagement.entity.RentalPost;
+import com.shopmanagement.event.PostChangedEvent;
 import com.shopmanagement.repository.*;
 import com.shopmanagement.shop.entity.Shop;
 import com.shopmanagement.shop.repository.ShopRepository;
-import lombok.RequiredArgsConstructor;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
+/**
+ * The customer app's home banner: combos, promotions and paid posts of nine
+ * modules near the user.
+ *
+ * The eleven sections load concurrently on a small pool (sized well under the
+ * DB connection pool), each in its own read-only transaction, and the request
+ * waits at most featured.feed.deadline-ms for them; a section that misses the
+ * deadline or fails is returned empty. So the response time is bounded by the
+ * deadline, not by the slowest of eleven queries.
+ *
+ * Assembled feeds are cached per (geohash cell of ~5 km, radius in whole km).
+ * A cell's feed is queried from the cell centre at radius + CELL_REACH_KM, so
+ * it holds every post within the radius of any point in the cell; each request
+ * then keeps the posts within the radius of the caller's own location.
+ * Complete feeds live for featured.feed.cache-seconds, feeds with a missing
+ * section only briefly. When a paid post is written, the cells within reach of
+ * its location (and the no-location feed) are dropped after commit.
+ */
 @Service
-@RequiredArgsConstructor
+@Slf4j
 public class FeaturedPostsService {
 
+    private static final int GEOHASH_PRECISION = 5;
+    /** Half-diagonal of a precision-5 geohash cell (~4.9 x 4.9 km), rounded up. */
+    private static final double CELL_REACH_KM = 3.5;
+    private static final int SECTION_SIZE = 10;
+    /** Rows per nearby query: the widened circle holds more posts than the caller keeps. */
+    private static final int CELL_FETCH_LIMIT = 30;
+    private static final Duration INCOMPLETE_TTL = Duration.ofSeconds(5);
+    private static final String GEOHASH_BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz";
+
     private final MarketplacePostRepository marketplacePostRepository;
     private final FarmerProductRepository farmerProductRepository;
     private final LabourPostRepository labourPostRepository;
@@ -31,187 +78,241 @@ public class FeaturedPostsService {
     private final PromotionRepository promotionRepository;
     private final ShopRepository shopRepository;
     private final SettingService settingService;
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final long deadlineMillis;
+    private final ThreadPoolExecutor sectionLoader;
+    private final Cache<FeedKey, Feed> feeds;
+
+    public FeaturedPostsService(MarketplacePostRepository marketplacePostRepository,
+                                FarmerProductRepository farmerProductRepository,
+                                LabourPostRepository labourPostRepository,
+                                TravelPostRepository travelPostRepository,
+                                ParcelServicePostRepository parcelServicePostRepository,
+                                RealEstatePostRepository realEstatePostRepository,
+                                RentalPostRepository rentalPostRepository,
+                                WomensCornerPostRepository womensCornerPostRepository,
+                                LocalShopPostRepository localShopPostRepository,
+                                ProductComboRepository productComboRepository,
+                                PromotionRepository promotionRepository,
+                                ShopRepository shopRepository,
+                                SettingService settingService,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${featured.feed.deadline-ms:800}") long deadlineMillis,
+                                @Value("${featured.feed.threads:4}") int threads,
+                                @Value("${featured.feed.cache-seconds:60}") long cacheSeconds) {
+        this.marketplacePostRepository = marketplacePostRepository;
+        this.farmerProductRepository = farmerProductRepository;
+        this.labourPostRepository = labourPostRepository;
+        this.travelPostRepository = travelPostRepository;
+        this.parcelServicePostRepository = parcelServicePostRepository;
+        this.realEstatePostRepository = realEstatePostRepository;
+        this.rentalPostRepository = rentalPostRepository;
+        this.womensCornerPostRepository = womensCornerPostRepository;
+        this.localShopPostRepository = localShopPostRepository;
+        this.productComboRepository = productComboRepository;
+        this.promotionRepository = promotionRepository;
+        this.shopRepository = shopRepository;
+        this.settingService = settingService;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.deadlineMillis = deadlineMillis;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.sectionLoader = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(256),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "FeaturedFeed-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        Duration completeTtl = Duration.ofSeconds(cacheSeconds);
+        this.feeds = Caffeine.newBuilder()
+                .maximumSize(5_000)
+                .expireAfter(new Expiry<FeedKey, Feed>() {
+                    @Override
+                    public long expireAfterCreate(FeedKey key, Feed feed, long currentTime) {
+                        return (feed.complete() ? completeTtl : INCOMPLETE_TTL).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(FeedKey key, Feed feed, long currentTime, long currentDuration) {
+                        return (feed.complete() ? completeTtl : INCOMPLETE_TTL).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterRead(FeedKey key, Feed feed, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    @PreDestroy
+    void stop() {
+        sectionLoader.shutdownNow();
+    }
 
     public Map<String, Object> getFeaturedPosts(Double lat, Double lng, Double radiusKm) {
-        Map<String, Object> result = new LinkedHashMap<>();
+        double radius = radiusKm != null ? radiusKm : settingService.getDoubleValue("post.default_radius_km", 10);
+        FeedKey key = FeedKey.of(lat, lng, radius);
+        // Concurrent misses for one cell wait for a single assembly
+        Feed feed = feeds.get(key, this::assemble);
+        return key.hasLocation() ? feed.within(lat, lng, radius) : feed.within(null, null, 0);
+    }
+
+    /** After a paid post is written, drop the feeds that could show it. */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPostChanged(PostChangedEvent event) {
+        if (!event.isPaid()) {
+            return;
+        }
+        if (!event.hasLocation()) {
+            feeds.invalidateAll();
+            return;
+        }
+        feeds.asMap().keySet().removeIf(key -> !key.hasLocation()
+                || haversineDistance(key.latitude(), key.longitude(), event.getLatitude(), event.getLongitude())
+                        <= key.radiusKm() + CELL_REACH_KM);
+    }
+
+    private Feed assemble(FeedKey key) {
+        Double lat = key.hasLocation() ? key.latitude() : null;
+        Double lng = key.hasLocation() ? key.longitude() : null;
+        // Everything within the radius of any point in the cell
+        double queryRadius = key.radiusKm() + CELL_REACH_KM;
+        boolean hasLocation = key.hasLocation();
         Pageable top10 = PageRequest.of(0, 10);
-        boolean hasLocation = lat != null && lng != null;
-        double radius = radiusKm != null ? radiusKm : Double.parseDouble(settingService.getSettingValue("post.default_radius_km", "10"));
+
+        // Only PAID posts show in the banner (isPaid=true), ordered by date (newest first)
+        // If lat/lng provided, filter by distance (posts without location are always included)
+        String[] approvedStatus = new String[]{"APPROVED"};
+
+        Map<String, Supplier<List<Item>>> loaders = new LinkedHashMap<>();
 
         // Combos - active combos from all shops
-        try {
+        loaders.put("combos", () -> {
             var combos = productComboRepository.findAllActiveCombos(LocalDate.now());
             var limitedCombos = combos.size() > 6 ? combos.subList(0, 6) : combos;
-            result.put("combos", limitedCombos.stream().map(this::mapCombo).toList());
-        } catch (Exception e) {
-            result.put("combos", List.of());
-        }
+            return limitedCombos.stream().map(c -> Item.anywhere(mapCombo(c))).toList();
+        });
 
         // Shop Promotions/Offers - active public promotions
-        try {
+        loaders.put("promotions", () -> {
             var promos = promotionRepository.findAllPublicActive(LocalDateTime.now());
             var limitedPromos = promos.size() > 10 ? promos.subList(0, 10) : promos;
-            result.put("promotions", limitedPromos.stream().map(this::mapPromotion).toList());
-        } catch (Exception e) {
-            result.put("promotions", List.of());
-        }
-
-        // Only PAID posts show in the banner (isPaid=true), ordered by date (newest first)
-        // If lat/lng provided, filter by distance (posts without location are always included)
-        String[] approvedStatus = new String[]{"APPROVED"};
+            return mapPromotions(limitedPromos).stream().map(Item::anywhere).toList();
+        });
 
         // Marketplace - paid approved posts, nearby if location provided
-        try {
-            if (hasLocation) {
-                var mpPosts = marketplacePostRepository.findNearbyPosts(approvedStatus, lat, lng, radius, 10, 0);
-                result.put("marketplace", mpPosts.stream()
-                        .filter(p -> Boolean.TRUE.equals(p.getIsPaid()))
-                        .map(this::mapMarketplace).toList());
-            } else {
-                var mpPosts = marketplacePostRepository.findByStatusAndIsPaidTrueOrderByCreatedAtDesc(
-                        MarketplacePost.PostStatus.APPROVED, top10).getContent();
-                result.put("marketplace", mpPosts.stream().map(this::mapMarketplace).toList());
-            }
-        } catch (Exception e) {
-            result.put("marketplace", List.of());
-        }
+        loaders.put("marketplace", () -> hasLocation
+                ? marketplacePostRepository.findNearbyPosts(approvedStatus, lat, lng, queryRadius, CELL_FETCH_LIMIT, 0).stream()
+                        .filter(p -> Boolean.TRUE.equals(p.getIsPaid())).map(p -> Item.at(p.getLatitude(), p.getLongitude(), mapMarketplace(p))).toList()
+                : marketplacePostRepository.findByStatusAndIsPaidTrueOrderByCreatedAtDesc(
+                        MarketplacePost.PostStatus.APPROVED, top10).getContent().stream().map(p -> Item.at(p.getLatitude(), p.getLongitude(), mapMarketplace(p))).toList());
 
         // Farmer Products - paid approved, nearby if location provided
-        try {
-            if (hasLocation) {
-                var fpPosts = farmerProductRepository.findNearbyPosts(approvedStatus, lat, lng, radius, 10, 0);
-                result.put("farmer", fpPosts.stream()
-                        .filter(p -> Boolean.TRUE.equals(p.getIsPaid()))
-                        .map(this::mapFarmer).toList());
-            } else {
-                var fpPosts = farmerProductRepository.findByStatusAndIsPaidTrueOrderByCreatedAtDesc(
-                        FarmerProduct.PostStatus.APPROVED, top10).getContent();
-                result.put("farmer", fpPosts.stream().map(this::mapFarmer).toList());
-            }
-        } catch (Exception e) {
-            result.put("farmer", List.of());
-        }
+        loaders.put("farmer", () -> hasLocation
+                ? farmerProductRepository.findNearbyPosts(approvedStatus, lat, lng, queryRadius, CELL_FETCH_LIMIT, 0).stream()
+                        .filter(p -> Boolean.TRUE.equals(p.getIsPaid())).map(p -> Item.at(p.getLatitude(), p.getLongitude(), mapFarmer(p))).toList()
+                : farmerProductRepository.findByStatusAndIsPaidTrueOrderByCreatedAtDesc(
+                        FarmerProduct.PostStatus.APPROVED, top10).getContent().stream().map(p -> Item.at(p.getLatitude(), p.getLongitude(), mapFarmer(p))).toList());
 
         // Labour - paid approved, nearby if location provided
-        try {
-            if (hasLocation) {
-                var lbPosts = labourPostRepository.findNearbyPosts(approvedStatus, lat, lng, radius, 10, 0);
-                result.put("labour", lbPosts.stream()
-                        .filter(p -> Boolean.TRUE.equals(p.getIsPaid()))
-                        .map(this::mapLabour).toList());
-            } else {
-                var lbPosts = labourPostRepository.findByStatusAndIsPaidTrueOrderByCreatedAtDesc(
-                        LabourPost.PostStatus.APPROVED, top10).getContent();
-                result.put("labour", lbPosts.stream().map(this::mapLabour).toList());
-            }
-        } catch (Exception e) {
-            result.put("labour", List.of());
-        }
+        loaders.put("labour", () -> hasLocation
+                ? labourPostRepository.findNearbyPosts(approvedStatus, lat, lng, queryRadius, CELL_FETCH_LIMIT, 0).stream()
+                        .filter(p -> Boolean.TRUE.equals(p.getIsPaid())).map(p -> Item.at(p.getLatitude(), p.getLongitude(), mapLabour(p))).toList()
+                : labourPostRepository.findByStatusAndIsPaidTrueOrderByCreatedAtDesc(
+                        LabourPost.PostStatus.APPROVED, top10).getContent().stream().map(p -> Item.at(p.getLatitude(), p.getLongitude(), mapLabour(p))).toList());
 
         // Travel - paid approved, nearby if location provided
-        try {
-            if (hasLocation) {
-                var tvPosts = travelPostRepository.findNearbyPosts(approvedStatus, lat, lng, radius, 10, 0);
-                result.put("travel", tvPosts.stream()
-                        .filter(p -> Boolean.TRUE.equals(p.getIsPaid()))
-                        .map(this::mapTravel).toList());
-            } else {
-                var tvPosts = travelPostRepository.findByStatusAndIsPaidTrueOrderByCreatedAtDesc(
-                        TravelPost.PostStatus.APPROVED, top10).getContent();
-                result.put("travel", tvPosts.stream().map(this::mapTravel).toList());
-            }
-        } catch (Exception e) {
-            result.put("travel", List.of());
-        }
+        loaders.put("travel", () -> hasLocation
+                ? travelPostRepository.findNearbyPosts(approvedStatus, lat, lng, queryRadius, CELL_FETCH_LIMIT, 0).stream()
+                        .filter(p -> Boolean.TRUE.equals(p.getIsPaid())).map(p -> Item.at(p.getLatitude(), p.getLongitude(), mapTravel(p))).toList()
+                : travelPostRepository.findByStatusAndIsPaidTrueOrderByCreatedAtDesc(
+                        TravelPost.PostStatus.APPROVED, top10).getContent().stream().map(p -> Item.at(p.getLatitude(), p.getLongitude(), mapTravel(p))).toList());
 
         // Parcel - paid approved, nearby if location provided
-        try {
-            if (hasLocation) {
-                var pcPosts = parcelServicePostRepository.findNearbyPosts(approvedStatus, lat, lng, radius, 10, 0);
-                result.put("parcel", pcPosts.stream()
-                        .filter(p -> Boolean.TRUE.equals(p.getIsPaid()))
-                        .map(this::mapParcel).toList());
-            } else {
-                var pcPosts = parcelServicePostRepository.findByStatusAndIsPaidTrueOrderByCreatedAtDesc(
-                        ParcelServicePost.PostStatus.APPROVED, top10).getContent();
-                result.put("parcel", pcPosts.stream().map(this::mapParcel).toList());
-            }
-        } catch (Exception e) {
-            result.put("parcel", List.of());
-        }
+        loaders.put("parcel", () -> hasLocation
+                ? parcelServicePostRepository.findNearbyPosts(approvedStatus, lat, lng, queryRadius, CELL_FETCH_LIMIT, 0).stream()
+                        .filter(p -> Boolean.TRUE.equals(p.getIsPaid())).map(p -> Item.at(p.getLatitude(), p.getLongitude(), mapParcel(p))).toList()
+                : parcelServicePostRepository.findByStatusAndIsPaidTrueOrderByCreatedAtDesc(
+                        ParcelServicePost.PostStatus.APPROVED, top10).getContent().stream().map(p -> Item.at(p.getLatitude(), p.getLongitude(), mapParcel(p))).toList());
 
         // Real Estate - paid approved only (no lat/lng on findNearbyPosts, use standard query)
-        try {
+        loaders.put("realEstate", () -> {
             var rePosts = realEstatePostRepository.findByStatusAndIsPaidTrueOrderByCreatedAtDesc(
                     RealEstatePost.PostStatus.APPROVED, top10).getContent();
-            if (hasLocation) {
-                // Filter by distance in Java for real estate (has its own lat/lng fields)
-                result.put("realEstate", rePosts.stream()
-                        .filter(p -> p.getLatitude() == null || p.getLongitude() == null ||
-                                haversineDistance(lat, lng, p.getLatitude(), p.getLongitude()) <= radius)
-                        .map(this::mapRealEstate).toList());
-            } else {
-                result.put("realEstate", rePosts.stream().map(this::mapRealEstate).toList());
-            }
-        } catch (Exception e) {
-            result.put("realEstate", List.of());
-        }
+            // Filtered by distance per request (has its own lat/lng fields)
+            return rePosts.stream()
+                    .map(p -> new Item(p.getLatitude(), p.getLongitude(), mapRealEstate(p))).toList();
+        });
 
         // Rental - paid approved, nearby if location provided
-        try {
-            if (hasLocation) {
-                var rnPosts = rentalPostRepository.findNearbyPosts(approvedStatus, lat, lng, radius, 10, 0);
-                result.put("rental", rnPosts.stream()
-                        .filter(p -> Boolean.TRUE.equals(p.getIsPaid()))
-                        .map(this::mapRental).toList());
-            } else {
-                var rnPosts = rentalPostRepository.findByStatusAndIsPaidTrueOrderByCreatedAtDesc(
-                        RentalPost.PostStatus.APPROVED, top10).getContent();
-                result.put("rental", rnPosts.stream().map(this::mapRental).toList());
-            }
-        } catch (Exception e) {
-            result.put("rental", List.of());
-        }
+        loaders.put("rental", () -> hasLocation
+                ? rentalPostRepository.findNearbyPosts(approvedStatus, lat, lng, queryRadius, CELL_FETCH_LIMIT, 0).stream()
+                        .filter(p -> Boolean.TRUE.equals(p.getIsPaid())).map(p -> Item.at(p.getLatitude(), p.getLongitude(), mapRental(p))).toList()
+                : rentalPostRepository.findByStatusAndIsPaidTrueOrderByCreatedAtDesc(
+                        RentalPost.PostStatus.APPROVED, top10).getContent().stream().map(p -> Item.at(p.getLatitude(), p.getLongitude(), mapRental(p))).toList());
 
         // Women's Corner - paid approved, nearby if location provided
-        try {
-            if (hasLocation) {
-                var wcPosts = womensCornerPostRepository.findNearbyPosts(approvedStatus, lat, lng, radius, 10, 0);
-                result.put("womensCorner", wcPosts.stream()
-                        .filter(p -> Boolean.TRUE.equals(p.getIsPaid()))
-                        .map(this::mapWomensCorner).toList());
-            } else {
-                var wcPosts = womensCornerPostRepository.findByStatusAndIsPaidTrueOrderByCreatedAtDesc(
-                        WomensCornerPost.PostStatus.APPROVED, top10).getContent();
-                result.put("womensCorner", wcPosts.stream().map(this::mapWomensCorner).toList());
-            }
-        } catch (Exception e) {
-            result.put("womensCorner", List.of());
-        }
+        loaders.put("womensCorner", () -> hasLocation
+                ? womensCornerPostRepository.findNearbyPosts(approvedStatus, lat, lng, queryRadius, CELL_FETCH_LIMIT, 0).stream()
+                        .filter(p -> Boolean.TRUE.equals(p.getIsPaid())).map(p -> Item.at(p.getLatitude(), p.getLongitude(), mapWomensCorner(p))).toList()
+                : womensCornerPostRepository.findByStatusAndIsPaidTrueOrderByCreatedAtDesc(
+                        WomensCornerPost.PostStatus.APPROVED, top10).getContent().stream().map(p -> Item.at(p.getLatitude(), p.getLongitude(), mapWomensCorner(p))).toList());
 
         // Local Shops - paid approved, nearby if location provided
-        try {
-            if (hasLocation) {
-                var lsPosts = localShopPostRepository.findNearbyPosts(approvedStatus, lat, lng, radius, 10, 0);
-                result.put("localShops", lsPosts.stream()
-                        .filter(p -> Boolean.TRUE.equals(p.getIsPaid()))
-                        .map(this::mapLocalShop).toList());
-            } else {
-                var lsPosts = localShopPostRepository.findByStatusAndIsPaidTrueOrderByCreatedAtDesc(
-                        LocalShopPost.PostStatus.APPROVED, top10).getContent();
-                result.put("localShops", lsPosts.stream().map(this::mapLocalShop).toList());
+        loaders.put("localShops", () -> hasLocation
+                ? localShopPostRepository.findNearbyPosts(approvedStatus, lat, lng, queryRadius, CELL_FETCH_LIMIT, 0).stream()
+                        .filter(p -> Boolean.TRUE.equals(p.getIsPaid())).map(p -> Item.at(p.getLatitude(), p.getLongitude(), mapLocalShop(p))).toList()
+                : localShopPostRepository.findByStatusAndIsPaidTrueOrderByCreatedAtDesc(
+                        LocalShopPost.PostStatus.APPROVED, top10).getContent().stream().map(p -> Item.at(p.getLatitude(), p.getLongitude(), mapLocalShop(p))).toList());
+
+        return loadSections(loaders);
+    }
+
+    /** Run every section concurrently; whatever isn't done by the deadline comes back empty. */
+    private Feed loadSections(Map<String, Supplier<List<Item>>> loaders) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadlineMillis);
+        Map<String, CompletableFuture<List<Item>>> pending = new LinkedHashMap<>();
+        loaders.forEach((section, loader) -> {
+            try {
+                pending.put(section, CompletableFuture.supplyAsync(
+                        () -> readOnlyTransaction.execute(status -> loader.get()), sectionLoader));
+            } catch (RejectedExecutionException e) {
+                pending.put(section, CompletableFuture.failedFuture(e));
             }
-        } catch (Exception e) {
-            result.put("localShops", List.of());
-        }
+        });
 
-        return result;
+        Map<String, List<Item>> sections = new LinkedHashMap<>();
+        boolean complete = true;
+        for (Map.Entry<String, CompletableFuture<List<Item>>> entry : pending.entrySet()) {
+            CompletableFuture<List<Item>> future = entry.getValue();
+            try {
+                long remaining = Math.max(0, deadline - System.nanoTime());
+                sections.put(entry.getKey(), future.get(remaining, TimeUnit.NANOSECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                sections.put(entry.getKey(), List.of());
+                complete = false;
+            } catch (Exception e) {
+                future.cancel(true);
+                log.warn("Featured feed section '{}' skipped: {}", entry.getKey(),
+                        e instanceof TimeoutException ? "missed the " + deadlineMillis + " ms deadline" : e.getMessage());
+                sections.put(entry.getKey(), List.of());
+                complete = false;
+            }
+        }
+        return new Feed(Collections.unmodifiableMap(sections), complete);
     }
 
     /**
      * Calculate Haversine distance between two points in km.
      */
-    private double haversineDistance(double lat1, double lng1, double lat2, double lng2) {
+    private static double haversineDistance(double lat1, double lng1, double lat2, double lng2) {
         double R = 6371.0; // Earth radius in km
         double dLat = Math.toRadians(lat2 - lat1);
         double dLng = Math.toRadians(lng2 - lng1);
@@ -222,6 +323,79 @@ public class FeaturedPostsService {
         return R * c;
     }
 
+    /** Cache key: geohash cell (empty without a location), its centre, and the radius rounded up to whole km. */
+    private record FeedKey(String cell, double latitude, double longitude, int radiusKm) {
+
+        static FeedKey of(Double lat, Double lng, double radius) {
+            int radiusKm = (int) Math.max(1, Math.ceil(radius));
+            if (lat == null || lng == null) {
+                return new FeedKey("", 0, 0, radiusKm);
+            }
+            // Geohash: interleave longitude/latitude bisections, 5 bits per character
+            double[] latRange = {-90, 90};
+            double[] lngRange = {-180, 180};
+            StringBuilder hash = new StringBuilder(GEOHASH_PRECISION);
+            boolean evenBit = true;
+            int bit = 0;
+            int ch = 0;
+            while (hash.length() < GEOHASH_PRECISION) {
+                double[] range = evenBit ? lngRange : latRange;
+                double value = evenBit ? lng : lat;
+                double mid = (range[0] + range[1]) / 2;
+                if (value >= mid) {
+                    ch = (ch << 1) | 1;
+                    range[0] = mid;
+                } else {
+                    ch = ch << 1;
+                    range[1] = mid;
+                }
+                evenBit = !evenBit;
+                if (++bit == 5) {
+                    hash.append(GEOHASH_BASE32.charAt(ch));
+                    bit = 0;
+                    ch = 0;
+                }
+            }
+            return new FeedKey(hash.toString(), (latRange[0] + latRange[1]) / 2, (lngRange[0] + lngRange[1]) / 2, radiusKm);
+        }
+
+        boolean hasLocation() {
+            return !cell.isEmpty();
+        }
+    }
+
+    /** One banner entry and where it is; no coordinates means it shows everywhere. */
+    private record Item(Double latitude, Double longitude, Map<String, Object> view) {
+
+        static Item at(BigDecimal latitude, BigDecimal longitude, Map<String, Object> view) {
+            return new Item(latitude != null ? latitude.doubleValue() : null,
+                    longitude != null ? longitude.doubleValue() : null, view);
+        }
+
+        static Item anywhere(Map<String, Object> view) {
+            return new Item(null, null, view);
+        }
+
+        boolean within(double lat, double lng, double radiusKm) {
+            return latitude == null || longitude == null
+                    || haversineDistance(lat, lng, latitude, longitude) <= radiusKm;
+        }
+    }
+
+    private record Feed(Map<String, List<Item>> sections, boolean complete) {
+
+        /** The cell's sections cut down to the caller's own circle (everything without a location). */
+        Map<String, Object> within(Double lat, Double lng, double radiusKm) {
+            Map<String, Object> view = new LinkedHashMap<>();
+            sections.forEach((section, items) -> view.put(section, items.stream()
+                    .filter(item -> lat == null || lng == null || item.within(lat, lng, radiusKm))
+                    .limit(SECTION_SIZE)
+                    .map(Item::view)
+                    .toList()));
+            return view;
+        }
+    }
+
     private Map<String, Object> mapMarketplace(MarketplacePost p) {
         Map<String, Object> m = new LinkedHashMap<>();
         m.put("id", p.getId());
@@ -353,7 +527,17 @@ public class FeaturedPostsService {
         return m;
     }
 
-    private Map<String, Object> mapPromotion(Promotion p) {
+    private List<Map<String, Object>> mapPromotions(List<Promotion> promotions) {
+        // Shop names for shop-specific promotions, in one query
+        Set<Long> shopIds = promotions.stream().map(Promotion::getShopId).filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<Long, String> shopNames = shopIds.isEmpty() ? Map.of()
+                : shopRepository.findAllById(shopIds).stream()
+                        .collect(Collectors.toMap(Shop::getId, Shop::getName, (first, second) -> first));
+        return promotions.stream().map(p -> mapPromotion(p, shopNames)).toList();
+    }
+
+    private Map<String, Object> mapPromotion(Promotion p, Map<Long, String> shopNames) {
         Map<String, Object> m = new LinkedHashMap<>();
         m.put("id", p.getId());
         m.put("title", p.getTitle());
@@ -366,12 +550,13 @@ public class FeaturedPostsService {
         m.put("imageUrl", p.getImageUrl());
         m.put("bannerUrl", p.getBannerUrl());
         m.put("endDate", p.getEndDate() != null ? p.getEndDate().toString() : null);
-        // Get shop name if shop-specific promotion
+        // Shop name if shop-specific promotion
         if (p.getShopId() != null) {
             m.put("shopId", p.getShopId());
-            try {
-                shopRepository.findById(p.getShopId()).ifPresent(shop -> m.put("shopName", shop.getName()));
-            } catch (Exception ignored) {}
+            String shopName = shopNames.get(p.getShopId());
+            if (shopName != null) {
+                m.put("shopName", shopName);
+            }
         }
         return m;
     }
@@ -27,6 +27,12 @@ public class FileUploadService {
     @Autowired
     private ImageContentModerationService contentModerationService;
 
+    @Autowired
+    private ImageDerivativeService imageDerivativeService;
+
+    @Autowired
+    private ContentStoreService contentStoreService;
+
     @Value("${file.upload.path:./uploads}")
     private String uploadPath;
 
@@ -36,25 +42,40 @@ public class FileUploadService {
     @Value("${file.upload.max-size:10485760}") // 10MB in bytes
     private long maxFileSize;
 
+    /**
+     * Stores an uploaded image in the content-addressed store: identical bytes
+     * uploaded again (the same photo on several posts or shops) share one file.
+     * The category only labels the log line now. Release with {@link #deleteFile}.
+     */
     public String uploadFile(MultipartFile file, String category) throws IOException {
         validateFile(file);
         contentModerationService.validateImageContent(file);
+        return store(file, category);
+    }
 
-        String fileName = generateFileName(file);
-        String categoryPath = category != null ? category + "/" : "";
-        Path uploadDir = Paths.get(uploadPath, categoryPath);
-
-        // Create directories if they don't exist
-        Files.createDirectories(uploadDir);
-
-        Path filePath = uploadDir.resolve(fileName);
-        Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
+    /**
+     * As {@link #uploadFile} for a post's image: a new image doesn't wait for
+     * moderation, the post is held for the verdict instead
+     * ({@link ImageModerationHoldService}).
+     */
+    public String uploadPostImage(MultipartFile file, String category) throws IOException {
+        validateFile(file);
+        contentModerationService.screenImageContent(file);
+        return store(file, category);
+    }
 
-        // Include /uploads prefix for proper serving
-        String fileUrl = "/uploads/" + categoryPath + fileName;
-        log.info("File uploaded successfully: {}", fileUrl);
+    private String store(MultipartFile file, String category) throws IOException {
+        ContentStoreService.StoredContent stored;
+        try (InputStream in = file.getInputStream()) {
+            stored = contentStoreService.store(in, getFileExtension(file.getOriginalFilename()));
+        }
+        if (!stored.duplicate()) {
+            imageDerivativeService.generateAsync(stored.path());
+        }
 
-        return fileUrl;
+        log.info("File uploaded successfully: {} ({}{})", stored.url(), category,
+                stored.duplicate() ? ", duplicate of an existing file" : "");
+        return stored.url();
     }
 
     /**
@@ -98,23 +119,7 @@ public class FileUploadService {
      * Upload combo banner image
      */
     public String uploadComboImage(MultipartFile file, Long shopId, Long comboId) throws IOException {
-        validateFile(file);
-        contentModerationService.validateImageContent(file);
-
-        String fileName = generateFileName(file);
-        String categoryPath = "combos/" + shopId + "/" + (comboId != null ? comboId : "temp") + "/";
-        Path uploadDir = Paths.get(uploadPath, categoryPath);
-
-        // Create directories if they don't exist
-        Files.createDirectories(uploadDir);
-
-        Path filePath = uploadDir.resolve(fileName);
-        Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
-
-        String fileUrl = "/uploads/" + categoryPath + fileName;
-        log.info("Combo image uploaded successfully: {}", fileUrl);
-
-        return fileUrl;
+        return uploadFile(file, "combos/" + shopId + "/" + (comboId != null ? comboId : "temp"));
     }
 
     /**
@@ -180,9 +185,14 @@ public class FileUploadService {
     }
 
     public boolean deleteFile(String fileUrl) {
+        if (contentStoreService.release(fileUrl)) {
+            log.info("File reference released: {}", fileUrl);
+            return true;
+        }
         try {
             Path filePath = Paths.get(uploadPath + fileUrl);
             boolean deleted = Files.deleteIfExists(filePath);
+            imageDerivativeService.deleteDerivatives(filePath);
             if (deleted) {
                 log.info("File deleted successfully: {}", fileUrl);
             } else {
@@ -217,12 +227,6 @@ public class FileUploadService {
         }
     }
 
-    private String generateFileName(MultipartFile file) {
-        String originalFileName = file.getOriginalFilename();
-        String extension = getFileExtension(originalFileName);
-        return UUID.randomUUID().toString() + "." + extension;
-    }
-
     private String getFileExtension(String fileName) {
         int lastDotIndex = fileName.lastIndexOf('.');
         if (lastDotIndex > 0 && lastDotIndex < fileName.length() - 1) {
@@ -3,25 +3,62 @@ package com.shopmanagement.service;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.shopmanagement.config.GeminiConfig;
+import com.shopmanagement.event.ImageModerationVerdictEvent;
 import com.shopmanagement.exception.ContentModerationException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.core.io.ByteArrayResource;
 import org.springframework.http.*;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.sql.Date;
 import java.time.Duration;
+import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Image content moderation service with multiple provider support.
  * Provider is controlled via admin setting: content.moderation.provider
  * Supported values: OFF, NUDENET, GEMINI
+ *
+ * An image whose verdict is already known, exactly or as a near-duplicate
+ * ({@link ImageModerationVerdictStore}), is blocked or passed on the spot.
+ * For anything else {@link #validateImageContent} waits for the provider, as
+ * uploads always did: shop logos, product, combo and banner images have
+ * nothing that could take them down later. Post images go through
+ * {@link #screenImageContent} instead: they are queued for a small worker
+ * pool and the upload goes ahead, while the post is held in PENDING_APPROVAL
+ * until the verdict arrives ({@link ImageModerationHoldService}).
+ *
+ * Provider calls are capped per day across all nodes
+ * (content.moderation.daily_budget, counted in image_moderation_budget).
+ * Images over the budget or dropped from a full queue get no verdict: waiting
+ * uploads go ahead (fail-open) and held posts stay with the admins.
  */
 @Slf4j
 @Service
@@ -29,12 +66,18 @@ public class ImageContentModerationService {
 
     private final GeminiConfig geminiConfig;
     private final SettingService settingService;
+    private final ImageModerationVerdictStore verdictStore;
+    private final ApplicationEventPublisher eventPublisher;
+    private final JdbcTemplate jdbcTemplate;
     private final RestTemplate restTemplate;
     private final ObjectMapper objectMapper = new ObjectMapper();
     private final AtomicInteger keyRotationCounter = new AtomicInteger(0);
 
     private static final long MAX_IMAGE_SIZE = 5 * 1024 * 1024; // 5MB
 
+    // Images are shrunk to this longest edge before they go to a provider
+    private static final int MODEL_MAX_EDGE = 768;
+
     private static final Set<String> IMAGE_CONTENT_TYPES = Set.of(
         "image/jpeg", "image/jpg", "image/png", "image/gif", "image/webp"
     );
@@ -59,27 +102,74 @@ public class ImageContentModerationService {
         "- UNSAFE if the image contains any of the above\n\n" +
         "Response:";
 
+    @Value("${content.moderation.workers:2}")
+    private int workers;
+
+    @Value("${content.moderation.queue-capacity:200}")
+    private int queueCapacity;
+
+    private ThreadPoolExecutor executor;
+    /** Content hashes queued or being checked, so the same image uploaded twice in a burst is sent once. */
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
     public ImageContentModerationService(GeminiConfig geminiConfig,
                                           SettingService settingService,
+                                          ImageModerationVerdictStore verdictStore,
+                                          ApplicationEventPublisher eventPublisher,
+                                          JdbcTemplate jdbcTemplate,
                                           RestTemplateBuilder restTemplateBuilder) {
         this.geminiConfig = geminiConfig;
         this.settingService = settingService;
+        this.verdictStore = verdictStore;
+        this.eventPublisher = eventPublisher;
+        this.jdbcTemplate = jdbcTemplate;
         this.restTemplate = restTemplateBuilder
                 .setConnectTimeout(Duration.ofSeconds(5))
                 .setReadTimeout(Duration.ofSeconds(10))
                 .build();
     }
 
+    @PostConstruct
+    void start() {
+        AtomicInteger counter = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "ImageModeration-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
     /**
      * Validate image content for appropriateness.
      * Provider is read from admin settings (content.moderation.provider).
-     * Throws ContentModerationException if image is flagged as inappropriate.
+     * Throws ContentModerationException if the image, or a near-duplicate of it,
+     * is inappropriate; an image not seen before is checked with the provider
+     * before this returns.
      */
     public void validateImageContent(MultipartFile file) {
+        check(file, true);
+    }
+
+    /**
+     * For post images, whose post is held until the verdict: as
+     * {@link #validateImageContent} for a known verdict, but an image not seen
+     * before is queued for the provider and allowed through.
+     */
+    public void screenImageContent(MultipartFile file) {
+        check(file, false);
+    }
+
+    private void check(MultipartFile file, boolean waitForVerdict) {
         String provider = getProvider();
 
-        if ("OFF".equalsIgnoreCase(provider)) {
-            log.debug("Content moderation is OFF, skipping check");
+        if (!isActive(provider)) {
+            log.debug("Content moderation [{}] is not active, skipping check", provider);
             return;
         }
 
@@ -94,28 +184,31 @@ public class ImageContentModerationService {
         }
 
         try {
-            log.info("Content moderation [{}] - file: {}, size: {} bytes",
-                    provider, file.getOriginalFilename(), file.getSize());
-
-            boolean isUnsafe;
-            if ("NUDENET".equalsIgnoreCase(provider)) {
-                isUnsafe = checkWithNudeNet(file);
-            } else if ("GEMINI".equalsIgnoreCase(provider)) {
-                isUnsafe = checkWithGemini(file);
-            } else {
-                log.warn("Unknown moderation provider '{}', skipping", provider);
+            byte[] bytes = file.getBytes();
+            ImageModerationVerdictStore.Fingerprint fingerprint = ImageModerationVerdictStore.fingerprint(bytes);
+            Optional<String> known = verdictStore.lookup(fingerprint);
+
+            if (known.isPresent()) {
+                if (ImageModerationVerdictStore.UNSAFE.equals(known.get())) {
+                    log.warn("Content moderation [{}] BLOCKED image: {} (known verdict)", provider, file.getOriginalFilename());
+                    throw new ContentModerationException(
+                        "Image contains inappropriate content and cannot be uploaded. " +
+                        "Please upload an appropriate image suitable for a public marketplace.");
+                }
+                log.debug("Content moderation [{}] PASSED for: {} (known verdict)", provider, file.getOriginalFilename());
                 return;
             }
 
-            if (isUnsafe) {
+            if (!waitForVerdict) {
+                submit(provider, fingerprint, bytes, file.getOriginalFilename(), file.getContentType());
+            } else if (Boolean.TRUE.equals(moderate(provider, fingerprint, bytes, file.getOriginalFilename(),
+                    file.getContentType()))) {
                 log.warn("Content moderation [{}] BLOCKED image: {}", provider, file.getOriginalFilename());
                 throw new ContentModerationException(
                     "Image contains inappropriate content and cannot be uploaded. " +
                     "Please upload an appropriate image suitable for a public marketplace.");
             }
 
-            log.info("Content moderation [{}] PASSED for: {}", provider, file.getOriginalFilename());
-
         } catch (ContentModerationException e) {
             throw e;
         } catch (Exception e) {
@@ -125,6 +218,105 @@ public class ImageContentModerationService {
         }
     }
 
+    /** Queues a provider check; never blocks. A dropped image simply gets no verdict. */
+    private void submit(String provider, ImageModerationVerdictStore.Fingerprint fingerprint,
+                        byte[] bytes, String filename, String contentType) {
+        if (!pending.add(fingerprint.sha256())) {
+            return;
+        }
+        if (!hasBudgetLeft()) {
+            pending.remove(fingerprint.sha256());
+            log.warn("Content moderation daily budget used up, {} left for manual review", filename);
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    moderate(provider, fingerprint, bytes, filename, contentType);
+                } finally {
+                    pending.remove(fingerprint.sha256());
+                }
+            });
+            log.info("Content moderation [{}] queued: {}, size: {} bytes", provider, filename, bytes.length);
+        } catch (RejectedExecutionException e) {
+            pending.remove(fingerprint.sha256());
+            log.warn("Content moderation queue full, {} left for manual review", filename);
+        }
+    }
+
+    /** Asks the provider and records the verdict. Null when there is none (budget used up, provider error). */
+    private Boolean moderate(String provider, ImageModerationVerdictStore.Fingerprint fingerprint,
+                             byte[] bytes, String filename, String contentType) {
+        try {
+            if (!consumeBudget()) {
+                log.warn("Content moderation daily budget used up, {} gets no verdict", filename);
+                return null;
+            }
+            byte[] image = downscaleForModel(bytes);
+            String mimeType = image == bytes && contentType != null ? contentType : "image/jpeg";
+
+            boolean isUnsafe = "NUDENET".equalsIgnoreCase(provider)
+                    ? checkWithNudeNet(image, filename)
+                    : checkWithGemini(image, mimeType);
+
+            verdictStore.record(fingerprint,
+                    isUnsafe ? ImageModerationVerdictStore.UNSAFE : ImageModerationVerdictStore.SAFE,
+                    provider.toUpperCase(Locale.ROOT));
+            if (isUnsafe) {
+                log.warn("Content moderation [{}] flagged image: {}", provider, filename);
+            } else {
+                log.info("Content moderation [{}] PASSED for: {}", provider, filename);
+            }
+            eventPublisher.publishEvent(new ImageModerationVerdictEvent(this, fingerprint.sha256(), isUnsafe));
+            return isUnsafe;
+
+        } catch (Exception e) {
+            log.error("Content moderation [{}] error for {}: {}", provider, filename, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Whether uploads are currently being moderated: a known provider is
+     * selected (and, for Gemini, enabled). While this is false new images get
+     * no verdict and posts are not held for one.
+     */
+    public boolean isActive() {
+        return isActive(getProvider());
+    }
+
+    private boolean isActive(String provider) {
+        if ("NUDENET".equalsIgnoreCase(provider)) {
+            return true;
+        }
+        if ("GEMINI".equalsIgnoreCase(provider)) {
+            return Boolean.TRUE.equals(geminiConfig.getEnabled());
+        }
+        if (!"OFF".equalsIgnoreCase(provider)) {
+            log.warn("Unknown moderation provider '{}', skipping", provider);
+        }
+        return false;
+    }
+
+    private boolean hasBudgetLeft() {
+        List<Integer> calls = jdbcTemplate.queryForList(
+                "SELECT calls FROM image_moderation_budget WHERE day = ?", Integer.class, Date.valueOf(LocalDate.now()));
+        return (calls.isEmpty() ? 0 : calls.get(0)) < getDailyBudget();
+    }
+
+    /** Counts one provider call against today's budget, shared by all nodes; false once it is used up. */
+    private boolean consumeBudget() {
+        int budget = getDailyBudget();
+        if (budget <= 0) {
+            return false;
+        }
+        return jdbcTemplate.update(
+                "INSERT INTO image_moderation_budget (day, calls) VALUES (?, 1) " +
+                "ON CONFLICT (day) DO UPDATE SET calls = image_moderation_budget.calls + 1 " +
+                "WHERE image_moderation_budget.calls < ?",
+                Date.valueOf(LocalDate.now()), budget) > 0;
+    }
+
     private String getProvider() {
         try {
             return settingService.getSettingValue("content.moderation.provider", "OFF");
@@ -135,12 +327,20 @@ public class ImageContentModerationService {
 
     private double getThreshold() {
         try {
-            return Double.parseDouble(settingService.getSettingValue("content.moderation.threshold", "0.6"));
+            return settingService.getDoubleValue("content.moderation.threshold", 0.6);
         } catch (Exception e) {
             return 0.6;
         }
     }
 
+    private int getDailyBudget() {
+        try {
+            return settingService.getIntValue("content.moderation.daily_budget", 1000);
+        } catch (Exception e) {
+            return 1000;
+        }
+    }
+
     private String getNudeNetUrl() {
         try {
             return settingService.getSettingValue("content.moderation.nudenet.url", "http://localhost:8085/classify");
@@ -157,7 +357,7 @@ public class ImageContentModerationService {
      * API: POST /classify with multipart file
      * Response: {"predictions": {"file": {"unsafe": 0.95, "safe": 0.05}}}
      */
-    private boolean checkWithNudeNet(MultipartFile file) throws Exception {
+    private boolean checkWithNudeNet(byte[] image, String filename) throws Exception {
         String nudeNetUrl = getNudeNetUrl();
         double threshold = getThreshold();
 
@@ -166,10 +366,10 @@ public class ImageContentModerationService {
 
         // Build multipart request
         MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
-        body.add("file", new ByteArrayResource(file.getBytes()) {
+        body.add("file", new ByteArrayResource(image) {
             @Override
             public String getFilename() {
-                return file.getOriginalFilename() != null ? file.getOriginalFilename() : "image.jpg";
+                return filename != null ? filename : "image.jpg";
             }
         });
 
@@ -229,15 +429,9 @@ public class ImageContentModerationService {
 
     // ==================== Gemini Provider ====================
 
-    private boolean checkWithGemini(MultipartFile file) throws Exception {
-        if (!geminiConfig.getEnabled()) {
-            log.warn("Gemini is disabled, skipping moderation");
-            return false;
-        }
-
-        String base64Image = Base64.getEncoder().encodeToString(file.getBytes());
-        String contentType = file.getContentType() != null ? file.getContentType() : "image/jpeg";
-        String verdict = callGeminiVisionAPI(base64Image, contentType);
+    private boolean checkWithGemini(byte[] image, String mimeType) {
+        String base64Image = Base64.getEncoder().encodeToString(image);
+        String verdict = callGeminiVisionAPI(base64Image, mimeType);
         return "UNSAFE".equalsIgnoreCase(verdict.trim());
     }
 
@@ -324,6 +518,54 @@ public class ImageContentModerationService {
 
     // ==================== Utilities ====================
 
+    /**
+     * Re-encodes the image as a JPEG of at most {@link #MODEL_MAX_EDGE}px, which
+     * is all a classifier looks at; returns the original bytes when it is small
+     * already or can't be decoded.
+     */
+    private byte[] downscaleForModel(byte[] bytes) {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(bytes))) {
+            Iterator<ImageReader> readers = input == null ? Collections.emptyIterator() : ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return bytes;
+            }
+            ImageReader reader = readers.next();
+            BufferedImage source;
+            try {
+                reader.setInput(input, true, true);
+                int longest = Math.max(reader.getWidth(0), reader.getHeight(0));
+                if (longest <= MODEL_MAX_EDGE) {
+                    return bytes;
+                }
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = Math.max(1, longest / (MODEL_MAX_EDGE * 2));
+                param.setSourceSubsampling(step, step, 0, 0);
+                source = reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+            double scale = (double) MODEL_MAX_EDGE / Math.max(source.getWidth(), source.getHeight());
+            int width = Math.max(1, (int) Math.round(source.getWidth() * Math.min(1.0, scale)));
+            int height = Math.max(1, (int) Math.round(source.getHeight() * Math.min(1.0, scale)));
+            BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g2d = scaled.createGraphics();
+            g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g2d.setColor(Color.WHITE);
+            g2d.fillRect(0, 0, width, height);
+            g2d.drawImage(source, 0, 0, width, height, null);
+            g2d.dispose();
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            if (!ImageIO.write(scaled, "jpg", out)) {
+                return bytes;
+            }
+            return out.toByteArray();
+        } catch (Exception e) {
+            log.debug("Could not downscale image for moderation: {}", e.getMessage());
+            return bytes;
+        }
+    }
+
     private boolean isImageFile(MultipartFile file) {
         String contentType = file.getContentType();
         if (contentType != null && IMAGE_CONTENT_TYPES.contains(contentType.toLowerCase())) {
@@ -0,0 +1,357 @@
+package com.shopmanagement.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Produces fixed-size derivatives of uploaded images (thumbnail, grid, detail)
+ * so list screens download a few kilobytes instead of the multi-megabyte original.
+ *
+ * Derivatives are written next to the original as {@code <name>_<size>.jpg}
+ * (plus {@code <name>_<size>.webp} when an ImageIO WebP writer is on the
+ * classpath), so stored image URLs stay unchanged and a size is picked by
+ * adding {@code ?size=} to them ({@link #variantUrl}).
+ * Encoding runs on a small bounded pool after the upload request has returned;
+ * when the queue is full the job is dropped and the size is generated again the
+ * first time it is requested ({@link #resolve}), so callers always fall back to
+ * the original until the derivative exists.
+ */
+@Slf4j
+@Service
+public class ImageDerivativeService {
+
+    public enum Size {
+        THUMB(160), GRID(480), DETAIL(1080);
+
+        private final int maxEdge;
+
+        Size(int maxEdge) {
+            this.maxEdge = maxEdge;
+        }
+
+        public int getMaxEdge() {
+            return maxEdge;
+        }
+
+        public String suffix() {
+            return "_" + name().toLowerCase(Locale.ROOT);
+        }
+
+        /** Parses a {@code ?size=} value; null or unknown means the original. */
+        public static Size fromParam(String value) {
+            if (value == null || value.isBlank()) {
+                return null;
+            }
+            for (Size size : values()) {
+                if (size.name().equalsIgnoreCase(value.trim())) {
+                    return size;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final Set<String> SOURCE_EXTENSIONS = Set.of("jpg", "jpeg", "png", "gif", "bmp", "webp");
+    private static final Set<String> DERIVATIVE_EXTENSIONS = Set.of("jpg", "webp");
+
+    @Value("${image.derivatives.enabled:true}")
+    private boolean enabled;
+
+    @Value("${image.derivatives.threads:2}")
+    private int threads;
+
+    @Value("${image.derivatives.queue-capacity:500}")
+    private int queueCapacity;
+
+    @Value("${image.derivatives.jpeg-quality:0.82}")
+    private float jpegQuality;
+
+    private ThreadPoolExecutor executor;
+    private boolean webpAvailable;
+    /** Originals with a generation job queued or running, so bursts don't encode the same file twice. */
+    private final Set<Path> pending = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    void start() {
+        AtomicInteger counter = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "ImageDerivative-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.NORM_PRIORITY - 1);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        webpAvailable = ImageIO.getImageWritersByFormatName("webp").hasNext();
+        log.info("Image derivatives: enabled={}, threads={}, queue={}, webp={}",
+                enabled, threads, queueCapacity, webpAvailable);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Queues derivative generation for a freshly stored original. Never blocks
+     * and never fails the upload: a full queue just defers the work to the first
+     * request for a size.
+     */
+    public void generateAsync(Path original) {
+        if (!enabled || !isSourceImage(original) || !pending.add(original)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    generate(original);
+                } finally {
+                    pending.remove(original);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pending.remove(original);
+            log.warn("Image derivative queue full, deferring {}", original.getFileName());
+        }
+    }
+
+    /**
+     * The file to serve for the requested size: the derivative when it exists
+     * (WebP when the client accepts it and one was produced), otherwise the
+     * original, with generation queued so the next request gets the derivative.
+     */
+    public Path resolve(Path original, Size size, boolean acceptsWebp) {
+        if (size == null || !enabled || !isSourceImage(original)) {
+            return original;
+        }
+        if (acceptsWebp) {
+            Path webp = derivativePath(original, size, "webp");
+            if (Files.isRegularFile(webp)) {
+                return webp;
+            }
+        }
+        Path jpeg = derivativePath(original, size, "jpg");
+        if (Files.isRegularFile(jpeg)) {
+            return jpeg;
+        }
+        if (Files.isRegularFile(original)) {
+            generateAsync(original);
+        }
+        return original;
+    }
+
+    /** Removes every derivative of an original; called when the original is deleted. */
+    public void deleteDerivatives(Path original) {
+        for (Size size : Size.values()) {
+            for (String extension : DERIVATIVE_EXTENSIONS) {
+                try {
+                    Files.deleteIfExists(derivativePath(original, size, extension));
+                } catch (IOException e) {
+                    log.warn("Could not delete {} derivative of {}: {}", size, original.getFileName(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * URL selecting a size of a stored image, e.g.
+     * {@code /uploads/shops/7/a1b2.png} -> {@code /uploads/shops/7/a1b2.png?size=grid}.
+     * Served by ImageServeController, which falls back to the original while
+     * the derivative is still being generated. External URLs are returned unchanged.
+     */
+    public static String variantUrl(String imageUrl, Size size) {
+        if (imageUrl == null || size == null || !imageUrl.startsWith("/uploads/") || imageUrl.contains("?")) {
+            return imageUrl;
+        }
+        return imageUrl + "?size=" + size.name().toLowerCase(Locale.ROOT);
+    }
+
+    static Path derivativePath(Path original, Size size, String extension) {
+        String fileName = original.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        String stem = dot > 0 ? fileName.substring(0, dot) : fileName;
+        return original.resolveSibling(stem + size.suffix() + "." + extension);
+    }
+
+    private static boolean isSourceImage(Path path) {
+        String fileName = path.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        if (dot <= 0) {
+            return false;
+        }
+        String stem = fileName.substring(0, dot);
+        for (Size size : Size.values()) {
+            if (stem.endsWith(size.suffix())) {
+                return false; // already a derivative
+            }
+        }
+        return SOURCE_EXTENSIONS.contains(fileName.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    private void generate(Path original) {
+        long start = System.currentTimeMillis();
+        try {
+            BufferedImage source = decode(original, Size.DETAIL.getMaxEdge());
+            if (source == null) {
+                log.debug("No ImageIO reader for {}, serving original only", original.getFileName());
+                return;
+            }
+            // Largest first, each size scaled from the previous one: cheaper and
+            // sharper than going from the full-size source every time
+            BufferedImage current = flatten(source);
+            for (int i = Size.values().length - 1; i >= 0; i--) {
+                Size size = Size.values()[i];
+                current = scaleToFit(current, size.getMaxEdge());
+                write(current, derivativePath(original, size, "jpg"), "jpg");
+                if (webpAvailable) {
+                    write(current, derivativePath(original, size, "webp"), "webp");
+                }
+            }
+            log.debug("Generated derivatives for {} in {}ms", original.getFileName(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.warn("Image derivative generation failed for {}: {}", original, e.getMessage());
+        }
+    }
+
+    /**
+     * Decodes the image, subsampling while reading by the largest power of two
+     * that still leaves targetEdge pixels on the long edge, so a 4000 px
+     * 12-megapixel photo is read at 2000 px and never held at full resolution.
+     */
+    private static BufferedImage decode(Path file, int targetEdge) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(file.toFile())) {
+            if (input == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int longEdge = Math.max(reader.getWidth(0), reader.getHeight(0));
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = 1;
+                while (longEdge / (step * 2) >= targetEdge) {
+                    step *= 2;
+                }
+                if (step > 1) {
+                    param.setSourceSubsampling(step, step, 0, 0);
+                }
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /** Opaque RGB copy; transparent areas of PNG/GIF logos become white rather than black in JPEG. */
+    private static BufferedImage flatten(BufferedImage image) {
+        if (image.getType() == BufferedImage.TYPE_INT_RGB) {
+            return image;
+        }
+        BufferedImage rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = rgb.createGraphics();
+        g2d.setColor(Color.WHITE);
+        g2d.fillRect(0, 0, image.getWidth(), image.getHeight());
+        g2d.drawImage(image, 0, 0, null);
+        g2d.dispose();
+        return rgb;
+    }
+
+    /**
+     * Fits the image within maxEdge, halving in bilinear steps before the final
+     * resize; a single bilinear pass over a large ratio drops most source pixels
+     * and aliases badly.
+     */
+    private static BufferedImage scaleToFit(BufferedImage image, int maxEdge) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int longEdge = Math.max(width, height);
+        if (longEdge <= maxEdge) {
+            return image;
+        }
+        int targetWidth = Math.max(1, (int) Math.round((double) width * maxEdge / longEdge));
+        int targetHeight = Math.max(1, (int) Math.round((double) height * maxEdge / longEdge));
+
+        BufferedImage current = image;
+        while (current.getWidth() / 2 >= targetWidth && current.getHeight() / 2 >= targetHeight) {
+            current = drawScaled(current, current.getWidth() / 2, current.getHeight() / 2);
+        }
+        if (current.getWidth() != targetWidth || current.getHeight() != targetHeight) {
+            current = drawScaled(current, targetWidth, targetHeight);
+        }
+        return current;
+    }
+
+    private static BufferedImage drawScaled(BufferedImage image, int width, int height) {
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = scaled.createGraphics();
+        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        g2d.drawImage(image, 0, 0, width, height, null);
+        g2d.dispose();
+        return scaled;
+    }
+
+    /** Writes to a temp file and moves it into place so readers never see a half-written derivative. */
+    private void write(BufferedImage image, Path target, String format) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(format);
+        if (!writers.hasNext()) {
+            return;
+        }
+        ImageWriter writer = writers.next();
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(temp.toFile())) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if (param.canWriteCompressed()) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                String[] types = param.getCompressionTypes();
+                if (types != null && types.length > 0 && param.getCompressionType() == null) {
+                    param.setCompressionType(types[0]);
+                }
+                param.setCompressionQuality(jpegQuality);
+            }
+            if (param.canWriteProgressive()) {
+                param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+            }
+            writer.write(null, new IIOImage(image, null, null), param);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        } finally {
+            writer.dispose();
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
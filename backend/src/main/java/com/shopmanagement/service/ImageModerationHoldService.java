@@ -0,0 +1,213 @@
+package com.shopmanagement.service;
+
+import com.shopmanagement.entity.FarmerProduct;
+import com.shopmanagement.entity.LabourPost;
+import com.shopmanagement.entity.LocalShopPost;
+import com.shopmanagement.entity.MarketplacePost;
+import com.shopmanagement.entity.ParcelServicePost;
+import com.shopmanagement.entity.RealEstatePost;
+import com.shopmanagement.entity.RentalPost;
+import com.shopmanagement.entity.TravelPost;
+import com.shopmanagement.entity.WomensCornerPost;
+import com.shopmanagement.event.ImageModerationVerdictEvent;
+import com.shopmanagement.event.PostChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps a post that would have been auto-approved in PENDING_APPROVAL while
+ * one of its images is still waiting for a background moderation verdict
+ * (table image_moderation_holds, see V101). The post is approved once every
+ * held image comes back SAFE and rejected as soon as one comes back UNSAFE.
+ *
+ * Verdicts normally arrive as {@link ImageModerationVerdictEvent}s; a periodic
+ * sweep also matches holds against recorded verdicts, which covers a verdict
+ * that landed before the hold was written or on another node. Holds whose
+ * verdict never arrives (provider down, daily budget used up) expire after
+ * content.moderation.hold-days and leave the post with the admins.
+ *
+ * Statuses are changed with JDBC, so {@link PostChangedEvent} is published
+ * here rather than by the entity listener.
+ */
+@Service
+@Slf4j
+public class ImageModerationHoldService {
+
+    public enum PostType {
+        MARKETPLACE("marketplace_posts", MarketplacePost.class),
+        FARMER("farmer_products", FarmerProduct.class),
+        LABOUR("labour_posts", LabourPost.class),
+        TRAVEL("travel_posts", TravelPost.class),
+        PARCEL("parcel_service_posts", ParcelServicePost.class),
+        RENTAL("rental_posts", RentalPost.class),
+        REAL_ESTATE("real_estate_posts", RealEstatePost.class),
+        WOMENS_CORNER("womens_corner_posts", WomensCornerPost.class),
+        LOCAL_SHOP("local_shop_posts", LocalShopPost.class);
+
+        private final String table;
+        private final Class<?> entityClass;
+
+        PostType(String table, Class<?> entityClass) {
+            this.table = table;
+            this.entityClass = entityClass;
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ImageModerationVerdictStore verdictStore;
+    private final ImageContentModerationService moderationService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${content.moderation.hold-days:7}")
+    private int holdDays;
+
+    public ImageModerationHoldService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                      ImageModerationVerdictStore verdictStore,
+                                      ImageContentModerationService moderationService,
+                                      ApplicationEventPublisher eventPublisher) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.verdictStore = verdictStore;
+        this.moderationService = moderationService;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Whether a post with these images (comma-separated URLs) must wait for a
+     * verdict before it can be auto-approved. Images from outside the content
+     * store predate moderation and don't hold a post.
+     */
+    public boolean awaitingVerdict(String imageUrls) {
+        if (imageUrls == null || imageUrls.isBlank() || !moderationService.isActive()) {
+            return false;
+        }
+        return !unresolved(imageUrls).isEmpty();
+    }
+
+    /**
+     * Records the holds for a post just saved as PENDING_APPROVAL because of
+     * {@link #awaitingVerdict}. Every stored image is held first and those
+     * whose verdict has landed since are resolved right away, so a verdict
+     * arriving in between can't leave the post pending with nothing to release it.
+     */
+    public void hold(PostType type, Long postId, String imageUrls) {
+        Set<String> images = storedImages(imageUrls);
+        for (String sha256 : images) {
+            jdbcTemplate.update(
+                    "INSERT INTO image_moderation_holds (post_type, post_id, sha256) VALUES (?, ?, ?) " +
+                    "ON CONFLICT DO NOTHING", type.name(), postId, sha256);
+        }
+        log.info("{} post {} held for moderation of {} image(s)", type, postId, images.size());
+        for (String sha256 : images) {
+            String verdict = verdictStore.verdictFor(sha256);
+            if (verdict != null) {
+                resolve(sha256, ImageModerationVerdictStore.UNSAFE.equals(verdict));
+            }
+        }
+    }
+
+    @EventListener
+    public void onVerdict(ImageModerationVerdictEvent event) {
+        try {
+            resolve(event.getSha256(), event.isUnsafe());
+        } catch (Exception e) {
+            // The sweep retries from the recorded verdict
+            log.warn("Could not resolve moderation holds for {}: {}", event.getSha256(), e.getMessage());
+        }
+    }
+
+    /** Every 10 minutes: resolve holds whose verdict was recorded without an event reaching this node, expire the rest. */
+    @Scheduled(fixedDelay = 600000, initialDelay = 120000)
+    public void sweep() {
+        List<Map<String, Object>> decided = jdbcTemplate.queryForList(
+                "SELECT DISTINCT h.sha256, v.verdict FROM image_moderation_holds h " +
+                "JOIN image_moderation_verdicts v ON v.sha256 = h.sha256");
+        for (Map<String, Object> row : decided) {
+            resolve(((String) row.get("sha256")).trim(), ImageModerationVerdictStore.UNSAFE.equals(row.get("verdict")));
+        }
+        int expired = jdbcTemplate.update("DELETE FROM image_moderation_holds WHERE created_at < ?",
+                Timestamp.valueOf(LocalDateTime.now().minusDays(holdDays)));
+        if (expired > 0) {
+            log.info("Expired {} moderation hold(s); those posts stay pending for admin review", expired);
+        }
+    }
+
+    private void resolve(String sha256, boolean unsafe) {
+        Set<PostType> changed = transactionTemplate.execute(status -> {
+            Set<PostType> types = EnumSet.noneOf(PostType.class);
+            List<Map<String, Object>> held = jdbcTemplate.queryForList(
+                    "DELETE FROM image_moderation_holds WHERE sha256 = ? RETURNING post_type, post_id", sha256);
+            for (Map<String, Object> row : held) {
+                PostType type = PostType.valueOf((String) row.get("post_type"));
+                long postId = ((Number) row.get("post_id")).longValue();
+                boolean updated;
+                if (unsafe) {
+                    jdbcTemplate.update("DELETE FROM image_moderation_holds WHERE post_type = ? AND post_id = ?",
+                            type.name(), postId);
+                    updated = setStatus(type, postId, "REJECTED");
+                    log.warn("{} post {} rejected: image flagged by moderation", type, postId);
+                } else {
+                    Integer remaining = jdbcTemplate.queryForObject(
+                            "SELECT COUNT(*) FROM image_moderation_holds WHERE post_type = ? AND post_id = ?",
+                            Integer.class, type.name(), postId);
+                    updated = remaining != null && remaining == 0 && setStatus(type, postId, "APPROVED");
+                }
+                if (updated) {
+                    types.add(type);
+                }
+            }
+            return types;
+        });
+        if (changed != null) {
+            for (PostType type : changed) {
+                eventPublisher.publishEvent(new PostChangedEvent(this, type.entityClass,
+                        PostChangedEvent.Change.UPDATED, true, null, null));
+            }
+        }
+    }
+
+    /** Only moves a post still waiting; an admin may have decided it in the meantime. */
+    private boolean setStatus(PostType type, long postId, String status) {
+        return jdbcTemplate.update("UPDATE " + type.table + " SET status = ?, updated_at = ? " +
+                        "WHERE id = ? AND status = 'PENDING_APPROVAL'",
+                status, Timestamp.valueOf(LocalDateTime.now()), postId) > 0;
+    }
+
+    /** Content hashes of the stored images in the list that have no verdict yet. */
+    private Set<String> unresolved(String imageUrls) {
+        Set<String> waiting = storedImages(imageUrls);
+        waiting.removeIf(sha256 -> verdictStore.verdictFor(sha256) != null);
+        return waiting;
+    }
+
+    /** Content hashes of the content-store images in the list. */
+    private static Set<String> storedImages(String imageUrls) {
+        Set<String> images = new LinkedHashSet<>();
+        if (imageUrls == null) {
+            return images;
+        }
+        for (String url : imageUrls.split(",")) {
+            String sha256 = ContentStoreService.sha256Of(url);
+            if (sha256 != null) {
+                images.add(sha256);
+            }
+        }
+        return images;
+    }
+}
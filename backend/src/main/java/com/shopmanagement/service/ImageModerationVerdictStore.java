@@ -0,0 +1,234 @@
+package com.shopmanagement.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Moderation verdicts by image content (table image_moderation_verdicts, see
+ * V101). An exact re-upload is matched by SHA-256; a near-duplicate (the same
+ * photo re-encoded, resized or lightly recompressed) by the Hamming distance
+ * between 64-bit difference hashes.
+ *
+ * Recent perceptual hashes are kept in memory for the near-duplicate scan
+ * (a linear XOR/popcount pass, well under a millisecond for the default
+ * capacity) and topped up every few minutes with verdicts recorded by other
+ * nodes.
+ */
+@Service
+@Slf4j
+public class ImageModerationVerdictStore {
+
+    public static final String SAFE = "SAFE";
+    public static final String UNSAFE = "UNSAFE";
+
+    /** Content hash, plus the perceptual hash when the image could be decoded. */
+    public record Fingerprint(String sha256, Long phash) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${content.moderation.phash-max-distance:6}")
+    private int maxDistance;
+
+    @Value("${content.moderation.phash-index-size:100000}")
+    private int indexCapacity;
+
+    private final Cache<String, String> bySha256 = Caffeine.newBuilder()
+            .maximumSize(50_000)
+            .build();
+
+    // Ring buffer of (phash, unsafe); the oldest entries are overwritten once full
+    private long[] hashes;
+    private boolean[] unsafeFlags;
+    private int indexSize;
+    private int nextSlot;
+    private volatile Timestamp loadedUntil;
+
+    public ImageModerationVerdictStore(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    void loadIndex() {
+        hashes = new long[indexCapacity];
+        unsafeFlags = new boolean[indexCapacity];
+        try {
+            loadedUntil = new Timestamp(0);
+            refreshIndex();
+            log.info("Image moderation: {} perceptual hashes indexed", indexSize);
+        } catch (Exception e) {
+            log.warn("Image moderation: could not load verdict index: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Picks up verdicts recorded on other nodes since the last load. The window
+     * overlaps the previous one so rows committed late aren't missed; indexing a
+     * hash twice is harmless.
+     */
+    @Scheduled(fixedDelay = 300000, initialDelay = 300000)
+    public void refreshIndex() {
+        Timestamp since = loadedUntil;
+        Timestamp started = Timestamp.valueOf(LocalDateTime.now().minusMinutes(2));
+        jdbcTemplate.query(
+                "SELECT phash, verdict FROM image_moderation_verdicts " +
+                "WHERE phash IS NOT NULL AND provider <> 'PHASH' AND created_at >= ? " +
+                "ORDER BY created_at DESC LIMIT ?",
+                rs -> {
+                    index(rs.getLong("phash"), UNSAFE.equals(rs.getString("verdict")));
+                }, since, indexCapacity);
+        loadedUntil = started;
+    }
+
+    public static Fingerprint fingerprint(byte[] image) {
+        return new Fingerprint(sha256(image), differenceHash(image));
+    }
+
+    /**
+     * Verdict for an exact or near-duplicate earlier image. A near-duplicate hit
+     * is recorded under the new image's own hash, so later exact lookups (and
+     * {@link #verdictFor}) find it directly.
+     */
+    public Optional<String> lookup(Fingerprint fingerprint) {
+        String exact = verdictFor(fingerprint.sha256());
+        if (exact != null) {
+            return Optional.of(exact);
+        }
+        if (fingerprint.phash() == null) {
+            return Optional.empty();
+        }
+        String near = nearest(fingerprint.phash());
+        if (near != null) {
+            record(fingerprint, near, "PHASH");
+        }
+        return Optional.ofNullable(near);
+    }
+
+    /** Verdict recorded for these exact bytes, or null when they haven't been checked. */
+    public String verdictFor(String sha256) {
+        String cached = bySha256.getIfPresent(sha256);
+        if (cached != null) {
+            return cached;
+        }
+        List<String> verdicts = jdbcTemplate.queryForList(
+                "SELECT verdict FROM image_moderation_verdicts WHERE sha256 = ?", String.class, sha256);
+        if (verdicts.isEmpty()) {
+            return null;
+        }
+        bySha256.put(sha256, verdicts.get(0));
+        return verdicts.get(0);
+    }
+
+    public void record(Fingerprint fingerprint, String verdict, String provider) {
+        jdbcTemplate.update(
+                "INSERT INTO image_moderation_verdicts (sha256, phash, verdict, provider) VALUES (?, ?, ?, ?) " +
+                "ON CONFLICT (sha256) DO UPDATE SET verdict = EXCLUDED.verdict, provider = EXCLUDED.provider",
+                fingerprint.sha256(), fingerprint.phash(), verdict, provider);
+        bySha256.put(fingerprint.sha256(), verdict);
+        if (fingerprint.phash() != null && !"PHASH".equals(provider)) {
+            index(fingerprint.phash(), UNSAFE.equals(verdict));
+        }
+    }
+
+    private synchronized void index(long phash, boolean unsafe) {
+        hashes[nextSlot] = phash;
+        unsafeFlags[nextSlot] = unsafe;
+        nextSlot = (nextSlot + 1) % hashes.length;
+        indexSize = Math.min(indexSize + 1, hashes.length);
+    }
+
+    /** Verdict of the closest indexed hash within the distance limit; UNSAFE wins a tie. */
+    private synchronized String nearest(long phash) {
+        int best = maxDistance + 1;
+        boolean bestUnsafe = false;
+        for (int i = 0; i < indexSize; i++) {
+            int distance = Long.bitCount(hashes[i] ^ phash);
+            if (distance < best || (distance == best && unsafeFlags[i])) {
+                best = distance;
+                bestUnsafe = unsafeFlags[i];
+            }
+        }
+        if (best > maxDistance) {
+            return null;
+        }
+        return bestUnsafe ? UNSAFE : SAFE;
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * dHash: shrink to 9x8 greyscale and set one bit per pixel that is brighter
+     * than its right-hand neighbour. Survives resizing, recompression and small
+     * colour changes; null when ImageIO has no reader for the format.
+     */
+    private static Long differenceHash(byte[] image) {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(image))) {
+            if (input == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            BufferedImage source;
+            try {
+                reader.setInput(input, true, true);
+                // Decode at roughly 64px: plenty for a 9x8 hash, and cheap for large photos
+                int step = Math.max(1, Math.min(reader.getWidth(0), reader.getHeight(0)) / 64);
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                source = reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+            BufferedImage grey = new BufferedImage(9, 8, BufferedImage.TYPE_BYTE_GRAY);
+            Graphics2D g2d = grey.createGraphics();
+            g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g2d.drawImage(source, 0, 0, 9, 8, null);
+            g2d.dispose();
+
+            long hash = 0;
+            for (int y = 0; y < 8; y++) {
+                for (int x = 0; x < 8; x++) {
+                    int left = grey.getRaster().getSample(x, y, 0);
+                    int right = grey.getRaster().getSample(x + 1, y, 0);
+                    hash = (hash << 1) | (left > right ? 1 : 0);
+                }
+            }
+            return hash;
+        } catch (Exception e) {
+            log.debug("Could not compute perceptual hash: {}", e.getMessage());
+            return null;
+        }
+    }
+}
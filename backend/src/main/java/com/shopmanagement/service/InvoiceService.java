@@ -11,9 +11,6 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
@@ -29,14 +26,11 @@ public class InvoiceService {
     private final OrderRepository orderRepository;
     private final EmailService emailService;
     private final WhatsAppNotificationService whatsAppNotificationService;
-    private final BillPdfService billPdfService;
+    private final BillArtifactService billArtifactService;
 
     @Value("${app.frontend.url:https://nammaooru.com}")
     private String frontendUrl;
 
-    @Value("${app.upload.dir:./uploads}")
-    private String uploadDir;
-
     @Value("${app.api.base-url:https://api.nammaoorudelivary.in}")
     private String apiBaseUrl;
 
@@ -133,7 +127,7 @@ public class InvoiceService {
 
             byte[] pdfBytes = null;
             try {
-                pdfBytes = billPdfService.generateBillPdf(order);
+                pdfBytes = billArtifactService.artifactsFor(order).pdfBytes();
             } catch (Exception e) {
                 log.error("Failed to generate invoice PDF for order: {} — sending email without attachment", orderId, e);
             }
@@ -173,24 +167,19 @@ public class InvoiceService {
             // Reuse the approved bill_receipt template (the "invoice" template referenced
             // here previously was never created in MSG91/Meta and always failed) — and the
             // same inline-image-first pattern as the POS bill send, so a delivered order's
-            // WhatsApp bill looks identical to the one sent from POS billing.
-            byte[] pdfBytes = billPdfService.generateBillPdf(order);
-            Path billsDir = Paths.get(uploadDir, "bills");
-            Files.createDirectories(billsDir);
+            // WhatsApp bill looks identical to the one sent from POS billing. Like POS
+            // bill links, the invoice link lasts app.bills.retention-days from the last send.
+            BillArtifactService.BillArtifacts bill = billArtifactService.artifactsFor(order);
             String fileName = "invoice_" + order.getOrderNumber() + ".pdf";
-            Files.write(billsDir.resolve(fileName), pdfBytes);
-            String pdfUrl = apiBaseUrl + "/uploads/bills/" + fileName;
+            String pdfUrl = apiBaseUrl + bill.pdfUrl();
 
             String customerName = order.getCustomer().getFullName();
             String shopName = order.getShop().getName();
             String amount = String.format("%.2f", order.getTotalAmount());
 
             boolean sent = false;
-            byte[] jpegBytes = billPdfService.renderBillJpeg(pdfBytes, order.getOrderNumber());
-            if (jpegBytes != null) {
-                String imgFileName = "invoice_" + order.getOrderNumber() + ".jpg";
-                Files.write(billsDir.resolve(imgFileName), jpegBytes);
-                String imgUrl = apiBaseUrl + "/uploads/bills/" + imgFileName;
+            if (bill.hasImage()) {
+                String imgUrl = apiBaseUrl + bill.imageUrl();
                 sent = whatsAppNotificationService.sendBillImage(
                         customerMobile, customerName, shopName, order.getOrderNumber(), amount, imgUrl);
                 if (!sent) {
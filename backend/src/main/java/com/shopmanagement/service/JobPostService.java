@@ -46,7 +46,7 @@ public class JobPostService {
 
         globalPostLimitService.checkGlobalPostLimit(user.getId(), null);
 
-        int postLimit = Integer.parseInt(settingService.getSettingValue("jobs.free_post_limit", "3"));
+        int postLimit = settingService.getIntValue("jobs.free_post_limit", 3);
         if (postLimit > 0) {
             List<PostStatus> activeStatuses = List.of(PostStatus.PENDING_APPROVAL, PostStatus.APPROVED);
             long activeCount = jobPostRepository.countBySellerUserIdAndStatusIn(user.getId(), activeStatuses);
@@ -80,7 +80,7 @@ public class JobPostService {
             }
         }
 
-        int expiryDays = Integer.parseInt(settingService.getSettingValue("jobs.expiry_days", "30"));
+        int expiryDays = settingService.getIntValue("jobs.expiry_days", 30);
 
         JobPost post = JobPost.builder()
                 .jobTitle(jobTitle)
@@ -168,7 +168,7 @@ public class JobPostService {
                 .orElseThrow(() -> new RuntimeException("Job post not found"));
         post.setStatus(PostStatus.APPROVED);
         post.setValidFrom(LocalDateTime.now());
-        int expiryDays = Integer.parseInt(settingService.getSettingValue("jobs.expiry_days", "30"));
+        int expiryDays = settingService.getIntValue("jobs.expiry_days", 30);
         post.setValidTo(LocalDateTime.now().plusDays(expiryDays));
         return jobPostRepository.save(post);
     }
@@ -1,5 +1,6 @@
 package com.shopmanagement.service;
 
+import com.shopmanagement.entity.User;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
@@ -15,6 +16,10 @@ import java.util.function.Function;
 @Service
 public class JwtService {
 
+    /** Signed claims that let JwtAuthenticationFilter authenticate without a user lookup. */
+    public static final String CLAIM_ROLE = "role";
+    public static final String CLAIM_USER_ID = "uid";
+
     @Value("${jwt.secret}")
     private String secretKey;
 
@@ -31,7 +36,12 @@ public class JwtService {
     }
 
     public String generateToken(UserDetails userDetails) {
-        return generateToken(new HashMap<>(), userDetails);
+        Map<String, Object> claims = new HashMap<>();
+        if (userDetails instanceof User user && user.getRole() != null) {
+            claims.put(CLAIM_ROLE, user.getRole().name());
+            claims.put(CLAIM_USER_ID, user.getId());
+        }
+        return generateToken(claims, userDetails);
     }
 
     public String generateToken(Map<String, Object> extraClaims, UserDetails userDetails) {
@@ -66,6 +76,14 @@ public class JwtService {
         return extractClaim(token, Claims::getExpiration);
     }
 
+    /**
+     * Verifies the signature and expiry once and returns every claim.
+     * Throws the same jjwt exceptions as {@link #extractUsername(String)}.
+     */
+    public Claims parseVerifiedClaims(String token) {
+        return extractAllClaims(token);
+    }
+
     private Claims extractAllClaims(String token) {
         return Jwts
                 .parser()
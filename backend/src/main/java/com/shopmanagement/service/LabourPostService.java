@@ -46,6 +46,7 @@ public class LabourPostService {
     private final GlobalPostLimitService globalPostLimitService;
     private final ObjectMapper objectMapper;
     private final PostSubscriptionService postSubscriptionService;
+    private final ImageModerationHoldService imageModerationHoldService;
 
     @Transactional
     public LabourPost createPost(String name, String phone, String categoryStr,
@@ -93,7 +94,7 @@ public class LabourPostService {
             List<String> uploadedUrls = new ArrayList<>();
             for (MultipartFile image : images) {
                 if (image != null && !image.isEmpty()) {
-                    uploadedUrls.add(fileUploadService.uploadFile(image, "labours"));
+                    uploadedUrls.add(fileUploadService.uploadPostImage(image, "labours"));
                 }
             }
             if (!uploadedUrls.isEmpty()) {
@@ -101,8 +102,10 @@ public class LabourPostService {
             }
         }
 
-        boolean autoApprove = Boolean.parseBoolean(
-                settingService.getSettingValue("labour.post.auto_approve", "false"));
+        boolean autoApprove = settingService.getBooleanValue("labour.post.auto_approve", false);
+        // A new image still waiting for its moderation verdict keeps the post pending until it arrives
+        boolean heldForModeration = autoApprove && imageModerationHoldService.awaitingVerdict(imageUrls);
+        autoApprove = autoApprove && !heldForModeration;
 
         LabourPost post = LabourPost.builder()
                 .name(name)
@@ -122,8 +125,7 @@ public class LabourPostService {
                 .build();
 
         // Set validity dates
-        int durationDays = Integer.parseInt(
-                settingService.getSettingValue("labour.post.duration_days", "30"));
+        int durationDays = settingService.getIntValue("labour.post.duration_days", 30);
         post.setValidFrom(LocalDateTime.now());
         if (durationDays > 0) {
             post.setValidTo(LocalDateTime.now().plusDays(durationDays));
@@ -141,6 +143,9 @@ public class LabourPostService {
         }
 
         LabourPost saved = labourPostRepository.save(post);
+        if (heldForModeration) {
+            imageModerationHoldService.hold(ImageModerationHoldService.PostType.LABOUR, saved.getId(), imageUrls);
+        }
 
         // Consume paid token if used
         if (paidTokenId != null) {
@@ -172,7 +177,7 @@ public class LabourPostService {
         List<PostStatus> visibleStatuses = getVisibleStatuses();
 
         if (lat != null && lng != null) {
-            double radius = (radiusKm != null) ? radiusKm : Double.parseDouble(settingService.getSettingValue("post.default_radius_km", "10"));
+            double radius = (radiusKm != null) ? radiusKm : settingService.getDoubleValue("post.default_radius_km", 10);
             String[] statuses = visibleStatuses.stream().map(Enum::name).toArray(String[]::new);
             int limit = pageable.getPageSize();
             int offset = (int) pageable.getOffset();
@@ -200,7 +205,7 @@ public class LabourPostService {
         }
 
         if (lat != null && lng != null) {
-            double radius = (radiusKm != null) ? radiusKm : Double.parseDouble(settingService.getSettingValue("post.default_radius_km", "10"));
+            double radius = (radiusKm != null) ? radiusKm : settingService.getDoubleValue("post.default_radius_km", 10);
             String[] statuses = visibleStatuses.stream().map(Enum::name).toArray(String[]::new);
             int limit = pageable.getPageSize();
             int offset = (int) pageable.getOffset();
@@ -389,8 +394,7 @@ public class LabourPostService {
         int newCount = (post.getReportCount() != null ? post.getReportCount() : 0) + 1;
         post.setReportCount(newCount);
 
-        int reportThreshold = Integer.parseInt(
-                settingService.getSettingValue("labour.post.report_threshold", "3"));
+        int reportThreshold = settingService.getIntValue("labour.post.report_threshold", 3);
         if (newCount >= reportThreshold && post.getStatus() == PostStatus.APPROVED) {
             post.setStatus(PostStatus.FLAGGED);
             log.warn("Labour post auto-flagged due to {} reports: id={}, name={}", newCount, postId, post.getName());
@@ -481,8 +485,7 @@ public class LabourPostService {
             postPaymentService.consumeToken(paidTokenId, user.getId(), post.getId());
         }
 
-        int durationDays = Integer.parseInt(
-                settingService.getSettingValue("labour.post.duration_days", "30"));
+        int durationDays = settingService.getIntValue("labour.post.duration_days", 30);
 
         post.setValidFrom(LocalDateTime.now());
         if (durationDays > 0) {
@@ -574,8 +577,7 @@ public class LabourPostService {
     }
 
     private LocalDateTime getCutoffDate() {
-        int durationDays = Integer.parseInt(
-                settingService.getSettingValue("labour.post.duration_days", "30"));
+        int durationDays = settingService.getIntValue("labour.post.duration_days", 30);
         if (durationDays <= 0) {
             return null;
         }
@@ -600,8 +602,7 @@ public class LabourPostService {
                 return;
             }
 
-            double radiusKm = Double.parseDouble(
-                    settingService.getSettingValue("notification.radius_km", "50"));
+            double radiusKm = settingService.getDoubleValue("notification.radius_km", 50);
 
             List<User> nearbyCustomers = userRepository.findNearbyCustomers(lat, lng, radiusKm);
             if (nearbyCustomers.isEmpty()) return;
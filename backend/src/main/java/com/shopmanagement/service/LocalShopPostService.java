@@ -43,6 +43,7 @@ public class LocalShopPostService {
     private final GlobalPostLimitService globalPostLimitService;
     private final ObjectMapper objectMapper;
     private final PostSubscriptionService postSubscriptionService;
+    private final ImageModerationHoldService imageModerationHoldService;
 
     @Transactional
     public LocalShopPost createPost(String shopName, String phone, String categoryStr,
@@ -81,7 +82,7 @@ public class LocalShopPostService {
             List<String> uploadedUrls = new ArrayList<>();
             for (MultipartFile image : images) {
                 if (image != null && !image.isEmpty()) {
-                    uploadedUrls.add(fileUploadService.uploadFile(image, "local-shops"));
+                    uploadedUrls.add(fileUploadService.uploadPostImage(image, "local-shops"));
                 }
             }
             if (!uploadedUrls.isEmpty()) {
@@ -89,8 +90,10 @@ public class LocalShopPostService {
             }
         }
 
-        boolean autoApprove = Boolean.parseBoolean(
-                settingService.getSettingValue("local_shops.post.auto_approve", "false"));
+        boolean autoApprove = settingService.getBooleanValue("local_shops.post.auto_approve", false);
+        // A new image still waiting for its moderation verdict keeps the post pending until it arrives
+        boolean heldForModeration = autoApprove && imageModerationHoldService.awaitingVerdict(imageUrls);
+        autoApprove = autoApprove && !heldForModeration;
 
         LocalShopPost post = LocalShopPost.builder()
                 .shopName(shopName)
@@ -109,8 +112,7 @@ public class LocalShopPostService {
                 .featured(isBanner)
                 .build();
 
-        int durationDays = Integer.parseInt(
-                settingService.getSettingValue("local_shops.post.duration_days", "60"));
+        int durationDays = settingService.getIntValue("local_shops.post.duration_days", 60);
         post.setValidFrom(LocalDateTime.now());
         if (durationDays > 0) {
             post.setValidTo(LocalDateTime.now().plusDays(durationDays));
@@ -126,6 +128,9 @@ public class LocalShopPostService {
         }
 
         LocalShopPost saved = localShopPostRepository.save(post);
+        if (heldForModeration) {
+            imageModerationHoldService.hold(ImageModerationHoldService.PostType.LOCAL_SHOP, saved.getId(), imageUrls);
+        }
 
         if (paidTokenId != null) {
             postPaymentService.consumeToken(paidTokenId, user.getId(), saved.getId());
@@ -156,7 +161,7 @@ public class LocalShopPostService {
         List<PostStatus> visibleStatuses = getVisibleStatuses();
 
         if (lat != null && lng != null) {
-            double radius = (radiusKm != null) ? radiusKm : Double.parseDouble(settingService.getSettingValue("post.default_radius_km", "10"));
+            double radius = (radiusKm != null) ? radiusKm : settingService.getDoubleValue("post.default_radius_km", 10);
             String[] statuses = visibleStatuses.stream().map(Enum::name).toArray(String[]::new);
             int limit = pageable.getPageSize();
             int offset = (int) pageable.getOffset();
@@ -184,7 +189,7 @@ public class LocalShopPostService {
         }
 
         if (lat != null && lng != null) {
-            double radius = (radiusKm != null) ? radiusKm : Double.parseDouble(settingService.getSettingValue("post.default_radius_km", "10"));
+            double radius = (radiusKm != null) ? radiusKm : settingService.getDoubleValue("post.default_radius_km", 10);
             String[] statuses = visibleStatuses.stream().map(Enum::name).toArray(String[]::new);
             int limit = pageable.getPageSize();
             int offset = (int) pageable.getOffset();
@@ -339,8 +344,7 @@ public class LocalShopPostService {
         int newCount = (post.getReportCount() != null ? post.getReportCount() : 0) + 1;
         post.setReportCount(newCount);
 
-        int reportThreshold = Integer.parseInt(
-                settingService.getSettingValue("local_shops.post.report_threshold", "3"));
+        int reportThreshold = settingService.getIntValue("local_shops.post.report_threshold", 3);
         if (newCount >= reportThreshold && post.getStatus() == PostStatus.APPROVED) {
             post.setStatus(PostStatus.FLAGGED);
             notifyAdminsFlaggedPost(post, newCount);
@@ -424,8 +428,7 @@ public class LocalShopPostService {
             }
             postPaymentService.consumeToken(paidTokenId, user.getId(), post.getId());
         }
-        int durationDays = Integer.parseInt(
-                settingService.getSettingValue("local_shops.post.duration_days", "60"));
+        int durationDays = settingService.getIntValue("local_shops.post.duration_days", 60);
         post.setValidFrom(LocalDateTime.now());
         if (durationDays > 0) {
             post.setValidTo(LocalDateTime.now().plusDays(durationDays));
@@ -448,8 +451,7 @@ public class LocalShopPostService {
     }
 
     private LocalDateTime getCutoffDate() {
-        int durationDays = Integer.parseInt(
-                settingService.getSettingValue("local_shops.post.duration_days", "60"));
+        int durationDays = settingService.getIntValue("local_shops.post.duration_days", 60);
         if (durationDays <= 0) return null;
         return LocalDateTime.now().minusDays(durationDays);
     }
@@ -524,7 +526,7 @@ public class LocalShopPostService {
             }
             if (lat == null || lng == null) return;
 
-            double radiusKm = Double.parseDouble(settingService.getSettingValue("notification.radius_km", "50"));
+            double radiusKm = settingService.getDoubleValue("notification.radius_km", 50);
             List<User> nearbyCustomers = userRepository.findNearbyCustomers(lat, lng, radiusKm);
             if (nearbyCustomers.isEmpty()) return;
 
@@ -43,6 +43,7 @@ public class MarketplaceService {
     private final PostPaymentService postPaymentService;
     private final GlobalPostLimitService globalPostLimitService;
     private final PostSubscriptionService postSubscriptionService;
+    private final ImageModerationHoldService imageModerationHoldService;
     private final ObjectMapper objectMapper;
 
     @Transactional
@@ -81,7 +82,7 @@ public class MarketplaceService {
 
         String imageUrl = null;
         if (image != null && !image.isEmpty()) {
-            imageUrl = fileUploadService.uploadFile(image, "marketplace");
+            imageUrl = fileUploadService.uploadPostImage(image, "marketplace");
         }
 
         String voiceUrl = null;
@@ -89,8 +90,10 @@ public class MarketplaceService {
             voiceUrl = fileUploadService.uploadVoiceFile(voice, "marketplace/voice");
         }
 
-        boolean autoApprove = Boolean.parseBoolean(
-                settingService.getSettingValue("marketplace.post.auto_approve", "false"));
+        boolean autoApprove = settingService.getBooleanValue("marketplace.post.auto_approve", false);
+        // A new image still waiting for its moderation verdict keeps the post pending until it arrives
+        boolean heldForModeration = autoApprove && imageModerationHoldService.awaitingVerdict(imageUrl);
+        autoApprove = autoApprove && !heldForModeration;
 
         MarketplacePost post = MarketplacePost.builder()
                 .title(title)
@@ -111,8 +114,7 @@ public class MarketplaceService {
                 .build();
 
         // Set validity dates
-        int durationDays = Integer.parseInt(
-                settingService.getSettingValue("marketplace.post.duration_days", "30"));
+        int durationDays = settingService.getIntValue("marketplace.post.duration_days", 30);
         post.setValidFrom(LocalDateTime.now());
         if (durationDays > 0) {
             post.setValidTo(LocalDateTime.now().plusDays(durationDays));
@@ -130,6 +132,9 @@ public class MarketplaceService {
         }
 
         MarketplacePost saved = marketplacePostRepository.save(post);
+        if (heldForModeration) {
+            imageModerationHoldService.hold(ImageModerationHoldService.PostType.MARKETPLACE, saved.getId(), imageUrl);
+        }
 
         // Consume paid token if used
         if (paidTokenId != null) {
@@ -162,7 +167,7 @@ public class MarketplaceService {
         List<PostStatus> visibleStatuses = getVisibleStatuses();
 
         if (lat != null && lng != null) {
-            double radius = (radiusKm != null) ? radiusKm : Double.parseDouble(settingService.getSettingValue("post.default_radius_km", "10"));
+            double radius = (radiusKm != null) ? radiusKm : settingService.getDoubleValue("post.default_radius_km", 10);
             String[] statuses = visibleStatuses.stream().map(Enum::name).toArray(String[]::new);
             int limit = pageable.getPageSize();
             int offset = (int) pageable.getOffset();
@@ -183,7 +188,7 @@ public class MarketplaceService {
         List<PostStatus> visibleStatuses = getVisibleStatuses();
 
         if (lat != null && lng != null) {
-            double radius = (radiusKm != null) ? radiusKm : Double.parseDouble(settingService.getSettingValue("post.default_radius_km", "10"));
+            double radius = (radiusKm != null) ? radiusKm : settingService.getDoubleValue("post.default_radius_km", 10);
             String[] statuses = visibleStatuses.stream().map(Enum::name).toArray(String[]::new);
             int limit = pageable.getPageSize();
             int offset = (int) pageable.getOffset();
@@ -359,8 +364,7 @@ public class MarketplaceService {
         post.setReportCount(newCount);
 
         // Auto-flag if reports reach configurable threshold
-        int reportThreshold = Integer.parseInt(
-                settingService.getSettingValue("marketplace.post.report_threshold", "3"));
+        int reportThreshold = settingService.getIntValue("marketplace.post.report_threshold", 3);
         if (newCount >= reportThreshold && post.getStatus() == PostStatus.APPROVED) {
             post.setStatus(PostStatus.FLAGGED);
             log.warn("Marketplace post auto-flagged due to {} reports: id={}, title={}", newCount, postId, post.getTitle());
@@ -441,8 +445,7 @@ public class MarketplaceService {
             postPaymentService.consumeToken(paidTokenId, user.getId(), post.getId());
         }
 
-        int durationDays = Integer.parseInt(
-                settingService.getSettingValue("marketplace.post.duration_days", "30"));
+        int durationDays = settingService.getIntValue("marketplace.post.duration_days", 30);
 
         post.setValidFrom(LocalDateTime.now());
         if (durationDays > 0) {
@@ -534,8 +537,7 @@ public class MarketplaceService {
     }
 
     private LocalDateTime getCutoffDate() {
-        int durationDays = Integer.parseInt(
-                settingService.getSettingValue("marketplace.post.duration_days", "30"));
+        int durationDays = settingService.getIntValue("marketplace.post.duration_days", 30);
         if (durationDays <= 0) {
             return null; // no expiry
         }
@@ -560,8 +562,7 @@ public class MarketplaceService {
                 return;
             }
 
-            double radiusKm = Double.parseDouble(
-                    settingService.getSettingValue("notification.radius_km", "50"));
+            double radiusKm = settingService.getDoubleValue("notification.radius_km", 50);
 
             List<User> nearbyCustomers = userRepository.findNearbyCustomers(
                     lat, lng, radiusKm);
@@ -36,6 +36,7 @@ public class OrderAssignmentService {
     private final EmailService emailService;
     private final DeliveryFeeService deliveryFeeService;
     private final FirebaseNotificationService firebaseNotificationService;
+    private final PartnerEarningsService partnerEarningsService;
 
     // Active assignment statuses
     private static final List<AssignmentStatus> ACTIVE_STATUSES = Arrays.asList(
@@ -788,6 +789,11 @@ public class OrderAssignmentService {
         assignment.setDeliveryNotes(deliveryNotes);
         assignment = assignmentRepository.save(assignment);
 
+        // Credit the commission to the earnings ledger, in this transaction
+        if (assignment.getStatus() == AssignmentStatus.DELIVERED) {
+            partnerEarningsService.recordDelivery(assignment);
+        }
+
         // Update order status
         Order order = assignment.getOrder();
         order.setStatus(Order.OrderStatus.DELIVERED);
@@ -56,6 +56,11 @@ import java.util.stream.Collectors;
 @Service
 public class OrderService {
 
+    /** Pricing rules of {@link #createOrder}, shared with the cart preview. */
+    public static final BigDecimal MINIMUM_ORDER_AMOUNT = BigDecimal.valueOf(100);
+    public static final BigDecimal TAX_RATE = BigDecimal.valueOf(0.05);
+    public static final BigDecimal HOME_DELIVERY_FEE = BigDecimal.valueOf(50);
+
     @Value("${app.api.base-url:http://localhost:8080}")
     private String apiBaseUrl;
 
@@ -77,6 +82,7 @@ public class OrderService {
     private final SimpMessagingTemplate messagingTemplate;
     private final BusinessHoursService businessHoursService;
     private final com.shopmanagement.shop.util.GeoLocationUtils geoLocationUtils;
+    private final ShopOrderMetricsService shopOrderMetricsService;
 
     public OrderService(
             OrderRepository orderRepository,
@@ -96,7 +102,8 @@ public class OrderService {
             com.shopmanagement.repository.PromotionRepository promotionRepository,
             SimpMessagingTemplate messagingTemplate,
             BusinessHoursService businessHoursService,
-            com.shopmanagement.shop.util.GeoLocationUtils geoLocationUtils) {
+            com.shopmanagement.shop.util.GeoLocationUtils geoLocationUtils,
+            ShopOrderMetricsService shopOrderMetricsService) {
         this.orderRepository = orderRepository;
         this.customerRepository = customerRepository;
         this.userRepository = userRepository;
@@ -115,6 +122,7 @@ public class OrderService {
         this.promotionRepository = promotionRepository;
         this.businessHoursService = businessHoursService;
         this.geoLocationUtils = geoLocationUtils;
+        this.shopOrderMetricsService = shopOrderMetricsService;
     }
 
     @Transactional
@@ -211,13 +219,13 @@ public class OrderService {
                 .reduce(BigDecimal.ZERO, BigDecimal::add);
 
         // Minimum order amount validation
-        BigDecimal minimumOrderAmount = BigDecimal.valueOf(100);
+        BigDecimal minimumOrderAmount = MINIMUM_ORDER_AMOUNT;
         if (subtotal.compareTo(minimumOrderAmount) < 0) {
             throw new RuntimeException(String.format("Minimum order amount is ₹%.2f. Current order total is ₹%.2f",
                     minimumOrderAmount, subtotal));
         }
 
-        BigDecimal taxAmount = subtotal.multiply(BigDecimal.valueOf(0.05)); // 5% tax
+        BigDecimal taxAmount = subtotal.multiply(TAX_RATE); // 5% tax
 
         // Determine delivery type - default to HOME_DELIVERY if not specified
         Order.DeliveryType deliveryType = Order.DeliveryType.HOME_DELIVERY;
@@ -230,7 +238,7 @@ public class OrderService {
         }
 
         // Delivery fee is 0 for self-pickup, otherwise fixed fee
-        BigDecimal deliveryFee = deliveryType == Order.DeliveryType.SELF_PICKUP ? BigDecimal.ZERO : BigDecimal.valueOf(50);
+        BigDecimal deliveryFee = deliveryType == Order.DeliveryType.SELF_PICKUP ? BigDecimal.ZERO : HOME_DELIVERY_FEE;
 
         BigDecimal discountAmount = request.getDiscountAmount() != null ? request.getDiscountAmount() : BigDecimal.ZERO;
         BigDecimal totalAmount = subtotal.add(taxAmount).add(deliveryFee).subtract(discountAmount);
@@ -1038,7 +1046,7 @@ public class OrderService {
     
     @Transactional(readOnly = true)
     public Map<String, Object> getOrderStatsByShop(Long shopId) {
-        List<Object[]> statusCounts = orderRepository.getOrderStatusDistribution(shopId);
+        ShopOrderMetricsService.ShopOrderMetrics metrics = shopOrderMetricsService.getMetrics(shopId);
 
         Set<Order.OrderStatus> activeStatuses = EnumSet.of(
                 Order.OrderStatus.CONFIRMED,
@@ -1053,27 +1061,14 @@ public class OrderService {
                 Order.OrderStatus.SELF_PICKUP_COLLECTED
         );
 
-        long totalOrders = 0;
-        long activeDeliveries = 0;
-        long completedOrders = 0;
-        for (Object[] row : statusCounts) {
-            Order.OrderStatus status = (Order.OrderStatus) row[0];
-            long count = (Long) row[1];
-            totalOrders += count;
-            if (activeStatuses.contains(status)) {
-                activeDeliveries += count;
-            } else if (completedStatuses.contains(status)) {
-                completedOrders += count;
-            }
-        }
-
-        BigDecimal revenue = orderRepository.getTotalRevenueByShop(shopId);
+        long activeDeliveries = activeStatuses.stream().mapToLong(metrics::count).sum();
+        long completedOrders = completedStatuses.stream().mapToLong(metrics::count).sum();
 
         Map<String, Object> stats = new HashMap<>();
-        stats.put("totalOrders", totalOrders);
+        stats.put("totalOrders", metrics.totalOrders());
         stats.put("activeDeliveries", activeDeliveries);
         stats.put("completedOrders", completedOrders);
-        stats.put("revenue", revenue != null ? revenue : BigDecimal.ZERO);
+        stats.put("revenue", metrics.totalRevenue());
         return stats;
     }
 
@@ -1843,6 +1838,7 @@ public class OrderService {
         // Record promo code usage if promo code was applied
         if (request.getPromoCode() != null && !request.getPromoCode().trim().isEmpty() &&
             request.getPromotionId() != null) {
+            boolean promoClaimed = true;
             try {
                 log.info("Recording promo code usage: {} for order: {}", request.getPromoCode(), savedOrder.getOrderNumber());
 
@@ -1855,7 +1851,7 @@ public class OrderService {
                 Boolean isFirstOrder = customerOrderCount <= 1; // This order is already saved, so count includes it
 
                 // Record the promotion usage with all identifiers
-                promotionService.recordPromotionUsage(
+                promoClaimed = promotionService.recordPromotionUsage(
                     promotion,
                     customer,
                     savedOrder,
@@ -1869,14 +1865,20 @@ public class OrderService {
                     null  // User agent (not available here)
                 );
 
-                log.info("✅ Promo code usage recorded successfully: {} for customer: {}",
-                    request.getPromoCode(), customer.getId());
+                if (promoClaimed) {
+                    log.info("✅ Promo code usage recorded successfully: {} for customer: {}",
+                        request.getPromoCode(), customer.getId());
+                }
 
             } catch (Exception e) {
                 log.error("❌ Failed to record promo code usage: {}", e.getMessage(), e);
                 // Don't fail the order creation if promo recording fails
                 // The order is already created, we just log the error
             }
+            if (!promoClaimed) {
+                // Another order took the last use (or this customer's one use) since validation
+                throw new RuntimeException("This promo code has reached its usage limit or was already used. Please remove it and try again.");
+            }
         }
 
         // Send FCM push notification to shop owner
@@ -46,6 +46,7 @@ public class ParcelServicePostService {
     private final GlobalPostLimitService globalPostLimitService;
     private final ObjectMapper objectMapper;
     private final PostSubscriptionService postSubscriptionService;
+    private final ImageModerationHoldService imageModerationHoldService;
 
     @Transactional
     public ParcelServicePost createPost(String serviceName, String phone, String serviceTypeStr,
@@ -95,7 +96,7 @@ public class ParcelServicePostService {
             List<String> uploadedUrls = new ArrayList<>();
             for (MultipartFile image : images) {
                 if (image != null && !image.isEmpty()) {
-                    uploadedUrls.add(fileUploadService.uploadFile(image, "parcels"));
+                    uploadedUrls.add(fileUploadService.uploadPostImage(image, "parcels"));
                 }
             }
             if (!uploadedUrls.isEmpty()) {
@@ -103,8 +104,10 @@ public class ParcelServicePostService {
             }
         }
 
-        boolean autoApprove = Boolean.parseBoolean(
-                settingService.getSettingValue("parcel.post.auto_approve", "false"));
+        boolean autoApprove = settingService.getBooleanValue("parcel.post.auto_approve", false);
+        // A new image still waiting for its moderation verdict keeps the post pending until it arrives
+        boolean heldForModeration = autoApprove && imageModerationHoldService.awaitingVerdict(imageUrls);
+        autoApprove = autoApprove && !heldForModeration;
 
         ParcelServicePost post = ParcelServicePost.builder()
                 .serviceName(serviceName)
@@ -127,8 +130,7 @@ public class ParcelServicePostService {
                 .build();
 
         // Set validity dates
-        int durationDays = Integer.parseInt(
-                settingService.getSettingValue("parcel.post.duration_days", "30"));
+        int durationDays = settingService.getIntValue("parcel.post.duration_days", 30);
         post.setValidFrom(LocalDateTime.now());
         if (durationDays > 0) {
             post.setValidTo(LocalDateTime.now().plusDays(durationDays));
@@ -146,6 +148,9 @@ public class ParcelServicePostService {
         }
 
         ParcelServicePost saved = parcelServicePostRepository.save(post);
+        if (heldForModeration) {
+            imageModerationHoldService.hold(ImageModerationHoldService.PostType.PARCEL, saved.getId(), imageUrls);
+        }
 
         // Consume paid token if used
         if (paidTokenId != null) {
@@ -176,7 +181,7 @@ public class ParcelServicePostService {
         List<PostStatus> visibleStatuses = getVisibleStatuses();
 
         if (lat != null && lng != null) {
-            double radius = (radiusKm != null) ? radiusKm : Double.parseDouble(settingService.getSettingValue("post.default_radius_km", "10"));
+            double radius = (radiusKm != null) ? radiusKm : settingService.getDoubleValue("post.default_radius_km", 10);
             String[] statuses = visibleStatuses.stream().map(Enum::name).toArray(String[]::new);
             int limit = pageable.getPageSize();
             int offset = (int) pageable.getOffset();
@@ -204,7 +209,7 @@ public class ParcelServicePostService {
         }
 
         if (lat != null && lng != null) {
-            double radius = (radiusKm != null) ? radiusKm : Double.parseDouble(settingService.getSettingValue("post.default_radius_km", "10"));
+            double radius = (radiusKm != null) ? radiusKm : settingService.getDoubleValue("post.default_radius_km", 10);
             String[] statuses = visibleStatuses.stream().map(Enum::name).toArray(String[]::new);
             int limit = pageable.getPageSize();
             int offset = (int) pageable.getOffset();
@@ -393,8 +398,7 @@ public class ParcelServicePostService {
         int newCount = (post.getReportCount() != null ? post.getReportCount() : 0) + 1;
         post.setReportCount(newCount);
 
-        int reportThreshold = Integer.parseInt(
-                settingService.getSettingValue("parcel.post.report_threshold", "3"));
+        int reportThreshold = settingService.getIntValue("parcel.post.report_threshold", 3);
         if (newCount >= reportThreshold && post.getStatus() == PostStatus.APPROVED) {
             post.setStatus(PostStatus.FLAGGED);
             log.warn("Parcel service post auto-flagged due to {} reports: id={}, serviceName={}", newCount, postId, post.getServiceName());
@@ -491,8 +495,7 @@ public class ParcelServicePostService {
             postPaymentService.consumeToken(paidTokenId, user.getId(), post.getId());
         }
 
-        int durationDays = Integer.parseInt(
-                settingService.getSettingValue("parcel.post.duration_days", "30"));
+        int durationDays = settingService.getIntValue("parcel.post.duration_days", 30);
 
         post.setValidFrom(LocalDateTime.now());
         if (durationDays > 0) {
@@ -584,8 +587,7 @@ public class ParcelServicePostService {
     }
 
     private LocalDateTime getCutoffDate() {
-        int durationDays = Integer.parseInt(
-                settingService.getSettingValue("parcel.post.duration_days", "30"));
+        int durationDays = settingService.getIntValue("parcel.post.duration_days", 30);
         if (durationDays <= 0) {
             return null;
         }
@@ -610,8 +612,7 @@ public class ParcelServicePostService {
                 return;
             }
 
-            double radiusKm = Double.parseDouble(
-                    settingService.getSettingValue("notification.radius_km", "50"));
+            double radiusKm = settingService.getDoubleValue("notification.radius_km", 50);
 
             List<User> nearbyCustomers = userRepository.findNearbyCustomers(lat, lng, radiusKm);
             if (nearbyCustomers.isEmpty()) return;
@@ -0,0 +1,227 @@
+package com.shopmanagement.service;
+
+import com.shopmanagement.entity.OrderAssignment;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.List;
+
+/**
+ * Delivery partner earnings ledger (tables partner_earning_entries and
+ * partner_earning_buckets, see V105). Each delivered assignment and each admin
+ * adjustment is appended once, and the same transaction raises the partner's
+ * day, week, month and total buckets, so the earnings tab is one read of four
+ * rows plus a page of the feed, independent of the partner's history.
+ *
+ * Like {@link ShopOrderMetricsService}, writes go through JdbcTemplate and
+ * share the caller's transaction: the entry and its buckets commit or roll
+ * back with the delivery. Weeks start on Monday, matching PostgreSQL's
+ * date_trunc('week') used by the rebuild.
+ */
+@Service
+@Slf4j
+public class PartnerEarningsService {
+
+    public static final String DELIVERY = "DELIVERY";
+    public static final String ADJUSTMENT = "ADJUSTMENT";
+
+    public static final int MAX_PAGE_SIZE = 100;
+    private static final LocalDate TOTAL_PERIOD_START = LocalDate.EPOCH;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public PartnerEarningsService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Credit the partner's commission for a delivered assignment. Called in
+     * the markDelivered transaction; a second call for the same assignment
+     * changes nothing.
+     */
+    public void recordDelivery(OrderAssignment assignment) {
+        BigDecimal amount = assignment.getPartnerCommission() != null ? assignment.getPartnerCommission() : BigDecimal.ZERO;
+        LocalDateTime earnedAt = assignment.getDeliveryCompletedAt() != null
+                ? assignment.getDeliveryCompletedAt() : LocalDateTime.now();
+        Long partnerId = assignment.getDeliveryPartner().getId();
+        int inserted = jdbcTemplate.update(
+                "INSERT INTO partner_earning_entries (partner_id, entry_type, assignment_id, order_number, amount, earned_at) " +
+                "VALUES (?, ?, ?, ?, ?, ?) ON CONFLICT (assignment_id) DO NOTHING",
+                partnerId, DELIVERY, assignment.getId(), assignment.getOrder().getOrderNumber(), amount,
+                Timestamp.valueOf(earnedAt));
+        if (inserted == 1) {
+            addToBuckets(partnerId, earnedAt.toLocalDate(), amount, 1);
+        }
+    }
+
+    /** Append a correction (negative to take money back); the ledger is never edited in place. */
+    public void recordAdjustment(Long partnerId, BigDecimal amount, String note, String createdBy) {
+        if (amount == null || amount.signum() == 0) {
+            throw new IllegalArgumentException("Adjustment amount must be non-zero");
+        }
+        if (note == null || note.isBlank()) {
+            throw new IllegalArgumentException("Adjustment note is required");
+        }
+        LocalDateTime earnedAt = LocalDateTime.now();
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update(
+                    "INSERT INTO partner_earning_entries (partner_id, entry_type, amount, note, created_by, earned_at) " +
+                    "VALUES (?, ?, ?, ?, ?, ?)",
+                    partnerId, ADJUSTMENT, amount, note.trim(), createdBy, Timestamp.valueOf(earnedAt));
+            addToBuckets(partnerId, earnedAt.toLocalDate(), amount, 0);
+        });
+        log.info("Recorded earnings adjustment of {} for partner {} by {}", amount, partnerId, createdBy);
+    }
+
+    /** Today, this week, this month and lifetime: one primary-key read of four rows. */
+    public EarningsSummary getSummary(Long partnerId) {
+        LocalDate today = LocalDate.now();
+        Period[] periods = new Period[4];
+        jdbcTemplate.query(
+                "SELECT period, amount, deliveries FROM partner_earning_buckets WHERE partner_id = ? AND (" +
+                "(period = 'DAY' AND period_start = ?) OR (period = 'WEEK' AND period_start = ?) OR " +
+                "(period = 'MONTH' AND period_start = ?) OR (period = 'TOTAL' AND period_start = ?))",
+                rs -> {
+                    Period period = new Period(rs.getBigDecimal("amount"), rs.getLong("deliveries"));
+                    switch (rs.getString("period")) {
+                        case "DAY" -> periods[0] = period;
+                        case "WEEK" -> periods[1] = period;
+                        case "MONTH" -> periods[2] = period;
+                        default -> periods[3] = period;
+                    }
+                },
+                partnerId, Date.valueOf(today), Date.valueOf(weekStart(today)),
+                Date.valueOf(today.withDayOfMonth(1)), Date.valueOf(TOTAL_PERIOD_START));
+        for (int i = 0; i < periods.length; i++) {
+            if (periods[i] == null) {
+                periods[i] = Period.EMPTY;
+            }
+        }
+        return new EarningsSummary(periods[0], periods[1], periods[2], periods[3]);
+    }
+
+    /** Newest entries first, page by page. */
+    public List<EarningEntry> getRecentEntries(Long partnerId, int page, int size) {
+        int limit = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        long offset = (long) Math.max(0, page) * limit;
+        return jdbcTemplate.query(
+                "SELECT id, entry_type, order_number, amount, note, earned_at FROM partner_earning_entries " +
+                "WHERE partner_id = ? ORDER BY earned_at DESC, id DESC LIMIT ? OFFSET ?",
+                (rs, rowNum) -> new EarningEntry(
+                        rs.getLong("id"),
+                        rs.getString("entry_type"),
+                        rs.getString("order_number"),
+                        rs.getBigDecimal("amount"),
+                        rs.getString("note"),
+                        rs.getTimestamp("earned_at").toLocalDateTime()),
+                partnerId, limit, offset);
+    }
+
+    /**
+     * Replace one partner's buckets with aggregates of their entries, in one
+     * transaction. Entries committing meanwhile either are in the aggregate or
+     * wait on the deleted rows and add their amount on top.
+     */
+    public void rebuildPartner(Long partnerId) {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("DELETE FROM partner_earning_buckets WHERE partner_id = ?", partnerId);
+            jdbcTemplate.update(
+                    "INSERT INTO partner_earning_buckets (partner_id, period, period_start, amount, deliveries) " +
+                    "SELECT e.partner_id, p.period, p.period_start, SUM(e.amount), " +
+                    "COUNT(*) FILTER (WHERE e.entry_type = 'DELIVERY') " +
+                    "FROM partner_earning_entries e " +
+                    "CROSS JOIN LATERAL (VALUES " +
+                    "  ('DAY', CAST(e.earned_at AS DATE)), " +
+                    "  ('WEEK', CAST(date_trunc('week', e.earned_at) AS DATE)), " +
+                    "  ('MONTH', CAST(date_trunc('month', e.earned_at) AS DATE)), " +
+                    "  ('TOTAL', DATE '1970-01-01')) AS p(period, period_start) " +
+                    "WHERE e.partner_id = ? GROUP BY e.partner_id, p.period, p.period_start",
+                    partnerId);
+        });
+    }
+
+    /**
+     * On start, copy delivered assignments missing from the ledger (all of
+     * them the first time) and rebuild those partners' buckets, in the
+     * background.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillMissing() {
+        Thread backfill = new Thread(() -> {
+            try {
+                long started = System.currentTimeMillis();
+                List<Long> partnerIds = jdbcTemplate.queryForList(
+                        "WITH added AS (" +
+                        "INSERT INTO partner_earning_entries (partner_id, entry_type, assignment_id, order_number, amount, earned_at) " +
+                        "SELECT oa.delivery_partner_id, 'DELIVERY', oa.id, o.order_number, COALESCE(oa.partner_commission, 0), " +
+                        "COALESCE(oa.delivery_completed_at, oa.updated_at, oa.created_at) " +
+                        "FROM order_assignments oa JOIN orders o ON o.id = oa.order_id " +
+                        "WHERE oa.status = 'DELIVERED' " +
+                        "AND NOT EXISTS (SELECT 1 FROM partner_earning_entries e WHERE e.assignment_id = oa.id) " +
+                        "ON CONFLICT (assignment_id) DO NOTHING RETURNING partner_id) " +
+                        "SELECT DISTINCT partner_id FROM added", Long.class);
+                if (partnerIds.isEmpty()) {
+                    return;
+                }
+                for (Long partnerId : partnerIds) {
+                    try {
+                        rebuildPartner(partnerId);
+                    } catch (Exception e) {
+                        log.error("Failed to rebuild earnings buckets for partner {}", partnerId, e);
+                    }
+                }
+                log.info("Backfilled earnings ledger for {} partner(s) in {} ms",
+                        partnerIds.size(), System.currentTimeMillis() - started);
+            } catch (Exception e) {
+                log.error("Partner earnings backfill failed", e);
+            }
+        }, "PartnerEarningsBackfill");
+        backfill.setDaemon(true);
+        backfill.start();
+    }
+
+    /** Rows in a fixed order (DAY, WEEK, MONTH, TOTAL) so concurrent entries lock them alike. */
+    private void addToBuckets(Long partnerId, LocalDate day, BigDecimal amount, long deliveries) {
+        jdbcTemplate.update(
+                "INSERT INTO partner_earning_buckets (partner_id, period, period_start, amount, deliveries) " +
+                "VALUES (?, 'DAY', ?, ?, ?), (?, 'WEEK', ?, ?, ?), (?, 'MONTH', ?, ?, ?), (?, 'TOTAL', ?, ?, ?) " +
+                "ON CONFLICT (partner_id, period, period_start) DO UPDATE SET " +
+                "amount = partner_earning_buckets.amount + EXCLUDED.amount, " +
+                "deliveries = partner_earning_buckets.deliveries + EXCLUDED.deliveries",
+                partnerId, Date.valueOf(day), amount, deliveries,
+                partnerId, Date.valueOf(weekStart(day)), amount, deliveries,
+                partnerId, Date.valueOf(day.withDayOfMonth(1)), amount, deliveries,
+                partnerId, Date.valueOf(TOTAL_PERIOD_START), amount, deliveries);
+    }
+
+    private static LocalDate weekStart(LocalDate day) {
+        return day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+    }
+
+    /** Amount earned and deliveries made in one period. */
+    public record Period(BigDecimal amount, long deliveries) {
+        static final Period EMPTY = new Period(BigDecimal.ZERO, 0);
+    }
+
+    public record EarningsSummary(Period today, Period week, Period month, Period total) {
+    }
+
+    /** One ledger line; orderNumber is set for deliveries, note for adjustments. */
+    public record EarningEntry(Long id, String type, String orderNumber, BigDecimal amount, String note,
+                               LocalDateTime earnedAt) {
+    }
+}
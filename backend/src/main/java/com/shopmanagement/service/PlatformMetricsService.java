@@ -0,0 +1,232 @@
+package com.shopmanagement.service;
+
+import com.shopmanagement.entity.Order;
+import com.shopmanagement.event.OrderStateChangedEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Platform-wide numbers for the admin dashboard, held in memory so a dashboard
+ * request never touches the orders table.
+ *
+ * Order counters (per status, total/today/month revenue) move with every
+ * committed {@link OrderStateChangedEvent} on this node, and are reconciled
+ * every dashboard.metrics.reconcile-seconds from the per-shop metric tables
+ * (V97), which also picks up changes made on other nodes and by bulk updates.
+ * Entity counts (users, shops, products, customers) and last-24h activity only
+ * come from the reconcile, on the slower dashboard.metrics.counts-refresh-minutes.
+ *
+ * Today/month revenue is attributed to the day the order was placed, the same
+ * rule as the shop dashboards. Both jobs run on their own thread, like the
+ * settings refresh, so every node keeps reconciling during deploys.
+ */
+@Service
+@Slf4j
+public class PlatformMetricsService {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${dashboard.metrics.reconcile-seconds:60}")
+    private long reconcileSeconds;
+
+    @Value("${dashboard.metrics.counts-refresh-minutes:5}")
+    private long countsRefreshMinutes;
+
+    private final Map<Order.OrderStatus, Long> statusCounts = new EnumMap<>(Order.OrderStatus.class);
+    private BigDecimal totalRevenue = BigDecimal.ZERO;
+    private LocalDate today = LocalDate.now();
+    private long todayOrders;
+    private BigDecimal todayRevenue = BigDecimal.ZERO;
+    private long monthOrders;
+    private BigDecimal monthlyRevenue = BigDecimal.ZERO;
+    private LocalDateTime ordersReconciledAt;
+
+    private volatile EntityCounts entityCounts = EntityCounts.EMPTY;
+    private ScheduledExecutorService reconciler;
+
+    public PlatformMetricsService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    void start() {
+        reconciler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "PlatformMetrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reconciler.scheduleWithFixedDelay(this::reconcileOrders, 0, reconcileSeconds, TimeUnit.SECONDS);
+        reconciler.scheduleWithFixedDelay(this::refreshEntityCounts, 0, countsRefreshMinutes, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (reconciler != null) {
+            reconciler.shutdownNow();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onOrderStateChanged(OrderStateChangedEvent event) {
+        rollOverIfNeeded();
+        Order.MetricsState previous = event.getPrevious();
+        Order.MetricsState current = event.getCurrent();
+        if (previous != null) {
+            statusCounts.merge(previous.status(), -1L, Long::sum);
+        }
+        if (current != null) {
+            statusCounts.merge(current.status(), 1L, Long::sum);
+        }
+
+        long placed = (current != null ? 1 : 0) - (previous != null ? 1 : 0);
+        BigDecimal revenue = revenue(current).subtract(revenue(previous));
+        totalRevenue = totalRevenue.add(revenue);
+
+        LocalDate placedOn = event.getOrderCreatedAt() != null ? event.getOrderCreatedAt().toLocalDate() : today;
+        if (placedOn.equals(today)) {
+            todayOrders += placed;
+            todayRevenue = todayRevenue.add(revenue);
+        }
+        if (placedOn.getYear() == today.getYear() && placedOn.getMonth() == today.getMonth()) {
+            monthOrders += placed;
+            monthlyRevenue = monthlyRevenue.add(revenue);
+        }
+    }
+
+    /** Current numbers; a copy, consistent as of the last applied event. */
+    public synchronized PlatformMetrics getMetrics() {
+        rollOverIfNeeded();
+        long totalOrders = statusCounts.values().stream().mapToLong(Long::longValue).sum();
+        return new PlatformMetrics(totalOrders, Collections.unmodifiableMap(new EnumMap<>(statusCounts)),
+                totalRevenue, todayOrders, todayRevenue, monthOrders, monthlyRevenue,
+                entityCounts, ordersReconciledAt);
+    }
+
+    /** Replace the order counters with the sums of the per-shop metric tables. */
+    public void reconcileOrders() {
+        try {
+            Map<Order.OrderStatus, Long> counts = new EnumMap<>(Order.OrderStatus.class);
+            BigDecimal[] revenue = {BigDecimal.ZERO};
+            jdbcTemplate.query(
+                    "SELECT status, SUM(order_count) AS orders, SUM(revenue_amount) AS revenue " +
+                    "FROM shop_order_status_metrics GROUP BY status",
+                    rs -> {
+                        counts.put(Order.OrderStatus.valueOf(rs.getString("status")), rs.getLong("orders"));
+                        revenue[0] = revenue[0].add(rs.getBigDecimal("revenue"));
+                    });
+
+            LocalDate day = LocalDate.now();
+            long[] orders = new long[2];
+            BigDecimal[] periodRevenue = {BigDecimal.ZERO, BigDecimal.ZERO};
+            jdbcTemplate.query(
+                    "SELECT metric_date, SUM(orders_placed) AS orders, SUM(revenue_amount) AS revenue " +
+                    "FROM shop_order_daily_metrics WHERE metric_date >= ? GROUP BY metric_date",
+                    rs -> {
+                        long placed = rs.getLong("orders");
+                        BigDecimal amount = rs.getBigDecimal("revenue");
+                        orders[1] += placed;
+                        periodRevenue[1] = periodRevenue[1].add(amount);
+                        if (day.equals(rs.getDate("metric_date").toLocalDate())) {
+                            orders[0] += placed;
+                            periodRevenue[0] = periodRevenue[0].add(amount);
+                        }
+                    },
+                    Date.valueOf(day.withDayOfMonth(1)));
+
+            synchronized (this) {
+                statusCounts.clear();
+                statusCounts.putAll(counts);
+                totalRevenue = revenue[0];
+                today = day;
+                todayOrders = orders[0];
+                todayRevenue = periodRevenue[0];
+                monthOrders = orders[1];
+                monthlyRevenue = periodRevenue[1];
+                ordersReconciledAt = LocalDateTime.now();
+            }
+        } catch (Exception e) {
+            log.warn("Platform order metrics reconcile failed: {}", e.getMessage());
+        }
+    }
+
+    public void refreshEntityCounts() {
+        try {
+            Timestamp since = Timestamp.valueOf(LocalDateTime.now().minusHours(24));
+            entityCounts = jdbcTemplate.queryForObject(
+                    "SELECT (SELECT COUNT(*) FROM users) AS users, " +
+                    "(SELECT COUNT(*) FROM users WHERE role = 'DELIVERY_PARTNER') AS delivery_partners, " +
+                    "(SELECT COUNT(*) FROM shops) AS shops, " +
+                    "(SELECT COUNT(*) FROM shops WHERE is_active = TRUE) AS active_shops, " +
+                    "(SELECT COUNT(*) FROM master_products) AS products, " +
+                    "(SELECT COUNT(*) FROM customers) AS customers, " +
+                    "(SELECT COUNT(*) FROM orders WHERE created_at >= ?) AS new_orders, " +
+                    "(SELECT COUNT(*) FROM customers WHERE created_at >= ?) AS new_customers, " +
+                    "(SELECT COUNT(*) FROM shops WHERE created_at >= ?) AS new_shops",
+                    (rs, rowNum) -> new EntityCounts(
+                            rs.getLong("users"), rs.getLong("delivery_partners"), rs.getLong("shops"),
+                            rs.getLong("active_shops"), rs.getLong("products"), rs.getLong("customers"),
+                            rs.getLong("new_orders"), rs.getLong("new_customers"), rs.getLong("new_shops"),
+                            LocalDateTime.now()),
+                    since, since, since);
+        } catch (Exception e) {
+            log.warn("Platform entity counts refresh failed: {}", e.getMessage());
+        }
+    }
+
+    /** At midnight today's counters restart; the next reconcile fills them from the tables. */
+    private void rollOverIfNeeded() {
+        LocalDate now = LocalDate.now();
+        if (!now.equals(today)) {
+            if (now.getMonth() != today.getMonth() || now.getYear() != today.getYear()) {
+                monthOrders = 0;
+                monthlyRevenue = BigDecimal.ZERO;
+            }
+            today = now;
+            todayOrders = 0;
+            todayRevenue = BigDecimal.ZERO;
+        }
+    }
+
+    private static BigDecimal revenue(Order.MetricsState state) {
+        return state != null && state.revenue() && state.amount() != null ? state.amount() : BigDecimal.ZERO;
+    }
+
+    public record EntityCounts(long users, long deliveryPartners, long shops, long activeShops, long products,
+                               long customers, long newOrders24h, long newCustomers24h, long newShops24h,
+                               LocalDateTime refreshedAt) {
+        static final EntityCounts EMPTY = new EntityCounts(0, 0, 0, 0, 0, 0, 0, 0, 0, null);
+    }
+
+    public record PlatformMetrics(long totalOrders, Map<Order.OrderStatus, Long> statusCounts,
+                                  BigDecimal totalRevenue, long todayOrders, BigDecimal todayRevenue,
+                                  long monthOrders, BigDecimal monthlyRevenue, EntityCounts entityCounts,
+                                  LocalDateTime ordersReconciledAt) {
+
+        /** Status name (lower case) -> order count, every status present. */
+        public Map<String, Long> statusDistribution() {
+            Map<String, Long> distribution = new LinkedHashMap<>();
+            for (Order.OrderStatus status : Order.OrderStatus.values()) {
+                distribution.put(status.name().toLowerCase(), statusCounts.getOrDefault(status, 0L));
+            }
+            return distribution;
+        }
+    }
+}
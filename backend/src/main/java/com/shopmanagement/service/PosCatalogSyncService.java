@@ -0,0 +1,206 @@
+package com.shopmanagement.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Offline POS catalog sync by change version (see V102). A client keeps the
+ * cursor from its last sync and asks for what changed from there; the answer
+ * holds only the products written since plus the ids that were deleted or made
+ * unavailable, so a refresh where nothing changed is a few dozen bytes.
+ *
+ * Rows are stamped with their writing transaction's id and the cursor handed
+ * out is the reader's snapshot xmin, so a write that commits late is still
+ * picked up by the next sync; a row may arrive twice, never zero times.
+ * Rows are columnar ({@link #FIELDS} gives the order) to keep repeated keys
+ * out of the payload. A client too far behind (tombstones pruned) or holding a
+ * cursor this server never issued gets reset=true and the full catalog, which
+ * is also served gzipped for cold start.
+ */
+@Service
+@Slf4j
+public class PosCatalogSyncService {
+
+    public static final List<String> FIELDS = List.of("id", "name", "nameTamil", "sku", "barcode", "image",
+            "categoryId", "categoryName", "unit", "weight", "price", "stock", "trackInventory");
+
+    private static final String PRODUCT_SELECT =
+            "SELECT sp.id, sp.is_available, COALESCE(sp.custom_name, mp.name, 'Unknown') AS name, " +
+            "mp.name_tamil, mp.sku, mp.barcode, " +
+            "(SELECT mpi.image_url FROM master_product_images mpi " +
+            " WHERE mpi.master_product_id = mp.id AND mpi.is_primary = true ORDER BY mpi.id LIMIT 1) AS image, " +
+            "pc.id AS category_id, pc.name AS category_name, mp.base_unit, mp.base_weight, " +
+            "sp.price, sp.stock_quantity, sp.track_inventory " +
+            "FROM shop_products sp " +
+            "LEFT JOIN master_products mp ON mp.id = sp.master_product_id " +
+            "LEFT JOIN product_categories pc ON pc.id = mp.category_id ";
+
+    /**
+     * One sync step. fields is omitted when there are no rows; removed lists
+     * product ids the client should drop.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record CatalogChanges(long version, boolean reset, List<String> fields, List<Object[]> rows,
+                                 List<Long> removed) {
+    }
+
+    /** Gzipped JSON of a full {@link CatalogChanges}. */
+    public record CatalogSnapshot(long version, byte[] gzip) {
+    }
+
+    private record ProductRow(long id, boolean available, Object[] values) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.pos.catalog.tombstone-days:30}")
+    private int tombstoneDays;
+
+    private final Cache<String, CatalogSnapshot> snapshots = Caffeine.newBuilder()
+            .maximumWeight(64L * 1024 * 1024)
+            .<String, CatalogSnapshot>weigher((key, snapshot) -> snapshot.gzip().length)
+            .expireAfterAccess(Duration.ofHours(1))
+            .build();
+
+    public PosCatalogSyncService(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    /** What changed in the shop's catalog from cursor {@code since} on (0 or null: everything). */
+    public CatalogChanges changesSince(Long shopId, Long since) {
+        // Read before the rows: every transaction below it has finished, so its writes are visible below
+        long cursor = snapshotXmin();
+        long from = since == null ? 0 : since;
+        if (from <= 0 || from > cursor || from < minVersion(shopId)) {
+            return fullCatalog(shopId, cursor);
+        }
+
+        List<ProductRow> changed = jdbcTemplate.query(
+                PRODUCT_SELECT + "WHERE sp.shop_id = ? AND sp.sync_version >= ?", PRODUCT_ROW, shopId, from);
+        List<Object[]> rows = new ArrayList<>();
+        List<Long> removed = new ArrayList<>(jdbcTemplate.queryForList(
+                "SELECT shop_product_id FROM shop_product_tombstones WHERE shop_id = ? AND version >= ?",
+                Long.class, shopId, from));
+        for (ProductRow row : changed) {
+            if (row.available()) {
+                rows.add(row.values());
+            } else {
+                removed.add(row.id());
+            }
+        }
+        return new CatalogChanges(cursor, false, rows.isEmpty() ? null : FIELDS, rows, removed);
+    }
+
+    /**
+     * The full catalog as gzipped JSON, shared by every device of the shop
+     * until one of its products is written again. A snapshot served from the
+     * cache keeps the cursor it was built with, so the next delta still
+     * covers everything committed since.
+     */
+    public CatalogSnapshot snapshot(Long shopId) {
+        Long latest = jdbcTemplate.queryForObject(
+                "SELECT GREATEST((SELECT MAX(sync_version) FROM shop_products WHERE shop_id = ?), " +
+                "(SELECT MAX(version) FROM shop_product_tombstones WHERE shop_id = ?))",
+                Long.class, shopId, shopId);
+        return snapshots.get(shopId + ":" + latest, key -> {
+            long cursor = snapshotXmin();
+            return new CatalogSnapshot(cursor, gzip(fullCatalog(shopId, cursor)));
+        });
+    }
+
+    /**
+     * Nightly: drop tombstones older than app.pos.catalog.tombstone-days and
+     * raise each shop's min_version past them, so clients whose cursor
+     * predates a dropped tombstone start over.
+     */
+    @Scheduled(cron = "0 20 4 * * *")
+    public void pruneTombstones() {
+        Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now().minusDays(tombstoneDays));
+        Integer pruned = jdbcTemplate.queryForObject(
+                "WITH pruned AS (DELETE FROM shop_product_tombstones WHERE deleted_at < ? " +
+                "                RETURNING shop_id, version), " +
+                "raised AS (INSERT INTO shop_catalog_sync (shop_id, min_version) " +
+                "           SELECT shop_id, MAX(version) + 1 FROM pruned GROUP BY shop_id " +
+                "           ON CONFLICT (shop_id) DO UPDATE " +
+                "           SET min_version = GREATEST(shop_catalog_sync.min_version, EXCLUDED.min_version)) " +
+                "SELECT COUNT(*) FROM pruned", Integer.class, cutoff);
+        if (pruned != null && pruned > 0) {
+            log.info("POS catalog sync: pruned {} product tombstone(s)", pruned);
+        }
+    }
+
+    private CatalogChanges fullCatalog(Long shopId, long cursor) {
+        List<Object[]> rows = new ArrayList<>();
+        for (ProductRow row : jdbcTemplate.query(
+                PRODUCT_SELECT + "WHERE sp.shop_id = ? AND sp.is_available = true", PRODUCT_ROW, shopId)) {
+            rows.add(row.values());
+        }
+        return new CatalogChanges(cursor, true, FIELDS, rows, List.of());
+    }
+
+    /** Oldest transaction still running; every stamp below it is final. */
+    private long snapshotXmin() {
+        Long xmin = jdbcTemplate.queryForObject(
+                "SELECT pg_snapshot_xmin(pg_current_snapshot())::text::BIGINT", Long.class);
+        return xmin != null ? xmin : 0;
+    }
+
+    private long minVersion(Long shopId) {
+        List<Long> versions = jdbcTemplate.queryForList(
+                "SELECT min_version FROM shop_catalog_sync WHERE shop_id = ?", Long.class, shopId);
+        return versions.isEmpty() ? 0 : versions.get(0);
+    }
+
+    private byte[] gzip(CatalogChanges catalog) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            objectMapper.writeValue(gzip, catalog);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static final RowMapper<ProductRow> PRODUCT_ROW = (rs, i) -> {
+        long id = rs.getLong("id");
+        Long categoryId = rs.getObject("category_id") == null ? null : rs.getLong("category_id");
+        Integer stock = rs.getObject("stock_quantity") == null ? null : rs.getInt("stock_quantity");
+        Boolean trackInventory = rs.getObject("track_inventory") == null ? null : rs.getBoolean("track_inventory");
+        Object[] values = {
+                id,
+                rs.getString("name"),
+                rs.getString("name_tamil"),
+                rs.getString("sku"),
+                rs.getString("barcode"),
+                rs.getString("image"),
+                categoryId,
+                rs.getString("category_name"),
+                rs.getString("base_unit"),
+                rs.getBigDecimal("base_weight"),
+                rs.getBigDecimal("price"),
+                stock,
+                trackInventory
+        };
+        return new ProductRow(id, rs.getBoolean("is_available"), values);
+    };
+}
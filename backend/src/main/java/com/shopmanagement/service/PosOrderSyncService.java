@@ -0,0 +1,546 @@
+package com.shopmanagement.service;
+
+import com.shopmanagement.dto.order.OrderResponse;
+import com.shopmanagement.dto.order.PosOrderItemRequest;
+import com.shopmanagement.dto.order.PosOrderRequest;
+import com.shopmanagement.dto.order.PosOrderSyncResult;
+import com.shopmanagement.entity.Order;
+import com.shopmanagement.event.OrderStateChangedEvent;
+import com.shopmanagement.event.ShopProductChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Batch replay of bills a POS took while offline. A shop back online after a
+ * day can push hundreds at once; instead of running each through
+ * {@link PosService#createPosOrder} (a shop, customer and product lookup per
+ * bill), the batch is settled with a handful of queries:
+ *
+ * - shops and already-synced offline ids are looked up once per batch, and
+ *   customers once per distinct phone number;
+ * - bills are written in chunks of {@link #CHUNK_SIZE}, one transaction each.
+ *   A chunk locks the products it sells (in id order), replays its bills'
+ *   stock checks in memory, writes orders and items as JDBC batches and
+ *   applies one stock update per product.
+ *
+ * A bill that fails its checks (unknown product, insufficient stock) only
+ * fails itself. If a chunk's writes fail (e.g. the same bill synced
+ * concurrently from a second device), its bills are retried one at a time
+ * through createPosOrder. Results are keyed by offlineOrderId, or by
+ * "#&lt;position&gt;" for a bill sent without one.
+ *
+ * JDBC writes skip the JPA entity listeners, so the order and product events
+ * they would have published are published here.
+ */
+@Service
+@Slf4j
+public class PosOrderSyncService {
+
+    /** Bills written per transaction. */
+    private static final int CHUNK_SIZE = 100;
+
+    private static final String INSERT_ORDER_SQL =
+            "INSERT INTO orders (order_number, customer_id, shop_id, status, payment_status, payment_method, " +
+            "delivery_type, order_type, subtotal, tax_amount, delivery_fee, discount_amount, total_amount, notes, " +
+            "offline_order_id, driver_search_attempts, driver_search_completed, created_by, updated_by, " +
+            "created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0, false, ?, ?, ?, ?)";
+
+    private static final String INSERT_ORDER_ITEM_SQL =
+            "INSERT INTO order_items (order_id, shop_product_id, quantity, unit_price, total_price, product_name, " +
+            "product_name_tamil, product_image_url, added_by_shop_owner, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, true, ?, ?)";
+
+    private static final String LOCK_PRODUCTS_SQL =
+            "SELECT sp.id, sp.price, sp.stock_quantity, sp.track_inventory, sp.custom_name, " +
+            "mp.name AS master_name, mp.name_tamil, " +
+            "(SELECT mpi.image_url FROM master_product_images mpi " +
+            " WHERE mpi.master_product_id = mp.id AND mpi.is_primary = true ORDER BY mpi.id LIMIT 1) AS image_url " +
+            "FROM shop_products sp LEFT JOIN master_products mp ON mp.id = sp.master_product_id " +
+            "WHERE sp.id IN (%s) ORDER BY sp.id FOR UPDATE OF sp";
+
+    private final PosService posService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public PosOrderSyncService(PosService posService, JdbcTemplate jdbcTemplate,
+                               PlatformTransactionManager transactionManager,
+                               ApplicationEventPublisher eventPublisher) {
+        this.posService = posService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+    }
+
+    /** One bill of the batch, from lookup to result. */
+    private static final class PendingBill {
+        final String key;
+        final PosOrderRequest request;
+        final String offlineOrderId;
+        Long customerId;
+        PosOrderSyncResult result;
+
+        // Filled in when the chunk plans it
+        String orderNumber;
+        Long orderId;
+        List<PlannedItem> items;
+        BigDecimal subtotal;
+        BigDecimal discount;
+        BigDecimal total;
+        int itemCount;
+
+        PendingBill(String key, PosOrderRequest request) {
+            this.key = key;
+            this.request = request;
+            this.offlineOrderId = request.getOfflineOrderId() != null && !request.getOfflineOrderId().isBlank()
+                    ? request.getOfflineOrderId() : null;
+        }
+
+        void fail(String message) {
+            result = PosOrderSyncResult.builder()
+                    .offlineOrderId(offlineOrderId)
+                    .status(PosOrderSyncResult.Status.FAILED)
+                    .message(message)
+                    .build();
+        }
+    }
+
+    /**
+     * Order numbers for one sync: the ORD&lt;millis&gt; form JPA-created orders
+     * get, plus a sequence, so a batch written within one millisecond stays
+     * unique and never matches a single-bill number.
+     */
+    private static final class OrderNumbers {
+        private final String prefix = "ORD" + System.currentTimeMillis();
+        private int sequence;
+
+        String next() {
+            return prefix + String.format("%03d", sequence++);
+        }
+    }
+
+    private record PlannedItem(Long shopProductId, String name, String nameTamil, String imageUrl,
+                               int quantity, BigDecimal unitPrice, BigDecimal totalPrice) {
+    }
+
+    /** A locked product row; stock is the running value as the chunk's bills are replayed. */
+    private static final class LockedProduct {
+        long id;
+        BigDecimal price;
+        int stock;
+        boolean trackInventory;
+        String name;
+        String nameTamil;
+        String imageUrl;
+        boolean stockChanged;
+    }
+
+    public Map<String, PosOrderSyncResult> syncOfflineOrders(List<PosOrderRequest> requests) {
+        long started = System.currentTimeMillis();
+        Map<String, PendingBill> bills = new LinkedHashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            PosOrderRequest request = requests.get(i);
+            String offlineOrderId = request.getOfflineOrderId();
+            String key = offlineOrderId != null && !offlineOrderId.isBlank() ? offlineOrderId : "#" + i;
+            PendingBill bill = new PendingBill(key, request);
+            PendingBill first = bills.putIfAbsent(key, bill);
+            if (first != null && !first.request.getShopId().equals(request.getShopId())) {
+                log.warn("Offline order id {} sent for shops {} and {} - keeping the first",
+                        key, first.request.getShopId(), request.getShopId());
+            }
+        }
+
+        Map<Long, List<PendingBill>> byShop = bills.values().stream()
+                .collect(Collectors.groupingBy(bill -> bill.request.getShopId(), LinkedHashMap::new, Collectors.toList()));
+        OrderNumbers orderNumbers = new OrderNumbers();
+        for (Map.Entry<Long, List<PendingBill>> shop : byShop.entrySet()) {
+            syncShop(shop.getKey(), shop.getValue(), orderNumbers);
+        }
+
+        Map<String, PosOrderSyncResult> results = new LinkedHashMap<>();
+        Map<PosOrderSyncResult.Status, Integer> counts = new HashMap<>();
+        for (PendingBill bill : bills.values()) {
+            results.put(bill.key, bill.result);
+            counts.merge(bill.result.getStatus(), 1, Integer::sum);
+        }
+        log.info("Synced {} offline order(s) ({} repeated in the batch): {} created, {} duplicate, {} failed in {} ms",
+                requests.size(), requests.size() - bills.size(),
+                counts.getOrDefault(PosOrderSyncResult.Status.CREATED, 0),
+                counts.getOrDefault(PosOrderSyncResult.Status.DUPLICATE, 0),
+                counts.getOrDefault(PosOrderSyncResult.Status.FAILED, 0),
+                System.currentTimeMillis() - started);
+        return results;
+    }
+
+    private void syncShop(Long shopId, List<PendingBill> bills, OrderNumbers orderNumbers) {
+        Integer shopExists = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM shops WHERE id = ?", Integer.class, shopId);
+        if (shopExists == null || shopExists == 0) {
+            bills.forEach(bill -> bill.fail("Shop not found with id: " + shopId));
+            return;
+        }
+
+        markAlreadySynced(shopId, bills);
+        List<PendingBill> pending = bills.stream().filter(bill -> bill.result == null).toList();
+        if (pending.isEmpty()) {
+            return;
+        }
+        resolveCustomers(shopId, pending);
+
+        for (int from = 0; from < pending.size(); from += CHUNK_SIZE) {
+            List<PendingBill> chunk = pending.subList(from, Math.min(from + CHUNK_SIZE, pending.size()));
+            try {
+                transactionTemplate.executeWithoutResult(status -> writeChunk(shopId, chunk, orderNumbers));
+            } catch (Exception e) {
+                log.warn("Offline order sync for shop {}: batch of {} failed ({}), retrying one by one",
+                        shopId, chunk.size(), e.getMessage());
+                chunk.forEach(this::syncOneByOne);
+            }
+        }
+    }
+
+    /** Bills whose offline id already has an order in this shop. */
+    private void markAlreadySynced(Long shopId, List<PendingBill> bills) {
+        List<String> offlineIds = bills.stream()
+                .map(bill -> bill.offlineOrderId)
+                .filter(id -> id != null)
+                .toList();
+        if (offlineIds.isEmpty()) {
+            return;
+        }
+        Map<String, PosOrderSyncResult> existing = new HashMap<>();
+        List<Object> args = new ArrayList<>();
+        args.add(shopId);
+        args.addAll(offlineIds);
+        jdbcTemplate.query(
+                "SELECT id, order_number, offline_order_id, total_amount FROM orders " +
+                "WHERE shop_id = ? AND offline_order_id IN (" + placeholders(offlineIds.size()) + ")",
+                rs -> {
+                    existing.put(rs.getString("offline_order_id"), PosOrderSyncResult.builder()
+                            .offlineOrderId(rs.getString("offline_order_id"))
+                            .status(PosOrderSyncResult.Status.DUPLICATE)
+                            .orderId(rs.getLong("id"))
+                            .orderNumber(rs.getString("order_number"))
+                            .totalAmount(rs.getBigDecimal("total_amount"))
+                            .build());
+                },
+                args.toArray());
+        for (PendingBill bill : bills) {
+            if (bill.offlineOrderId != null && existing.containsKey(bill.offlineOrderId)) {
+                bill.result = existing.get(bill.offlineOrderId);
+            }
+        }
+    }
+
+    /**
+     * One query for the customers behind every phone number in the batch (and
+     * the shop's walk-in customer). Numbers not on file, or with a new email
+     * to record, go through PosService's single-bill path once per number.
+     */
+    private void resolveCustomers(Long shopId, List<PendingBill> bills) {
+        String walkInPhone = String.format("90000%05d", shopId);
+        Set<String> phones = new HashSet<>();
+        for (PendingBill bill : bills) {
+            phones.add(phoneOf(bill.request, walkInPhone));
+        }
+        Map<String, Long> idByPhone = new HashMap<>();
+        Map<String, String> emailByPhone = new HashMap<>();
+        jdbcTemplate.query(
+                "SELECT id, mobile_number, email FROM customers WHERE mobile_number IN (" + placeholders(phones.size()) + ") " +
+                "ORDER BY id",
+                rs -> {
+                    // Lowest id per number, as findFirstByMobileNumberOrderByIdAsc
+                    if (idByPhone.putIfAbsent(rs.getString("mobile_number"), rs.getLong("id")) == null) {
+                        emailByPhone.put(rs.getString("mobile_number"), rs.getString("email"));
+                    }
+                },
+                phones.toArray());
+
+        for (PendingBill bill : bills) {
+            String phone = phoneOf(bill.request, walkInPhone);
+            String email = bill.request.getCustomerEmail() != null && bill.request.getCustomerEmail().contains("@")
+                    ? bill.request.getCustomerEmail().trim() : null;
+            Long id = idByPhone.get(phone);
+            boolean emailChanged = email != null && !phone.equals(walkInPhone)
+                    && !email.equalsIgnoreCase(emailByPhone.get(phone));
+            if (id == null || emailChanged) {
+                try {
+                    id = posService.getOrCreateWalkInCustomer(bill.request, shopId).getId();
+                    idByPhone.put(phone, id);
+                    if (email != null) {
+                        emailByPhone.put(phone, email);
+                    }
+                } catch (Exception e) {
+                    bill.fail("Could not record customer: " + e.getMessage());
+                    continue;
+                }
+            }
+            bill.customerId = id;
+        }
+    }
+
+    private static String phoneOf(PosOrderRequest request, String walkInPhone) {
+        String phone = request.getCustomerPhone();
+        return phone != null && !phone.trim().isEmpty() ? phone : walkInPhone;
+    }
+
+    /** All of a chunk's writes; runs in one transaction. */
+    private void writeChunk(Long shopId, List<PendingBill> chunk, OrderNumbers orderNumbers) {
+        List<PendingBill> bills = chunk.stream().filter(bill -> bill.result == null).toList();
+        if (bills.isEmpty()) {
+            return;
+        }
+        Map<Long, LockedProduct> products = lockProducts(bills);
+
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp timestamp = Timestamp.valueOf(now);
+        String user = getCurrentUsername();
+        List<PendingBill> planned = new ArrayList<>();
+        for (PendingBill bill : bills) {
+            if (plan(bill, products)) {
+                bill.orderNumber = orderNumbers.next();
+                planned.add(bill);
+            }
+        }
+        if (planned.isEmpty()) {
+            return;
+        }
+
+        jdbcTemplate.batchUpdate(INSERT_ORDER_SQL, planned, CHUNK_SIZE, (ps, bill) -> {
+            PosOrderRequest r = bill.request;
+            ps.setString(1, bill.orderNumber);
+            ps.setLong(2, bill.customerId);
+            ps.setLong(3, shopId);
+            ps.setString(4, Order.OrderStatus.SELF_PICKUP_COLLECTED.name());
+            ps.setString(5, Order.PaymentStatus.PAID.name());
+            ps.setString(6, r.getPaymentMethod() != null ? r.getPaymentMethod().name() : null);
+            ps.setString(7, Order.DeliveryType.SELF_PICKUP.name());
+            ps.setString(8, Order.OrderType.WALK_IN.name());
+            ps.setBigDecimal(9, bill.subtotal);
+            ps.setBigDecimal(10, BigDecimal.ZERO);
+            ps.setBigDecimal(11, BigDecimal.ZERO);
+            ps.setBigDecimal(12, bill.discount);
+            ps.setBigDecimal(13, bill.total);
+            ps.setString(14, r.getNotes());
+            ps.setString(15, bill.offlineOrderId);
+            ps.setString(16, user);
+            ps.setString(17, user);
+            ps.setTimestamp(18, timestamp);
+            ps.setTimestamp(19, timestamp);
+        });
+        Map<String, Long> ids = new HashMap<>();
+        jdbcTemplate.query("SELECT id, order_number FROM orders WHERE order_number IN (" + placeholders(planned.size()) + ")",
+                rs -> {
+                    ids.put(rs.getString("order_number"), rs.getLong("id"));
+                },
+                planned.stream().map(bill -> bill.orderNumber).toArray());
+        planned.forEach(bill -> bill.orderId = ids.get(bill.orderNumber));
+
+        List<Object[]> itemRows = new ArrayList<>();
+        for (PendingBill bill : planned) {
+            for (PlannedItem item : bill.items) {
+                itemRows.add(new Object[]{bill.orderId, item});
+            }
+        }
+        jdbcTemplate.batchUpdate(INSERT_ORDER_ITEM_SQL, itemRows, 500, (ps, row) -> {
+            PlannedItem item = (PlannedItem) row[1];
+            ps.setLong(1, (Long) row[0]);
+            ps.setObject(2, item.shopProductId(), Types.BIGINT);
+            ps.setInt(3, item.quantity());
+            ps.setBigDecimal(4, item.unitPrice());
+            ps.setBigDecimal(5, item.totalPrice());
+            ps.setString(6, item.name());
+            ps.setString(7, item.nameTamil());
+            ps.setString(8, item.imageUrl());
+            ps.setTimestamp(9, timestamp);
+            ps.setTimestamp(10, timestamp);
+        });
+
+        // One stock write per product, however many bills sold it
+        List<LockedProduct> stockUpdates = products.values().stream().filter(p -> p.stockChanged).toList();
+        if (!stockUpdates.isEmpty()) {
+            jdbcTemplate.batchUpdate(
+                    "UPDATE shop_products SET stock_quantity = ?, " +
+                    "status = CASE WHEN ? THEN 'OUT_OF_STOCK' ELSE status END, " +
+                    "is_available = CASE WHEN ? THEN false ELSE is_available END, updated_at = ? WHERE id = ?",
+                    stockUpdates, CHUNK_SIZE, (ps, product) -> {
+                        ps.setInt(1, product.stock);
+                        ps.setBoolean(2, product.stock == 0);
+                        ps.setBoolean(3, product.stock == 0);
+                        ps.setTimestamp(4, timestamp);
+                        ps.setLong(5, product.id);
+                    });
+            eventPublisher.publishEvent(new ShopProductChangedEvent(
+                    this, shopId, null, ShopProductChangedEvent.Change.UPDATED));
+        }
+
+        for (PendingBill bill : planned) {
+            bill.result = PosOrderSyncResult.builder()
+                    .offlineOrderId(bill.offlineOrderId)
+                    .status(PosOrderSyncResult.Status.CREATED)
+                    .orderId(bill.orderId)
+                    .orderNumber(bill.orderNumber)
+                    .totalAmount(bill.total)
+                    .build();
+            eventPublisher.publishEvent(new OrderStateChangedEvent(this, bill.orderId, shopId, bill.customerId,
+                    now, null, new Order.MetricsState(Order.OrderStatus.SELF_PICKUP_COLLECTED, true, bill.total),
+                    bill.itemCount));
+        }
+        log.info("Offline order sync for shop {}: wrote {} order(s), {} item(s), {} stock update(s)",
+                shopId, planned.size(), itemRows.size(), stockUpdates.size());
+    }
+
+    /** The chunk's catalog products, row-locked in id order so concurrent chunks can't deadlock. */
+    private Map<Long, LockedProduct> lockProducts(Collection<PendingBill> bills) {
+        Set<Long> productIds = new HashSet<>();
+        for (PendingBill bill : bills) {
+            for (PosOrderItemRequest item : bill.request.getItems()) {
+                if (item.getShopProductId() != null && item.getShopProductId() > 0) {
+                    productIds.add(item.getShopProductId());
+                }
+            }
+        }
+        Map<Long, LockedProduct> products = new TreeMap<>();
+        if (productIds.isEmpty()) {
+            return products;
+        }
+        jdbcTemplate.query(String.format(LOCK_PRODUCTS_SQL, placeholders(productIds.size())),
+                rs -> {
+                    LockedProduct product = new LockedProduct();
+                    product.id = rs.getLong("id");
+                    product.price = rs.getBigDecimal("price");
+                    product.stock = rs.getInt("stock_quantity");
+                    product.trackInventory = rs.getBoolean("track_inventory");
+                    String name = rs.getString("custom_name");
+                    if (name == null || name.trim().isEmpty()) {
+                        name = rs.getString("master_name");
+                    }
+                    product.name = name == null || name.trim().isEmpty() ? "Product #" + product.id : name;
+                    product.nameTamil = rs.getString("name_tamil");
+                    product.imageUrl = rs.getString("image_url");
+                    products.put(product.id, product);
+                },
+                productIds.toArray());
+        return products;
+    }
+
+    /**
+     * Replays createPosOrder's checks and pricing for one bill against the
+     * chunk's running stock. Stock is only taken once the whole bill passes,
+     * so a rejected bill leaves it for the bills after it.
+     */
+    private boolean plan(PendingBill bill, Map<Long, LockedProduct> products) {
+        List<PlannedItem> items = new ArrayList<>();
+        Map<Long, Integer> taken = new HashMap<>();
+        BigDecimal subtotal = BigDecimal.ZERO;
+        int itemCount = 0;
+        for (PosOrderItemRequest itemRequest : bill.request.getItems()) {
+            Long productId = itemRequest.getShopProductId();
+            int quantity = itemRequest.getQuantity();
+            itemCount += quantity;
+
+            // Custom item: no catalog product, billed with the typed name and price
+            if (productId == null || productId <= 0) {
+                if (itemRequest.getUnitPrice() == null) {
+                    bill.fail("Price is required for custom item");
+                    return false;
+                }
+                String customName = itemRequest.getProductName() != null && !itemRequest.getProductName().isBlank()
+                        ? itemRequest.getProductName().trim()
+                        : "Custom Item";
+                BigDecimal total = itemRequest.getUnitPrice().multiply(BigDecimal.valueOf(quantity));
+                items.add(new PlannedItem(null, customName, null, null, quantity, itemRequest.getUnitPrice(), total));
+                subtotal = subtotal.add(total);
+                continue;
+            }
+
+            LockedProduct product = products.get(productId);
+            if (product == null) {
+                bill.fail("Product not found: " + productId);
+                return false;
+            }
+            if (product.trackInventory) {
+                int available = product.stock - taken.getOrDefault(productId, 0);
+                if (available < quantity) {
+                    bill.fail(String.format("Insufficient stock for %s. Available: %d, Requested: %d",
+                            product.name, available, quantity));
+                    return false;
+                }
+                taken.merge(productId, quantity, Integer::sum);
+            }
+
+            BigDecimal unitPrice = itemRequest.getUnitPrice() != null ? itemRequest.getUnitPrice() : product.price;
+            BigDecimal total = unitPrice.multiply(BigDecimal.valueOf(quantity));
+            items.add(new PlannedItem(productId, product.name, product.nameTamil, product.imageUrl,
+                    quantity, unitPrice, total));
+            subtotal = subtotal.add(total);
+        }
+
+        taken.forEach((productId, quantity) -> {
+            LockedProduct product = products.get(productId);
+            product.stock -= quantity;
+            product.stockChanged = true;
+        });
+        bill.items = items;
+        bill.itemCount = itemCount;
+        bill.subtotal = subtotal;
+        bill.discount = bill.request.getDiscountAmount() != null ? bill.request.getDiscountAmount() : BigDecimal.ZERO;
+        bill.total = subtotal.subtract(bill.discount);
+        return true;
+    }
+
+    /** Fallback for a chunk whose batch failed: the single-bill path, which dedupes by offline id itself. */
+    private void syncOneByOne(PendingBill bill) {
+        if (bill.result != null && bill.result.getStatus() != PosOrderSyncResult.Status.CREATED) {
+            return; // failed its checks; the retry would fail the same way
+        }
+        try {
+            OrderResponse order = posService.createPosOrder(bill.request);
+            bill.result = PosOrderSyncResult.builder()
+                    .offlineOrderId(bill.offlineOrderId)
+                    .status(PosOrderSyncResult.Status.CREATED)
+                    .orderId(order.getId())
+                    .orderNumber(order.getOrderNumber())
+                    .totalAmount(order.getTotalAmount())
+                    .build();
+        } catch (Exception e) {
+            log.error("Failed to sync offline order {}: {}", bill.key, e.getMessage());
+            bill.fail(e.getMessage());
+        }
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    private String getCurrentUsername() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated()) {
+            return authentication.getName();
+        }
+        return "system";
+    }
+}
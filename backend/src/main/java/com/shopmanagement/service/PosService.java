@@ -47,7 +47,7 @@ public class PosService {
     private final ShopRepository shopRepository;
     private final ShopProductRepository shopProductRepository;
     private final CustomerRepository customerRepository;
-    private final BillPdfService billPdfService;
+    private final BillArtifactService billArtifactService;
     private final WhatsAppNotificationService whatsAppNotificationService;
     private final ShopWhatsAppUsageService shopWhatsAppUsageService;
     private final EmailService emailService;
@@ -86,7 +86,7 @@ public class PosService {
                 .orElseThrow(() -> new RuntimeException("Shop not found with id: " + request.getShopId()));
 
         // 2. Get or create walk-in customer
-        Customer customer = getOrCreateWalkInCustomer(request, shop);
+        Customer customer = getOrCreateWalkInCustomer(request, shop.getId());
 
         // 3-5. Process items, deduct stock, batch-save inventory updates
         ItemProcessingResult processed = processOrderItems(request.getItems());
@@ -295,32 +295,6 @@ public class PosService {
 
     private record ItemProcessingResult(List<OrderItem> orderItems, BigDecimal subtotal) {}
 
-    /**
-     * Sync multiple offline orders
-     */
-    @Transactional
-    public List<OrderResponse> syncOfflineOrders(List<PosOrderRequest> requests) {
-        log.info("Syncing {} offline orders", requests.size());
-
-        List<OrderResponse> responses = new ArrayList<>();
-        for (PosOrderRequest request : requests) {
-            try {
-                // Check if order already synced (by offlineOrderId)
-                if (request.getOfflineOrderId() != null) {
-                    // Could check for duplicate sync here
-                    log.info("Processing offline order: {}", request.getOfflineOrderId());
-                }
-                OrderResponse response = createPosOrder(request);
-                responses.add(response);
-            } catch (Exception e) {
-                log.error("Failed to sync offline order: {}", e.getMessage());
-                // Continue with other orders
-            }
-        }
-
-        return responses;
-    }
-
     /**
      * Generate the bill PDF for an order and send it to the customer via WhatsApp.
      * phoneOverride/nameOverride let the shop owner fill in details at send-time
@@ -381,16 +355,9 @@ public class PosService {
             name = order.getCustomer().getFullName();
         }
 
-        byte[] pdfBytes = billPdfService.generateBillPdf(order);
-
         try {
-            String suffix = UUID.randomUUID().toString().substring(0, 8);
-            Path billsDir = Paths.get(uploadDir, "bills");
-            Files.createDirectories(billsDir);
-
-            String pdfFileName = "bill_" + order.getOrderNumber() + "_" + suffix + ".pdf";
-            Files.write(billsDir.resolve(pdfFileName), pdfBytes);
-            String pdfUrl = apiBaseUrl + "/uploads/bills/" + pdfFileName;
+            BillArtifactService.BillArtifacts bill = billArtifactService.artifactsFor(order);
+            String pdfUrl = apiBaseUrl + bill.pdfUrl();
 
             // Include the shop's own number in the shop_name template variable so
             // customers can tap it and chat with the shop directly (bills go out
@@ -402,11 +369,8 @@ public class PosService {
             // Prefer sending the bill as an inline IMAGE — it shows full-size in the
             // chat immediately, unlike a PDF which customers must tap to download.
             boolean sent = false;
-            byte[] jpegBytes = billPdfService.renderBillJpeg(pdfBytes, order.getOrderNumber());
-            if (jpegBytes != null) {
-                String imgFileName = "bill_" + order.getOrderNumber() + "_" + suffix + ".jpg";
-                Files.write(billsDir.resolve(imgFileName), jpegBytes);
-                String imgUrl = apiBaseUrl + "/uploads/bills/" + imgFileName;
+            if (bill.hasImage()) {
+                String imgUrl = apiBaseUrl + bill.imageUrl();
                 sent = whatsAppNotificationService.sendBillImage(
                         phone, name, shopLabel,
                         order.getOrderNumber(), order.getTotalAmount().toPlainString(), imgUrl);
@@ -451,27 +415,16 @@ public class PosService {
         Order order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new RuntimeException("Order not found: " + orderId));
 
-        byte[] pdfBytes = billPdfService.generateBillPdf(order);
-
         try {
-            String suffix = UUID.randomUUID().toString().substring(0, 8);
-            Path billsDir = Paths.get(uploadDir, "bills");
-            Files.createDirectories(billsDir);
-
+            BillArtifactService.BillArtifacts bill = billArtifactService.artifactsFor(order);
             Map<String, String> links = new HashMap<>();
             links.put("orderNumber", order.getOrderNumber());
             links.put("amount", order.getTotalAmount().toPlainString());
             links.put("shopName", order.getShop().getName());
 
-            String pdfFileName = "bill_" + order.getOrderNumber() + "_" + suffix + ".pdf";
-            Files.write(billsDir.resolve(pdfFileName), pdfBytes);
-            links.put("pdfUrl", apiBaseUrl + "/uploads/bills/" + pdfFileName);
-
-            byte[] jpegBytes = billPdfService.renderBillJpeg(pdfBytes, order.getOrderNumber());
-            if (jpegBytes != null) {
-                String imgFileName = "bill_" + order.getOrderNumber() + "_" + suffix + ".jpg";
-                Files.write(billsDir.resolve(imgFileName), jpegBytes);
-                links.put("imageUrl", apiBaseUrl + "/uploads/bills/" + imgFileName);
+            links.put("pdfUrl", apiBaseUrl + bill.pdfUrl());
+            if (bill.hasImage()) {
+                links.put("imageUrl", apiBaseUrl + bill.imageUrl());
             }
 
             return links;
@@ -512,7 +465,13 @@ public class PosService {
                 ? nameOverride.trim()
                 : (order.getCustomer() != null ? order.getCustomer().getFullName() : null);
 
-        byte[] pdfBytes = billPdfService.generateBillPdf(order);
+        byte[] pdfBytes;
+        try {
+            pdfBytes = billArtifactService.artifactsFor(order).pdfBytes();
+        } catch (java.io.IOException e) {
+            log.error("Failed to prepare bill PDF for order {}", order.getOrderNumber(), e);
+            throw new RuntimeException("Failed to prepare bill PDF", e);
+        }
 
         emailService.sendBillEmail(
                 email,
@@ -535,9 +494,10 @@ public class PosService {
     /**
      * Get or create a walk-in customer
      * Performance optimized: Reuses a single "Walk-in Customer" per shop
-     * Only creates new customer if phone number is provided
+     * Only creates new customer if phone number is provided.
+     * Also used by PosOrderSyncService for customers its bulk lookup didn't settle.
      */
-    private Customer getOrCreateWalkInCustomer(PosOrderRequest request, Shop shop) {
+    Customer getOrCreateWalkInCustomer(PosOrderRequest request, Long shopId) {
         String customerPhone = request.getCustomerPhone();
         String customerName = request.getCustomerName();
 
@@ -581,7 +541,7 @@ public class PosService {
         // No phone provided - use shared walk-in customer for this shop
         // This avoids creating thousands of dummy customer records
         // Use a valid phone format: 9000000 + shopId (padded to 10 digits)
-        String walkInPhone = String.format("90000%05d", shop.getId());
+        String walkInPhone = String.format("90000%05d", shopId);
         Customer walkInCustomer = customerRepository.findFirstByMobileNumberOrderByIdAsc(walkInPhone).orElse(null);
 
         if (walkInCustomer == null) {
@@ -590,13 +550,13 @@ public class PosService {
                     .firstName("Walk-in")
                     .lastName("Customer")
                     .mobileNumber(walkInPhone)
-                    .email("walkin-" + shop.getId() + "@pos.local")
+                    .email("walkin-" + shopId + "@pos.local")
                     .createdBy(getCurrentUsername())
                     .updatedBy(getCurrentUsername())
                     .build();
 
             walkInCustomer = saveCustomerOrFetchExisting(walkInCustomer, walkInPhone);
-            log.info("Created walk-in customer for shop: {}", shop.getId());
+            log.info("Created walk-in customer for shop: {}", shopId);
         }
 
         return walkInCustomer;
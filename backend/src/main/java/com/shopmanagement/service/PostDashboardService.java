@@ -1,144 +1,102 @@
 package com.shopmanagement.service;
 
-import com.shopmanagement.entity.LabourPost;
-import com.shopmanagement.entity.TravelPost;
-import com.shopmanagement.entity.ParcelServicePost;
-import com.shopmanagement.entity.MarketplacePost;
-import com.shopmanagement.entity.FarmerProduct;
-import com.shopmanagement.entity.RealEstatePost;
-import com.shopmanagement.entity.RentalPost;
-import com.shopmanagement.repository.LabourPostRepository;
-import com.shopmanagement.repository.TravelPostRepository;
-import com.shopmanagement.repository.ParcelServicePostRepository;
-import com.shopmanagement.repository.MarketplacePostRepository;
-import com.shopmanagement.repository.FarmerProductRepository;
-import com.shopmanagement.repository.RealEstatePostRepository;
-import com.shopmanagement.entity.WomensCornerPost;
-import com.shopmanagement.entity.LocalShopPost;
-import com.shopmanagement.repository.RentalPostRepository;
-import com.shopmanagement.repository.WomensCornerPostRepository;
-import com.shopmanagement.repository.LocalShopPostRepository;
-import lombok.RequiredArgsConstructor;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.shopmanagement.event.PostChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
 
+import java.time.Duration;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.stream.Collectors;
 
+/**
+ * Moderation counts (total, pending, approved, rejected, reported) for every
+ * post module on the admin dashboard.
+ *
+ * All nine modules are counted in one statement: each table is scanned once
+ * with FILTER aggregates and the results are UNION ALL-ed, replacing the five
+ * count queries per module (45 round-trips) this used to take. The result is
+ * cached for {@link #TTL}; any post write drops it after commit
+ * ({@link PostChangedEvent}), and the TTL covers bulk updates and other nodes.
+ */
 @Service
-@RequiredArgsConstructor
+@Slf4j
 public class PostDashboardService {
 
-    private final LabourPostRepository labourPostRepository;
-    private final TravelPostRepository travelPostRepository;
-    private final ParcelServicePostRepository parcelServicePostRepository;
-    private final MarketplacePostRepository marketplacePostRepository;
-    private final FarmerProductRepository farmerProductRepository;
-    private final RealEstatePostRepository realEstatePostRepository;
-    private final RentalPostRepository rentalPostRepository;
-    private final WomensCornerPostRepository womensCornerPostRepository;
-    private final LocalShopPostRepository localShopPostRepository;
+    private static final Duration TTL = Duration.ofSeconds(30);
 
-    public Map<String, Map<String, Long>> getDashboardStats() {
-        Map<String, Map<String, Long>> stats = new HashMap<>();
-        stats.put("labour", getLabourStats());
-        stats.put("travel", getTravelStats());
-        stats.put("parcel", getParcelStats());
-        stats.put("marketplace", getMarketplaceStats());
-        stats.put("farmer", getFarmerStats());
-        stats.put("realEstate", getRealEstateStats());
-        stats.put("rental", getRentalStats());
-        stats.put("womensCorner", getWomensCornerStats());
-        stats.put("localShops", getLocalShopsStats());
-        return stats;
-    }
+    /** Dashboard key -> table, in display order. */
+    private static final Map<String, String> MODULE_TABLES = new LinkedHashMap<>();
 
-    private Map<String, Long> getLabourStats() {
-        Map<String, Long> stats = new HashMap<>();
-        stats.put("total", labourPostRepository.count());
-        stats.put("pending", labourPostRepository.countByStatus(LabourPost.PostStatus.PENDING_APPROVAL));
-        stats.put("approved", labourPostRepository.countByStatus(LabourPost.PostStatus.APPROVED));
-        stats.put("rejected", labourPostRepository.countByStatus(LabourPost.PostStatus.REJECTED));
-        stats.put("reported", labourPostRepository.countByReportCountGreaterThan(0));
-        return stats;
+    static {
+        MODULE_TABLES.put("labour", "labour_posts");
+        MODULE_TABLES.put("travel", "travel_posts");
+        MODULE_TABLES.put("parcel", "parcel_service_posts");
+        MODULE_TABLES.put("marketplace", "marketplace_posts");
+        MODULE_TABLES.put("farmer", "farmer_products");
+        MODULE_TABLES.put("realEstate", "real_estate_posts");
+        MODULE_TABLES.put("rental", "rental_posts");
+        MODULE_TABLES.put("womensCorner", "womens_corner_posts");
+        MODULE_TABLES.put("localShops", "local_shop_posts");
     }
 
-    private Map<String, Long> getTravelStats() {
-        Map<String, Long> stats = new HashMap<>();
-        stats.put("total", travelPostRepository.count());
-        stats.put("pending", travelPostRepository.countByStatus(TravelPost.PostStatus.PENDING_APPROVAL));
-        stats.put("approved", travelPostRepository.countByStatus(TravelPost.PostStatus.APPROVED));
-        stats.put("rejected", travelPostRepository.countByStatus(TravelPost.PostStatus.REJECTED));
-        stats.put("reported", travelPostRepository.countByReportCountGreaterThan(0));
-        return stats;
-    }
+    private static final String STATS_SQL = MODULE_TABLES.entrySet().stream()
+            .map(module -> "SELECT '" + module.getKey() + "' AS module, COUNT(*) AS total, " +
+                    "COUNT(*) FILTER (WHERE status = 'PENDING_APPROVAL') AS pending, " +
+                    "COUNT(*) FILTER (WHERE status = 'APPROVED') AS approved, " +
+                    "COUNT(*) FILTER (WHERE status = 'REJECTED') AS rejected, " +
+                    "COUNT(*) FILTER (WHERE report_count > 0) AS reported " +
+                    "FROM " + module.getValue())
+            .collect(Collectors.joining(" UNION ALL "));
 
-    private Map<String, Long> getParcelStats() {
-        Map<String, Long> stats = new HashMap<>();
-        stats.put("total", parcelServicePostRepository.count());
-        stats.put("pending", parcelServicePostRepository.countByStatus(ParcelServicePost.PostStatus.PENDING_APPROVAL));
-        stats.put("approved", parcelServicePostRepository.countByStatus(ParcelServicePost.PostStatus.APPROVED));
-        stats.put("rejected", parcelServicePostRepository.countByStatus(ParcelServicePost.PostStatus.REJECTED));
-        stats.put("reported", parcelServicePostRepository.countByReportCountGreaterThan(0));
-        return stats;
-    }
+    private final JdbcTemplate jdbcTemplate;
+    private final Cache<Boolean, Map<String, Map<String, Long>>> statsCache = Caffeine.newBuilder()
+            .maximumSize(1)
+            .expireAfterWrite(TTL)
+            .build();
 
-    private Map<String, Long> getMarketplaceStats() {
-        Map<String, Long> stats = new HashMap<>();
-        stats.put("total", marketplacePostRepository.count());
-        stats.put("pending", marketplacePostRepository.countByStatus(MarketplacePost.PostStatus.PENDING_APPROVAL));
-        stats.put("approved", marketplacePostRepository.countByStatus(MarketplacePost.PostStatus.APPROVED));
-        stats.put("rejected", marketplacePostRepository.countByStatus(MarketplacePost.PostStatus.REJECTED));
-        stats.put("reported", marketplacePostRepository.countByReportCountGreaterThan(0));
-        return stats;
-    }
-
-    private Map<String, Long> getFarmerStats() {
-        Map<String, Long> stats = new HashMap<>();
-        stats.put("total", farmerProductRepository.count());
-        stats.put("pending", farmerProductRepository.countByStatus(FarmerProduct.PostStatus.PENDING_APPROVAL));
-        stats.put("approved", farmerProductRepository.countByStatus(FarmerProduct.PostStatus.APPROVED));
-        stats.put("rejected", farmerProductRepository.countByStatus(FarmerProduct.PostStatus.REJECTED));
-        stats.put("reported", farmerProductRepository.countByReportCountGreaterThan(0));
-        return stats;
+    public PostDashboardService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
     }
 
-    private Map<String, Long> getRealEstateStats() {
-        Map<String, Long> stats = new HashMap<>();
-        stats.put("total", realEstatePostRepository.count());
-        stats.put("pending", realEstatePostRepository.countByStatus(RealEstatePost.PostStatus.PENDING_APPROVAL));
-        stats.put("approved", realEstatePostRepository.countByStatus(RealEstatePost.PostStatus.APPROVED));
-        stats.put("rejected", realEstatePostRepository.countByStatus(RealEstatePost.PostStatus.REJECTED));
-        stats.put("reported", realEstatePostRepository.countByReportCountGreaterThan(0));
-        return stats;
+    public Map<String, Map<String, Long>> getDashboardStats() {
+        return statsCache.get(Boolean.TRUE, key -> loadStats());
     }
 
-    private Map<String, Long> getRentalStats() {
-        Map<String, Long> stats = new HashMap<>();
-        stats.put("total", rentalPostRepository.count());
-        stats.put("pending", rentalPostRepository.countByStatus(RentalPost.PostStatus.PENDING_APPROVAL));
-        stats.put("approved", rentalPostRepository.countByStatus(RentalPost.PostStatus.APPROVED));
-        stats.put("rejected", rentalPostRepository.countByStatus(RentalPost.PostStatus.REJECTED));
-        stats.put("reported", rentalPostRepository.countByReportCountGreaterThan(0));
-        return stats;
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPostChanged(PostChangedEvent event) {
+        statsCache.invalidateAll();
     }
 
-    private Map<String, Long> getWomensCornerStats() {
-        Map<String, Long> stats = new HashMap<>();
-        stats.put("total", womensCornerPostRepository.count());
-        stats.put("pending", womensCornerPostRepository.countByStatus(WomensCornerPost.PostStatus.PENDING_APPROVAL));
-        stats.put("approved", womensCornerPostRepository.countByStatus(WomensCornerPost.PostStatus.APPROVED));
-        stats.put("rejected", womensCornerPostRepository.countByStatus(WomensCornerPost.PostStatus.REJECTED));
-        stats.put("reported", womensCornerPostRepository.countByReportCountGreaterThan(0));
+    private Map<String, Map<String, Long>> loadStats() {
+        long started = System.nanoTime();
+        Map<String, Map<String, Long>> stats = new HashMap<>();
+        MODULE_TABLES.keySet().forEach(module -> stats.put(module, emptyStats()));
+        jdbcTemplate.query(STATS_SQL, rs -> {
+            Map<String, Long> module = stats.get(rs.getString("module"));
+            module.put("total", rs.getLong("total"));
+            module.put("pending", rs.getLong("pending"));
+            module.put("approved", rs.getLong("approved"));
+            module.put("rejected", rs.getLong("rejected"));
+            module.put("reported", rs.getLong("reported"));
+        });
+        log.debug("Post moderation stats for {} modules loaded in one query ({} ms)",
+                MODULE_TABLES.size(), (System.nanoTime() - started) / 1_000_000);
         return stats;
     }
 
-    private Map<String, Long> getLocalShopsStats() {
+    private static Map<String, Long> emptyStats() {
         Map<String, Long> stats = new HashMap<>();
-        stats.put("total", localShopPostRepository.count());
-        stats.put("pending", localShopPostRepository.countByStatus(LocalShopPost.PostStatus.PENDING_APPROVAL));
-        stats.put("approved", localShopPostRepository.countByStatus(LocalShopPost.PostStatus.APPROVED));
-        stats.put("rejected", localShopPostRepository.countByStatus(LocalShopPost.PostStatus.REJECTED));
-        stats.put("reported", localShopPostRepository.countByReportCountGreaterThan(0));
+        stats.put("total", 0L);
+        stats.put("pending", 0L);
+        stats.put("approved", 0L);
+        stats.put("rejected", 0L);
+        stats.put("reported", 0L);
         return stats;
     }
 }
@@ -1,150 +1,137 @@
 package com.shopmanagement.service;
 
 import com.shopmanagement.dto.notification.NotificationRequest;
-import com.shopmanagement.entity.*;
-import com.shopmanagement.entity.MarketplacePost.PostStatus;
 import com.shopmanagement.entity.Notification;
-import com.shopmanagement.repository.*;
-import lombok.RequiredArgsConstructor;
+import com.shopmanagement.entity.User;
+import com.shopmanagement.repository.UserRepository;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
-
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Expiry reminders and cleanup for the classified-post modules.
+ *
+ * Both jobs walk each module's candidates in id order, {@link #CHUNK_SIZE}
+ * rows at a time (keyset pagination, no OFFSET), and never hold a transaction
+ * across chunks:
+ *   - reminders: one UPDATE ... WHERE id IN (...) marks a chunk as reminded,
+ *     then the push + email sends go to a small bounded pool. When the pool
+ *     is saturated the job thread sends itself, which throttles paging.
+ *   - cleanup: one DELETE ... RETURNING per chunk removes the expired posts
+ *     and hands back their media URLs, which are deleted after the rows are.
+ * A reminder is marked before it is sent, so a crash mid-chunk skips those
+ * reminders rather than sending them twice.
+ *
+ * Progress of the current/last run of each job is available from
+ * {@link #getProgress()}.
+ */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class PostExpirySchedulerService {
 
-    private final LocalShopPostRepository localShopPostRepository;
-    private final MarketplacePostRepository marketplacePostRepository;
-    private final FarmerProductRepository farmerProductRepository;
-    private final LabourPostRepository labourPostRepository;
-    private final TravelPostRepository travelPostRepository;
-    private final ParcelServicePostRepository parcelServicePostRepository;
-    private final RealEstatePostRepository realEstatePostRepository;
-    private final RentalPostRepository rentalPostRepository;
+    private static final int CHUNK_SIZE = 200;
+    private static final String ACTIVE_STATUSES = "('PENDING_APPROVAL', 'APPROVED')";
+    private static final DateTimeFormatter DATE_FMT = DateTimeFormatter.ofPattern("dd MMM yyyy");
+
+    private static final List<ExpiryModule> MODULES = List.of(
+            new ExpiryModule("marketplace_posts", "seller_user_id", "title", "Marketplace", List.of("image_url")),
+            new ExpiryModule("farmer_products", "seller_user_id", "title", "Farm Products", List.of("image_urls")),
+            new ExpiryModule("labour_posts", "seller_user_id", "name", "Labours", List.of("image_urls")),
+            new ExpiryModule("travel_posts", "seller_user_id", "title", "Travels", List.of("image_urls")),
+            new ExpiryModule("parcel_service_posts", "seller_user_id", "service_name", "Parcel Service", List.of("image_urls")),
+            new ExpiryModule("real_estate_posts", "owner_user_id", "title", "Real Estate", List.of("image_urls", "video_url")),
+            new ExpiryModule("rental_posts", "seller_user_id", "title", "Rental", List.of("image_urls")),
+            new ExpiryModule("local_shop_posts", "seller_user_id", "shop_name", "Local Shops", List.of("image_urls"))
+    );
+
+    private final JdbcTemplate jdbcTemplate;
     private final UserRepository userRepository;
     private final NotificationService notificationService;
     private final EmailService emailService;
     private final FileUploadService fileUploadService;
     private final SettingService settingService;
 
-    private static final DateTimeFormatter DATE_FMT = DateTimeFormatter.ofPattern("dd MMM yyyy");
+    private final ThreadPoolExecutor reminderDispatcher;
+    private final JobProgress reminderProgress = new JobProgress();
+    private final JobProgress cleanupProgress = new JobProgress();
+
+    public PostExpirySchedulerService(JdbcTemplate jdbcTemplate,
+                                      UserRepository userRepository,
+                                      NotificationService notificationService,
+                                      EmailService emailService,
+                                      FileUploadService fileUploadService,
+                                      SettingService settingService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.userRepository = userRepository;
+        this.notificationService = notificationService;
+        this.emailService = emailService;
+        this.fileUploadService = fileUploadService;
+        this.settingService = settingService;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.reminderDispatcher = new ThreadPoolExecutor(2, 2, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(CHUNK_SIZE),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "PostExpiryReminder-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
 
-    // Active statuses for each post type (statuses that should receive reminders / be cleaned up)
-    private static final List<MarketplacePost.PostStatus> MP_ACTIVE = List.of(
-            MarketplacePost.PostStatus.PENDING_APPROVAL, MarketplacePost.PostStatus.APPROVED);
-    private static final List<FarmerProduct.PostStatus> FP_ACTIVE = List.of(
-            FarmerProduct.PostStatus.PENDING_APPROVAL, FarmerProduct.PostStatus.APPROVED);
-    private static final List<LabourPost.PostStatus> LP_ACTIVE = List.of(
-            LabourPost.PostStatus.PENDING_APPROVAL, LabourPost.PostStatus.APPROVED);
-    private static final List<TravelPost.PostStatus> TP_ACTIVE = List.of(
-            TravelPost.PostStatus.PENDING_APPROVAL, TravelPost.PostStatus.APPROVED);
-    private static final List<ParcelServicePost.PostStatus> PP_ACTIVE = List.of(
-            ParcelServicePost.PostStatus.PENDING_APPROVAL, ParcelServicePost.PostStatus.APPROVED);
-    private static final List<RealEstatePost.PostStatus> RE_ACTIVE = List.of(
-            RealEstatePost.PostStatus.PENDING_APPROVAL, RealEstatePost.PostStatus.APPROVED);
-    private static final List<RentalPost.PostStatus> RN_ACTIVE = List.of(
-            RentalPost.PostStatus.PENDING_APPROVAL, RentalPost.PostStatus.APPROVED);
-    private static final List<LocalShopPost.PostStatus> LS_ACTIVE = List.of(
-            LocalShopPost.PostStatus.PENDING_APPROVAL, LocalShopPost.PostStatus.APPROVED);
+    @PreDestroy
+    void stop() {
+        reminderDispatcher.shutdown();
+    }
 
     /**
      * Daily at 9 AM: Send expiry reminders for posts expiring within N days
      */
     @Scheduled(cron = "0 0 9 * * *")
-    @Transactional
     public void sendExpiryReminders() {
+        if (!reminderProgress.start()) {
+            log.warn("Post expiry reminder job is already running; skipping");
+            return;
+        }
         try {
-            int reminderDays = Integer.parseInt(
-                    settingService.getSettingValue("post.expiry.reminder_days_before", "3"));
+            int reminderDays = settingService.getIntValue("post.expiry.reminder_days_before", 3);
             LocalDateTime now = LocalDateTime.now();
             LocalDateTime reminderCutoff = now.plusDays(reminderDays);
 
             log.info("Running post expiry reminder job: checking posts expiring between {} and {}", now, reminderCutoff);
 
-            int count = 0;
-
-            // Marketplace posts
-            for (MarketplacePost post : marketplacePostRepository
-                    .findByValidToBetweenAndExpiryReminderSentFalseAndStatusIn(now, reminderCutoff, MP_ACTIVE)) {
-                sendReminderForPost(post.getSellerUserId(), post.getTitle(), "Marketplace", post.getId(), post.getValidTo());
-                post.setExpiryReminderSent(true);
-                marketplacePostRepository.save(post);
-                count++;
-            }
-
-            // Farmer products
-            for (FarmerProduct post : farmerProductRepository
-                    .findByValidToBetweenAndExpiryReminderSentFalseAndStatusIn(now, reminderCutoff, FP_ACTIVE)) {
-                sendReminderForPost(post.getSellerUserId(), post.getTitle(), "Farm Products", post.getId(), post.getValidTo());
-                post.setExpiryReminderSent(true);
-                farmerProductRepository.save(post);
-                count++;
-            }
-
-            // Labour posts
-            for (LabourPost post : labourPostRepository
-                    .findByValidToBetweenAndExpiryReminderSentFalseAndStatusIn(now, reminderCutoff, LP_ACTIVE)) {
-                sendReminderForPost(post.getSellerUserId(), post.getName(), "Labours", post.getId(), post.getValidTo());
-                post.setExpiryReminderSent(true);
-                labourPostRepository.save(post);
-                count++;
-            }
-
-            // Travel posts
-            for (TravelPost post : travelPostRepository
-                    .findByValidToBetweenAndExpiryReminderSentFalseAndStatusIn(now, reminderCutoff, TP_ACTIVE)) {
-                sendReminderForPost(post.getSellerUserId(), post.getTitle(), "Travels", post.getId(), post.getValidTo());
-                post.setExpiryReminderSent(true);
-                travelPostRepository.save(post);
-                count++;
-            }
-
-            // Parcel service posts
-            for (ParcelServicePost post : parcelServicePostRepository
-                    .findByValidToBetweenAndExpiryReminderSentFalseAndStatusIn(now, reminderCutoff, PP_ACTIVE)) {
-                sendReminderForPost(post.getSellerUserId(), post.getServiceName(), "Parcel Service", post.getId(), post.getValidTo());
-                post.setExpiryReminderSent(true);
-                parcelServicePostRepository.save(post);
-                count++;
-            }
-
-            // Real estate posts
-            for (RealEstatePost post : realEstatePostRepository
-                    .findByValidToBetweenAndExpiryReminderSentFalseAndStatusIn(now, reminderCutoff, RE_ACTIVE)) {
-                sendReminderForPost(post.getOwnerUserId(), post.getTitle(), "Real Estate", post.getId(), post.getValidTo());
-                post.setExpiryReminderSent(true);
-                realEstatePostRepository.save(post);
-                count++;
-            }
-
-            // Rental posts
-            for (RentalPost post : rentalPostRepository
-                    .findByValidToBetweenAndExpiryReminderSentFalseAndStatusIn(now, reminderCutoff, RN_ACTIVE)) {
-                sendReminderForPost(post.getSellerUserId(), post.getTitle(), "Rental", post.getId(), post.getValidTo());
-                post.setExpiryReminderSent(true);
-                rentalPostRepository.save(post);
-                count++;
-            }
-
-            // Local shop posts
-            for (LocalShopPost post : localShopPostRepository
-                    .findByValidToBetweenAndExpiryReminderSentFalseAndStatusIn(now, reminderCutoff, LS_ACTIVE)) {
-                sendReminderForPost(post.getSellerUserId(), post.getShopName(), "Local Shops", post.getId(), post.getValidTo());
-                post.setExpiryReminderSent(true);
-                localShopPostRepository.save(post);
-                count++;
+            for (ExpiryModule module : MODULES) {
+                reminderProgress.currentModule = module.table();
+                try {
+                    sendRemindersForModule(module, now, reminderCutoff);
+                } catch (Exception e) {
+                    reminderProgress.failures.incrementAndGet();
+                    log.error("Post expiry reminders failed for {}", module.table(), e);
+                }
             }
 
-            log.info("Post expiry reminder job completed: {} reminders sent", count);
-        } catch (Exception e) {
-            log.error("Error in post expiry reminder scheduler", e);
+            log.info("Post expiry reminder job completed: {} reminders dispatched in {} chunk(s)",
+                    reminderProgress.processed.get(), reminderProgress.chunks.get());
+        } finally {
+            reminderProgress.finish();
         }
     }
 
@@ -152,106 +139,136 @@ public class PostExpirySchedulerService {
      * Daily at 3 AM: Delete expired posts past grace period + their images
      */
     @Scheduled(cron = "0 0 3 * * *")
-    @Transactional
     public void cleanupExpiredPosts() {
+        if (!cleanupProgress.start()) {
+            log.warn("Expired post cleanup job is already running; skipping");
+            return;
+        }
         try {
-            int gracePeriodDays = Integer.parseInt(
-                    settingService.getSettingValue("post.expiry.grace_period_days", "7"));
+            int gracePeriodDays = settingService.getIntValue("post.expiry.grace_period_days", 7);
             LocalDateTime cutoff = LocalDateTime.now().minusDays(gracePeriodDays);
 
             log.info("Running expired post cleanup job: deleting posts expired before {}", cutoff);
 
-            int deleted = 0;
-
-            // Marketplace posts
-            for (MarketplacePost post : marketplacePostRepository.findByValidToBeforeAndStatusIn(cutoff, MP_ACTIVE)) {
-                deleteImage(post.getImageUrl());
-                marketplacePostRepository.delete(post);
-                deleted++;
-                log.info("Deleted expired marketplace post: id={}, title={}", post.getId(), post.getTitle());
+            for (ExpiryModule module : MODULES) {
+                cleanupProgress.currentModule = module.table();
+                try {
+                    cleanupModule(module, cutoff);
+                } catch (Exception e) {
+                    cleanupProgress.failures.incrementAndGet();
+                    log.error("Expired post cleanup failed for {}", module.table(), e);
+                }
             }
 
-            // Farmer products
-            for (FarmerProduct post : farmerProductRepository.findByValidToBeforeAndStatusIn(cutoff, FP_ACTIVE)) {
-                deleteImages(post.getImageUrls());
-                farmerProductRepository.delete(post);
-                deleted++;
-                log.info("Deleted expired farmer product: id={}, title={}", post.getId(), post.getTitle());
-            }
+            log.info("Expired post cleanup job completed: {} posts deleted in {} chunk(s)",
+                    cleanupProgress.processed.get(), cleanupProgress.chunks.get());
+        } finally {
+            cleanupProgress.finish();
+        }
+    }
 
-            // Labour posts
-            for (LabourPost post : labourPostRepository.findByValidToBeforeAndStatusIn(cutoff, LP_ACTIVE)) {
-                deleteImages(post.getImageUrls());
-                labourPostRepository.delete(post);
-                deleted++;
-                log.info("Deleted expired labour post: id={}, name={}", post.getId(), post.getName());
-            }
+    /** Current or last run of each job: state, timings, rows handled, chunks, failures. */
+    public Map<String, Object> getProgress() {
+        Map<String, Object> progress = new LinkedHashMap<>();
+        progress.put("reminders", reminderProgress.snapshot());
+        progress.put("cleanup", cleanupProgress.snapshot());
+        progress.put("pendingReminderSends", reminderDispatcher.getQueue().size() + reminderDispatcher.getActiveCount());
+        return progress;
+    }
 
-            // Travel posts
-            for (TravelPost post : travelPostRepository.findByValidToBeforeAndStatusIn(cutoff, TP_ACTIVE)) {
-                deleteImages(post.getImageUrls());
-                travelPostRepository.delete(post);
-                deleted++;
-                log.info("Deleted expired travel post: id={}, title={}", post.getId(), post.getTitle());
+    // ---- Per-module chunk loops ----
+
+    private void sendRemindersForModule(ExpiryModule module, LocalDateTime from, LocalDateTime to) {
+        long lastId = 0;
+        while (true) {
+            List<ReminderCandidate> chunk = jdbcTemplate.query(
+                    "SELECT id, " + module.ownerColumn() + " AS user_id, " + module.titleColumn() + " AS title, valid_to " +
+                    "FROM " + module.table() + " " +
+                    "WHERE valid_to >= ? AND valid_to <= ? AND expiry_reminder_sent = FALSE " +
+                    "AND status IN " + ACTIVE_STATUSES + " AND id > ? ORDER BY id LIMIT ?",
+                    (rs, rowNum) -> new ReminderCandidate(
+                            rs.getLong("id"),
+                            rs.getLong("user_id"),
+                            rs.getString("title"),
+                            rs.getTimestamp("valid_to") != null ? rs.getTimestamp("valid_to").toLocalDateTime() : null),
+                    from, to, lastId, CHUNK_SIZE);
+            if (chunk.isEmpty()) {
+                return;
             }
-
-            // Parcel service posts
-            for (ParcelServicePost post : parcelServicePostRepository.findByValidToBeforeAndStatusIn(cutoff, PP_ACTIVE)) {
-                deleteImages(post.getImageUrls());
-                parcelServicePostRepository.delete(post);
-                deleted++;
-                log.info("Deleted expired parcel service post: id={}, serviceName={}", post.getId(), post.getServiceName());
+            lastId = chunk.get(chunk.size() - 1).id();
+
+            List<Object> ids = chunk.stream().map(ReminderCandidate::id).collect(Collectors.toList());
+            jdbcTemplate.update("UPDATE " + module.table() + " SET expiry_reminder_sent = TRUE WHERE id IN ("
+                    + placeholders(ids.size()) + ")", ids.toArray());
+
+            Set<Long> userIds = chunk.stream().map(ReminderCandidate::userId).collect(Collectors.toSet());
+            Map<Long, User> users = userRepository.findAllById(userIds).stream()
+                    .collect(Collectors.toMap(User::getId, Function.identity()));
+            for (ReminderCandidate candidate : chunk) {
+                User user = users.get(candidate.userId());
+                if (user != null) {
+                    reminderDispatcher.execute(() -> sendReminderForPost(user, candidate, module.category()));
+                }
             }
 
-            // Real estate posts
-            for (RealEstatePost post : realEstatePostRepository.findByValidToBeforeAndStatusIn(cutoff, RE_ACTIVE)) {
-                deleteImages(post.getImageUrls());
-                deleteImage(post.getVideoUrl());
-                realEstatePostRepository.delete(post);
-                deleted++;
-                log.info("Deleted expired real estate post: id={}, title={}", post.getId(), post.getTitle());
+            reminderProgress.chunks.incrementAndGet();
+            reminderProgress.processed.addAndGet(chunk.size());
+            if (chunk.size() < CHUNK_SIZE) {
+                return;
             }
+        }
+    }
 
-            // Rental posts
-            for (RentalPost post : rentalPostRepository.findByValidToBeforeAndStatusIn(cutoff, RN_ACTIVE)) {
-                deleteImages(post.getImageUrls());
-                rentalPostRepository.delete(post);
-                deleted++;
-                log.info("Deleted expired rental post: id={}, title={}", post.getId(), post.getTitle());
+    private void cleanupModule(ExpiryModule module, LocalDateTime cutoff) {
+        String mediaColumns = String.join(", ", module.mediaColumns());
+        long lastId = 0;
+        while (true) {
+            // Rows come back from the DELETE itself, so a post renewed meanwhile is neither deleted nor stripped of media
+            List<ExpiredPost> deleted = jdbcTemplate.query(
+                    "DELETE FROM " + module.table() + " WHERE id IN (" +
+                    "  SELECT id FROM " + module.table() +
+                    "  WHERE valid_to < ? AND status IN " + ACTIVE_STATUSES + " AND id > ? ORDER BY id LIMIT ?) " +
+                    "RETURNING id, " + module.titleColumn() + " AS title, " + mediaColumns,
+                    (rs, rowNum) -> {
+                        List<String> media = new ArrayList<>();
+                        for (String column : module.mediaColumns()) {
+                            media.add(rs.getString(column));
+                        }
+                        return new ExpiredPost(rs.getLong("id"), rs.getString("title"), media);
+                    },
+                    cutoff, lastId, CHUNK_SIZE);
+            if (deleted.isEmpty()) {
+                return;
             }
-
-            // Local shop posts
-            for (LocalShopPost post : localShopPostRepository.findByValidToBeforeAndStatusIn(cutoff, LS_ACTIVE)) {
-                deleteImages(post.getImageUrls());
-                localShopPostRepository.delete(post);
-                deleted++;
-                log.info("Deleted expired local shop post: id={}, shopName={}", post.getId(), post.getShopName());
+            for (ExpiredPost post : deleted) {
+                lastId = Math.max(lastId, post.id());
+                post.media().forEach(this::deleteImages);
+                log.info("Deleted expired {} post: id={}, title={}", module.category(), post.id(), post.title());
             }
 
-            log.info("Expired post cleanup job completed: {} posts deleted", deleted);
-        } catch (Exception e) {
-            log.error("Error in expired post cleanup scheduler", e);
+            cleanupProgress.chunks.incrementAndGet();
+            cleanupProgress.processed.addAndGet(deleted.size());
+            if (deleted.size() < CHUNK_SIZE) {
+                return;
+            }
         }
     }
 
     // ---- Helper methods ----
 
-    private void sendReminderForPost(Long userId, String postTitle, String category, Long postId, LocalDateTime validTo) {
+    private void sendReminderForPost(User user, ReminderCandidate post, String category) {
         try {
-            User user = userRepository.findById(userId).orElse(null);
-            if (user == null) return;
-
-            String expiryDate = validTo != null ? validTo.format(DATE_FMT) : "soon";
+            String expiryDate = post.validTo() != null ? post.validTo().format(DATE_FMT) : "soon";
 
             // Push notification
             NotificationRequest request = NotificationRequest.builder()
                     .title("Post Expiring Soon")
-                    .message("Your " + category + " post '" + postTitle + "' expires on " + expiryDate + ". Renew it to keep it visible.")
+                    .message("Your " + category + " post '" + post.title() + "' expires on " + expiryDate + ". Renew it to keep it visible.")
                     .type(Notification.NotificationType.WARNING)
                     .priority(Notification.NotificationPriority.HIGH)
-                    .recipientId(userId)
+                    .recipientId(user.getId())
                     .recipientType(Notification.RecipientType.USER)
-                    .referenceId(postId)
+                    .referenceId(post.id())
                     .referenceType("POST_EXPIRY")
                     .actionText("Renew Post")
                     .icon("timer")
@@ -264,16 +281,11 @@ public class PostExpirySchedulerService {
             // Email
             if (user.getEmail() != null) {
                 emailService.sendPostExpiryReminderEmail(
-                        user.getEmail(), user.getFullName(), postTitle, category, expiryDate);
+                        user.getEmail(), user.getFullName(), post.title(), category, expiryDate);
             }
         } catch (Exception e) {
-            log.error("Failed to send expiry reminder for post: id={}, title={}", postId, postTitle, e);
-        }
-    }
-
-    private void deleteImage(String imageUrl) {
-        if (imageUrl != null && !imageUrl.isBlank()) {
-            fileUploadService.deleteFile(imageUrl);
+            reminderProgress.failures.incrementAndGet();
+            log.error("Failed to send expiry reminder for post: id={}, title={}", post.id(), post.title(), e);
         }
     }
 
@@ -282,9 +294,71 @@ public class PostExpirySchedulerService {
             for (String url : imageUrls.split(",")) {
                 String trimmed = url.trim();
                 if (!trimmed.isEmpty()) {
-                    fileUploadService.deleteFile(trimmed);
+                    try {
+                        fileUploadService.deleteFile(trimmed);
+                    } catch (Exception e) {
+                        cleanupProgress.failures.incrementAndGet();
+                        log.warn("Failed to delete media of expired post: {}", trimmed, e);
+                    }
                 }
             }
         }
     }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    /** One post table: owner/title columns for reminders, media columns (comma-separated URLs) for cleanup. */
+    private record ExpiryModule(String table, String ownerColumn, String titleColumn, String category,
+                                List<String> mediaColumns) {
+    }
+
+    private record ReminderCandidate(long id, long userId, String title, LocalDateTime validTo) {
+    }
+
+    private record ExpiredPost(long id, String title, List<String> media) {
+    }
+
+    private static final class JobProgress {
+        private volatile boolean running;
+        private volatile LocalDateTime startedAt;
+        private volatile LocalDateTime finishedAt;
+        private volatile String currentModule;
+        private final AtomicLong processed = new AtomicLong();
+        private final AtomicLong chunks = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+
+        synchronized boolean start() {
+            if (running) {
+                return false;
+            }
+            running = true;
+            startedAt = LocalDateTime.now();
+            finishedAt = null;
+            currentModule = null;
+            processed.set(0);
+            chunks.set(0);
+            failures.set(0);
+            return true;
+        }
+
+        synchronized void finish() {
+            running = false;
+            currentModule = null;
+            finishedAt = LocalDateTime.now();
+        }
+
+        Map<String, Object> snapshot() {
+            Map<String, Object> snapshot = new LinkedHashMap<>();
+            snapshot.put("running", running);
+            snapshot.put("startedAt", startedAt);
+            snapshot.put("finishedAt", finishedAt);
+            snapshot.put("currentModule", currentModule);
+            snapshot.put("processed", processed.get());
+            snapshot.put("chunks", chunks.get());
+            snapshot.put("failures", failures.get());
+            return snapshot;
+        }
+    }
 }
@@ -8,8 +8,6 @@ import org.springframework.context.annotation.Lazy;
 import com.shopmanagement.entity.PostPayment;
 import com.shopmanagement.config.RazorpayConfig;
 import com.shopmanagement.repository.PostPaymentRepository;
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.Query;
 import lombok.extern.slf4j.Slf4j;
 import org.json.JSONObject;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -32,32 +30,21 @@ public class PostPaymentService {
     private final RazorpayClient razorpayClient;
     private final RazorpayConfig razorpayConfig;
     private final SettingService settingService;
-    private final EntityManager entityManager;
+    private final PostQuotaLedgerService postQuotaLedgerService;
     private final PostSubscriptionService subscriptionService;
 
-    private static final String GLOBAL_COUNT_QUERY =
-        "SELECT " +
-        "(SELECT COUNT(*) FROM marketplace_posts WHERE seller_user_id = :uid AND status IN ('PENDING_APPROVAL', 'APPROVED')) + " +
-        "(SELECT COUNT(*) FROM farmer_products WHERE seller_user_id = :uid AND status IN ('PENDING_APPROVAL', 'APPROVED')) + " +
-        "(SELECT COUNT(*) FROM labour_posts WHERE seller_user_id = :uid AND status IN ('PENDING_APPROVAL', 'APPROVED')) + " +
-        "(SELECT COUNT(*) FROM travel_posts WHERE seller_user_id = :uid AND status IN ('PENDING_APPROVAL', 'APPROVED')) + " +
-        "(SELECT COUNT(*) FROM parcel_service_posts WHERE seller_user_id = :uid AND status IN ('PENDING_APPROVAL', 'APPROVED')) + " +
-        "(SELECT COUNT(*) FROM rental_posts WHERE seller_user_id = :uid AND status IN ('PENDING_APPROVAL', 'APPROVED')) + " +
-        "(SELECT COUNT(*) FROM real_estate_posts WHERE owner_user_id = :uid AND status IN ('PENDING_APPROVAL', 'APPROVED')) + " +
-        "(SELECT COUNT(*) FROM womens_corner_posts WHERE seller_user_id = :uid AND status IN ('PENDING_APPROVAL', 'APPROVED'))";
-
     @Autowired
     public PostPaymentService(PostPaymentRepository postPaymentRepository,
                               @Autowired(required = false) RazorpayClient razorpayClient,
                               RazorpayConfig razorpayConfig,
                               SettingService settingService,
-                              EntityManager entityManager,
+                              PostQuotaLedgerService postQuotaLedgerService,
                               @Lazy PostSubscriptionService subscriptionService) {
         this.postPaymentRepository = postPaymentRepository;
         this.razorpayClient = razorpayClient;
         this.razorpayConfig = razorpayConfig;
         this.settingService = settingService;
-        this.entityManager = entityManager;
+        this.postQuotaLedgerService = postQuotaLedgerService;
         this.subscriptionService = subscriptionService;
     }
 
@@ -66,8 +53,7 @@ public class PostPaymentService {
     }
 
     private double getProcessingFeePercent() {
-        return Double.parseDouble(
-                settingService.getSettingValue("paid_post.processing_fee_percent", "2.36"));
+        return settingService.getDoubleValue("paid_post.processing_fee_percent", 2.36);
     }
 
     private static final Map<String, String> DURATION_SETTING_KEYS = Map.of(
@@ -91,8 +77,7 @@ public class PostPaymentService {
     );
 
     public Map<String, Object> getPaymentConfig(String postType, Long userId) {
-        boolean enabled = Boolean.parseBoolean(
-                settingService.getSettingValue("paid_post.enabled", "true"));
+        boolean enabled = settingService.getBooleanValue("paid_post.enabled", true);
         String currency = settingService.getSettingValue("paid_post.currency", "INR");
 
         // Per-type price with global fallback
@@ -117,8 +102,7 @@ public class PostPaymentService {
         }
 
         // Banner config
-        boolean bannerEnabled = Boolean.parseBoolean(
-                settingService.getSettingValue("banner.enabled", "true"));
+        boolean bannerEnabled = settingService.getBooleanValue("banner.enabled", true);
         String bannerGlobalDefault = settingService.getSettingValue("banner.price", "20");
         int bannerPrice;
         if (postType != null && !postType.isEmpty()) {
@@ -383,14 +367,10 @@ public class PostPaymentService {
         if (subscriptionService.hasActiveSubscription(userId)) {
             return false;
         }
-        int freePostLimit = Integer.parseInt(
-                settingService.getSettingValue("global.free_post_limit", "1"));
+        int freePostLimit = settingService.getIntValue("global.free_post_limit", 1);
         if (freePostLimit < 0) return false; // unlimited
         if (freePostLimit == 0) return true;  // no free posts
-        Query query = entityManager.createNativeQuery(GLOBAL_COUNT_QUERY);
-        query.setParameter("uid", userId);
-        long totalActiveCount = ((Number) query.getSingleResult()).longValue();
-        return totalActiveCount >= freePostLimit;
+        return postQuotaLedgerService.getActivePosts(userId) >= freePostLimit;
     }
 
     public boolean hasValidToken(Long tokenId, Long userId) {
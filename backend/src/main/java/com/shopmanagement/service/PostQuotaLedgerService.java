@@ -0,0 +1,103 @@
+package com.shopmanagement.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Active-post count per user across all classified-post modules (table
+ * user_post_quota, see V99). Triggers on the post tables keep the count in
+ * step with every insert, delete and status change, so a limit check is a
+ * single primary-key read.
+ *
+ * {@link #lockActivePosts} row-locks the user's counter for the rest of the
+ * caller's transaction: a second concurrent create for the same user waits
+ * until the first one commits (and the trigger has counted its post) before
+ * reading, so two requests can't both pass a "one free post" limit.
+ */
+@Service
+@Slf4j
+public class PostQuotaLedgerService {
+
+    /** user_id of every active post, one row per post. */
+    private static final String ACTIVE_POST_OWNERS_SQL =
+            "SELECT seller_user_id AS user_id FROM marketplace_posts WHERE status IN ('PENDING_APPROVAL', 'APPROVED') " +
+            "UNION ALL SELECT seller_user_id FROM farmer_products WHERE status IN ('PENDING_APPROVAL', 'APPROVED') " +
+            "UNION ALL SELECT seller_user_id FROM labour_posts WHERE status IN ('PENDING_APPROVAL', 'APPROVED') " +
+            "UNION ALL SELECT seller_user_id FROM travel_posts WHERE status IN ('PENDING_APPROVAL', 'APPROVED') " +
+            "UNION ALL SELECT seller_user_id FROM parcel_service_posts WHERE status IN ('PENDING_APPROVAL', 'APPROVED') " +
+            "UNION ALL SELECT seller_user_id FROM rental_posts WHERE status IN ('PENDING_APPROVAL', 'APPROVED') " +
+            "UNION ALL SELECT owner_user_id FROM real_estate_posts WHERE status IN ('PENDING_APPROVAL', 'APPROVED') " +
+            "UNION ALL SELECT seller_user_id FROM womens_corner_posts WHERE status IN ('PENDING_APPROVAL', 'APPROVED') " +
+            "UNION ALL SELECT seller_user_id FROM local_shop_posts WHERE status IN ('PENDING_APPROVAL', 'APPROVED')";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public PostQuotaLedgerService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /** Current active-post count; no lock (for display and pre-checks). */
+    public int getActivePosts(Long userId) {
+        List<Integer> counts = jdbcTemplate.queryForList(
+                "SELECT active_posts FROM user_post_quota WHERE user_id = ?", Integer.class, userId);
+        return counts.isEmpty() ? 0 : counts.get(0);
+    }
+
+    /**
+     * Active-post count with the user's counter row locked until the caller's
+     * transaction ends. Call inside the transaction that creates the post.
+     */
+    @Transactional
+    public int lockActivePosts(Long userId) {
+        jdbcTemplate.update("INSERT INTO user_post_quota (user_id, active_posts) VALUES (?, 0) " +
+                "ON CONFLICT (user_id) DO NOTHING", userId);
+        Integer count = jdbcTemplate.queryForObject(
+                "SELECT active_posts FROM user_post_quota WHERE user_id = ? FOR UPDATE", Integer.class, userId);
+        return count != null ? count : 0;
+    }
+
+    /**
+     * Nightly: compare every counter with the post tables and fix the ones that
+     * drifted (e.g. rows changed while the triggers were disabled). Each fix
+     * re-counts that user under the row lock, so concurrent creates aren't lost.
+     */
+    @Scheduled(cron = "0 15 4 * * *")
+    public void reconcile() {
+        List<Long> drifted = jdbcTemplate.queryForList(
+                "SELECT COALESCE(a.user_id, q.user_id) FROM (" +
+                "  SELECT user_id, COUNT(*) AS active_posts FROM (" + ACTIVE_POST_OWNERS_SQL + ") owners " +
+                "  WHERE user_id IS NOT NULL GROUP BY user_id) a " +
+                "FULL OUTER JOIN user_post_quota q ON q.user_id = a.user_id " +
+                "WHERE COALESCE(a.active_posts, 0) <> COALESCE(q.active_posts, 0)",
+                Long.class);
+        for (Long userId : drifted) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    int recorded = lockActivePosts(userId);
+                    Integer actual = jdbcTemplate.queryForObject(
+                            "SELECT COUNT(*) FROM (" + ACTIVE_POST_OWNERS_SQL + ") owners WHERE user_id = ?",
+                            Integer.class, userId);
+                    if (actual != null && actual != recorded) {
+                        jdbcTemplate.update("UPDATE user_post_quota SET active_posts = ?, updated_at = CURRENT_TIMESTAMP " +
+                                "WHERE user_id = ?", actual, userId);
+                        log.info("Post quota for user {} corrected: {} -> {}", userId, recorded, actual);
+                    }
+                });
+            } catch (Exception e) {
+                log.error("Post quota reconcile failed for user {}", userId, e);
+            }
+        }
+        if (!drifted.isEmpty()) {
+            log.info("Post quota reconcile checked {} drifted user(s)", drifted.size());
+        }
+    }
+}
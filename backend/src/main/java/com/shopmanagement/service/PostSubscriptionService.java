@@ -402,8 +402,7 @@ public class PostSubscriptionService {
     }
 
     public Map<String, Object> getSubscriptionConfig(String postType) {
-        boolean enabled = Boolean.parseBoolean(
-                settingService.getSettingValue("subscription.enabled", "true"));
+        boolean enabled = settingService.getBooleanValue("subscription.enabled", true);
         int price = getSubscriptionPrice(postType);
         return Map.of(
                 "enabled", enabled,
@@ -0,0 +1,502 @@
+package com.shopmanagement.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.shopmanagement.entity.Promotion;
+import com.shopmanagement.entity.PromotionUsage;
+import com.shopmanagement.event.PromotionChangedEvent;
+import com.shopmanagement.repository.PromotionRepository;
+import com.shopmanagement.repository.PromotionUsageRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory promo code eligibility. Every promotion that hasn't ended is
+ * compiled once: indexed by code and by shop, with an atomic copy of its used
+ * count and the customers (a bitmap by id) and phones that have used it.
+ * Validating a code and listing a shop's promotions are memory reads; the DB
+ * is only asked for codes this node doesn't know and, on rejection of an
+ * already used code, which message to give.
+ *
+ * Using a code ({@link #claim}) locks the promotion row, then makes one
+ * conditional write: the used count is raised only while it is below
+ * usage_limit and the customer/phone has no earlier use, and the same
+ * statement inserts the usage row. Claims of one promotion queue on the lock,
+ * so the write runs after the previous claim committed and its read-committed
+ * snapshot sees that usage row. Two orders can't both take the last use, or
+ * the same customer's one use, whatever the memory copy said; that copy
+ * catches up after commit.
+ *
+ * A promotion is recompiled when it changes on this node
+ * ({@link PromotionChangedEvent}); the periodic reconcile picks up edits and
+ * uses from other nodes. Reconcile runs on the engine's own thread, since
+ * scheduling is switched off on the incoming container during deploys.
+ */
+@Service
+@Slf4j
+public class PromotionEngine {
+
+    /** Re-read usage this far behind the watermark: covers rows whose transaction committed late. */
+    private static final long WATERMARK_OVERLAP_SECONDS = 60;
+
+    private final PromotionRepository promotionRepository;
+    private final PromotionUsageRepository promotionUsageRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${app.promotions.reconcile-minutes:5}")
+    private long reconcileMinutes;
+
+    private final Map<Long, CompiledPromotion> compiled = new ConcurrentHashMap<>();
+    private volatile Index index = new Index(Map.of(), Map.of(), List.of(), List.of());
+    private LocalDateTime usageWatermark;
+
+    /** Upper-cased codes with no compiled promotion -> rejection message; dropped on any promotion change. */
+    private final Cache<String, String> rejectedCodes = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterWrite(Duration.ofMinutes(1))
+            .build();
+
+    private ScheduledExecutorService worker;
+
+    /** Lookup structures, rebuilt whole on every change and swapped in. */
+    private record Index(Map<String, CompiledPromotion> byCode, Map<Long, List<CompiledPromotion>> byShop,
+                         List<CompiledPromotion> global, List<CompiledPromotion> all) {
+    }
+
+    /**
+     * A promotion and its usage. definition is shared by every caller and
+     * must be treated as read-only.
+     */
+    static final class CompiledPromotion {
+        volatile Promotion definition;
+        final AtomicInteger usedCount;
+        private final BitSet customers = new BitSet();
+        private final Set<Long> largeCustomerIds = new HashSet<>();
+        private final Set<String> phones = new HashSet<>();
+
+        CompiledPromotion(Promotion definition) {
+            this.definition = definition;
+            this.usedCount = new AtomicInteger(definition.getUsedCount() != null ? definition.getUsedCount() : 0);
+        }
+
+        /** Same rule as {@link Promotion#isActive()}, against the live used count. */
+        boolean isActive(LocalDateTime now) {
+            Promotion p = definition;
+            return p.getStatus() == Promotion.PromotionStatus.ACTIVE
+                    && p.getStartDate() != null && p.getStartDate().isBefore(now)
+                    && p.getEndDate() != null && p.getEndDate().isAfter(now)
+                    && (p.getUsageLimit() == null || usedCount.get() < p.getUsageLimit());
+        }
+
+        synchronized void addUse(Long customerId, String phone) {
+            if (customerId != null) {
+                if (customerId >= 0 && customerId <= Integer.MAX_VALUE) {
+                    customers.set(customerId.intValue());
+                } else {
+                    largeCustomerIds.add(customerId);
+                }
+            }
+            if (phone != null) {
+                phones.add(phone);
+            }
+        }
+
+        /** Whether the customer id or the phone (either may be null) has used this promotion. */
+        synchronized boolean usedBy(Long customerId, String phone) {
+            if (customerId != null) {
+                boolean used = customerId >= 0 && customerId <= Integer.MAX_VALUE
+                        ? customers.get(customerId.intValue()) : largeCustomerIds.contains(customerId);
+                if (used) {
+                    return true;
+                }
+            }
+            return phone != null && phones.contains(phone);
+        }
+    }
+
+    public PromotionEngine(PromotionRepository promotionRepository,
+                           PromotionUsageRepository promotionUsageRepository,
+                           JdbcTemplate jdbcTemplate) {
+        this.promotionRepository = promotionRepository;
+        this.promotionUsageRepository = promotionUsageRepository;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    void start() {
+        worker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "PromotionEngine");
+            thread.setDaemon(true);
+            return thread;
+        });
+        worker.execute(this::reconcile);
+        worker.scheduleWithFixedDelay(this::reconcile, reconcileMinutes, reconcileMinutes, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (worker != null) {
+            worker.shutdownNow();
+        }
+    }
+
+    /**
+     * Check a code for an order, in the order and with the messages the
+     * per-query validation used. Discount comes from the promotion's own rule.
+     */
+    public PromotionService.PromoCodeValidationResult validate(String promoCode, Long customerId, String phone,
+                                                               BigDecimal orderAmount, Long shopId) {
+        if (promoCode == null || promoCode.isBlank()) {
+            return PromotionService.PromoCodeValidationResult.error("Invalid promo code");
+        }
+        String code = promoCode.trim().toUpperCase(Locale.ROOT);
+        CompiledPromotion promotion = index.byCode().get(code);
+        if (promotion == null) {
+            String rejection = rejectedCodes.get(code, this::compileByCode);
+            if (rejection != null) {
+                return PromotionService.PromoCodeValidationResult.error(rejection);
+            }
+            promotion = index.byCode().get(code);
+            if (promotion == null) {
+                return PromotionService.PromoCodeValidationResult.error("Invalid promo code");
+            }
+        }
+
+        Promotion definition = promotion.definition;
+        LocalDateTime now = LocalDateTime.now();
+        if (definition.getStatus() != Promotion.PromotionStatus.ACTIVE
+                || definition.getStartDate() == null || definition.getEndDate() == null) {
+            return PromotionService.PromoCodeValidationResult.error("This promo code has expired or is no longer active");
+        }
+        if (definition.getStartDate().isAfter(now)) {
+            return PromotionService.PromoCodeValidationResult.error("This promo code is not yet valid");
+        }
+        if (definition.getEndDate().isBefore(now)) {
+            return PromotionService.PromoCodeValidationResult.error("This promo code has expired");
+        }
+        if (definition.getUsageLimit() != null && promotion.usedCount.get() >= definition.getUsageLimit()) {
+            return PromotionService.PromoCodeValidationResult.error("This promo code has reached its usage limit");
+        }
+        if (definition.getMinimumOrderAmount() != null &&
+            orderAmount.compareTo(definition.getMinimumOrderAmount()) < 0) {
+            return PromotionService.PromoCodeValidationResult.error(
+                String.format("Minimum order amount of ₹%.2f required", definition.getMinimumOrderAmount()));
+        }
+        if (definition.getShopId() != null && !definition.getShopId().equals(shopId)) {
+            return PromotionService.PromoCodeValidationResult.error("This promo code is not valid for this shop");
+        }
+
+        // Every promo code is once per customer (by customer id or phone)
+        if (promotion.usedBy(customerId, phone)) {
+            Boolean pending = promotionUsageRepository.hasActivePendingOrderWithPromotion(
+                definition.getId(), customerId, null, phone);
+            return PromotionService.PromoCodeValidationResult.error(Boolean.TRUE.equals(pending)
+                ? "This promo code is already applied to one of your pending orders. " +
+                  "Please wait for that order to be completed before using this promo code again."
+                : "This promo code can only be used once per customer. You have already used it. " +
+                  "This promo code will never be available for your account again.");
+        }
+        if (definition.getUsageLimitPerCustomer() != null) {
+            if (customerId == null && phone == null) {
+                return PromotionService.PromoCodeValidationResult.error(
+                    "Unable to validate promo code usage. Please provide phone number or login to continue.");
+            }
+            if (definition.getUsageLimitPerCustomer() <= 0) {
+                // Only reachable with a misconfigured limit; count the uses for the message
+                Long timesUsed = promotionUsageRepository.countByPromotionAndAnyIdentifier(
+                    definition.getId(), customerId, null, phone);
+                return PromotionService.PromoCodeValidationResult.error(
+                    String.format("You have already used this promo code %d time(s). Maximum allowed: %d. This promo code is no longer available for your account.",
+                        timesUsed != null ? timesUsed : 0L, definition.getUsageLimitPerCustomer()));
+            }
+        }
+
+        return PromotionService.PromoCodeValidationResult.success(
+            definition,
+            definition.calculateDiscount(orderAmount),
+            "Promo code applied successfully!"
+        );
+    }
+
+    /**
+     * Promotions running now: for a shop, its own and the platform-wide ones;
+     * without a shop, the public ones. Given a customer id or phone, drops
+     * first-time-only promotions they used and those at their per-customer limit.
+     */
+    public List<Promotion> activePromotions(Long shopId, Long customerId, String phone) {
+        Index current = index;
+        List<CompiledPromotion> candidates;
+        if (shopId != null) {
+            candidates = new ArrayList<>(current.byShop().getOrDefault(shopId, List.of()));
+            candidates.addAll(current.global());
+        } else {
+            candidates = current.all().stream()
+                    .filter(promotion -> Boolean.TRUE.equals(promotion.definition.getIsPublic()))
+                    .toList();
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Promotion> visible = new ArrayList<>();
+        for (CompiledPromotion promotion : candidates) {
+            if (!promotion.isActive(now)) {
+                continue;
+            }
+            Promotion definition = promotion.definition;
+            if (customerId != null || phone != null) {
+                boolean firstTimeOnly = Boolean.TRUE.equals(definition.getIsFirstTimeOnly());
+                if (firstTimeOnly && promotion.usedBy(customerId, phone)) {
+                    continue;
+                }
+                Integer perCustomer = definition.getUsageLimitPerCustomer();
+                if (perCustomer != null) {
+                    boolean used = customerId != null ? promotion.usedBy(customerId, null) : promotion.usedBy(null, phone);
+                    if ((used ? 1 : 0) >= perCustomer) {
+                        continue;
+                    }
+                }
+            }
+            visible.add(definition);
+        }
+        return visible;
+    }
+
+    /**
+     * Record one use of the promotion, inside the order's transaction. The
+     * used count goes up and the usage row is written only if the limit isn't
+     * reached and the customer/phone hasn't used the code before; false means
+     * the use was refused and nothing was written.
+     */
+    public boolean claim(PromotionUsage usage) {
+        Long promotionId = usage.getPromotion().getId();
+        Long customerId = usage.getCustomer() != null ? usage.getCustomer().getId() : null;
+        String phone = usage.getCustomerPhone();
+
+        // The NOT EXISTS below reads the statement's snapshot, which would miss a
+        // concurrent claim's usage row; wait for that claim first, until our commit
+        if (jdbcTemplate.queryForList("SELECT id FROM promotions WHERE id = ? FOR UPDATE", Long.class, promotionId).isEmpty()) {
+            return false;
+        }
+
+        List<Object> args = new ArrayList<>();
+        args.add(promotionId);
+        StringBuilder sql = new StringBuilder(
+                "WITH claimed AS (UPDATE promotions SET used_count = used_count + 1 " +
+                "WHERE id = ? AND (usage_limit IS NULL OR used_count < usage_limit)");
+        if (customerId != null || phone != null) {
+            sql.append(" AND NOT EXISTS (SELECT 1 FROM promotion_usage pu WHERE pu.promotion_id = promotions.id AND (");
+            if (customerId != null) {
+                sql.append("pu.customer_id = ?");
+                args.add(customerId);
+            }
+            if (phone != null) {
+                sql.append(customerId != null ? " OR " : "").append("pu.customer_phone = ?");
+                args.add(phone);
+            }
+            sql.append("))");
+        }
+        sql.append(" RETURNING id) " +
+                "INSERT INTO promotion_usage (promotion_id, customer_id, order_id, device_uuid, customer_phone, " +
+                "customer_email, discount_applied, order_amount, is_first_order, ip_address, user_agent, shop_id, used_at) " +
+                "SELECT id, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, NOW() FROM claimed");
+        Collections.addAll(args,
+                customerId,
+                usage.getOrder() != null ? usage.getOrder().getId() : null,
+                usage.getDeviceUuid(),
+                phone,
+                usage.getCustomerEmail(),
+                usage.getDiscountApplied() != null ? usage.getDiscountApplied() : BigDecimal.ZERO,
+                usage.getOrderAmount() != null ? usage.getOrderAmount() : BigDecimal.ZERO,
+                usage.getIsFirstOrder(),
+                usage.getIpAddress(),
+                usage.getUserAgent(),
+                usage.getShopId());
+
+        if (jdbcTemplate.update(sql.toString(), args.toArray()) != 1) {
+            // Memory let it through: catch up (the refused order rolls back, so not after commit)
+            worker.execute(() -> reloadPromotion(promotionId));
+            return false;
+        }
+        afterCommit(() -> {
+            CompiledPromotion promotion = compiled.get(promotionId);
+            if (promotion != null) {
+                promotion.addUse(customerId, phone);
+                promotion.usedCount.incrementAndGet();
+            }
+        });
+        return true;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPromotionChanged(PromotionChangedEvent event) {
+        rejectedCodes.invalidateAll();
+        worker.execute(() -> reloadPromotion(event.getPromotionId()));
+    }
+
+    /** Every promotion that hasn't ended plus usage since the last pass; drops ended/inactive ones. */
+    synchronized void reconcile() {
+        try {
+            LocalDateTime started = LocalDateTime.now();
+            List<Promotion> notEnded = promotionRepository.findNotEnded(started);
+            Map<Long, CompiledPromotion> fresh = new HashMap<>();
+            Set<Long> seen = new HashSet<>();
+            for (Promotion promotion : notEnded) {
+                seen.add(promotion.getId());
+                CompiledPromotion existing = compiled.get(promotion.getId());
+                if (existing == null) {
+                    fresh.put(promotion.getId(), new CompiledPromotion(promotion));
+                } else {
+                    existing.definition = promotion;
+                    existing.usedCount.set(promotion.getUsedCount() != null ? promotion.getUsedCount() : 0);
+                }
+            }
+            compiled.keySet().retainAll(seen);
+
+            // Known promotions: uses since the watermark. New ones: all their uses.
+            LocalDateTime latest = usageWatermark;
+            if (usageWatermark != null && !compiled.isEmpty()) {
+                latest = applyUsage("used_at > ?",
+                        List.of(Timestamp.valueOf(usageWatermark.minusSeconds(WATERMARK_OVERLAP_SECONDS))),
+                        compiled, latest);
+            }
+            if (!fresh.isEmpty()) {
+                latest = applyUsage("promotion_id IN (" + String.join(", ", Collections.nCopies(fresh.size(), "?")) + ")",
+                        new ArrayList<>(fresh.keySet()), fresh, latest);
+                compiled.putAll(fresh);
+            }
+            usageWatermark = latest != null ? latest : started;
+            rebuildIndex();
+            log.debug("Promotion engine reconciled: {} promotion(s), {} new", compiled.size(), fresh.size());
+        } catch (Exception e) {
+            log.error("Error reconciling promotions", e);
+        }
+    }
+
+    /** Re-read one promotion (and, when first seen, its usage). */
+    synchronized void reloadPromotion(Long promotionId) {
+        try {
+            Promotion promotion = promotionRepository.findById(promotionId).orElse(null);
+            if (promotion == null || promotion.getStatus() != Promotion.PromotionStatus.ACTIVE
+                    || promotion.getEndDate() == null || promotion.getEndDate().isBefore(LocalDateTime.now())) {
+                compiled.remove(promotionId);
+            } else {
+                compile(promotion);
+            }
+            rebuildIndex();
+        } catch (Exception e) {
+            log.error("Error reloading promotion {}", promotionId, e);
+        }
+    }
+
+    /**
+     * Rejection cache loader for a code this node hasn't compiled: the message,
+     * or null (not cached) when the promotion could be compiled now, e.g. it
+     * was created on another node since the last reconcile.
+     */
+    private synchronized String compileByCode(String code) {
+        if (index.byCode().containsKey(code)) {
+            return null;
+        }
+        Promotion promotion = promotionRepository.findByCode(code).orElse(null);
+        if (promotion == null) {
+            return "Invalid promo code";
+        }
+        if (promotion.getStatus() != Promotion.PromotionStatus.ACTIVE || promotion.getEndDate() == null) {
+            return "This promo code has expired or is no longer active";
+        }
+        if (promotion.getEndDate().isBefore(LocalDateTime.now())) {
+            return "This promo code has expired";
+        }
+        compile(promotion);
+        rebuildIndex();
+        return null;
+    }
+
+    private void compile(Promotion promotion) {
+        CompiledPromotion existing = compiled.get(promotion.getId());
+        if (existing != null) {
+            existing.definition = promotion;
+            existing.usedCount.set(promotion.getUsedCount() != null ? promotion.getUsedCount() : 0);
+            return;
+        }
+        CompiledPromotion fresh = new CompiledPromotion(promotion);
+        applyUsage("promotion_id = ?", List.of(promotion.getId()), Map.of(promotion.getId(), fresh), null);
+        compiled.put(promotion.getId(), fresh);
+    }
+
+    /** Add matching usage rows to the given promotions; returns the latest used_at seen (or {@code latest}). */
+    private LocalDateTime applyUsage(String where, List<Object> args, Map<Long, CompiledPromotion> into,
+                                     LocalDateTime latest) {
+        LocalDateTime[] max = {latest};
+        jdbcTemplate.query("SELECT promotion_id, customer_id, customer_phone, used_at FROM promotion_usage WHERE " + where,
+                rs -> {
+                    CompiledPromotion promotion = into.get(rs.getLong("promotion_id"));
+                    if (promotion != null) {
+                        Long customerId = rs.getObject("customer_id") == null ? null : rs.getLong("customer_id");
+                        promotion.addUse(customerId, rs.getString("customer_phone"));
+                    }
+                    LocalDateTime usedAt = rs.getTimestamp("used_at").toLocalDateTime();
+                    if (max[0] == null || usedAt.isAfter(max[0])) {
+                        max[0] = usedAt;
+                    }
+                },
+                args.toArray());
+        return max[0];
+    }
+
+    private void rebuildIndex() {
+        Map<String, CompiledPromotion> byCode = new HashMap<>();
+        Map<Long, List<CompiledPromotion>> byShop = new HashMap<>();
+        List<CompiledPromotion> global = new ArrayList<>();
+        for (CompiledPromotion promotion : compiled.values()) {
+            Promotion definition = promotion.definition;
+            if (definition.getCode() != null) {
+                byCode.put(definition.getCode().trim().toUpperCase(Locale.ROOT), promotion);
+            }
+            if (definition.getShopId() != null) {
+                byShop.computeIfAbsent(definition.getShopId(), id -> new ArrayList<>()).add(promotion);
+            } else {
+                global.add(promotion);
+            }
+        }
+        index = new Index(byCode, byShop, global, new ArrayList<>(compiled.values()));
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -5,7 +5,6 @@ import com.shopmanagement.entity.Order;
 import com.shopmanagement.entity.Promotion;
 import com.shopmanagement.entity.PromotionUsage;
 import com.shopmanagement.repository.CustomerRepository;
-import com.shopmanagement.repository.PromotionRepository;
 import com.shopmanagement.repository.PromotionUsageRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -15,33 +14,31 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
-import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class PromotionService {
 
-    private final PromotionRepository promotionRepository;
     private final PromotionUsageRepository promotionUsageRepository;
     private final CustomerRepository customerRepository;
+    private final PromotionEngine promotionEngine;
 
     /**
-     * Validate if a promo code can be used by a customer
+     * Validate if a promo code can be used by a customer. Answered from the
+     * compiled promotions in {@link PromotionEngine}.
      *
      * @param promoCode The promotion code to validate
      * @param customerId Customer ID (can be null for guest)
-     * @param deviceUuid Mobile device UUID
+     * @param deviceUuid Mobile device UUID (logged only; usage is matched by customer and phone)
      * @param phone Customer phone number
      * @param orderAmount Order amount before discount
      * @param shopId Shop ID for shop-specific promotions
      * @return Validation result with discount amount or error message
      */
-    @Transactional(readOnly = true)
     public PromoCodeValidationResult validatePromoCode(
             String promoCode,
             Long customerId,
@@ -53,124 +50,17 @@ public class PromotionService {
         log.info("Validating promo code: {} for customer: {}, device: {}, phone: {}",
                 promoCode, customerId, deviceUuid, phone);
 
-        // 1. Find promotion by code
-        Optional<Promotion> promotionOpt = promotionRepository.findByCode(promoCode);
-        if (promotionOpt.isEmpty()) {
-            return PromoCodeValidationResult.error("Invalid promo code");
-        }
-
-        Promotion promotion = promotionOpt.get();
-
-        // 2. Check if promotion is active
-        if (!promotion.isActive()) {
-            return PromoCodeValidationResult.error("This promo code has expired or is no longer active");
-        }
-
-        // 3. Check date validity
-        LocalDateTime now = LocalDateTime.now();
-        if (promotion.getStartDate().isAfter(now)) {
-            return PromoCodeValidationResult.error("This promo code is not yet valid");
-        }
-        if (promotion.getEndDate().isBefore(now)) {
-            return PromoCodeValidationResult.error("This promo code has expired");
-        }
-
-        // 4. Check minimum order amount
-        if (promotion.getMinimumOrderAmount() != null &&
-            orderAmount.compareTo(promotion.getMinimumOrderAmount()) < 0) {
-            return PromoCodeValidationResult.error(
-                String.format("Minimum order amount of ₹%.2f required",
-                    promotion.getMinimumOrderAmount())
-            );
-        }
-
-        // 5. Check shop-specific promotion
-        if (promotion.getShopId() != null && !promotion.getShopId().equals(shopId)) {
-            return PromoCodeValidationResult.error("This promo code is not valid for this shop");
-        }
-
-        // 6. Check total usage limit
-        if (promotion.getUsageLimit() != null &&
-            promotion.getUsedCount() >= promotion.getUsageLimit()) {
-            return PromoCodeValidationResult.error("This promo code has reached its usage limit");
-        }
-
-        // 7. CRITICAL: Check if promo code is already used in any pending/active order
-        // This prevents users from applying the same promo code to multiple orders before completion
-        // Validates by customerId and phone only (deviceUuid removed as it can change)
-        Boolean hasActivePendingOrder = promotionUsageRepository.hasActivePendingOrderWithPromotion(
-            promotion.getId(), customerId, null, phone);
-        if (hasActivePendingOrder) {
-            return PromoCodeValidationResult.error(
-                "This promo code is already applied to one of your pending orders. " +
-                "Please wait for that order to be completed before using this promo code again.");
-        }
-
-        // 8. MANDATORY: ALWAYS enforce one-time-per-user validation for ALL promo codes
-        // This ensures that every promo code can only be used ONCE per user, regardless of settings
-        // Blocks if user has EVER used this promo (by customerId OR phone - deviceUuid removed)
-        Boolean hasUsed = promotionUsageRepository.hasUsedPromotion(
-            promotion.getId(), customerId, null, phone);
-        if (hasUsed) {
-            return PromoCodeValidationResult.error(
-                "This promo code can only be used once per customer. You have already used it. " +
-                "This promo code will never be available for your account again.");
-        }
-
-        // 9. STRICT: Check per-customer usage limit (if configured)
-        // Prevents ANY user (by customerId OR phone) from exceeding limit
-        // Note: This is redundant now since we enforce one-time-per-user above, but kept for flexibility
-        if (promotion.getUsageLimitPerCustomer() != null) {
-            // Check usage across user identifiers (customerId, phone - deviceUuid removed)
-            Long totalUsage = 0L;
-
-            if (customerId != null || phone != null) {
-                // Use the comprehensive check that looks across identifiers
-                totalUsage = promotionUsageRepository.countByPromotionAndAnyIdentifier(
-                    promotion.getId(), customerId, null, phone);
-            }
-
-            if (totalUsage <= 0 && customerId != null) {
-                // Fallback: Check by customer ID only
-                totalUsage = promotionUsageRepository.countByPromotionIdAndCustomerId(
-                    promotion.getId(), customerId);
-            }
-
-            if (totalUsage <= 0 && phone != null) {
-                // Fallback: Check by phone only
-                totalUsage = promotionUsageRepository.countByPromotionIdAndPhone(
-                    promotion.getId(), phone);
-            }
-
-            if (totalUsage <= 0 && customerId == null && phone == null) {
-                return PromoCodeValidationResult.error("Unable to validate promo code usage. Please provide phone number or login to continue.");
-            }
-
-            // REJECT if usage limit reached
-            if (totalUsage >= promotion.getUsageLimitPerCustomer()) {
-                return PromoCodeValidationResult.error(
-                    String.format("You have already used this promo code %d time(s). Maximum allowed: %d. This promo code is no longer available for your account.",
-                        totalUsage, promotion.getUsageLimitPerCustomer())
-                );
-            }
-        }
-
-        // 10. Calculate discount
-        BigDecimal discountAmount = promotion.calculateDiscount(orderAmount);
-
-        // 11. All validations passed
-        return PromoCodeValidationResult.success(
-            promotion,
-            discountAmount,
-            "Promo code applied successfully!"
-        );
+        return promotionEngine.validate(promoCode, customerId, phone, orderAmount, shopId);
     }
 
     /**
-     * Record promotion usage after order is placed
+     * Record promotion usage after order is placed, in the order's transaction.
+     * Returns false, writing nothing, when the promotion reached its usage
+     * limit or this customer/phone already used it; the caller should then
+     * fail the order.
      */
     @Transactional
-    public void recordPromotionUsage(
+    public boolean recordPromotionUsage(
             Promotion promotion,
             Customer customer,
             Order order,
@@ -198,15 +88,17 @@ public class PromotionService {
                 .shopId(order.getShop().getId())
                 .build();
 
-        promotionUsageRepository.save(usage);
-
-        // Increment used count
-        promotion.setUsedCount(promotion.getUsedCount() + 1);
-        promotionRepository.save(promotion);
+        // Raises used_count and writes the usage row in one conditional statement
+        if (!promotionEngine.claim(usage)) {
+            log.warn("Promotion usage refused: code={}, customer={}, order={} (limit reached or already used)",
+                    promotion.getCode(), customer != null ? customer.getId() : "guest", order.getId());
+            return false;
+        }
 
         log.info("Recorded promotion usage: code={}, customer={}, device={}, discount={}",
                 promotion.getCode(), customer != null ? customer.getId() : "guest",
                 deviceUuid, discountApplied);
+        return true;
     }
 
     /**
@@ -218,61 +110,8 @@ public class PromotionService {
      * @param phone Customer phone (optional)
      * @return List of active promotions that the user is eligible to use
      */
-    @Transactional(readOnly = true)
     public List<Promotion> getActivePromotions(Long shopId, Long customerId, String phone) {
-        List<Promotion> allPromotions;
-
-        if (shopId != null) {
-            allPromotions = promotionRepository.findActiveByShopId(shopId, LocalDateTime.now());
-        } else {
-            allPromotions = promotionRepository.findAllPublicActive(LocalDateTime.now());
-        }
-
-        // If no user identifiers provided, return all promotions (for unauthenticated users)
-        if (customerId == null && phone == null) {
-            return allPromotions;
-        }
-
-        // Filter out promotions that the user has already used
-        return allPromotions.stream()
-                .filter(promotion -> {
-                    // Check if promotion has usage restrictions
-                    boolean hasRestrictions = promotion.getIsFirstTimeOnly() ||
-                                            promotion.getUsageLimitPerCustomer() != null;
-
-                    if (!hasRestrictions) {
-                        return true; // No restrictions, show to everyone
-                    }
-
-                    // Check if user has already used this promotion (by customerId or phone)
-                    Boolean hasUsed = promotionUsageRepository.hasUsedPromotion(
-                        promotion.getId(), customerId, null, phone);
-
-                    if (hasUsed && promotion.getIsFirstTimeOnly()) {
-                        return false; // First-time-only promo already used, hide it
-                    }
-
-                    // Check per-customer usage limit
-                    if (promotion.getUsageLimitPerCustomer() != null) {
-                        Long usageCount;
-
-                        if (customerId != null) {
-                            usageCount = promotionUsageRepository.countByPromotionIdAndCustomerId(
-                                promotion.getId(), customerId);
-                        } else {
-                            usageCount = promotionUsageRepository.countByPromotionIdAndPhone(
-                                promotion.getId(), phone);
-                        }
-
-                        // Hide if user has reached the usage limit
-                        if (usageCount >= promotion.getUsageLimitPerCustomer()) {
-                            return false;
-                        }
-                    }
-
-                    return true; // Show this promotion
-                })
-                .toList();
+        return promotionEngine.activePromotions(shopId, customerId, phone);
     }
 
     /**
@@ -40,6 +40,7 @@ public class RealEstateService {
     private final GlobalPostLimitService globalPostLimitService;
     private final PostPaymentService postPaymentService;
     private final PostSubscriptionService postSubscriptionService;
+    private final ImageModerationHoldService imageModerationHoldService;
 
     @Transactional
     public RealEstatePost createPost(String title, String description, PropertyType propertyType,
@@ -75,7 +76,7 @@ public class RealEstateService {
             int count = 0;
             for (MultipartFile image : images) {
                 if (image != null && !image.isEmpty() && count < 5) {
-                    String imageUrl = fileUploadService.uploadFile(image, "real-estate");
+                    String imageUrl = fileUploadService.uploadPostImage(image, "real-estate");
                     imageUrlList.add(imageUrl);
                     count++;
                 }
@@ -89,8 +90,10 @@ public class RealEstateService {
             videoUrl = fileUploadService.uploadFile(video, "real-estate/videos");
         }
 
-        boolean autoApprove = Boolean.parseBoolean(
-                settingService.getSettingValue("realestate.post.auto_approve", "false"));
+        boolean autoApprove = settingService.getBooleanValue("realestate.post.auto_approve", false);
+        // A new image still waiting for its moderation verdict keeps the post pending until it arrives
+        boolean heldForModeration = autoApprove && imageModerationHoldService.awaitingVerdict(imageUrls);
+        autoApprove = autoApprove && !heldForModeration;
 
         RealEstatePost post = RealEstatePost.builder()
                 .title(title)
@@ -115,8 +118,7 @@ public class RealEstateService {
                 .build();
 
         // Set validity dates
-        int durationDays = Integer.parseInt(
-                settingService.getSettingValue("realestate.post.duration_days", "30"));
+        int durationDays = settingService.getIntValue("realestate.post.duration_days", 30);
         post.setValidFrom(LocalDateTime.now());
         if (durationDays > 0) {
             post.setValidTo(LocalDateTime.now().plusDays(durationDays));
@@ -134,6 +136,9 @@ public class RealEstateService {
         }
 
         RealEstatePost saved = realEstatePostRepository.save(post);
+        if (heldForModeration) {
+            imageModerationHoldService.hold(ImageModerationHoldService.PostType.REAL_ESTATE, saved.getId(), imageUrls);
+        }
 
         // Consume paid token if used
         if (paidTokenId != null) {
@@ -163,7 +168,7 @@ public class RealEstateService {
         if (lat == null || lng == null) {
             return realEstatePostRepository.findByStatusOrderByCreatedAtDesc(PostStatus.APPROVED, pageable);
         }
-        double radius = radiusKm != null ? radiusKm : Double.parseDouble(settingService.getSettingValue("post.default_radius_km", "10"));
+        double radius = radiusKm != null ? radiusKm : settingService.getDoubleValue("post.default_radius_km", 10);
         List<String> statuses = List.of("APPROVED");
         int limit = pageable.getPageSize();
         int offset = (int) pageable.getOffset();
@@ -184,7 +189,7 @@ public class RealEstateService {
             return realEstatePostRepository.findByStatusAndPropertyTypeOrderByCreatedAtDesc(
                     PostStatus.APPROVED, propertyType, pageable);
         }
-        double radius = radiusKm != null ? radiusKm : Double.parseDouble(settingService.getSettingValue("post.default_radius_km", "10"));
+        double radius = radiusKm != null ? radiusKm : settingService.getDoubleValue("post.default_radius_km", 10);
         List<String> statuses = List.of("APPROVED");
         int limit = pageable.getPageSize();
         int offset = (int) pageable.getOffset();
@@ -368,8 +373,7 @@ public class RealEstateService {
         int newCount = (post.getReportCount() != null ? post.getReportCount() : 0) + 1;
         post.setReportCount(newCount);
 
-        int reportThreshold = Integer.parseInt(
-                settingService.getSettingValue("realestate.post.report_threshold", "3"));
+        int reportThreshold = settingService.getIntValue("realestate.post.report_threshold", 3);
         if (newCount >= reportThreshold && post.getStatus() == PostStatus.APPROVED) {
             post.setStatus(PostStatus.FLAGGED);
             log.warn("Real estate post auto-flagged due to {} reports: id={}, title={}",
@@ -473,8 +477,7 @@ public class RealEstateService {
             throw new RuntimeException("Only the owner can renew a post");
         }
 
-        int durationDays = Integer.parseInt(
-                settingService.getSettingValue("realestate.post.duration_days", "30"));
+        int durationDays = settingService.getIntValue("realestate.post.duration_days", 30);
 
         post.setValidFrom(LocalDateTime.now());
         if (durationDays > 0) {
@@ -568,8 +571,7 @@ public class RealEstateService {
                 return;
             }
 
-            double radiusKm = Double.parseDouble(
-                    settingService.getSettingValue("notification.radius_km", "50"));
+            double radiusKm = settingService.getDoubleValue("notification.radius_km", 50);
 
             List<User> nearbyCustomers = userRepository.findNearbyCustomers(lat, lng, radiusKm);
             if (nearbyCustomers.isEmpty()) return;
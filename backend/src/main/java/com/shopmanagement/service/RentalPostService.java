@@ -44,6 +44,7 @@ public class RentalPostService {
     private final PostPaymentService postPaymentService;
     private final ObjectMapper objectMapper;
     private final PostSubscriptionService postSubscriptionService;
+    private final ImageModerationHoldService imageModerationHoldService;
 
     @Transactional
     public RentalPost createPost(String title, String description, BigDecimal price, String priceUnit,
@@ -76,14 +77,16 @@ public class RentalPostService {
         if (images != null) {
             for (MultipartFile image : images) {
                 if (image != null && !image.isEmpty()) {
-                    String url = fileUploadService.uploadFile(image, "rentals");
+                    String url = fileUploadService.uploadPostImage(image, "rentals");
                     imageUrlList.add(url);
                 }
             }
         }
 
-        boolean autoApprove = Boolean.parseBoolean(
-                settingService.getSettingValue("rental.post.auto_approve", "false"));
+        boolean autoApprove = settingService.getBooleanValue("rental.post.auto_approve", false);
+        // A new image still waiting for its moderation verdict keeps the post pending until it arrives
+        boolean heldForModeration = autoApprove && imageModerationHoldService.awaitingVerdict(String.join(",", imageUrlList));
+        autoApprove = autoApprove && !heldForModeration;
 
         RentalCategory rentalCategory = null;
         if (category != null && !category.isEmpty()) {
@@ -112,8 +115,7 @@ public class RentalPostService {
                 .featured(isBanner)
                 .build();
 
-        int durationDays = Integer.parseInt(
-                settingService.getSettingValue("rental.post.duration_days", "30"));
+        int durationDays = settingService.getIntValue("rental.post.duration_days", 30);
         post.setValidFrom(LocalDateTime.now());
         if (durationDays > 0) {
             post.setValidTo(LocalDateTime.now().plusDays(durationDays));
@@ -131,6 +133,9 @@ public class RentalPostService {
         }
 
         RentalPost saved = rentalPostRepository.save(post);
+        if (heldForModeration) {
+            imageModerationHoldService.hold(ImageModerationHoldService.PostType.RENTAL, saved.getId(), String.join(",", imageUrlList));
+        }
 
         // Consume paid token if used
         if (paidTokenId != null) {
@@ -162,7 +167,7 @@ public class RentalPostService {
         List<PostStatus> visibleStatuses = getVisibleStatuses();
 
         if (lat != null && lng != null) {
-            double radius = (radiusKm != null) ? radiusKm : Double.parseDouble(settingService.getSettingValue("post.default_radius_km", "10"));
+            double radius = (radiusKm != null) ? radiusKm : settingService.getDoubleValue("post.default_radius_km", 10);
             String[] statuses = visibleStatuses.stream().map(Enum::name).toArray(String[]::new);
             int limit = pageable.getPageSize();
             int offset = (int) pageable.getOffset();
@@ -190,7 +195,7 @@ public class RentalPostService {
         }
 
         if (lat != null && lng != null) {
-            double radius = (radiusKm != null) ? radiusKm : Double.parseDouble(settingService.getSettingValue("post.default_radius_km", "10"));
+            double radius = (radiusKm != null) ? radiusKm : settingService.getDoubleValue("post.default_radius_km", 10);
             String[] statuses = visibleStatuses.stream().map(Enum::name).toArray(String[]::new);
             int limit = pageable.getPageSize();
             int offset = (int) pageable.getOffset();
@@ -363,8 +368,7 @@ public class RentalPostService {
         int newCount = (post.getReportCount() != null ? post.getReportCount() : 0) + 1;
         post.setReportCount(newCount);
 
-        int reportThreshold = Integer.parseInt(
-                settingService.getSettingValue("rental.post.report_threshold", "3"));
+        int reportThreshold = settingService.getIntValue("rental.post.report_threshold", 3);
         if (newCount >= reportThreshold && post.getStatus() == PostStatus.APPROVED) {
             post.setStatus(PostStatus.FLAGGED);
             log.warn("Rental post auto-flagged due to {} reports: id={}, title={}", newCount, postId, post.getTitle());
@@ -459,8 +463,7 @@ public class RentalPostService {
             throw new RuntimeException("Only the owner can renew a post");
         }
 
-        int durationDays = Integer.parseInt(
-                settingService.getSettingValue("rental.post.duration_days", "30"));
+        int durationDays = settingService.getIntValue("rental.post.duration_days", 30);
 
         post.setValidFrom(LocalDateTime.now());
         if (durationDays > 0) {
@@ -556,8 +559,7 @@ public class RentalPostService {
                 return;
             }
 
-            double radiusKm = Double.parseDouble(
-                    settingService.getSettingValue("notification.radius_km", "50"));
+            double radiusKm = settingService.getDoubleValue("notification.radius_km", 50);
 
             List<User> nearbyCustomers = userRepository.findNearbyCustomers(lat, lng, radiusKm);
             if (nearbyCustomers.isEmpty()) {
@@ -657,8 +659,7 @@ public class RentalPostService {
     }
 
     private LocalDateTime getCutoffDate() {
-        int durationDays = Integer.parseInt(
-                settingService.getSettingValue("rental.post.duration_days", "30"));
+        int durationDays = settingService.getIntValue("rental.post.duration_days", 30);
         if (durationDays <= 0) {
             return null;
         }
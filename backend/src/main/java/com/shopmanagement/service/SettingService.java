@@ -31,6 +31,7 @@ public class SettingService {
     private final SettingRepository settingRepository;
     private final ShopRepository shopRepository;
     private final UserRepository userRepository;
+    private final SettingsRegistry settingsRegistry;
     
     @Transactional
     public SettingResponse createSetting(SettingRequest request) {
@@ -81,31 +82,33 @@ public class SettingService {
     }
     
     public String getSettingValue(String key) {
-        Setting setting = settingRepository.findBySettingKey(key)
+        return settingsRegistry.find(key)
                 .orElseThrow(() -> new RuntimeException("Setting not found with key: " + key));
-        return setting.getSettingValue();
     }
     
     public String getSettingValue(String key, String defaultValue) {
-        return settingRepository.findBySettingKey(key)
-                .map(Setting::getSettingValue)
-                .orElse(defaultValue);
+        return settingsRegistry.getString(key, defaultValue);
+    }
+
+    public int getIntValue(String key, int defaultValue) {
+        return settingsRegistry.getInt(key, defaultValue);
+    }
+
+    public double getDoubleValue(String key, double defaultValue) {
+        return settingsRegistry.getDouble(key, defaultValue);
+    }
+
+    public boolean getBooleanValue(String key, boolean defaultValue) {
+        return settingsRegistry.getBoolean(key, defaultValue);
     }
 
     public String getPublicSettingValue(String key) {
-        Setting setting = settingRepository.findBySettingKey(key)
-                .orElseThrow(() -> new RuntimeException("Setting not found with key: " + key));
-        if (!setting.getIsActive() || setting.getScope() != Setting.SettingScope.GLOBAL) {
-            throw new RuntimeException("Setting not available: " + key);
-        }
-        return setting.getSettingValue();
+        return settingsRegistry.findPublic(key)
+                .orElseThrow(() -> new RuntimeException("Setting not available: " + key));
     }
 
     public Map<String, String> getPublicSettingsByCategory(String category) {
-        List<Setting> settings = settingRepository.findByCategoryAndScope(category, Setting.SettingScope.GLOBAL);
-        return settings.stream()
-                .filter(Setting::getIsActive)
-                .collect(Collectors.toMap(Setting::getSettingKey, Setting::getSettingValue));
+        return settingsRegistry.getPublicByCategory(category);
     }
     
     @Transactional
@@ -0,0 +1,225 @@
+package com.shopmanagement.service;
+
+import com.shopmanagement.entity.Setting;
+import com.shopmanagement.event.SettingsChangedEvent;
+import com.shopmanagement.repository.SettingRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Every row of the settings table, held as one immutable snapshot. Reads are a
+ * volatile read plus a HashMap lookup; numeric and boolean values are parsed
+ * once when the snapshot is built, not per call. A typed read of a value that
+ * doesn't parse falls back (numbers to the caller's default, booleans to
+ * false) and logs a warning once per load.
+ *
+ * The snapshot is rebuilt and swapped in whole:
+ *   - on this node, after a transaction that changed a setting commits
+ *     ({@link SettingsChangedEvent})
+ *   - on other nodes, when the polled version marker (row count + newest
+ *     updated_at) differs from the one the snapshot was built from
+ * Polling runs on its own thread for the same reason as the token revocation
+ * refresh: @Scheduled is off on the incoming container during deploys.
+ */
+@Service
+@Slf4j
+public class SettingsRegistry {
+
+    private final SettingRepository settingRepository;
+
+    @Value("${settings.refresh-seconds:10}")
+    private long refreshSeconds;
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+    private ScheduledExecutorService poller;
+
+    public SettingsRegistry(SettingRepository settingRepository) {
+        this.settingRepository = settingRepository;
+    }
+
+    @PostConstruct
+    void start() {
+        reload();
+        poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "SettingsRefresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        poller.scheduleWithFixedDelay(this::pollForChanges, refreshSeconds, refreshSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (poller != null) {
+            poller.shutdownNow();
+        }
+    }
+
+    public Optional<String> find(String key) {
+        Entry entry = snapshot.entries.get(key);
+        return entry == null ? Optional.empty() : Optional.of(entry.value());
+    }
+
+    public String getString(String key, String defaultValue) {
+        Entry entry = snapshot.entries.get(key);
+        return entry == null ? defaultValue : entry.value();
+    }
+
+    public int getInt(String key, int defaultValue) {
+        Snapshot current = snapshot;
+        Entry entry = current.entries.get(key);
+        if (entry == null) {
+            return defaultValue;
+        }
+        Long value = entry.asLong();
+        if (value == null || value != value.intValue()) {
+            return current.malformed(key, entry, "integer", defaultValue);
+        }
+        return value.intValue();
+    }
+
+    public long getLong(String key, long defaultValue) {
+        Snapshot current = snapshot;
+        Entry entry = current.entries.get(key);
+        if (entry == null) {
+            return defaultValue;
+        }
+        return entry.asLong() != null ? entry.asLong() : current.malformed(key, entry, "integer", defaultValue);
+    }
+
+    public double getDouble(String key, double defaultValue) {
+        Snapshot current = snapshot;
+        Entry entry = current.entries.get(key);
+        if (entry == null) {
+            return defaultValue;
+        }
+        return entry.asDouble() != null ? entry.asDouble() : current.malformed(key, entry, "number", defaultValue);
+    }
+
+    public boolean getBoolean(String key, boolean defaultValue) {
+        Snapshot current = snapshot;
+        Entry entry = current.entries.get(key);
+        if (entry == null) {
+            return defaultValue;
+        }
+        // anything but true/false has always read as false; keep that, but say so
+        return entry.asBoolean() != null ? entry.asBoolean() : current.malformed(key, entry, "boolean", false);
+    }
+
+    /** Active GLOBAL settings of one category, key -> value. */
+    public Map<String, String> getPublicByCategory(String category) {
+        Map<String, String> values = new LinkedHashMap<>();
+        snapshot.entries.forEach((key, entry) -> {
+            if (entry.publicValue() && category.equals(entry.category())) {
+                values.put(key, entry.value());
+            }
+        });
+        return values;
+    }
+
+    /** Value of an active GLOBAL setting; empty for missing, inactive or scoped ones. */
+    public Optional<String> findPublic(String key) {
+        Entry entry = snapshot.entries.get(key);
+        return entry == null || !entry.publicValue() ? Optional.empty() : Optional.of(entry.value());
+    }
+
+    public int size() {
+        return snapshot.entries.size();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSettingsChanged(SettingsChangedEvent event) {
+        reload();
+    }
+
+    /** Rebuild from the table and swap. Synchronized so an older load can't overwrite a newer one. */
+    public synchronized void reload() {
+        String version = settingRepository.findVersionMarker();
+        List<Setting> rows = settingRepository.findAll();
+        Map<String, Entry> entries = new HashMap<>(rows.size() * 2);
+        for (Setting row : rows) {
+            if (row.getSettingKey() != null && row.getSettingValue() != null) {
+                entries.put(row.getSettingKey(), Entry.of(row));
+            }
+        }
+        snapshot = new Snapshot(Collections.unmodifiableMap(entries), version, ConcurrentHashMap.newKeySet());
+        log.debug("Settings snapshot loaded: {} setting(s), version {}", entries.size(), version);
+    }
+
+    void pollForChanges() {
+        try {
+            String version = settingRepository.findVersionMarker();
+            if (version != null && !version.equals(snapshot.version)) {
+                log.info("Settings changed on another node; reloading");
+                reload();
+            }
+        } catch (Exception e) {
+            log.warn("Settings refresh failed: {}", e.getMessage());
+        }
+    }
+
+    /** warned: key:type pairs already reported as malformed, so each bad value is logged once per load. */
+    private record Snapshot(Map<String, Entry> entries, String version, Set<String> warned) {
+        static final Snapshot EMPTY = new Snapshot(Map.of(), "", ConcurrentHashMap.newKeySet());
+
+        <T> T malformed(String key, Entry entry, String type, T fallback) {
+            if (warned.add(key + ":" + type)) {
+                log.warn("Setting {} = '{}' is not a valid {}; using {}", key, entry.value(), type, fallback);
+            }
+            return fallback;
+        }
+    }
+
+    /** One setting with its typed forms pre-parsed; null when the value doesn't parse as that type. */
+    private record Entry(String value, String category, boolean publicValue,
+                         Long asLong, Double asDouble, Boolean asBoolean) {
+
+        static Entry of(Setting row) {
+            String value = row.getSettingValue();
+            boolean publicValue = Boolean.TRUE.equals(row.getIsActive())
+                    && row.getScope() == Setting.SettingScope.GLOBAL;
+            return new Entry(value, row.getCategory(), publicValue,
+                    parseLong(value), parseDouble(value), parseBoolean(value));
+        }
+
+        private static Long parseLong(String value) {
+            try {
+                return Long.valueOf(value.trim());
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        private static Double parseDouble(String value) {
+            try {
+                return Double.valueOf(value.trim());
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        private static Boolean parseBoolean(String value) {
+            String trimmed = value.trim();
+            if ("true".equalsIgnoreCase(trimmed)) {
+                return Boolean.TRUE;
+            }
+            return "false".equalsIgnoreCase(trimmed) ? Boolean.FALSE : null;
+        }
+    }
+}
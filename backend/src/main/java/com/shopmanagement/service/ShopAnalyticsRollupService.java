@@ -0,0 +1,408 @@
+package com.shopmanagement.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Shop analytics served from daily fact tables (V98) instead of scanning
+ * orders/order_items for the requested window.
+ *
+ * Rollups replace one day's rows for every shop at once:
+ *   - every 10 minutes for today and yesterday (late status changes)
+ *   - nightly for the last week (cancellations/returns of older orders)
+ *   - on first start, a backfill of shop.analytics.backfill-days
+ * Customer first/last order times are kept per (shop, customer), so new vs
+ * returning customers for any window ending today is one indexed count.
+ *
+ * {@link #getAnalytics} reads at most (2 x days) daily rows plus small
+ * grouped reads of the hourly, product and area tables. Top customers are
+ * ranked by revenue inside the window, so that one read groups the shop's
+ * orders since the window start.
+ */
+@Service
+@Slf4j
+public class ShopAnalyticsRollupService {
+
+    private static final String REVENUE_CONDITION =
+            "(o.payment_status = 'PAID' OR o.status IN ('DELIVERED', 'COMPLETED'))";
+    private static final String NOT_CANCELLED = "o.status NOT IN ('CANCELLED', 'REFUNDED')";
+    private static final int MAX_DAYS = 365;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${shop.analytics.backfill-days:180}")
+    private int backfillDays;
+
+    public ShopAnalyticsRollupService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    // ===== Rollup jobs =====
+
+    @Scheduled(fixedDelay = 600000, initialDelay = 120000)
+    public void rollupRecentDays() {
+        LocalDate today = LocalDate.now();
+        rollupRange(today.minusDays(1), today);
+    }
+
+    @Scheduled(cron = "0 20 3 * * *")
+    public void rollupLastWeek() {
+        LocalDate today = LocalDate.now();
+        rollupRange(today.minusDays(7), today);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        Thread backfill = new Thread(() -> {
+            try {
+                Boolean empty = jdbcTemplate.queryForObject(
+                        "SELECT NOT EXISTS (SELECT 1 FROM shop_analytics_daily) AND EXISTS (SELECT 1 FROM orders)",
+                        Boolean.class);
+                if (Boolean.TRUE.equals(empty)) {
+                    log.info("Shop analytics rollups are empty; backfilling {} day(s)", backfillDays);
+                    LocalDate today = LocalDate.now();
+                    rollupRange(today.minusDays(backfillDays), today);
+                }
+            } catch (Exception e) {
+                log.error("Shop analytics backfill failed", e);
+            }
+        }, "ShopAnalyticsBackfill");
+        backfill.setDaemon(true);
+        backfill.start();
+    }
+
+    public void rollupRange(LocalDate from, LocalDate to) {
+        long started = System.currentTimeMillis();
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            try {
+                rollupDay(day);
+            } catch (Exception e) {
+                log.error("Shop analytics rollup failed for {}", day, e);
+            }
+        }
+        log.debug("Shop analytics rolled up {} to {} in {} ms", from, to, System.currentTimeMillis() - started);
+    }
+
+    /** Replace every shop's fact rows for one day, in one transaction. */
+    public void rollupDay(LocalDate day) {
+        Date date = Date.valueOf(day);
+        Timestamp start = Timestamp.valueOf(day.atStartOfDay());
+        Timestamp end = Timestamp.valueOf(day.plusDays(1).atStartOfDay());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("DELETE FROM shop_analytics_daily WHERE metric_date = ?", date);
+            jdbcTemplate.update(
+                    "INSERT INTO shop_analytics_daily (shop_id, metric_date, orders, revenue_orders, revenue, " +
+                    "completed_orders, cancelled_orders, returned_orders, delivered_with_time, delivery_minutes_total) " +
+                    "SELECT o.shop_id, ?, COUNT(*), " +
+                    "COUNT(*) FILTER (WHERE " + REVENUE_CONDITION + "), " +
+                    "COALESCE(SUM(o.total_amount) FILTER (WHERE " + REVENUE_CONDITION + "), 0), " +
+                    "COUNT(*) FILTER (WHERE o.status IN ('DELIVERED', 'COMPLETED', 'SELF_PICKUP_COLLECTED')), " +
+                    "COUNT(*) FILTER (WHERE o.status = 'CANCELLED'), " +
+                    "COUNT(*) FILTER (WHERE o.status IN ('REFUNDED', 'RETURNING_TO_SHOP', 'RETURNED_TO_SHOP')), " +
+                    "COUNT(*) FILTER (WHERE o.status = 'DELIVERED' AND o.actual_delivery_time > o.created_at), " +
+                    "COALESCE(SUM(EXTRACT(EPOCH FROM (o.actual_delivery_time - o.created_at)) / 60) " +
+                    "         FILTER (WHERE o.status = 'DELIVERED' AND o.actual_delivery_time > o.created_at), 0)::BIGINT " +
+                    "FROM orders o WHERE o.created_at >= ? AND o.created_at < ? GROUP BY o.shop_id",
+                    date, start, end);
+
+            jdbcTemplate.update("DELETE FROM shop_analytics_hourly WHERE metric_date = ?", date);
+            jdbcTemplate.update(
+                    "INSERT INTO shop_analytics_hourly (shop_id, metric_date, hour_of_day, orders, revenue) " +
+                    "SELECT o.shop_id, ?, EXTRACT(HOUR FROM o.created_at)::SMALLINT, COUNT(*), " +
+                    "COALESCE(SUM(o.total_amount) FILTER (WHERE " + REVENUE_CONDITION + "), 0) " +
+                    "FROM orders o WHERE o.created_at >= ? AND o.created_at < ? " +
+                    "GROUP BY o.shop_id, EXTRACT(HOUR FROM o.created_at)",
+                    date, start, end);
+
+            jdbcTemplate.update("DELETE FROM shop_analytics_products WHERE metric_date = ?", date);
+            jdbcTemplate.update(
+                    "INSERT INTO shop_analytics_products (shop_id, metric_date, product_id, product_name, " +
+                    "category_name, quantity, revenue) " +
+                    "SELECT o.shop_id, ?, COALESCE(oi.shop_product_id, 0), LEFT(MAX(oi.product_name), 255), " +
+                    "LEFT(MAX(pc.name), 255), COALESCE(SUM(oi.quantity), 0), COALESCE(SUM(oi.total_price), 0) " +
+                    "FROM order_items oi " +
+                    "JOIN orders o ON o.id = oi.order_id " +
+                    "LEFT JOIN shop_products sp ON sp.id = oi.shop_product_id " +
+                    "LEFT JOIN master_products mp ON mp.id = sp.master_product_id " +
+                    "LEFT JOIN product_categories pc ON pc.id = mp.category_id " +
+                    "WHERE o.created_at >= ? AND o.created_at < ? AND " + NOT_CANCELLED + " " +
+                    "GROUP BY o.shop_id, COALESCE(oi.shop_product_id, 0)",
+                    date, start, end);
+
+            jdbcTemplate.update("DELETE FROM shop_analytics_areas WHERE metric_date = ?", date);
+            jdbcTemplate.update(
+                    "INSERT INTO shop_analytics_areas (shop_id, metric_date, area, orders, revenue) " +
+                    "SELECT o.shop_id, ?, LEFT(COALESCE(NULLIF(TRIM(o.delivery_city), ''), 'Unknown'), 100), COUNT(*), " +
+                    "COALESCE(SUM(o.total_amount) FILTER (WHERE " + REVENUE_CONDITION + "), 0) " +
+                    "FROM orders o WHERE o.created_at >= ? AND o.created_at < ? AND " + NOT_CANCELLED + " " +
+                    "GROUP BY o.shop_id, LEFT(COALESCE(NULLIF(TRIM(o.delivery_city), ''), 'Unknown'), 100)",
+                    date, start, end);
+
+            // Lifetime stats of every customer who ordered that day, recomputed from their orders
+            jdbcTemplate.update(
+                    "INSERT INTO shop_customer_stats (shop_id, customer_id, first_order_at, last_order_at, order_count, revenue) " +
+                    "SELECT o.shop_id, o.customer_id, MIN(o.created_at), MAX(o.created_at), COUNT(*), " +
+                    "COALESCE(SUM(o.total_amount) FILTER (WHERE " + REVENUE_CONDITION + "), 0) " +
+                    "FROM orders o " +
+                    "JOIN (SELECT DISTINCT shop_id, customer_id FROM orders " +
+                    "      WHERE created_at >= ? AND created_at < ?) active " +
+                    "  ON active.shop_id = o.shop_id AND active.customer_id = o.customer_id " +
+                    "GROUP BY o.shop_id, o.customer_id " +
+                    "ON CONFLICT (shop_id, customer_id) DO UPDATE SET " +
+                    "first_order_at = EXCLUDED.first_order_at, last_order_at = EXCLUDED.last_order_at, " +
+                    "order_count = EXCLUDED.order_count, revenue = EXCLUDED.revenue",
+                    start, end);
+        });
+    }
+
+    // ===== Reads =====
+
+    /** Sales, customer, product, performance and geographic analytics for the last {@code days} days. */
+    public Map<String, Object> getAnalytics(Long shopId, int days) {
+        int window = Math.max(1, Math.min(days, MAX_DAYS));
+        LocalDate today = LocalDate.now();
+        LocalDate start = today.minusDays(window - 1L);
+        LocalDate previousStart = start.minusDays(window);
+
+        // Daily rows for this window and the one before (for growth)
+        Totals current = new Totals();
+        Totals previous = new Totals();
+        Map<LocalDate, Object[]> daily = new TreeMap<>();
+        Map<DayOfWeek, long[]> weekdayOrders = new EnumMap<>(DayOfWeek.class);
+        Map<DayOfWeek, BigDecimal> weekdayRevenue = new EnumMap<>(DayOfWeek.class);
+        jdbcTemplate.query(
+                "SELECT metric_date, orders, revenue_orders, revenue, completed_orders, cancelled_orders, " +
+                "returned_orders, delivered_with_time, delivery_minutes_total " +
+                "FROM shop_analytics_daily WHERE shop_id = ? AND metric_date >= ? AND metric_date <= ?",
+                rs -> {
+                    LocalDate day = rs.getDate("metric_date").toLocalDate();
+                    Totals totals = day.isBefore(start) ? previous : current;
+                    long orders = rs.getLong("orders");
+                    BigDecimal revenue = rs.getBigDecimal("revenue");
+                    totals.orders += orders;
+                    totals.revenueOrders += rs.getLong("revenue_orders");
+                    totals.revenue = totals.revenue.add(revenue);
+                    totals.completed += rs.getLong("completed_orders");
+                    totals.cancelled += rs.getLong("cancelled_orders");
+                    totals.returned += rs.getLong("returned_orders");
+                    totals.deliveredWithTime += rs.getLong("delivered_with_time");
+                    totals.deliveryMinutes += rs.getLong("delivery_minutes_total");
+                    if (!day.isBefore(start)) {
+                        daily.put(day, new Object[]{orders, revenue});
+                        weekdayOrders.computeIfAbsent(day.getDayOfWeek(), d -> new long[1])[0] += orders;
+                        weekdayRevenue.merge(day.getDayOfWeek(), revenue, BigDecimal::add);
+                    }
+                },
+                shopId, Date.valueOf(previousStart), Date.valueOf(today));
+
+        List<Map<String, Object>> dailyRevenue = new ArrayList<>();
+        List<Map<String, Object>> dailyOrders = new ArrayList<>();
+        for (LocalDate day = start; !day.isAfter(today); day = day.plusDays(1)) {
+            Object[] row = daily.get(day);
+            dailyRevenue.add(Map.of("date", day.toString(), "revenue", row != null ? row[1] : BigDecimal.ZERO));
+            dailyOrders.add(Map.of("date", day.toString(), "orders", row != null ? row[0] : 0L));
+        }
+        Map<String, Object> weekdayPattern = new LinkedHashMap<>();
+        for (DayOfWeek dayOfWeek : DayOfWeek.values()) {
+            long[] orders = weekdayOrders.get(dayOfWeek);
+            weekdayPattern.put(dayOfWeek.name(), Map.of(
+                    "orders", orders != null ? orders[0] : 0L,
+                    "revenue", weekdayRevenue.getOrDefault(dayOfWeek, BigDecimal.ZERO)));
+        }
+
+        Map<String, Object> hourlyPattern = new LinkedHashMap<>();
+        jdbcTemplate.query(
+                "SELECT hour_of_day, SUM(orders) AS orders, SUM(revenue) AS revenue FROM shop_analytics_hourly " +
+                "WHERE shop_id = ? AND metric_date >= ? AND metric_date <= ? GROUP BY hour_of_day ORDER BY hour_of_day",
+                rs -> {
+                    hourlyPattern.put(String.valueOf(rs.getInt("hour_of_day")), Map.of(
+                            "orders", rs.getLong("orders"),
+                            "revenue", rs.getBigDecimal("revenue")));
+                },
+                shopId, Date.valueOf(start), Date.valueOf(today));
+
+        Map<String, Object> analytics = new LinkedHashMap<>();
+        Map<String, Object> sales = new LinkedHashMap<>();
+        sales.put("totalRevenue", current.revenue);
+        sales.put("totalOrders", current.orders);
+        sales.put("avgOrderValue", current.averageOrderValue());
+        sales.put("revenueGrowth", growth(current.revenue, previous.revenue));
+        sales.put("orderGrowth", growth(BigDecimal.valueOf(current.orders), BigDecimal.valueOf(previous.orders)));
+        sales.put("dailyRevenue", dailyRevenue);
+        sales.put("dailyOrders", dailyOrders);
+        sales.put("hourlyPattern", hourlyPattern);
+        sales.put("weekdayPattern", weekdayPattern);
+        analytics.put("salesAnalytics", sales);
+
+        analytics.put("customerAnalytics", customerAnalytics(shopId, start, current.orders));
+        analytics.put("productAnalytics", productAnalytics(shopId, start, today));
+
+        Map<String, Object> performance = new LinkedHashMap<>();
+        performance.put("orderFulfillmentRate", percent(current.completed, current.orders));
+        performance.put("avgDeliveryTime", current.deliveredWithTime > 0
+                ? (current.deliveryMinutes / current.deliveredWithTime) + " min" : "N/A");
+        performance.put("returnRate", percent(current.returned, current.orders));
+        performance.put("cancellationRate", percent(current.cancelled, current.orders));
+        analytics.put("performanceMetrics", performance);
+
+        analytics.put("geographicAnalytics", geographicAnalytics(shopId, start, today));
+        return analytics;
+    }
+
+    private Map<String, Object> customerAnalytics(Long shopId, LocalDate start, long windowOrders) {
+        Timestamp since = Timestamp.valueOf(start.atStartOfDay());
+        long[] counts = new long[2];
+        jdbcTemplate.query(
+                "SELECT COUNT(*) AS total, COUNT(*) FILTER (WHERE first_order_at >= ?) AS new_customers " +
+                "FROM shop_customer_stats WHERE shop_id = ? AND last_order_at >= ?",
+                rs -> {
+                    counts[0] = rs.getLong("total");
+                    counts[1] = rs.getLong("new_customers");
+                },
+                since, shopId, since);
+        long total = counts[0];
+        long newCustomers = counts[1];
+
+        List<Map<String, Object>> topCustomers = jdbcTemplate.query(
+                "SELECT w.customer_id, c.first_name, c.last_name, w.order_count, w.revenue " +
+                "FROM (SELECT o.customer_id, COUNT(*) AS order_count, " +
+                "      COALESCE(SUM(o.total_amount) FILTER (WHERE " + REVENUE_CONDITION + "), 0) AS revenue " +
+                "      FROM orders o WHERE o.shop_id = ? AND o.created_at >= ? AND o.customer_id IS NOT NULL " +
+                "      GROUP BY o.customer_id ORDER BY revenue DESC LIMIT 5) w " +
+                "LEFT JOIN customers c ON c.id = w.customer_id ORDER BY w.revenue DESC",
+                (rs, rowNum) -> {
+                    Map<String, Object> customer = new LinkedHashMap<>();
+                    customer.put("customerId", rs.getLong("customer_id"));
+                    customer.put("name", ((rs.getString("first_name") != null ? rs.getString("first_name") : "") + " "
+                            + (rs.getString("last_name") != null ? rs.getString("last_name") : "")).trim());
+                    customer.put("orders", rs.getLong("order_count"));
+                    customer.put("revenue", rs.getBigDecimal("revenue"));
+                    return customer;
+                },
+                shopId, since);
+
+        Map<String, Object> customers = new LinkedHashMap<>();
+        customers.put("totalCustomers", total);
+        customers.put("newCustomers", newCustomers);
+        customers.put("returningCustomers", total - newCustomers);
+        customers.put("customerRetentionRate", percent(total - newCustomers, total));
+        customers.put("avgOrdersPerCustomer", total > 0 ? round2((double) windowOrders / total) : 0.0);
+        customers.put("topCustomers", topCustomers);
+        return customers;
+    }
+
+    private Map<String, Object> productAnalytics(Long shopId, LocalDate start, LocalDate today) {
+        List<Map<String, Object>> products = jdbcTemplate.query(
+                "SELECT product_id, MAX(product_name) AS product_name, MAX(category_name) AS category_name, " +
+                "SUM(quantity) AS quantity, SUM(revenue) AS revenue FROM shop_analytics_products " +
+                "WHERE shop_id = ? AND metric_date >= ? AND metric_date <= ? " +
+                "GROUP BY product_id ORDER BY SUM(revenue) DESC",
+                (rs, rowNum) -> {
+                    Map<String, Object> product = new LinkedHashMap<>();
+                    product.put("productId", rs.getLong("product_id"));
+                    product.put("productName", rs.getString("product_name"));
+                    product.put("category", rs.getString("category_name") != null ? rs.getString("category_name") : "Uncategorized");
+                    product.put("quantitySold", rs.getLong("quantity"));
+                    product.put("revenue", rs.getBigDecimal("revenue"));
+                    return product;
+                },
+                shopId, Date.valueOf(start), Date.valueOf(today));
+
+        Map<String, BigDecimal> categoryRevenue = new TreeMap<>();
+        for (Map<String, Object> product : products) {
+            categoryRevenue.merge((String) product.get("category"), (BigDecimal) product.get("revenue"), BigDecimal::add);
+        }
+        Map<String, Object> categoryPerformance = new LinkedHashMap<>();
+        categoryRevenue.entrySet().stream()
+                .sorted(Map.Entry.<String, BigDecimal>comparingByValue(Comparator.reverseOrder()))
+                .forEach(entry -> categoryPerformance.put(entry.getKey(), entry.getValue()));
+
+        int size = products.size();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("productsSold", size);
+        result.put("bestSellingProducts", products.subList(0, Math.min(10, size)));
+        result.put("lowPerformingProducts", size > 10
+                ? new ArrayList<>(products.subList(Math.max(10, size - 5), size)) : List.of());
+        result.put("categoryPerformance", categoryPerformance);
+        return result;
+    }
+
+    private Map<String, Object> geographicAnalytics(Long shopId, LocalDate start, LocalDate today) {
+        Map<String, Object> ordersByLocation = new LinkedHashMap<>();
+        List<Map<String, Object>> topAreas = new ArrayList<>();
+        jdbcTemplate.query(
+                "SELECT area, SUM(orders) AS orders, SUM(revenue) AS revenue FROM shop_analytics_areas " +
+                "WHERE shop_id = ? AND metric_date >= ? AND metric_date <= ? GROUP BY area ORDER BY SUM(orders) DESC",
+                rs -> {
+                    String area = rs.getString("area");
+                    long orders = rs.getLong("orders");
+                    ordersByLocation.put(area, orders);
+                    if (topAreas.size() < 5) {
+                        topAreas.add(Map.of("area", area, "orders", orders, "revenue", rs.getBigDecimal("revenue")));
+                    }
+                },
+                shopId, Date.valueOf(start), Date.valueOf(today));
+
+        Map<String, Object> geographic = new LinkedHashMap<>();
+        geographic.put("ordersByLocation", ordersByLocation);
+        geographic.put("topDeliveryAreas", topAreas);
+        return geographic;
+    }
+
+    private static double growth(BigDecimal current, BigDecimal previous) {
+        if (previous.signum() == 0) {
+            return current.signum() > 0 ? 100.0 : 0.0;
+        }
+        return current.subtract(previous).multiply(BigDecimal.valueOf(100))
+                .divide(previous, 2, RoundingMode.HALF_UP).doubleValue();
+    }
+
+    private static double percent(long part, long whole) {
+        return whole > 0 ? round2(part * 100.0 / whole) : 0.0;
+    }
+
+    private static double round2(double value) {
+        return Math.round(value * 100.0) / 100.0;
+    }
+
+    private static final class Totals {
+        long orders;
+        long revenueOrders;
+        BigDecimal revenue = BigDecimal.ZERO;
+        long completed;
+        long cancelled;
+        long returned;
+        long deliveredWithTime;
+        long deliveryMinutes;
+
+        BigDecimal averageOrderValue() {
+            return revenueOrders > 0
+                    ? revenue.divide(BigDecimal.valueOf(revenueOrders), 2, RoundingMode.HALF_UP)
+                    : BigDecimal.ZERO;
+        }
+    }
+}
@@ -0,0 +1,363 @@
+package com.shopmanagement.service;
+
+import com.shopmanagement.entity.BusinessHours;
+import com.shopmanagement.event.BusinessHoursChangedEvent;
+import com.shopmanagement.repository.BusinessHoursRepository;
+import com.shopmanagement.shop.entity.Shop;
+import com.shopmanagement.shop.repository.ShopRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory open/closed state for every active shop, driven by each shop's
+ * weekly {@link BusinessHours}.
+ *
+ * A shop's hours are compiled once into a {@link WeeklySchedule}; from that
+ * the engine works out the next instant the shop opens or closes and arms a
+ * timer for exactly that instant. When it fires the shop flips in memory,
+ * is_available is written (unless a manual override is in force) and the
+ * following transition is armed. Availability reads never touch the DB.
+ *
+ * Schedules are recompiled when business hours change on this node
+ * ({@link BusinessHoursChangedEvent}) or a manual override is set/cleared
+ * ({@link #refreshShop}). A periodic full reconcile picks up new or
+ * deactivated shops and edits made on other nodes. Timers run on the engine's
+ * own thread: @Scheduled is off during deploys, but the new container must
+ * still flip shops.
+ */
+@Service
+@Slf4j
+public class ShopAvailabilityEngine {
+
+    private final ShopRepository shopRepository;
+    private final BusinessHoursRepository businessHoursRepository;
+
+    @Value("${shop.availability.reconcile-minutes:10}")
+    private long reconcileMinutes;
+
+    private final Map<Long, ShopAvailability> shops = new ConcurrentHashMap<>();
+    private final Map<Long, ScheduledFuture<?>> timers = new ConcurrentHashMap<>();
+    private ScheduledExecutorService timer;
+
+    public ShopAvailabilityEngine(ShopRepository shopRepository, BusinessHoursRepository businessHoursRepository) {
+        this.shopRepository = shopRepository;
+        this.businessHoursRepository = businessHoursRepository;
+    }
+
+    @PostConstruct
+    void start() {
+        timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ShopAvailability");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.execute(this::reconcile);
+        timer.scheduleWithFixedDelay(this::reconcile, reconcileMinutes, reconcileMinutes, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (timer != null) {
+            timer.shutdownNow();
+        }
+    }
+
+    /** Current state of an active shop, or null when the shop is unknown to the engine (inactive / just created). */
+    public ShopAvailability get(Long shopId) {
+        return shops.get(shopId);
+    }
+
+    public Collection<ShopAvailability> getAll() {
+        return shops.values();
+    }
+
+    /** Whether the shop's business hours say it is open right now; null when the shop isn't tracked. */
+    public Boolean isScheduledOpen(Long shopId) {
+        ShopAvailability shop = shops.get(shopId);
+        return shop == null ? null : shop.scheduledOpen();
+    }
+
+    /**
+     * Re-read one shop and its hours once the current transaction commits (so
+     * the reload sees the change), or straight away when there is none. All
+     * state changes run on the engine thread.
+     */
+    public void refreshShop(Long shopId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    timer.execute(() -> reloadShop(shopId));
+                }
+            });
+        } else {
+            timer.execute(() -> reloadShop(shopId));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBusinessHoursChanged(BusinessHoursChangedEvent event) {
+        timer.execute(() -> reloadShop(event.getShopId()));
+    }
+
+    /** Run a full reconcile now (admin "update all") and wait for it. */
+    public void reloadAll() {
+        try {
+            timer.submit(this::reconcile).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Shop availability reconcile failed", e.getCause());
+        }
+    }
+
+    /** Every active shop and all business hours, two queries. */
+    private void reconcile() {
+        try {
+            List<Shop> active = shopRepository.findAllByIsActiveTrue();
+            Map<Long, List<BusinessHours>> hoursByShop = businessHoursRepository.findAll().stream()
+                    .collect(Collectors.groupingBy(BusinessHours::getShopId));
+
+            Set<Long> seen = new HashSet<>();
+            for (Shop shop : active) {
+                seen.add(shop.getId());
+                track(shop, hoursByShop.getOrDefault(shop.getId(), List.of()));
+            }
+            for (Long shopId : new ArrayList<>(shops.keySet())) {
+                if (!seen.contains(shopId)) {
+                    untrack(shopId);
+                }
+            }
+            log.debug("Shop availability reconciled: {} active shop(s), {} open",
+                    shops.size(), shops.values().stream().filter(ShopAvailability::available).count());
+        } catch (Exception e) {
+            log.error("Error reconciling shop availability", e);
+        }
+    }
+
+    void reloadShop(Long shopId) {
+        try {
+            Shop shop = shopRepository.findById(shopId).orElse(null);
+            if (shop == null || !Boolean.TRUE.equals(shop.getIsActive())) {
+                untrack(shopId);
+                return;
+            }
+            track(shop, businessHoursRepository.findByShopId(shopId));
+        } catch (Exception e) {
+            log.error("Error reloading availability for shop {}", shopId, e);
+        }
+    }
+
+    private void track(Shop shop, List<BusinessHours> hours) {
+        WeeklySchedule schedule = WeeklySchedule.compile(hours);
+        LocalDateTime now = LocalDateTime.now();
+        boolean manual = Boolean.TRUE.equals(shop.getIsManualOverride());
+        boolean scheduledOpen = schedule.isOpenAt(now);
+        boolean available = manual ? Boolean.TRUE.equals(shop.getIsAvailable()) : scheduledOpen;
+        boolean changed = !manual && !Boolean.valueOf(scheduledOpen).equals(shop.getIsAvailable());
+
+        ShopAvailability state = new ShopAvailability(shop.getId(), shop.getName(), shop.getCity(),
+                shop.getBusinessType() != null ? shop.getBusinessType().toString() : null, shop.getRating(),
+                manual, shop.getAvailabilityOverrideReason(), scheduledOpen, available,
+                changed ? now : shop.getAvailabilityUpdatedAt(), schedule.nextTransitionAfter(now), schedule);
+        shops.put(shop.getId(), state);
+
+        if (changed) {
+            persist(shop.getId(), scheduledOpen);
+        }
+        arm(state);
+    }
+
+    private void untrack(Long shopId) {
+        shops.remove(shopId);
+        ScheduledFuture<?> pending = timers.remove(shopId);
+        if (pending != null) {
+            pending.cancel(false);
+        }
+    }
+
+    private void arm(ShopAvailability state) {
+        ScheduledFuture<?> previous;
+        if (state.nextTransition() == null) {
+            previous = timers.remove(state.shopId());
+        } else {
+            long delayMillis = Math.max(0, Duration.between(LocalDateTime.now(), state.nextTransition()).toMillis());
+            LocalDateTime at = state.nextTransition();
+            previous = timers.put(state.shopId(),
+                    timer.schedule(() -> flip(state.shopId(), at), delayMillis, TimeUnit.MILLISECONDS));
+        }
+        if (previous != null) {
+            previous.cancel(false);
+        }
+    }
+
+    /** Timer callback: the shop reached a transition instant. */
+    private void flip(Long shopId, LocalDateTime at) {
+        ShopAvailability current = shops.get(shopId);
+        if (current == null || !at.equals(current.nextTransition())) {
+            return; // untracked or rescheduled since this timer was armed
+        }
+        // Evaluate at the transition itself: the timer may wake a few ms either side of it.
+        LocalDateTime evaluateAt = LocalDateTime.now().isAfter(at) ? LocalDateTime.now() : at;
+        boolean scheduledOpen = current.schedule().isOpenAt(evaluateAt);
+        boolean available = current.manualOverride() ? current.available() : scheduledOpen;
+        boolean changed = !current.manualOverride() && current.available() != available;
+        ShopAvailability next = current.withState(scheduledOpen, available,
+                changed ? LocalDateTime.now() : current.updatedAt(),
+                current.schedule().nextTransitionAfter(evaluateAt));
+        shops.put(shopId, next);
+
+        if (changed) {
+            log.info("Shop {} (ID: {}) {} per business hours", current.name(), shopId, available ? "opened" : "closed");
+            persist(shopId, available);
+        }
+        arm(next);
+    }
+
+    private void persist(Long shopId, boolean available) {
+        try {
+            shopRepository.updateScheduledAvailability(shopId, available, LocalDateTime.now());
+        } catch (Exception e) {
+            // Memory is authoritative for reads; the next reconcile retries the write.
+            log.warn("Could not store availability for shop {}: {}", shopId, e.getMessage());
+        }
+    }
+
+    /** Snapshot of one shop's availability. */
+    public record ShopAvailability(Long shopId, String name, String city, String businessType, BigDecimal rating,
+                                   boolean manualOverride, String overrideReason,
+                                   boolean scheduledOpen, boolean available, LocalDateTime updatedAt,
+                                   LocalDateTime nextTransition, WeeklySchedule schedule) {
+
+        ShopAvailability withState(boolean scheduledOpen, boolean available, LocalDateTime updatedAt,
+                                   LocalDateTime nextTransition) {
+            return new ShopAvailability(shopId, name, city, businessType, rating, manualOverride, overrideReason,
+                    scheduledOpen, available, updatedAt, nextTransition, schedule);
+        }
+    }
+
+    /**
+     * A shop's week as open intervals (seconds of day, [start, end)) per day,
+     * with breaks already cut out. Same rules as
+     * {@link BusinessHoursService#isShopOpenNow}: no hours at all means always
+     * open; hours for some days but not today means closed today.
+     */
+    public static final class WeeklySchedule {
+
+        private static final int END_OF_DAY = 24 * 60 * 60;
+        private static final WeeklySchedule ALWAYS_OPEN = new WeeklySchedule(null);
+
+        /** null = no hours configured (always open). */
+        private final Map<DayOfWeek, int[][]> intervals;
+
+        private WeeklySchedule(Map<DayOfWeek, int[][]> intervals) {
+            this.intervals = intervals;
+        }
+
+        static WeeklySchedule compile(List<BusinessHours> hours) {
+            if (hours.isEmpty()) {
+                return ALWAYS_OPEN;
+            }
+            Map<DayOfWeek, int[][]> byDay = new EnumMap<>(DayOfWeek.class);
+            for (BusinessHours day : hours) {
+                if (day.getDayOfWeek() == null || !Boolean.TRUE.equals(day.getIsOpen())) {
+                    continue;
+                }
+                if (Boolean.TRUE.equals(day.getIs24Hours())) {
+                    byDay.put(day.getDayOfWeek(), new int[][]{{0, END_OF_DAY}});
+                    continue;
+                }
+                if (day.getOpenTime() == null || day.getCloseTime() == null) {
+                    continue;
+                }
+                int open = day.getOpenTime().toSecondOfDay();
+                int close = day.getCloseTime().toSecondOfDay();
+                List<int[]> slots = new ArrayList<>();
+                LocalTime breakStart = day.getBreakStartTime();
+                LocalTime breakEnd = day.getBreakEndTime();
+                if (breakStart != null && breakEnd != null
+                        && breakStart.toSecondOfDay() > open && breakEnd.toSecondOfDay() < close) {
+                    slots.add(new int[]{open, breakStart.toSecondOfDay()});
+                    slots.add(new int[]{breakEnd.toSecondOfDay(), close});
+                } else {
+                    slots.add(new int[]{open, close});
+                }
+                slots.removeIf(slot -> slot[1] <= slot[0]);
+                slots.sort(Comparator.comparingInt(slot -> slot[0]));
+                byDay.put(day.getDayOfWeek(), slots.toArray(new int[0][]));
+            }
+            return new WeeklySchedule(byDay);
+        }
+
+        public boolean isOpenAt(LocalDateTime at) {
+            if (intervals == null) {
+                return true;
+            }
+            int[][] day = intervals.get(at.getDayOfWeek());
+            if (day == null) {
+                return false;
+            }
+            int second = at.toLocalTime().toSecondOfDay();
+            for (int[] slot : day) {
+                if (second >= slot[0] && second < slot[1]) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /** First instant after {@code from} at which the open state differs; null if it never changes. */
+        public LocalDateTime nextTransitionAfter(LocalDateTime from) {
+            if (intervals == null) {
+                return null;
+            }
+            boolean openNow = isOpenAt(from);
+            // A week plus a day covers every boundary of the weekly cycle.
+            for (int offset = 0; offset <= 7; offset++) {
+                LocalDateTime dayStart = from.toLocalDate().plusDays(offset).atStartOfDay();
+                List<LocalDateTime> boundaries = new ArrayList<>();
+                boundaries.add(dayStart);
+                int[][] day = intervals.get(dayStart.getDayOfWeek());
+                if (day != null) {
+                    for (int[] slot : day) {
+                        boundaries.add(dayStart.plusSeconds(slot[0]));
+                        boundaries.add(dayStart.plusSeconds(slot[1]));
+                    }
+                }
+                for (LocalDateTime boundary : boundaries) {
+                    if (boundary.isAfter(from) && isOpenAt(boundary) != openNow) {
+                        return boundary;
+                    }
+                }
+            }
+            return null;
+        }
+    }
+}
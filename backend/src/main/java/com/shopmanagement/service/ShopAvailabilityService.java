@@ -4,13 +4,12 @@ import com.shopmanagement.shop.entity.Shop;
 import com.shopmanagement.shop.repository.ShopRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -22,50 +21,16 @@ public class ShopAvailabilityService {
 
     private final ShopRepository shopRepository;
     private final BusinessHoursService businessHoursService;
+    private final ShopAvailabilityEngine shopAvailabilityEngine;
 
     /**
-     * Update shop availability based on business hours
-     * Runs every 5 minutes
+     * Re-sync every active shop with its business hours now. Open/close flips
+     * happen on their own at each shop's transition time (see
+     * {@link ShopAvailabilityEngine}); this is the admin "update all" action.
      */
-    @Scheduled(fixedRate = 300000) // 5 minutes
-    @Transactional
     public void updateShopAvailability() {
-        log.debug("Starting scheduled shop availability update");
-        
-        try {
-            List<Shop> allActiveShops = shopRepository.findByIsActiveTrue(PageRequest.of(0, 1000)).getContent();
-            
-            int openCount = 0;
-            int closedCount = 0;
-            
-            for (Shop shop : allActiveShops) {
-                boolean shouldBeOpen = businessHoursService.isShopOpenNow(shop.getId());
-                boolean currentlyAvailable = shop.getIsAvailable();
-                
-                if (shouldBeOpen != currentlyAvailable) {
-                    shop.setIsAvailable(shouldBeOpen);
-                    shop.setAvailabilityUpdatedAt(LocalDateTime.now());
-                    shopRepository.save(shop);
-                    
-                    log.info("Updated shop availability: {} (ID: {}) - {} -> {}", 
-                        shop.getName(), shop.getId(), 
-                        currentlyAvailable ? "Available" : "Unavailable",
-                        shouldBeOpen ? "Available" : "Unavailable"
-                    );
-                }
-                
-                if (shouldBeOpen) {
-                    openCount++;
-                } else {
-                    closedCount++;
-                }
-            }
-            
-            log.debug("Shop availability update completed. Open: {}, Closed: {}", openCount, closedCount);
-            
-        } catch (Exception e) {
-            log.error("Error updating shop availability", e);
-        }
+        log.info("Reconciling availability of all active shops");
+        shopAvailabilityEngine.reloadAll();
     }
 
     /**
@@ -74,31 +39,31 @@ public class ShopAvailabilityService {
     public Map<String, Object> getShopAvailabilityStatus(Long shopId) {
         Shop shop = shopRepository.findById(shopId)
             .orElseThrow(() -> new RuntimeException("Shop not found with ID: " + shopId));
-        
-        boolean shouldBeOpen = businessHoursService.isShopOpenNow(shopId);
-        Map<String, Object> businessHourStatus = businessHoursService.getShopOpenStatus(shopId);
-        
-        Map<String, Object> result = new HashMap<>();
-        result.put("shopId", shopId);
-        result.put("shopName", shop.getName());
-        result.put("isActive", shop.getIsActive());
-        result.put("isAvailable", shop.getIsAvailable());
-        result.put("shouldBeOpen", shouldBeOpen);
-        result.put("lastUpdated", shop.getAvailabilityUpdatedAt());
-        result.put("businessHoursStatus", businessHourStatus);
-        result.put("overallStatus", determineOverallStatus(shop, shouldBeOpen));
+
+        Map<String, Object> result = buildStatus(shop, isScheduledOpen(shopId));
+        result.put("businessHoursStatus", businessHoursService.getShopOpenStatus(shopId));
         return result;
     }
     
     /**
-     * Get availability status for multiple shops
+     * Get availability status for multiple shops, from the in-memory engine.
+     * Business hours status for all of them comes from one query; only shops
+     * the engine doesn't track (inactive, just created) are looked up one by one.
      */
     public Map<Long, Map<String, Object>> getBulkShopAvailabilityStatus(List<Long> shopIds) {
-        return shopIds.stream()
-            .collect(Collectors.toMap(
-                shopId -> shopId,
-                this::getShopAvailabilityStatus
-            ));
+        Map<Long, Map<String, Object>> hoursStatuses = businessHoursService.getShopOpenStatuses(shopIds);
+        Map<Long, Map<String, Object>> statuses = new LinkedHashMap<>();
+        for (Long shopId : shopIds) {
+            ShopAvailabilityEngine.ShopAvailability state = shopAvailabilityEngine.get(shopId);
+            if (state == null) {
+                statuses.put(shopId, getShopAvailabilityStatus(shopId));
+                continue;
+            }
+            Map<String, Object> status = buildStatus(state);
+            status.put("businessHoursStatus", hoursStatuses.get(shopId));
+            statuses.put(shopId, status);
+        }
+        return statuses;
     }
     
     /**
@@ -109,12 +74,13 @@ public class ShopAvailabilityService {
         Shop shop = shopRepository.findById(shopId)
             .orElseThrow(() -> new RuntimeException("Shop not found with ID: " + shopId));
         
-        boolean shouldBeOpen = businessHoursService.isShopOpenNow(shopId);
+        boolean shouldBeOpen = isScheduledOpen(shopId);
         boolean wasAvailable = shop.getIsAvailable();
         
         shop.setIsAvailable(shouldBeOpen);
         shop.setAvailabilityUpdatedAt(LocalDateTime.now());
         shopRepository.save(shop);
+        shopAvailabilityEngine.refreshShop(shopId);
         
         log.info("Force updated shop availability: {} (ID: {}) - {} -> {}", 
             shop.getName(), shop.getId(), 
@@ -122,7 +88,7 @@ public class ShopAvailabilityService {
             shouldBeOpen ? "Available" : "Unavailable"
         );
         
-        return getShopAvailabilityStatus(shopId);
+        return buildStatus(shop, shouldBeOpen);
     }
     
     /**
@@ -140,6 +106,7 @@ public class ShopAvailabilityService {
         shop.setAvailabilityOverrideReason(reason);
         shop.setIsManualOverride(true);
         shopRepository.save(shop);
+        shopAvailabilityEngine.refreshShop(shopId);
         
         log.info("Manual override shop availability: {} (ID: {}) - {} -> {} (Reason: {})", 
             shop.getName(), shop.getId(), 
@@ -148,7 +115,7 @@ public class ShopAvailabilityService {
             reason
         );
         
-        return getShopAvailabilityStatus(shopId);
+        return buildStatus(shop, isScheduledOpen(shopId));
     }
     
     /**
@@ -163,32 +130,68 @@ public class ShopAvailabilityService {
         shop.setAvailabilityOverrideReason(null);
         
         // Set availability based on business hours
-        boolean shouldBeOpen = businessHoursService.isShopOpenNow(shopId);
+        boolean shouldBeOpen = isScheduledOpen(shopId);
         shop.setIsAvailable(shouldBeOpen);
         shop.setAvailabilityUpdatedAt(LocalDateTime.now());
         
         shopRepository.save(shop);
+        shopAvailabilityEngine.refreshShop(shopId);
         
         log.info("Cleared manual override for shop: {} (ID: {}) - Now automatic mode", 
             shop.getName(), shop.getId());
         
-        return getShopAvailabilityStatus(shopId);
+        return buildStatus(shop, shouldBeOpen);
+    }
+    
+    private boolean isScheduledOpen(Long shopId) {
+        return businessHoursService.isShopOpenNow(shopId);
+    }
+
+    private Map<String, Object> buildStatus(Shop shop, boolean shouldBeOpen) {
+        ShopAvailabilityEngine.ShopAvailability state = shopAvailabilityEngine.get(shop.getId());
+        Map<String, Object> result = new HashMap<>();
+        result.put("shopId", shop.getId());
+        result.put("shopName", shop.getName());
+        result.put("isActive", shop.getIsActive());
+        result.put("isAvailable", shop.getIsAvailable());
+        result.put("shouldBeOpen", shouldBeOpen);
+        result.put("lastUpdated", shop.getAvailabilityUpdatedAt());
+        result.put("nextTransition", state != null ? state.nextTransition() : null);
+        result.put("overallStatus", determineOverallStatus(shop.getIsActive(), shop.getIsManualOverride(),
+            shop.getIsAvailable(), shouldBeOpen));
+        return result;
+    }
+
+    private Map<String, Object> buildStatus(ShopAvailabilityEngine.ShopAvailability state) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("shopId", state.shopId());
+        result.put("shopName", state.name());
+        result.put("isActive", true);
+        result.put("isAvailable", state.available());
+        result.put("shouldBeOpen", state.scheduledOpen());
+        result.put("lastUpdated", state.updatedAt());
+        result.put("nextTransition", state.nextTransition());
+        result.put("overallStatus", determineOverallStatus(true, state.manualOverride(),
+            state.available(), state.scheduledOpen()));
+        return result;
     }
     
-    private String determineOverallStatus(Shop shop, boolean shouldBeOpen) {
-        if (!shop.getIsActive()) {
+    private String determineOverallStatus(Boolean isActive, Boolean isManualOverride,
+                                          Boolean isAvailable, boolean shouldBeOpen) {
+        if (!Boolean.TRUE.equals(isActive)) {
             return "INACTIVE";
         }
         
-        if (shop.getIsManualOverride()) {
-            return shop.getIsAvailable() ? "MANUALLY_OPEN" : "MANUALLY_CLOSED";
+        boolean available = Boolean.TRUE.equals(isAvailable);
+        if (Boolean.TRUE.equals(isManualOverride)) {
+            return available ? "MANUALLY_OPEN" : "MANUALLY_CLOSED";
         }
         
-        if (shouldBeOpen && shop.getIsAvailable()) {
+        if (shouldBeOpen && available) {
             return "OPEN";
-        } else if (!shouldBeOpen && !shop.getIsAvailable()) {
+        } else if (!shouldBeOpen && !available) {
             return "CLOSED";
-        } else if (shouldBeOpen && !shop.getIsAvailable()) {
+        } else if (shouldBeOpen) {
             return "SHOULD_BE_OPEN";
         } else {
             return "SHOULD_BE_CLOSED";
@@ -199,17 +202,15 @@ public class ShopAvailabilityService {
      * Get shops that are currently open
      */
     public List<Map<String, Object>> getCurrentlyOpenShops() {
-        List<Shop> activeShops = shopRepository.findByIsActiveTrue(PageRequest.of(0, 1000)).getContent();
-        
-        return activeShops.stream()
-            .filter(shop -> shop.getIsAvailable())
+        return shopAvailabilityEngine.getAll().stream()
+            .filter(ShopAvailabilityEngine.ShopAvailability::available)
             .map(shop -> {
                 Map<String, Object> shopInfo = new HashMap<>();
-                shopInfo.put("shopId", shop.getId());
-                shopInfo.put("shopName", shop.getName());
-                shopInfo.put("city", shop.getCity());
-                shopInfo.put("businessType", shop.getBusinessType().toString());
-                shopInfo.put("rating", shop.getRating());
+                shopInfo.put("shopId", shop.shopId());
+                shopInfo.put("shopName", shop.name());
+                shopInfo.put("city", shop.city());
+                shopInfo.put("businessType", shop.businessType());
+                shopInfo.put("rating", shop.rating());
                 shopInfo.put("status", "OPEN");
                 return shopInfo;
             })
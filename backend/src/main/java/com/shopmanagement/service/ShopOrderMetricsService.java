@@ -0,0 +1,266 @@
+package com.shopmanagement.service;
+
+import com.shopmanagement.entity.Order;
+import com.shopmanagement.event.OrderStateChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Per-shop order counters (tables shop_order_status_metrics and
+ * shop_order_daily_metrics, see V97). Every order insert and status/payment
+ * change arrives as an {@link OrderStateChangedEvent} from the JPA flush and is
+ * applied as a few upserts in the same transaction, so a dashboard read is
+ * two small indexed queries however many orders the shop has.
+ *
+ * Writes go through JdbcTemplate rather than a repository: they run inside
+ * Hibernate's flush, where a JPA query would trigger a nested auto-flush.
+ * JdbcTemplate shares the transaction's connection, so the counters commit or
+ * roll back with the order. Rows are always touched in the same order (status
+ * rows sorted by name, then the daily row) to avoid lock-order deadlocks
+ * between concurrent transitions of one shop.
+ *
+ * Bulk SQL updates to orders bypass the listener; the nightly rebuild
+ * recomputes every shop from the orders table and also backfills empty tables.
+ */
+@Service
+@Slf4j
+public class ShopOrderMetricsService {
+
+    private static final String REVENUE_CONDITION =
+            "(o.payment_status = 'PAID' OR o.status IN ('DELIVERED', 'COMPLETED'))";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public ShopOrderMetricsService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @EventListener
+    public void onOrderStateChanged(OrderStateChangedEvent event) {
+        Order.MetricsState previous = event.getPrevious();
+        Order.MetricsState current = event.getCurrent();
+
+        // status -> {count, revenueCount, revenueAmount} delta, sorted for a stable lock order
+        Map<String, Delta> byStatus = new TreeMap<>();
+        if (previous != null) {
+            byStatus.computeIfAbsent(previous.status().name(), key -> new Delta()).subtract(previous);
+        }
+        if (current != null) {
+            byStatus.computeIfAbsent(current.status().name(), key -> new Delta()).add(current);
+        }
+        byStatus.forEach((status, delta) -> {
+            if (!delta.isZero()) {
+                jdbcTemplate.update(
+                        "INSERT INTO shop_order_status_metrics (shop_id, status, order_count, revenue_count, revenue_amount) " +
+                        "VALUES (?, ?, ?, ?, ?) " +
+                        "ON CONFLICT (shop_id, status) DO UPDATE SET " +
+                        "order_count = shop_order_status_metrics.order_count + EXCLUDED.order_count, " +
+                        "revenue_count = shop_order_status_metrics.revenue_count + EXCLUDED.revenue_count, " +
+                        "revenue_amount = shop_order_status_metrics.revenue_amount + EXCLUDED.revenue_amount",
+                        event.getShopId(), status, delta.count, delta.revenueCount, delta.revenueAmount);
+            }
+        });
+
+        long placed = (current != null ? 1 : 0) - (previous != null ? 1 : 0);
+        long cancelled = cancelled(current) - cancelled(previous);
+        long revenueCount = revenueCount(current) - revenueCount(previous);
+        BigDecimal revenueAmount = revenueAmount(current).subtract(revenueAmount(previous));
+        if (placed != 0 || cancelled != 0 || revenueCount != 0 || revenueAmount.signum() != 0) {
+            jdbcTemplate.update(
+                    "INSERT INTO shop_order_daily_metrics " +
+                    "(shop_id, metric_date, orders_placed, items_placed, cancelled_count, revenue_count, revenue_amount) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?) " +
+                    "ON CONFLICT (shop_id, metric_date) DO UPDATE SET " +
+                    "orders_placed = shop_order_daily_metrics.orders_placed + EXCLUDED.orders_placed, " +
+                    "items_placed = shop_order_daily_metrics.items_placed + EXCLUDED.items_placed, " +
+                    "cancelled_count = shop_order_daily_metrics.cancelled_count + EXCLUDED.cancelled_count, " +
+                    "revenue_count = shop_order_daily_metrics.revenue_count + EXCLUDED.revenue_count, " +
+                    "revenue_amount = shop_order_daily_metrics.revenue_amount + EXCLUDED.revenue_amount",
+                    event.getShopId(), Date.valueOf(event.getOrderCreatedAt().toLocalDate()),
+                    placed, placed * event.getItemCount(), cancelled, revenueCount, revenueAmount);
+        }
+    }
+
+    /** Dashboard numbers for one shop: two indexed reads, independent of order volume. */
+    public ShopOrderMetrics getMetrics(Long shopId) {
+        Map<Order.OrderStatus, Long> statusCounts = new EnumMap<>(Order.OrderStatus.class);
+        long[] revenueCount = {0};
+        BigDecimal[] revenue = {BigDecimal.ZERO};
+        jdbcTemplate.query(
+                "SELECT status, order_count, revenue_count, revenue_amount FROM shop_order_status_metrics WHERE shop_id = ?",
+                rs -> {
+                    statusCounts.merge(Order.OrderStatus.valueOf(rs.getString("status")), rs.getLong("order_count"), Long::sum);
+                    revenueCount[0] += rs.getLong("revenue_count");
+                    revenue[0] = revenue[0].add(rs.getBigDecimal("revenue_amount"));
+                },
+                shopId);
+
+        LocalDate today = LocalDate.now();
+        long[] todayOrders = {0};
+        BigDecimal[] todayRevenue = {BigDecimal.ZERO};
+        // today plus the 29 days before it: a 30-day window
+        BigDecimal[] last30DaysRevenue = {BigDecimal.ZERO};
+        jdbcTemplate.query(
+                "SELECT metric_date, orders_placed, revenue_amount FROM shop_order_daily_metrics " +
+                "WHERE shop_id = ? AND metric_date >= ?",
+                rs -> {
+                    BigDecimal amount = rs.getBigDecimal("revenue_amount");
+                    last30DaysRevenue[0] = last30DaysRevenue[0].add(amount);
+                    if (today.equals(rs.getDate("metric_date").toLocalDate())) {
+                        todayOrders[0] += rs.getLong("orders_placed");
+                        todayRevenue[0] = todayRevenue[0].add(amount);
+                    }
+                },
+                shopId, Date.valueOf(today.minusDays(29)));
+
+        long totalOrders = statusCounts.values().stream().mapToLong(Long::longValue).sum();
+        return new ShopOrderMetrics(totalOrders, statusCounts, revenue[0], revenueCount[0],
+                todayOrders[0], todayRevenue[0], last30DaysRevenue[0]);
+    }
+
+    /** Nightly: recompute every shop from the orders table (repairs drift from bulk updates). */
+    @Scheduled(cron = "0 45 2 * * *")
+    public void rebuildAll() {
+        List<Long> shopIds = jdbcTemplate.queryForList("SELECT DISTINCT shop_id FROM orders", Long.class);
+        long started = System.currentTimeMillis();
+        for (Long shopId : shopIds) {
+            try {
+                rebuildShop(shopId);
+            } catch (Exception e) {
+                log.error("Failed to rebuild order metrics for shop {}", shopId, e);
+            }
+        }
+        log.info("Rebuilt order metrics for {} shop(s) in {} ms", shopIds.size(), System.currentTimeMillis() - started);
+    }
+
+    /**
+     * Replace one shop's counters with fresh aggregates, in one transaction.
+     * Transitions committing meanwhile either are in the aggregate or wait on
+     * the deleted rows and apply their delta on top, so nothing is lost. A
+     * transition that inserts a fresh row before the rebuild reaches it makes
+     * the rebuild overwrite that row instead of failing on the key.
+     */
+    public void rebuildShop(Long shopId) {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("DELETE FROM shop_order_status_metrics WHERE shop_id = ?", shopId);
+            jdbcTemplate.update(
+                    "INSERT INTO shop_order_status_metrics (shop_id, status, order_count, revenue_count, revenue_amount) " +
+                    "SELECT o.shop_id, o.status, COUNT(*), " +
+                    "COUNT(*) FILTER (WHERE " + REVENUE_CONDITION + "), " +
+                    "COALESCE(SUM(o.total_amount) FILTER (WHERE " + REVENUE_CONDITION + "), 0) " +
+                    "FROM orders o WHERE o.shop_id = ? GROUP BY o.shop_id, o.status " +
+                    "ON CONFLICT (shop_id, status) DO UPDATE SET " +
+                    "order_count = EXCLUDED.order_count, " +
+                    "revenue_count = EXCLUDED.revenue_count, " +
+                    "revenue_amount = EXCLUDED.revenue_amount",
+                    shopId);
+
+            jdbcTemplate.update("DELETE FROM shop_order_daily_metrics WHERE shop_id = ?", shopId);
+            jdbcTemplate.update(
+                    "INSERT INTO shop_order_daily_metrics " +
+                    "(shop_id, metric_date, orders_placed, items_placed, cancelled_count, revenue_count, revenue_amount) " +
+                    "SELECT o.shop_id, CAST(o.created_at AS DATE), COUNT(*), COALESCE(SUM(items.quantity), 0), " +
+                    "COUNT(*) FILTER (WHERE o.status = 'CANCELLED'), " +
+                    "COUNT(*) FILTER (WHERE " + REVENUE_CONDITION + "), " +
+                    "COALESCE(SUM(o.total_amount) FILTER (WHERE " + REVENUE_CONDITION + "), 0) " +
+                    "FROM orders o " +
+                    "LEFT JOIN (SELECT oi.order_id, SUM(oi.quantity) AS quantity FROM order_items oi " +
+                    "           JOIN orders io ON io.id = oi.order_id WHERE io.shop_id = ? GROUP BY oi.order_id) items " +
+                    "       ON items.order_id = o.id " +
+                    "WHERE o.shop_id = ? GROUP BY o.shop_id, CAST(o.created_at AS DATE) " +
+                    "ON CONFLICT (shop_id, metric_date) DO UPDATE SET " +
+                    "orders_placed = EXCLUDED.orders_placed, " +
+                    "items_placed = EXCLUDED.items_placed, " +
+                    "cancelled_count = EXCLUDED.cancelled_count, " +
+                    "revenue_count = EXCLUDED.revenue_count, " +
+                    "revenue_amount = EXCLUDED.revenue_amount",
+                    shopId, shopId);
+        });
+    }
+
+    /** First start after the tables were created: backfill in the background. */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        Thread backfill = new Thread(() -> {
+            try {
+                Boolean empty = jdbcTemplate.queryForObject(
+                        "SELECT NOT EXISTS (SELECT 1 FROM shop_order_status_metrics) " +
+                        "AND EXISTS (SELECT 1 FROM orders)", Boolean.class);
+                if (Boolean.TRUE.equals(empty)) {
+                    log.info("Shop order metrics are empty; backfilling from orders");
+                    rebuildAll();
+                }
+            } catch (Exception e) {
+                log.error("Shop order metrics backfill failed", e);
+            }
+        }, "ShopOrderMetricsBackfill");
+        backfill.setDaemon(true);
+        backfill.start();
+    }
+
+    private static long cancelled(Order.MetricsState state) {
+        return state != null && state.status() == Order.OrderStatus.CANCELLED ? 1 : 0;
+    }
+
+    private static long revenueCount(Order.MetricsState state) {
+        return state != null && state.revenue() ? 1 : 0;
+    }
+
+    private static BigDecimal revenueAmount(Order.MetricsState state) {
+        return state != null && state.revenue() ? state.amount() : BigDecimal.ZERO;
+    }
+
+    private static final class Delta {
+        long count;
+        long revenueCount;
+        BigDecimal revenueAmount = BigDecimal.ZERO;
+
+        void add(Order.MetricsState state) {
+            count++;
+            revenueCount += revenueCount(state);
+            revenueAmount = revenueAmount.add(revenueAmount(state));
+        }
+
+        void subtract(Order.MetricsState state) {
+            count--;
+            revenueCount -= revenueCount(state);
+            revenueAmount = revenueAmount.subtract(revenueAmount(state));
+        }
+
+        boolean isZero() {
+            return count == 0 && revenueCount == 0 && revenueAmount.signum() == 0;
+        }
+    }
+
+    /** One shop's order counters. Revenue follows the paid-or-delivered rule used across dashboards. */
+    public record ShopOrderMetrics(long totalOrders, Map<Order.OrderStatus, Long> statusCounts,
+                                   BigDecimal totalRevenue, long revenueOrders,
+                                   long todayOrders, BigDecimal todayRevenue, BigDecimal last30DaysRevenue) {
+
+        public long count(Order.OrderStatus status) {
+            return statusCounts.getOrDefault(status, 0L);
+        }
+
+        public BigDecimal averageOrderValue() {
+            return revenueOrders == 0 ? BigDecimal.ZERO
+                    : totalRevenue.divide(BigDecimal.valueOf(revenueOrders), 2, RoundingMode.HALF_UP);
+        }
+    }
+}
@@ -7,6 +7,7 @@ import com.razorpay.Utils;
 import com.shopmanagement.config.RazorpayConfig;
 import com.shopmanagement.entity.ShopPaymentCollection;
 import com.shopmanagement.entity.ShopPaymentPrice;
+import com.shopmanagement.event.ShopPaymentStatusChangedEvent;
 import com.shopmanagement.repository.ShopPaymentCollectionRepository;
 import com.shopmanagement.repository.ShopPaymentPriceRepository;
 import com.shopmanagement.repository.ShopWhatsAppUsageRepository;
@@ -15,6 +16,7 @@ import com.shopmanagement.shop.repository.ShopRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.json.JSONObject;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -38,6 +40,7 @@ public class ShopPaymentCollectService {
     private final RazorpayConfig razorpayConfig;
     private final SettingService settingService;
     private final ShopPaymentInvoiceService shopPaymentInvoiceService;
+    private final ApplicationEventPublisher eventPublisher;
 
     private static final String DURATION_SETTING_KEY = "shop_payment_collect.duration_days";
     private static final String BILL_RATE_SETTING_KEY = "shop_payment_collect.whatsapp_rate_paise";
@@ -52,7 +55,8 @@ public class ShopPaymentCollectService {
                                       @Autowired(required = false) RazorpayClient razorpayClient,
                                       RazorpayConfig razorpayConfig,
                                       SettingService settingService,
-                                      ShopPaymentInvoiceService shopPaymentInvoiceService) {
+                                      ShopPaymentInvoiceService shopPaymentInvoiceService,
+                                      ApplicationEventPublisher eventPublisher) {
         this.shopRepository = shopRepository;
         this.shopPaymentPriceRepository = shopPaymentPriceRepository;
         this.shopPaymentCollectionRepository = shopPaymentCollectionRepository;
@@ -61,6 +65,7 @@ public class ShopPaymentCollectService {
         this.razorpayConfig = razorpayConfig;
         this.settingService = settingService;
         this.shopPaymentInvoiceService = shopPaymentInvoiceService;
+        this.eventPublisher = eventPublisher;
     }
 
     private boolean isTestMode() {
@@ -68,7 +73,7 @@ public class ShopPaymentCollectService {
     }
 
     public int getDurationDays() {
-        return Integer.parseInt(settingService.getSettingValue(DURATION_SETTING_KEY, "30"));
+        return settingService.getIntValue(DURATION_SETTING_KEY, 30);
     }
 
     /** Per-shop duration override wins over the global setting (yearly payers etc). */
@@ -81,15 +86,15 @@ public class ShopPaymentCollectService {
     // ===== WhatsApp usage billing (all rates in paise, from config) =====
 
     public int getBillRatePaise() {
-        return Integer.parseInt(settingService.getSettingValue(BILL_RATE_SETTING_KEY, "45"));
+        return settingService.getIntValue(BILL_RATE_SETTING_KEY, 45);
     }
 
     public int getMarketingRatePaise() {
-        return Integer.parseInt(settingService.getSettingValue(MARKETING_RATE_SETTING_KEY, "100"));
+        return settingService.getIntValue(MARKETING_RATE_SETTING_KEY, 100);
     }
 
     public int getGstPercent() {
-        return Integer.parseInt(settingService.getSettingValue(GST_SETTING_KEY, "18"));
+        return settingService.getIntValue(GST_SETTING_KEY, 18);
     }
 
     /** Per-shop bill-message rate override wins over the global setting. */
@@ -144,12 +149,22 @@ public class ShopPaymentCollectService {
 
     @Transactional(readOnly = true)
     public boolean isCurrentlyPaid(Long shopId) {
+        return !getPaidUntil(shopId).isBefore(LocalDateTime.now());
+    }
+
+    /**
+     * Until when the shop may use the app: LocalDateTime.MAX when no price is
+     * set (never required to pay), LocalDateTime.MIN when it has never paid.
+     */
+    @Transactional(readOnly = true)
+    public LocalDateTime getPaidUntil(Long shopId) {
         ShopPaymentPrice price = shopPaymentPriceRepository.findByShopId(shopId).orElse(null);
         if (price == null || price.getAmount() == null || price.getAmount() <= 0) {
-            return true; // no price set -> not required to pay
+            return LocalDateTime.MAX; // no price set -> not required to pay
         }
-        return shopPaymentCollectionRepository.existsByShopIdAndStatusAndValidUntilGreaterThanEqual(
-                shopId, ShopPaymentCollection.CollectionStatus.PAID, LocalDateTime.now());
+        LocalDateTime validUntil = shopPaymentCollectionRepository.findLatestValidUntil(
+                shopId, ShopPaymentCollection.CollectionStatus.PAID);
+        return validUntil != null ? validUntil : LocalDateTime.MIN;
     }
 
     @Transactional
@@ -161,6 +176,8 @@ public class ShopPaymentCollectService {
             shop.setPaymentBlocked(shouldBeBlocked);
             shopRepository.save(shop);
         }
+        // Every payment/price change funnels through here: refresh the gate's cached decision.
+        eventPublisher.publishEvent(new ShopPaymentStatusChangedEvent(this, shopId));
     }
 
     /** Runs daily at 00:05 so shops whose paid period expired get locked/hidden automatically. */
@@ -180,6 +197,7 @@ public class ShopPaymentCollectService {
                 changed++;
             }
         }
+        eventPublisher.publishEvent(new ShopPaymentStatusChangedEvent(this, null));
         log.info("Daily pay-and-use recheck complete: {} shops changed", changed);
     }
 
@@ -0,0 +1,116 @@
+package com.shopmanagement.service;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.shopmanagement.event.ShopPaymentStatusChangedEvent;
+import com.shopmanagement.shop.entity.Shop;
+import com.shopmanagement.shop.service.ShopService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Owner -> (shop, paid-until) decisions for {@link com.shopmanagement.config.ShopPaymentGateFilter}.
+ * The owner lookup (up to three queries) and the payment check run once per
+ * owner; every further API call from the dashboard is a map lookup.
+ *
+ * An entry expires exactly when the paid period ends, so the lock engages on
+ * time without a DB check. Payments, price changes and blocked-flag
+ * recomputes publish {@link ShopPaymentStatusChangedEvent}, which drops the
+ * affected entries after the change commits - on this node only. Entries of
+ * owners that are currently locked out therefore live just {@link #BLOCKED_TTL},
+ * so a payment taken on another node unlocks the dashboard within seconds
+ * everywhere; only those owners pay the extra reloads.
+ */
+@Service
+@Slf4j
+public class ShopPaymentGateCache {
+
+    /**
+     * Backstop for entries with no natural end (no price set). A price set on
+     * another node locks the owner out at most this late.
+     */
+    private static final Duration MAX_TTL = Duration.ofMinutes(30);
+    /** Locked-out owners: re-check often, the payment may land on another node. */
+    static final Duration BLOCKED_TTL = Duration.ofSeconds(10);
+    /** Owners without a shop yet: re-check soon, their shop may be created any moment. */
+    private static final Duration NO_SHOP_TTL = Duration.ofMinutes(1);
+
+    private final ShopService shopService;
+    private final ShopPaymentCollectService shopPaymentCollectService;
+    private final LoadingCache<String, GateEntry> entries;
+
+    public ShopPaymentGateCache(ShopService shopService, ShopPaymentCollectService shopPaymentCollectService) {
+        this.shopService = shopService;
+        this.shopPaymentCollectService = shopPaymentCollectService;
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfter(new Expiry<String, GateEntry>() {
+                    @Override
+                    public long expireAfterCreate(String owner, GateEntry entry, long currentTime) {
+                        return entry.timeToLive().toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String owner, GateEntry entry, long currentTime,
+                                                  long currentDuration) {
+                        return entry.timeToLive().toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterRead(String owner, GateEntry entry, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build(this::load);
+    }
+
+    /** True when this shop owner's shop has a price set and the paid period is over. */
+    public boolean isPaymentDue(String ownerUsername) {
+        GateEntry entry = entries.get(ownerUsername);
+        return entry.shopId() != null && entry.paidUntil().isBefore(LocalDateTime.now());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPaymentStatusChanged(ShopPaymentStatusChangedEvent event) {
+        if (event.getShopId() == null) {
+            entries.invalidateAll();
+        } else {
+            entries.asMap().values().removeIf(entry -> event.getShopId().equals(entry.shopId()));
+        }
+    }
+
+    private GateEntry load(String ownerUsername) {
+        Shop shop = shopService.getShopByOwner(ownerUsername);
+        if (shop == null) {
+            return new GateEntry(null, LocalDateTime.MAX);
+        }
+        return new GateEntry(shop.getId(), shopPaymentCollectService.getPaidUntil(shop.getId()));
+    }
+
+    private record GateEntry(Long shopId, LocalDateTime paidUntil) {
+
+        Duration timeToLive() {
+            if (shopId == null) {
+                return NO_SHOP_TTL;
+            }
+            LocalDateTime now = LocalDateTime.now();
+            if (!paidUntil.isAfter(now)) {
+                return BLOCKED_TTL;
+            }
+            if (paidUntil.isBefore(now.plus(MAX_TTL))) {
+                // Expire exactly when the paid period ends (+1 ms so the reload sees it as over)
+                long millis = paidUntil.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                        - now.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() + 1;
+                return Duration.ofMillis(millis);
+            }
+            return MAX_TTL;
+        }
+    }
+}
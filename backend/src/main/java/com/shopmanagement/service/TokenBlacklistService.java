@@ -1,30 +1,251 @@
 package com.shopmanagement.service;
 
+import com.shopmanagement.entity.RevokedToken;
+import com.shopmanagement.repository.RevokedTokenRepository;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import java.util.HashSet;
-import java.util.Set;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
 
+/**
+ * Logged-out tokens, shared across nodes through the revoked_tokens table.
+ *
+ * Only the SHA-256 of a token is stored, together with the token's own
+ * expiry. Each node keeps a compact local view:
+ *   - a Bloom filter answering "definitely not revoked" for almost every request
+ *   - an exact map of 128-bit token ids -> expiry, consulted on Bloom hits
+ * so {@link #isTokenBlacklisted(String)} is one hash plus O(1) probes.
+ *
+ * The view is refreshed incrementally every few seconds from rows newer than
+ * the last DB timestamp seen. That runs on its own thread rather than through
+ * @Scheduled, because scheduling is switched off on the incoming container
+ * during zero-downtime deploys and that container must still see logouts.
+ * Expired entries are dropped locally on refresh and deleted from the
+ * table by the hourly sweep.
+ */
 @Service
+@Slf4j
 public class TokenBlacklistService {
-    
-    // In production, use Redis or database instead of in-memory storage
-    private final Set<String> blacklistedTokens = ConcurrentHashMap.newKeySet();
-    
+
+    /** Re-read this much before the watermark: covers rows whose transaction committed late. */
+    private static final long WATERMARK_OVERLAP_SECONDS = 30;
+    private static final LocalDateTime BEGINNING = LocalDateTime.of(2000, 1, 1, 0, 0);
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final JwtService jwtService;
+
+    @Value("${jwt.revocation.refresh-seconds:5}")
+    private long refreshSeconds;
+
+    @Value("${jwt.revocation.bloom-bits:1048576}")
+    private int bloomBits;
+
+    /** token id -> expiry (epoch millis) */
+    private final Map<TokenId, Long> revoked = new ConcurrentHashMap<>();
+    private volatile BloomFilter bloom;
+    private volatile LocalDateTime watermark = BEGINNING;
+    private ScheduledExecutorService refresher;
+
+    public TokenBlacklistService(RevokedTokenRepository revokedTokenRepository, JwtService jwtService) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.jwtService = jwtService;
+    }
+
+    @PostConstruct
+    void start() {
+        bloom = new BloomFilter(bloomBits);
+        refresh();
+        refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "TokenRevocationRefresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refresher.scheduleWithFixedDelay(this::refresh, refreshSeconds, refreshSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+
+    /**
+     * Revoke a token on every node. Tokens that are already expired or fail
+     * verification are rejected by the JWT filter anyway and are not stored.
+     */
     public void blacklistToken(String token) {
-        blacklistedTokens.add(token);
+        Claims claims;
+        try {
+            claims = jwtService.parseVerifiedClaims(token);
+        } catch (ExpiredJwtException e) {
+            return;
+        } catch (Exception e) {
+            log.debug("Not revoking unverifiable token: {}", e.getMessage());
+            return;
+        }
+        if (claims.getExpiration() == null) {
+            return;
+        }
+        byte[] digest = sha256(token);
+        long expiresAtMillis = claims.getExpiration().getTime();
+        revokeLocally(TokenId.of(digest), digest, expiresAtMillis);
+        revokedTokenRepository.insertIfAbsent(HexFormat.of().formatHex(digest),
+                LocalDateTime.ofInstant(claims.getExpiration().toInstant(), ZoneId.systemDefault()));
     }
-    
+
     public boolean isTokenBlacklisted(String token) {
-        return blacklistedTokens.contains(token);
+        byte[] digest = sha256(token);
+        if (!bloom.mightContain(digest)) {
+            return false;
+        }
+        Long expiresAt = revoked.get(TokenId.of(digest));
+        return expiresAt != null && expiresAt > System.currentTimeMillis();
     }
-    
+
+    /** Hourly: delete expired rows cluster-wide (idempotent, safe on several nodes). */
+    @Scheduled(cron = "0 40 * * * *")
     public void removeExpiredTokens() {
-        // This should be called periodically to clean up expired tokens
-        // In production, Redis can handle TTL automatically
+        int deleted = revokedTokenRepository.deleteExpired(LocalDateTime.now());
+        if (deleted > 0) {
+            log.info("Deleted {} expired revoked-token row(s)", deleted);
+        }
     }
-    
+
     public int getBlacklistSize() {
-        return blacklistedTokens.size();
+        return revoked.size();
+    }
+
+    /** Pull revocations made on any node since the last watermark, then drop expired local entries. */
+    void refresh() {
+        try {
+            List<RevokedToken> rows = revokedTokenRepository.findRevokedSince(
+                    watermark.minusSeconds(WATERMARK_OVERLAP_SECONDS), LocalDateTime.now());
+            LocalDateTime newest = watermark;
+            for (RevokedToken row : rows) {
+                byte[] digest = HexFormat.of().parseHex(row.getTokenHash());
+                long expiresAtMillis = row.getExpiresAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+                revokeLocally(TokenId.of(digest), digest, expiresAtMillis);
+                if (row.getRevokedAt().isAfter(newest)) {
+                    newest = row.getRevokedAt();
+                }
+            }
+            watermark = newest;
+            evictExpired();
+        } catch (Exception e) {
+            log.warn("Token revocation refresh failed: {}", e.getMessage());
+        }
+    }
+
+    private void revokeLocally(TokenId id, byte[] digest, long expiresAtMillis) {
+        revoked.put(id, expiresAtMillis);
+        bloom.add(digest);
+        // Keep the false-positive rate low: grow once the filter is ~1/8 full of entries.
+        if ((long) revoked.size() * 8 > bloom.bitSize()) {
+            rebuildBloom(bloom.bitSize() * 2);
+        }
+    }
+
+    private void evictExpired() {
+        long now = System.currentTimeMillis();
+        if (revoked.values().removeIf(expiresAt -> expiresAt <= now)) {
+            // Bloom filters can't delete; rebuild from what is left.
+            rebuildBloom(bloom.bitSize());
+        }
+    }
+
+    private synchronized void rebuildBloom(int bits) {
+        BloomFilter rebuilt = new BloomFilter(bits);
+        // Token ids keep the digest's first 128 bits, which are all the filter probes.
+        revoked.keySet().forEach(id -> rebuilt.add(id.prefix()));
+        bloom = rebuilt;
+        // Entries added while rebuilding may have gone into the old filter.
+        revoked.keySet().forEach(id -> rebuilt.add(id.prefix()));
+    }
+
+    private static byte[] sha256(String token) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /** First 128 bits of the token's SHA-256: ~40 bytes per revoked token instead of the full JWT. */
+    private record TokenId(long hi, long lo) {
+
+        static TokenId of(byte[] digest) {
+            ByteBuffer buffer = ByteBuffer.wrap(digest);
+            return new TokenId(buffer.getLong(0), buffer.getLong(8));
+        }
+
+        byte[] prefix() {
+            return ByteBuffer.allocate(16).putLong(hi).putLong(lo).array();
+        }
+    }
+
+    /** Fixed-size Bloom filter over SHA-256 digests; the digest bits are already uniform, so they are the hashes. */
+    private static final class BloomFilter {
+
+        private static final int PROBES = 4;
+
+        private final AtomicLongArray words;
+        private final int bits;
+
+        BloomFilter(int bits) {
+            this.bits = Math.max(Long.SIZE, bits);
+            this.words = new AtomicLongArray((this.bits + Long.SIZE - 1) / Long.SIZE);
+        }
+
+        int bitSize() {
+            return bits;
+        }
+
+        void add(byte[] digest) {
+            for (int i = 0; i < PROBES; i++) {
+                int bit = position(digest, i);
+                long mask = 1L << (bit % Long.SIZE);
+                int index = bit / Long.SIZE;
+                long current;
+                do {
+                    current = words.get(index);
+                } while ((current & mask) == 0 && !words.compareAndSet(index, current, current | mask));
+            }
+        }
+
+        boolean mightContain(byte[] digest) {
+            for (int i = 0; i < PROBES; i++) {
+                int bit = position(digest, i);
+                if ((words.get(bit / Long.SIZE) & (1L << (bit % Long.SIZE))) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /** Probe i uses bytes [4i, 4i+4) of the digest (all within the first 128 bits). */
+        private int position(byte[] digest, int probe) {
+            int value = ByteBuffer.wrap(digest, probe * 4, 4).getInt();
+            return Math.floorMod(value, bits);
+        }
     }
-}
\ No newline at end of file
+}
@@ -46,6 +46,7 @@ public class TravelPostService {
     private final GlobalPostLimitService globalPostLimitService;
     private final ObjectMapper objectMapper;
     private final PostSubscriptionService postSubscriptionService;
+    private final ImageModerationHoldService imageModerationHoldService;
 
     @Transactional
     public TravelPost createPost(String title, String phone, String vehicleTypeStr,
@@ -95,7 +96,7 @@ public class TravelPostService {
             List<String> uploadedUrls = new ArrayList<>();
             for (MultipartFile image : images) {
                 if (image != null && !image.isEmpty()) {
-                    uploadedUrls.add(fileUploadService.uploadFile(image, "travels"));
+                    uploadedUrls.add(fileUploadService.uploadPostImage(image, "travels"));
                 }
             }
             if (!uploadedUrls.isEmpty()) {
@@ -103,8 +104,10 @@ public class TravelPostService {
             }
         }
 
-        boolean autoApprove = Boolean.parseBoolean(
-                settingService.getSettingValue("travel.post.auto_approve", "false"));
+        boolean autoApprove = settingService.getBooleanValue("travel.post.auto_approve", false);
+        // A new image still waiting for its moderation verdict keeps the post pending until it arrives
+        boolean heldForModeration = autoApprove && imageModerationHoldService.awaitingVerdict(imageUrls);
+        autoApprove = autoApprove && !heldForModeration;
 
         TravelPost post = TravelPost.builder()
                 .title(title)
@@ -126,8 +129,7 @@ public class TravelPostService {
                 .build();
 
         // Set validity dates
-        int durationDays = Integer.parseInt(
-                settingService.getSettingValue("travel.post.duration_days", "30"));
+        int durationDays = settingService.getIntValue("travel.post.duration_days", 30);
         post.setValidFrom(LocalDateTime.now());
         if (durationDays > 0) {
             post.setValidTo(LocalDateTime.now().plusDays(durationDays));
@@ -145,6 +147,9 @@ public class TravelPostService {
         }
 
         TravelPost saved = travelPostRepository.save(post);
+        if (heldForModeration) {
+            imageModerationHoldService.hold(ImageModerationHoldService.PostType.TRAVEL, saved.getId(), imageUrls);
+        }
 
         // Consume paid token if used
         if (paidTokenId != null) {
@@ -175,7 +180,7 @@ public class TravelPostService {
         List<PostStatus> visibleStatuses = getVisibleStatuses();
 
         if (lat != null && lng != null) {
-            double radius = (radiusKm != null) ? radiusKm : Double.parseDouble(settingService.getSettingValue("post.default_radius_km", "10"));
+            double radius = (radiusKm != null) ? radiusKm : settingService.getDoubleValue("post.default_radius_km", 10);
             String[] statuses = visibleStatuses.stream().map(Enum::name).toArray(String[]::new);
             int limit = pageable.getPageSize();
             int offset = (int) pageable.getOffset();
@@ -203,7 +208,7 @@ public class TravelPostService {
         }
 
         if (lat != null && lng != null) {
-            double radius = (radiusKm != null) ? radiusKm : Double.parseDouble(settingService.getSettingValue("post.default_radius_km", "10"));
+            double radius = (radiusKm != null) ? radiusKm : settingService.getDoubleValue("post.default_radius_km", 10);
             String[] statuses = visibleStatuses.stream().map(Enum::name).toArray(String[]::new);
             int limit = pageable.getPageSize();
             int offset = (int) pageable.getOffset();
@@ -392,8 +397,7 @@ public class TravelPostService {
         int newCount = (post.getReportCount() != null ? post.getReportCount() : 0) + 1;
         post.setReportCount(newCount);
 
-        int reportThreshold = Integer.parseInt(
-                settingService.getSettingValue("travel.post.report_threshold", "3"));
+        int reportThreshold = settingService.getIntValue("travel.post.report_threshold", 3);
         if (newCount >= reportThreshold && post.getStatus() == PostStatus.APPROVED) {
             post.setStatus(PostStatus.FLAGGED);
             log.warn("Travel post auto-flagged due to {} reports: id={}, title={}", newCount, postId, post.getTitle());
@@ -488,8 +492,7 @@ public class TravelPostService {
             postPaymentService.consumeToken(paidTokenId, user.getId(), post.getId());
         }
 
-        int durationDays = Integer.parseInt(
-                settingService.getSettingValue("travel.post.duration_days", "30"));
+        int durationDays = settingService.getIntValue("travel.post.duration_days", 30);
 
         post.setValidFrom(LocalDateTime.now());
         if (durationDays > 0) {
@@ -581,8 +584,7 @@ public class TravelPostService {
     }
 
     private LocalDateTime getCutoffDate() {
-        int durationDays = Integer.parseInt(
-                settingService.getSettingValue("travel.post.duration_days", "30"));
+        int durationDays = settingService.getIntValue("travel.post.duration_days", 30);
         if (durationDays <= 0) {
             return null;
         }
@@ -607,8 +609,7 @@ public class TravelPostService {
                 return;
             }
 
-            double radiusKm = Double.parseDouble(
-                    settingService.getSettingValue("notification.radius_km", "50"));
+            double radiusKm = settingService.getDoubleValue("notification.radius_km", 50);
 
             List<User> nearbyCustomers = userRepository.findNearbyCustomers(lat, lng, radiusKm);
             if (nearbyCustomers.isEmpty()) return;
@@ -0,0 +1,275 @@
+package com.shopmanagement.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Streams uploaded files with HTTP caching: strong ETag, Last-Modified,
+ * conditional 304s, single byte-range requests and Cache-Control.
+ *
+ * Per-file metadata (content type, length, content-hash ETag) is kept in memory
+ * and revalidated against one stat per request, so a file replaced in place
+ * gets a new ETag. The body goes out through Tomcat's sendfile when the
+ * connector offers it, otherwise through {@link FileChannel#transferTo}.
+ */
+@Component
+public class UploadFileServer {
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    /** Names that are never rewritten with different content: content hashes and UUIDs. */
+    private static final Pattern IMMUTABLE_NAME = Pattern.compile(
+            "^([0-9a-f]{32,64}|[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12})(_[a-z]+)?\\.[A-Za-z0-9]+$");
+    private static final Pattern SINGLE_RANGE = Pattern.compile("^bytes=(\\d*)-(\\d*)$");
+
+    private static final String IMMUTABLE_CACHE_CONTROL = "public, max-age=31536000, immutable";
+
+    @Value("${app.upload.cache-max-age-seconds:3600}")
+    private long maxAgeSeconds;
+
+    private final Cache<Path, FileMetadata> metadata = Caffeine.newBuilder()
+            .maximumSize(20_000)
+            .build();
+
+    private record FileMetadata(String contentType, long length, long lastModified, String etag) {
+    }
+
+    /** Cache policy for one response. */
+    public enum Caching {
+        /** Immutable for a year when the file name is content-addressed, otherwise the default max-age. */
+        DEFAULT,
+        /** Revalidate soon: a stand-in for content that is about to change (e.g. an original served for a missing size). */
+        SHORT
+    }
+
+    public void serve(Path file, Caching caching, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        FileMetadata meta;
+        try {
+            meta = metadata(file);
+        } catch (NoSuchFileException e) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        if (meta == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        response.setHeader(HttpHeaders.ETAG, meta.etag());
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, meta.lastModified());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl(file, caching));
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        if (notModified(request, meta)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        long start = 0;
+        long end = meta.length() - 1;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        if (range != null && meta.length() > 0 && ifRangeMatches(request, meta)) {
+            long[] bounds = parseRange(range, meta.length());
+            if (bounds == null) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + meta.length());
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            if (bounds.length == 2) {
+                start = bounds[0];
+                end = bounds[1];
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + meta.length());
+            }
+        }
+
+        long count = end - start + 1;
+        response.setContentType(meta.contentType());
+        response.setContentLengthLong(count);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + file.getFileName() + "\"");
+        if ("HEAD".equals(request.getMethod()) || count <= 0) {
+            return;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // Tomcat writes the file straight from the page cache to the socket after we return
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            OutputStream out = response.getOutputStream();
+            WritableByteChannel target = Channels.newChannel(out);
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long sent = channel.transferTo(position, remaining, target);
+                if (sent <= 0) {
+                    break; // truncated underneath us; the client sees a short body
+                }
+                position += sent;
+                remaining -= sent;
+            }
+            out.flush();
+        }
+    }
+
+    private FileMetadata metadata(Path file) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        if (!attributes.isRegularFile()) {
+            return null;
+        }
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        FileMetadata cached = metadata.getIfPresent(file);
+        if (cached != null && cached.length() == attributes.size() && cached.lastModified() == lastModified) {
+            return cached;
+        }
+        FileMetadata fresh = new FileMetadata(
+                MediaTypeFactory.getMediaType(file.getFileName().toString())
+                        .orElse(MediaType.APPLICATION_OCTET_STREAM).toString(),
+                attributes.size(), lastModified, contentHash(file));
+        metadata.put(file, fresh);
+        return fresh;
+    }
+
+    /** Strong validator: a truncated SHA-256 of the bytes, so identical files share an ETag across nodes. */
+    private static String contentHash(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(buffer) > 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        byte[] hash = digest.digest();
+        return "\"" + HexFormat.of().formatHex(hash, 0, 16) + "\"";
+    }
+
+    private String cacheControl(Path file, Caching caching) {
+        if (caching == Caching.SHORT) {
+            return "public, max-age=60";
+        }
+        if (IMMUTABLE_NAME.matcher(file.getFileName().toString()).matches()) {
+            return IMMUTABLE_CACHE_CONTROL;
+        }
+        return "public, max-age=" + maxAgeSeconds;
+    }
+
+    /** If-None-Match wins over If-Modified-Since (RFC 9110 13.2.2). */
+    private static boolean notModified(HttpServletRequest request, FileMetadata meta) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            return etagListMatches(ifNoneMatch, meta.etag());
+        }
+        long ifModifiedSince = dateHeader(request, HttpHeaders.IF_MODIFIED_SINCE);
+        return ifModifiedSince >= 0 && meta.lastModified() / 1000 <= ifModifiedSince / 1000;
+    }
+
+    /** A Range is only honoured when If-Range (if sent) still names this exact representation. */
+    private static boolean ifRangeMatches(HttpServletRequest request, FileMetadata meta) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.trim().equals(meta.etag()); // strong comparison
+        }
+        long date = dateHeader(request, HttpHeaders.IF_RANGE);
+        return date >= 0 && meta.lastModified() / 1000 == date / 1000;
+    }
+
+    /** Weak comparison, as If-None-Match uses. */
+    private static boolean etagListMatches(String header, String etag) {
+        for (String candidate : header.split(",")) {
+            String value = candidate.trim();
+            if ("*".equals(value)) {
+                return true;
+            }
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long dateHeader(HttpServletRequest request, String name) {
+        try {
+            return request.getDateHeader(name);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * {start, end} for a satisfiable single range, an empty array to ignore the
+     * header and send the whole file (multi-range or malformed), or null when
+     * the range lies outside the file.
+     */
+    private static long[] parseRange(String header, long length) {
+        Matcher matcher = SINGLE_RANGE.matcher(header.trim());
+        if (!matcher.matches()) {
+            return new long[0];
+        }
+        String first = matcher.group(1);
+        String last = matcher.group(2);
+        try {
+            if (first.isEmpty()) {
+                if (last.isEmpty()) {
+                    return new long[0];
+                }
+                long suffix = Long.parseLong(last);
+                if (suffix == 0) {
+                    return null;
+                }
+                return new long[]{Math.max(0, length - suffix), length - 1};
+            }
+            long start = Long.parseLong(first);
+            if (start >= length) {
+                return null;
+            }
+            long end = last.isEmpty() ? length - 1 : Math.min(Long.parseLong(last), length - 1);
+            return end < start ? new long[0] : new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return new long[0];
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.shopmanagement.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.shopmanagement.event.UserAccessChangedEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.AuthenticatedPrincipal;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers which bearer tokens have already been verified, so an
+ * authenticated request costs a hash and a map lookup instead of a signature
+ * check plus a user lookup. Entries are keyed by the token's SHA-256 (the
+ * token itself is never kept) and expire exactly when the token does.
+ *
+ * When a user's role or enabled state changes, or the user is deleted
+ * ({@link UserAccessChangedEvent}), a cut-off time is written to
+ * user_token_cutoffs in the same transaction. Every request checks the
+ * entry against the user's cut-off: an entry whose role came from claims
+ * issued, or a lookup made, at or before it is dropped, and the token goes
+ * back through the user lookup once (disabled and deleted users are then
+ * refused). Each node loads all cut-offs at start and polls for newer ones
+ * every few seconds on its own thread (like {@link TokenBlacklistService}),
+ * so a change made on another node or before a restart holds everywhere.
+ * Until the first load succeeds no claims are trusted.
+ *
+ * With microservice.user-service.enabled, role and enabled changes are made
+ * by the user service and never reach this node as events, so no cut-off is
+ * ever written for them. In that mode role claims are not trusted and
+ * entries live at most jwt.verified-cache.remote-ttl-seconds: a revocation
+ * holds once the next user lookup sees it.
+ */
+@Service
+@Slf4j
+public class VerifiedTokenCache {
+
+    /** Re-read this much before the watermark: covers rows whose transaction committed late. */
+    private static final long WATERMARK_OVERLAP_SECONDS = 30;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Cache<String, VerifiedToken> verified;
+
+    @Value("${jwt.access.refresh-seconds:5}")
+    private long refreshSeconds;
+
+    @Value("${microservice.user-service.enabled:false}")
+    private boolean remoteUsers;
+
+    @Value("${jwt.verified-cache.remote-ttl-seconds:60}")
+    private long remoteTtlSeconds;
+
+    /** username -> tokens_valid_after; small (admin actions only). */
+    private final Map<String, Instant> cutoffs = new ConcurrentHashMap<>();
+    private volatile boolean cutoffsLoaded;
+    private Instant watermark;
+    private ScheduledExecutorService refresher;
+
+    public VerifiedTokenCache(JdbcTemplate jdbcTemplate,
+                              @Value("${jwt.verified-cache.max-size:100000}") long maxSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.verified = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<String, VerifiedToken>() {
+                    @Override
+                    public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+                        long nanos = (value.expiresAt().toEpochMilli() - System.currentTimeMillis()) * 1_000_000L;
+                        if (remoteUsers) {
+                            nanos = Math.min(nanos, TimeUnit.SECONDS.toNanos(remoteTtlSeconds));
+                        }
+                        return Math.max(0, nanos);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, VerifiedToken value, long currentTime,
+                                                  long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, VerifiedToken value, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    @PostConstruct
+    void start() {
+        refresh();
+        refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "TokenCutoffRefresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refresher.scheduleWithFixedDelay(this::refresh, refreshSeconds, refreshSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+
+    /**
+     * The cached verification of this token, or null when it must be verified
+     * again: expired, or its role predates the user's access cut-off.
+     */
+    public VerifiedToken get(String token) {
+        String key = hash(token);
+        VerifiedToken entry = verified.getIfPresent(key);
+        if (entry == null || !entry.expiresAt().isAfter(Instant.now())) {
+            return null;
+        }
+        Instant cutoff = cutoffs.get(entry.username());
+        if (cutoff != null && !entry.trustedSince().isAfter(cutoff)) {
+            verified.invalidate(key);
+            return null;
+        }
+        return entry;
+    }
+
+    public void put(String token, VerifiedToken entry) {
+        verified.put(hash(token), entry);
+    }
+
+    public void evict(String token) {
+        verified.invalidate(hash(token));
+    }
+
+    /**
+     * Whether a token's role claim can stand in for a user lookup: false when
+     * the user's access changed at or after the token was issued, while the
+     * cut-offs have not been loaded yet, or when users live in the user service.
+     */
+    public boolean claimsTrustedFor(String username, Date issuedAt) {
+        if (!cutoffsLoaded || remoteUsers) {
+            return false;
+        }
+        Instant cutoff = cutoffs.get(username);
+        if (cutoff == null) {
+            return true;
+        }
+        return issuedAt != null && issuedAt.toInstant().isAfter(cutoff);
+    }
+
+    /**
+     * Runs in the transaction that changed the user: the cut-off row commits
+     * or rolls back with the change. The local view is updated at once.
+     */
+    @EventListener
+    public void onUserAccessChanged(UserAccessChangedEvent event) {
+        String username = event.getUsername();
+        Instant now = Instant.now();
+        cutoffs.merge(username, now, (current, changed) -> changed.isAfter(current) ? changed : current);
+        jdbcTemplate.update(
+                "INSERT INTO user_token_cutoffs (username, tokens_valid_after) VALUES (?, ?) " +
+                "ON CONFLICT (username) DO UPDATE SET tokens_valid_after = " +
+                "GREATEST(user_token_cutoffs.tokens_valid_after, EXCLUDED.tokens_valid_after)",
+                username, Timestamp.from(now));
+        verified.asMap().values().removeIf(entry -> entry.username().equals(username));
+        log.info("Cut off tokens of user {} after an access change", username);
+    }
+
+    /** Pull cut-offs written on any node since the last watermark (all of them the first time). */
+    void refresh() {
+        try {
+            Instant since = watermark != null ? watermark.minusSeconds(WATERMARK_OVERLAP_SECONDS) : Instant.EPOCH;
+            Instant[] newest = {watermark};
+            jdbcTemplate.query(
+                    "SELECT username, tokens_valid_after FROM user_token_cutoffs WHERE tokens_valid_after > ?",
+                    rs -> {
+                        Instant cutoff = rs.getTimestamp("tokens_valid_after").toInstant();
+                        cutoffs.merge(rs.getString("username"), cutoff,
+                                (current, loaded) -> loaded.isAfter(current) ? loaded : current);
+                        if (newest[0] == null || cutoff.isAfter(newest[0])) {
+                            newest[0] = cutoff;
+                        }
+                    },
+                    Timestamp.from(since));
+            watermark = newest[0] != null ? newest[0] : Instant.now();
+            if (!cutoffsLoaded) {
+                cutoffsLoaded = true;
+                log.info("Loaded {} token cut-off(s)", cutoffs.size());
+            }
+        } catch (Exception e) {
+            log.warn("Token cut-off refresh failed: {}", e.getMessage());
+        }
+    }
+
+    public long size() {
+        return verified.estimatedSize();
+    }
+
+    static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * The outcome of verifying one token; doubles as the request principal, so
+     * {@code Authentication.getName()} keeps returning the username.
+     * trustedSince is when the authorities were true: the token's issue time
+     * for claims, the lookup time otherwise. getId() keeps
+     * {@code authentication.principal.id} in @PreAuthorize expressions working
+     * as it did with the User principal.
+     */
+    public record VerifiedToken(String username, Long userId, List<GrantedAuthority> authorities,
+                                Instant trustedSince, Instant expiresAt) implements AuthenticatedPrincipal {
+
+        @Override
+        public String getName() {
+            return username;
+        }
+
+        public Long getId() {
+            return userId;
+        }
+    }
+}
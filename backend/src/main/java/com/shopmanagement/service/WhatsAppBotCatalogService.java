@@ -0,0 +1,202 @@
+package com.shopmanagement.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.shopmanagement.event.ShopProductChangedEvent;
+import com.shopmanagement.product.entity.ShopProduct;
+import com.shopmanagement.product.repository.ShopProductRepository;
+import com.shopmanagement.shop.entity.Shop;
+import com.shopmanagement.shop.repository.ShopRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Per-shop, in-memory product catalog for the WhatsApp order bot. One query
+ * loads a shop's available products; after that keyword search, list rows
+ * and price lookups for every customer reply are served from memory.
+ *
+ * A snapshot is dropped whenever one of the shop's products changes
+ * ({@link ShopProductChangedEvent}) and again after that transaction commits,
+ * so a reload can't pick up the pre-commit row. The TTL is only a backstop
+ * for writes that bypass JPA callbacks (bulk JPQL updates, master product edits).
+ */
+@Service
+@Slf4j
+public class WhatsAppBotCatalogService {
+
+    /** WhatsApp list messages hold at most 10 rows. */
+    public static final int LIST_LIMIT = 10;
+
+    private final ShopProductRepository shopProductRepository;
+    private final ShopRepository shopRepository;
+    private final LoadingCache<Long, BotCatalog> catalogs;
+    private final Cache<String, Optional<Long>> botShop;
+
+    @Value("${whatsapp.order.shop-id:}")
+    private String configuredShopId;
+
+    public WhatsAppBotCatalogService(ShopProductRepository shopProductRepository,
+                                     ShopRepository shopRepository,
+                                     @Value("${whatsapp.order.catalog-ttl-minutes:30}") long ttlMinutes) {
+        this.shopProductRepository = shopProductRepository;
+        this.shopRepository = shopRepository;
+        this.catalogs = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .maximumSize(200)
+                .build(this::load);
+        this.botShop = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMinutes(5))
+                .maximumSize(1)
+                .build();
+    }
+
+    public BotCatalog forShop(Long shopId) {
+        return catalogs.get(shopId);
+    }
+
+    /**
+     * Shop the bot sells for: the configured one, or the platform's single
+     * active shop. Empty disables the bot. Cached briefly so replies don't
+     * scan the shops table.
+     */
+    public Optional<Long> resolveBotShopId() {
+        if (configuredShopId != null && !configuredShopId.isBlank()) {
+            try {
+                return Optional.of(Long.valueOf(configuredShopId.trim()));
+            } catch (NumberFormatException e) {
+                log.warn("Invalid whatsapp.order.shop-id: {}", configuredShopId);
+            }
+        }
+        return botShop.get("active", key -> {
+            List<Shop> active = shopRepository.findByIsActiveTrue(PageRequest.of(0, 2)).getContent();
+            return active.size() == 1 ? Optional.of(active.get(0).getId()) : Optional.empty();
+        });
+    }
+
+    /** Price of a product the bot listed; falls back to the DB for items no longer available. */
+    public BigDecimal priceOf(Long shopProductId) {
+        Optional<BotProduct> cached = findCached(shopProductId);
+        if (cached.isPresent()) {
+            return cached.get().price();
+        }
+        return shopProductRepository.findById(shopProductId).map(ShopProduct::getPrice).orElse(BigDecimal.ZERO);
+    }
+
+    /** Display name of a product the bot listed; falls back to the DB, then to {@code fallback}. */
+    public String nameOf(Long shopProductId, String fallback) {
+        Optional<BotProduct> cached = findCached(shopProductId);
+        if (cached.isPresent()) {
+            return cached.get().title();
+        }
+        return shopProductRepository.findById(shopProductId).map(ShopProduct::getDisplayName).orElse(fallback);
+    }
+
+    @EventListener
+    public void onShopProductChanged(ShopProductChangedEvent event) {
+        Long shopId = event.getShopId();
+        catalogs.invalidate(shopId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    catalogs.invalidate(shopId);
+                }
+            });
+        }
+    }
+
+    private Optional<BotProduct> findCached(Long shopProductId) {
+        return resolveBotShopId()
+                .map(this::forShop)
+                .map(catalog -> catalog.get(shopProductId));
+    }
+
+    private BotCatalog load(Long shopId) {
+        List<ShopProduct> products = shopProductRepository.findAvailableWithMasterProductByShopId(shopId);
+        Map<Long, BotProduct> byId = new LinkedHashMap<>();
+        for (ShopProduct sp : products) {
+            String title = sp.getDisplayName();
+            if (title == null) {
+                continue;
+            }
+            BigDecimal price = sp.getPrice() == null ? BigDecimal.ZERO : sp.getPrice();
+            String tamil = sp.getMasterProduct().getNameTamil();
+            byId.put(sp.getId(), new BotProduct(
+                    sp.getId(),
+                    title,
+                    title.toLowerCase(Locale.ROOT),
+                    tamil == null ? "" : tamil.toLowerCase(Locale.ROOT),
+                    price,
+                    price.stripTrailingZeros().toPlainString()));
+        }
+        log.info("Loaded WhatsApp bot catalog for shop {}: {} product(s)", shopId, byId.size());
+        return new BotCatalog(Collections.unmodifiableMap(byId));
+    }
+
+    /** Immutable snapshot of one shop's available products, in display order. */
+    public static final class BotCatalog {
+
+        private final Map<Long, BotProduct> byId;
+
+        BotCatalog(Map<Long, BotProduct> byId) {
+            this.byId = byId;
+        }
+
+        public BotProduct get(Long shopProductId) {
+            return byId.get(shopProductId);
+        }
+
+        /** Same match as the repository's name search: English or Tamil name contains the keyword. */
+        public List<BotProduct> search(String keyword, int limit) {
+            String needle = keyword.toLowerCase(Locale.ROOT);
+            List<BotProduct> matches = new ArrayList<>();
+            for (BotProduct product : byId.values()) {
+                if (product.searchName().contains(needle) || product.searchTamil().contains(needle)) {
+                    matches.add(product);
+                    if (matches.size() >= limit) {
+                        break;
+                    }
+                }
+            }
+            return matches;
+        }
+
+        public int size() {
+            return byId.size();
+        }
+    }
+
+    /** What the bot needs of a product, with the list-row text already rendered. */
+    public record BotProduct(Long id, String title, String searchName, String searchTamil,
+                             BigDecimal price, String priceLabel) {
+
+        /** Catalogue feed id ("sp{shopProductId}"). */
+        public String retailerId() {
+            return "sp" + id;
+        }
+
+        /** Row for the tappable product list; qty 0 means "ask how many". */
+        public Map<String, String> listRow(int qty, String currency) {
+            return Map.of(
+                    "id", "sp:" + id + ":q:" + qty,
+                    "title", title,
+                    "description", currency + priceLabel);
+        }
+    }
+}
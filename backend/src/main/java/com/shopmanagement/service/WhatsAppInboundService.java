@@ -5,12 +5,10 @@ import com.shopmanagement.entity.WhatsAppIncomingMessage;
 import com.shopmanagement.product.entity.ShopProduct;
 import com.shopmanagement.product.repository.ShopProductRepository;
 import com.shopmanagement.repository.WhatsAppIncomingMessageRepository;
-import com.shopmanagement.shop.entity.Shop;
-import com.shopmanagement.shop.repository.ShopRepository;
+import com.shopmanagement.service.WhatsAppBotCatalogService.BotProduct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -38,7 +36,9 @@ import java.util.regex.Pattern;
  *
  * Anything the bot can't handle (multi-line lists, no product match, media)
  * stays a NEW row with the generic acknowledgement so staff pick it up.
- * The webhook must always answer 200 or Meta keeps retrying the payload.
+ * Messages arrive one at a time from {@link WhatsAppWebhookIngestionService},
+ * which has already acknowledged the webhook and keeps each sender's
+ * messages in order.
  */
 @Service
 @RequiredArgsConstructor
@@ -64,11 +64,7 @@ public class WhatsAppInboundService {
     private final WhatsAppIncomingMessageRepository repository;
     private final WhatsAppNotificationService whatsAppNotificationService;
     private final ShopProductRepository shopProductRepository;
-    private final ShopRepository shopRepository;
-
-    /** Optional fixed shop for the order bot; when blank, the single active shop is used. */
-    @Value("${whatsapp.order.shop-id:}")
-    private String configuredShopId;
+    private final WhatsAppBotCatalogService botCatalog;
 
     /**
      * Meta Commerce Catalogue id connected to the WABA. When set, search
@@ -90,34 +86,20 @@ public class WhatsAppInboundService {
     @Value("${whatsapp.order.photo-count:0}")
     private int photoCount;
 
+    /**
+     * Runs the order bot for one message of a webhook payload. Called by
+     * {@link WhatsAppWebhookIngestionService} on the sender's partition thread,
+     * after the webhook has already been acknowledged.
+     */
     @Transactional
-    public void processWebhook(JsonNode root) {
-        try {
-            for (JsonNode entry : root.path("entry")) {
-                for (JsonNode change : entry.path("changes")) {
-                    JsonNode value = change.path("value");
-                    if (!value.has("messages")) {
-                        continue; // statuses / template quality callbacks etc.
-                    }
-                    String profileName = value.path("contacts").path(0).path("profile").path("name").asText(null);
-                    for (JsonNode message : value.path("messages")) {
-                        handleMessage(message, profileName);
-                    }
-                }
-            }
-        } catch (Exception e) {
-            log.error("Failed processing WhatsApp webhook payload", e);
-        }
-    }
-
-    private void handleMessage(JsonNode message, String profileName) {
+    public void processMessage(JsonNode message, String profileName) {
         String waMessageId = message.path("id").asText(null);
         String from = message.path("from").asText(null);
         if (waMessageId == null || from == null) {
             return;
         }
         if (repository.existsByWaMessageId(waMessageId)) {
-            return; // Meta retried a payload we already stored
+            return; // older retry that outlived the in-memory filter, or a sweeper replay
         }
 
         String type = message.path("type").asText("unknown");
@@ -135,7 +117,8 @@ public class WhatsAppInboundService {
             }
         } catch (Exception e) {
             // Never lose the message: store it as NEW for staff even when the
-            // bot flow blows up mid-way.
+            // bot flow blows up mid-way. The handler may already have stored
+            // its row before failing; the query flushes it, so it is found.
             log.error("Order-bot handling failed for {} from {}", waMessageId, from, e);
             if (!repository.existsByWaMessageId(waMessageId)) {
                 saveRow(waMessageId, from, profileName, type, extractBody(message, type), "NEW", message);
@@ -143,6 +126,22 @@ public class WhatsAppInboundService {
         }
     }
 
+    /**
+     * Last resort when {@link #processMessage} itself failed and its
+     * transaction rolled back: store the message as NEW for staff in a
+     * transaction of its own, unless it is already stored.
+     */
+    @Transactional
+    public void storeUnhandled(JsonNode message, String profileName) {
+        String waMessageId = message.path("id").asText(null);
+        String from = message.path("from").asText(null);
+        if (waMessageId == null || from == null || repository.existsByWaMessageId(waMessageId)) {
+            return;
+        }
+        String type = message.path("type").asText("unknown");
+        saveRow(waMessageId, from, profileName, type, extractBody(message, type), "NEW", message);
+    }
+
     // ---------- regular text / media ----------
 
     private void handleRegularMessage(String waMessageId, String from, String profileName,
@@ -238,8 +237,8 @@ public class WhatsAppInboundService {
         String[] parts = buttonId.split(":");
         Long spId = Long.valueOf(parts[1]);
         int qty = Math.max(1, Integer.parseInt(parts[2]));
-        BigDecimal unitPrice = shopProductRepository.findById(spId).map(ShopProduct::getPrice).orElse(BigDecimal.ZERO);
-        String name = shopProductRepository.findById(spId).map(ShopProduct::getDisplayName).orElse("Item");
+        BigDecimal unitPrice = botCatalog.priceOf(spId);
+        String name = botCatalog.nameOf(spId, "Item");
         BigDecimal lineTotal = unitPrice.multiply(BigDecimal.valueOf(qty));
 
         String body = "✔ " + name + (qty > 1 ? " × " + qty : "")
@@ -289,16 +288,11 @@ public class WhatsAppInboundService {
         if (buttonId.startsWith("opts:")) {
             saveRow(waMessageId, from, profileName, "interactive", "[other options]", "PROCESSED", message);
             String keyword = buttonId.substring(5);
-            Long shopId = resolveShopId();
+            Long shopId = botCatalog.resolveBotShopId().orElse(null);
             if (shopId != null) {
-                List<ShopProduct> products = shopProductRepository
-                        .searchAvailableByShopIdAndName(shopId, keyword, PageRequest.of(0, 10)).getContent();
                 List<Map<String, String>> rows = new ArrayList<>();
-                for (ShopProduct sp : products) {
-                    rows.add(Map.of(
-                            "id", "sp:" + sp.getId() + ":q:0",
-                            "title", sp.getDisplayName(),
-                            "description", "₹" + sp.getPrice().stripTrailingZeros().toPlainString()));
+                for (BotProduct product : botCatalog.forShop(shopId).search(keyword, WhatsAppBotCatalogService.LIST_LIMIT)) {
+                    rows.add(product.listRow(0, "₹"));
                 }
                 whatsAppNotificationService.sendInteractiveList(from,
                         "*Namma Ooru Delivery* 🛵\n\"" + keyword + "\" க்கான மற்ற பொருட்கள் 👇\nOther options for \"" + keyword + "\":",
@@ -406,9 +400,7 @@ public class WhatsAppInboundService {
             String name = retailerId;
             if (retailerId.startsWith("sp")) {
                 try {
-                    name = shopProductRepository.findById(Long.valueOf(retailerId.substring(2)))
-                            .map(ShopProduct::getDisplayName)
-                            .orElse(retailerId);
+                    name = botCatalog.nameOf(Long.valueOf(retailerId.substring(2)), retailerId);
                 } catch (NumberFormatException ignored) {
                 }
             }
@@ -446,7 +438,7 @@ public class WhatsAppInboundService {
      * there is no usable keyword or no match.
      */
     private boolean trySuggestProducts(String from, String body) {
-        Long shopId = resolveShopId();
+        Long shopId = botCatalog.resolveBotShopId().orElse(null);
         if (shopId == null) {
             return false;
         }
@@ -470,11 +462,10 @@ public class WhatsAppInboundService {
             return false;
         }
 
-        List<ShopProduct> products = shopProductRepository
-                .searchAvailableByShopIdAndName(shopId, keyword, PageRequest.of(0, 10)).getContent();
+        WhatsAppBotCatalogService.BotCatalog catalog = botCatalog.forShop(shopId);
+        List<BotProduct> products = catalog.search(keyword, WhatsAppBotCatalogService.LIST_LIMIT);
         if (products.isEmpty() && keyword.contains(" ")) {
-            products = shopProductRepository
-                    .searchAvailableByShopIdAndName(shopId, keyword.split(" ")[0], PageRequest.of(0, 10)).getContent();
+            products = catalog.search(keyword.split(" ")[0], WhatsAppBotCatalogService.LIST_LIMIT);
         }
         if (products.isEmpty()) {
             return false;
@@ -482,14 +473,14 @@ public class WhatsAppInboundService {
 
         // Optional product photos before the tappable list (off by default).
         int photosSent = photoCount; // disable separate photo bubbles
-        for (ShopProduct sp : products) {
+        for (BotProduct sp : products) {
             if (photosSent >= photoCount) break;
-            String imageUrl = sp.getPrimaryShopImageUrl();
+            String imageUrl = imageUrlOf(sp.id());
             if (imageUrl == null || imageUrl.isBlank()) continue;
             if (imageUrl.startsWith("/")) {
                 imageUrl = apiBaseUrl + imageUrl;
             }
-            String caption = sp.getDisplayName() + " — ₹" + sp.getPrice().stripTrailingZeros().toPlainString();
+            String caption = sp.title() + " — ₹" + sp.priceLabel();
             if (whatsAppNotificationService.sendImageMessage(from, imageUrl, caption)) {
                 photosSent++;
             }
@@ -500,8 +491,8 @@ public class WhatsAppInboundService {
         // sends their cart back as an "order" webhook handled above.
         if (catalogId != null && !catalogId.isBlank()) {
             List<String> retailerIds = new ArrayList<>();
-            for (ShopProduct sp : products) {
-                retailerIds.add("sp" + sp.getId());
+            for (BotProduct sp : products) {
+                retailerIds.add(sp.retailerId());
             }
             return whatsAppNotificationService.sendProductList(from,
                     "Namma Ooru Delivery 🛵",
@@ -517,19 +508,19 @@ public class WhatsAppInboundService {
         int cardLimit = 0; // legacy image cards disabled; use one compact list below
         boolean anySent = false;
         for (int i = 0; i < cardLimit; i++) {
-            ShopProduct sp = products.get(i);
-            String imageUrl = sp.getPrimaryShopImageUrl();
+            BotProduct sp = products.get(i);
+            String imageUrl = imageUrlOf(sp.id());
             if (imageUrl != null && !imageUrl.isBlank() && imageUrl.startsWith("/")) {
                 imageUrl = apiBaseUrl + imageUrl;
             }
-            String cardBody = "*" + sp.getDisplayName() + "*\n₹" + sp.getPrice().stripTrailingZeros().toPlainString();
+            String cardBody = "*" + sp.title() + "*\n₹" + sp.priceLabel();
 
             Map<String, String> cardButtons = new LinkedHashMap<>();
             if (qtyTyped) {
-                cardButtons.put("add:" + sp.getId() + ":" + qty, "➕ Add " + qty);
+                cardButtons.put("add:" + sp.id() + ":" + qty, "➕ Add " + qty);
             } else {
-                cardButtons.put("add:" + sp.getId() + ":1", "➕ Add 1");
-                cardButtons.put("add:" + sp.getId() + ":2", "➕ Add 2");
+                cardButtons.put("add:" + sp.id() + ":1", "➕ Add 1");
+                cardButtons.put("add:" + sp.id() + ":2", "➕ Add 2");
             }
             // Last card gets "More options" when the catalog has extra matches
             // beyond the 3 shown, so nothing is hidden from the customer.
@@ -541,12 +532,9 @@ public class WhatsAppInboundService {
             }
         }
         List<Map<String, String>> compactRows = new ArrayList<>();
-        for (ShopProduct sp : products) {
-            if (compactRows.size() >= 10) break;
-            compactRows.add(Map.of(
-                    "id", "sp:" + sp.getId() + ":q:" + (qtyTyped ? qty : 0),
-                    "title", sp.getDisplayName(),
-                    "description", "Rs." + sp.getPrice().stripTrailingZeros().toPlainString()));
+        for (BotProduct sp : products) {
+            if (compactRows.size() >= WhatsAppBotCatalogService.LIST_LIMIT) break;
+            compactRows.add(sp.listRow(qtyTyped ? qty : 0, "Rs."));
         }
         return whatsAppNotificationService.sendInteractiveList(from,
                 "*Namma Ooru Delivery*\nMatching \"" + keyword + "\" - select one product. "
@@ -632,28 +620,17 @@ public class WhatsAppInboundService {
     private BigDecimal lookupPrice(String rowId) {
         try {
             String[] parts = rowId.split(":");
-            Long spId = Long.valueOf(parts[1]);
-            return shopProductRepository.findById(spId)
-                    .map(ShopProduct::getPrice)
-                    .orElse(BigDecimal.ZERO);
+            return botCatalog.priceOf(Long.valueOf(parts[1]));
         } catch (Exception e) {
             return BigDecimal.ZERO;
         }
     }
 
-    /** Configured shop, or the platform's single active shop; null disables the bot. */
-    private Long resolveShopId() {
-        if (configuredShopId != null && !configuredShopId.isBlank()) {
-            try {
-                return Long.valueOf(configuredShopId.trim());
-            } catch (NumberFormatException e) {
-                log.warn("Invalid whatsapp.order.shop-id: {}", configuredShopId);
-            }
-        }
-        List<Shop> active = shopRepository.findAll().stream()
-                .filter(s -> Boolean.TRUE.equals(s.getIsActive()))
-                .toList();
-        return active.size() == 1 ? active.get(0).getId() : null;
+    /** Images are not part of the bot catalog; only the few photos actually sent are looked up. */
+    private String imageUrlOf(Long shopProductId) {
+        return shopProductRepository.findById(shopProductId)
+                .map(ShopProduct::getPrimaryShopImageUrl)
+                .orElse(null);
     }
 
     /** Human-readable content for the admin inbox, per Meta message type. */
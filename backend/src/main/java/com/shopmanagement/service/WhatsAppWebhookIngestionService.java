@@ -0,0 +1,263 @@
+package com.shopmanagement.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.shopmanagement.entity.WhatsAppWebhookPayload;
+import com.shopmanagement.repository.WhatsAppWebhookPayloadRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Front door for the Meta WhatsApp webhook. The controller hands over the
+ * verified raw body and gets an answer in one INSERT:
+ *
+ *   1. parse the envelope and drop message ids seen recently (in-memory,
+ *      no DB hit — Meta retries and status callbacks end here)
+ *   2. store the raw payload (RECEIVED) so nothing is lost on a crash
+ *   3. queue each message on a worker partitioned by sender phone, so one
+ *      customer's taps are handled strictly in order while different
+ *      customers run in parallel
+ *
+ * The order bot ({@link WhatsAppInboundService#processMessage}) then runs off
+ * the request thread. Payloads a worker never finished are replayed by
+ * {@link #replayStalePayloads()}. A stored payload counts as claimed by its
+ * node for whatsapp.inbound.claim-minutes; after that any node's sweeper may
+ * claim it, and the claim (FOR UPDATE SKIP LOCKED) hands each stale payload to
+ * one node only. The bot's own wa_message_id check keeps replays idempotent.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class WhatsAppWebhookIngestionService {
+
+    private static final String RECEIVED = "RECEIVED";
+    private static final String PROCESSED = "PROCESSED";
+    private static final String FAILED = "FAILED";
+
+    private static final String CLAIM_STALE_SQL =
+            "UPDATE whatsapp_webhook_payloads SET claimed_at = NOW() WHERE id IN (" +
+            "SELECT id FROM whatsapp_webhook_payloads " +
+            "WHERE status = '" + RECEIVED + "' AND claimed_at < NOW() - (? * INTERVAL '1 minute') " +
+            "ORDER BY received_at LIMIT 100 FOR UPDATE SKIP LOCKED) " +
+            "RETURNING id, raw_body";
+
+    private final WhatsAppWebhookPayloadRepository payloadRepository;
+    private final WhatsAppInboundService inboundService;
+    private final ObjectMapper objectMapper;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${whatsapp.inbound.workers:4}")
+    private int workerCount;
+
+    @Value("${whatsapp.inbound.queue-capacity:500}")
+    private int queueCapacity;
+
+    /** Meta retries for up to a day; ids older than this fall back to the DB check. */
+    @Value("${whatsapp.inbound.recent-id-ttl-hours:24}")
+    private int recentIdTtlHours;
+
+    @Value("${whatsapp.inbound.recent-id-max:50000}")
+    private int recentIdMax;
+
+    /** How long a node keeps a payload it took before another node may replay it. */
+    @Value("${whatsapp.inbound.claim-minutes:5}")
+    private int claimMinutes;
+
+    /** Processed payloads are kept this long for debugging, then purged. */
+    @Value("${whatsapp.inbound.payload-retention-days:7}")
+    private int payloadRetentionDays;
+
+    private ThreadPoolTaskExecutor[] partitions;
+    private Cache<String, Boolean> recentMessageIds;
+
+    @PostConstruct
+    void start() {
+        recentMessageIds = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofHours(recentIdTtlHours))
+                .maximumSize(recentIdMax)
+                .build();
+
+        int count = Math.max(1, workerCount);
+        partitions = new ThreadPoolTaskExecutor[count];
+        for (int i = 0; i < count; i++) {
+            // One thread per partition: that is what keeps a conversation ordered.
+            ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+            executor.setCorePoolSize(1);
+            executor.setMaxPoolSize(1);
+            executor.setQueueCapacity(queueCapacity);
+            executor.setThreadNamePrefix("WaInbound-" + i + "-");
+            executor.setWaitForTasksToCompleteOnShutdown(true);
+            executor.setAwaitTerminationSeconds(20);
+            executor.initialize();
+            partitions[i] = executor;
+        }
+        log.info("WhatsApp webhook ingestion started with {} partition(s)", count);
+    }
+
+    @PreDestroy
+    void stop() {
+        for (ThreadPoolTaskExecutor executor : partitions) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Accept a verified webhook body. Returns once the payload is durable (or
+     * was found to carry nothing new); the bot runs afterwards.
+     *
+     * @throws JsonProcessingException when the body is not JSON (nothing to retry)
+     * @throws RuntimeException when the payload could not be stored — the
+     *         caller must answer non-2xx so Meta retries it
+     */
+    public void ingest(String rawBody) throws JsonProcessingException {
+        JsonNode root = objectMapper.readTree(rawBody);
+        List<InboundMessage> fresh = new ArrayList<>();
+        for (InboundMessage message : extractMessages(root)) {
+            if (recentMessageIds.asMap().putIfAbsent(message.waMessageId(), Boolean.TRUE) == null) {
+                fresh.add(message);
+            }
+        }
+        if (fresh.isEmpty()) {
+            return; // statuses / template callbacks, or a retry we already took
+        }
+
+        WhatsAppWebhookPayload payload;
+        try {
+            payload = payloadRepository.save(WhatsAppWebhookPayload.builder()
+                    .rawBody(rawBody)
+                    .messageCount(fresh.size())
+                    .build());
+        } catch (RuntimeException e) {
+            // Not stored: forget the ids so Meta's retry is accepted next time.
+            fresh.forEach(message -> recentMessageIds.invalidate(message.waMessageId()));
+            throw e;
+        }
+        dispatch(payload.getId(), fresh);
+    }
+
+    /**
+     * Claim and re-queue payloads still RECEIVED after their claim ran out.
+     * Rows another node is claiming at the same moment are skipped, not waited for.
+     */
+    @Scheduled(fixedDelay = 60000, initialDelay = 60000)
+    public void replayStalePayloads() {
+        try {
+            List<WhatsAppWebhookPayload> stale = jdbcTemplate.query(CLAIM_STALE_SQL,
+                    (rs, rowNum) -> WhatsAppWebhookPayload.builder()
+                            .id(rs.getLong("id"))
+                            .rawBody(rs.getString("raw_body"))
+                            .build(),
+                    claimMinutes);
+            for (WhatsAppWebhookPayload payload : stale) {
+                List<InboundMessage> messages = extractMessages(objectMapper.readTree(payload.getRawBody()));
+                log.info("Replaying WhatsApp webhook payload {} ({} message(s))", payload.getId(), messages.size());
+                messages.forEach(message -> recentMessageIds.put(message.waMessageId(), Boolean.TRUE));
+                dispatch(payload.getId(), messages);
+            }
+        } catch (Exception e) {
+            log.error("Error replaying stale WhatsApp webhook payloads", e);
+        }
+    }
+
+    @Scheduled(cron = "0 15 3 * * *")
+    public void purgeProcessedPayloads() {
+        int deleted = payloadRepository.deleteProcessedBefore(LocalDateTime.now().minusDays(payloadRetentionDays));
+        if (deleted > 0) {
+            log.info("Purged {} processed WhatsApp webhook payload(s)", deleted);
+        }
+    }
+
+    private void dispatch(Long payloadId, List<InboundMessage> messages) {
+        if (messages.isEmpty()) {
+            payloadRepository.markFinished(payloadId, PROCESSED, null, LocalDateTime.now());
+            return;
+        }
+        AtomicInteger remaining = new AtomicInteger(messages.size());
+        AtomicBoolean failed = new AtomicBoolean(false);
+
+        for (InboundMessage message : messages) {
+            Runnable task = () -> {
+                try {
+                    inboundService.processMessage(message.message(), message.profileName());
+                } catch (Exception e) {
+                    log.error("WhatsApp message {} from payload {} failed", message.waMessageId(), payloadId, e);
+                    try {
+                        inboundService.storeUnhandled(message.message(), message.profileName());
+                    } catch (Exception storeFailure) {
+                        // Not stored anywhere: FAILED keeps the raw payload for a manual replay
+                        failed.set(true);
+                        log.error("Could not store WhatsApp message {} for staff", message.waMessageId(), storeFailure);
+                    }
+                } finally {
+                    if (remaining.decrementAndGet() == 0) {
+                        finish(payloadId, failed.get());
+                    }
+                }
+            };
+            try {
+                partitionFor(message.from()).execute(task);
+            } catch (TaskRejectedException e) {
+                // Queue full (or shutting down): leave the payload RECEIVED for the sweeper.
+                log.warn("WhatsApp ingestion queue full; payload {} will be replayed once its claim runs out",
+                        payloadId);
+                return;
+            }
+        }
+    }
+
+    private void finish(Long payloadId, boolean failed) {
+        try {
+            payloadRepository.markFinished(payloadId, failed ? FAILED : PROCESSED,
+                    failed ? "One or more messages failed; see application log" : null,
+                    LocalDateTime.now());
+        } catch (Exception e) {
+            log.error("Could not mark WhatsApp webhook payload {} finished", payloadId, e);
+        }
+    }
+
+    private ThreadPoolTaskExecutor partitionFor(String from) {
+        return partitions[Math.floorMod(from.hashCode(), partitions.length)];
+    }
+
+    private List<InboundMessage> extractMessages(JsonNode root) {
+        List<InboundMessage> messages = new ArrayList<>();
+        for (JsonNode entry : root.path("entry")) {
+            for (JsonNode change : entry.path("changes")) {
+                JsonNode value = change.path("value");
+                if (!value.has("messages")) {
+                    continue; // statuses / template quality callbacks etc.
+                }
+                String profileName = value.path("contacts").path(0).path("profile").path("name").asText(null);
+                for (JsonNode message : value.path("messages")) {
+                    String waMessageId = message.path("id").asText(null);
+                    String from = message.path("from").asText(null);
+                    if (waMessageId != null && from != null) {
+                        messages.add(new InboundMessage(waMessageId, from, profileName, message));
+                    }
+                }
+            }
+        }
+        return messages;
+    }
+
+    private record InboundMessage(String waMessageId, String from, String profileName, JsonNode message) {
+    }
+}
@@ -44,6 +44,7 @@ public class WomensCornerPostService {
     private final GlobalPostLimitService globalPostLimitService;
     private final ObjectMapper objectMapper;
     private final PostSubscriptionService postSubscriptionService;
+    private final ImageModerationHoldService imageModerationHoldService;
 
     @Transactional
     public WomensCornerPost createPost(String title, String description, BigDecimal price,
@@ -93,7 +94,7 @@ public class WomensCornerPostService {
             int count = 0;
             for (MultipartFile image : images) {
                 if (image != null && !image.isEmpty() && count < 5) {
-                    String imageUrl = fileUploadService.uploadFile(image, "womens-corner");
+                    String imageUrl = fileUploadService.uploadPostImage(image, "womens-corner");
                     imageUrlList.add(imageUrl);
                     count++;
                 }
@@ -101,8 +102,10 @@ public class WomensCornerPostService {
         }
         String imageUrls = imageUrlList.isEmpty() ? null : String.join(",", imageUrlList);
 
-        boolean autoApprove = Boolean.parseBoolean(
-                settingService.getSettingValue("womens_corner.post.auto_approve", "true"));
+        boolean autoApprove = settingService.getBooleanValue("womens_corner.post.auto_approve", true);
+        // A new image still waiting for its moderation verdict keeps the post pending until it arrives
+        boolean heldForModeration = autoApprove && imageModerationHoldService.awaitingVerdict(imageUrls);
+        autoApprove = autoApprove && !heldForModeration;
 
         WomensCornerPost post = WomensCornerPost.builder()
                 .title(title)
@@ -123,8 +126,7 @@ public class WomensCornerPostService {
                 .build();
 
         // Set validity dates
-        int durationDays = Integer.parseInt(
-                settingService.getSettingValue("womens_corner.post.duration_days", "30"));
+        int durationDays = settingService.getIntValue("womens_corner.post.duration_days", 30);
         post.setValidFrom(LocalDateTime.now());
         if (durationDays > 0) {
             post.setValidTo(LocalDateTime.now().plusDays(durationDays));
@@ -142,6 +144,9 @@ public class WomensCornerPostService {
         }
 
         WomensCornerPost saved = womensCornerPostRepository.save(post);
+        if (heldForModeration) {
+            imageModerationHoldService.hold(ImageModerationHoldService.PostType.WOMENS_CORNER, saved.getId(), imageUrls);
+        }
 
         // Consume paid token if used
         if (paidTokenId != null) {
@@ -172,7 +177,7 @@ public class WomensCornerPostService {
         List<PostStatus> visibleStatuses = getVisibleStatuses();
 
         if (lat != null && lng != null) {
-            double radius = (radiusKm != null) ? radiusKm : Double.parseDouble(settingService.getSettingValue("post.default_radius_km", "10"));
+            double radius = (radiusKm != null) ? radiusKm : settingService.getDoubleValue("post.default_radius_km", 10);
             String[] statuses = visibleStatuses.stream().map(Enum::name).toArray(String[]::new);
             int limit = pageable.getPageSize();
             int offset = (int) pageable.getOffset();
@@ -193,7 +198,7 @@ public class WomensCornerPostService {
         List<PostStatus> visibleStatuses = getVisibleStatuses();
 
         if (lat != null && lng != null) {
-            double radius = (radiusKm != null) ? radiusKm : Double.parseDouble(settingService.getSettingValue("post.default_radius_km", "10"));
+            double radius = (radiusKm != null) ? radiusKm : settingService.getDoubleValue("post.default_radius_km", 10);
             String[] statuses = visibleStatuses.stream().map(Enum::name).toArray(String[]::new);
             int limit = pageable.getPageSize();
             int offset = (int) pageable.getOffset();
@@ -381,8 +386,7 @@ public class WomensCornerPostService {
         int newCount = (post.getReportCount() != null ? post.getReportCount() : 0) + 1;
         post.setReportCount(newCount);
 
-        int reportThreshold = Integer.parseInt(
-                settingService.getSettingValue("womens_corner.post.report_threshold", "5"));
+        int reportThreshold = settingService.getIntValue("womens_corner.post.report_threshold", 5);
         if (newCount >= reportThreshold && post.getStatus() == PostStatus.APPROVED) {
             post.setStatus(PostStatus.FLAGGED);
             log.warn("Women's corner post auto-flagged due to {} reports: id={}, title={}", newCount, postId, post.getTitle());
@@ -460,8 +464,7 @@ public class WomensCornerPostService {
             postPaymentService.consumeToken(paidTokenId, user.getId(), post.getId());
         }
 
-        int durationDays = Integer.parseInt(
-                settingService.getSettingValue("womens_corner.post.duration_days", "30"));
+        int durationDays = settingService.getIntValue("womens_corner.post.duration_days", 30);
 
         post.setValidFrom(LocalDateTime.now());
         if (durationDays > 0) {
@@ -553,8 +556,7 @@ public class WomensCornerPostService {
     }
 
     private LocalDateTime getCutoffDate() {
-        int durationDays = Integer.parseInt(
-                settingService.getSettingValue("womens_corner.post.duration_days", "30"));
+        int durationDays = settingService.getIntValue("womens_corner.post.duration_days", 30);
         if (durationDays <= 0) {
             return null;
         }
@@ -5,10 +5,13 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -25,6 +28,18 @@ public interface ShopRepository extends JpaRepository<Shop, Long>, JpaSpecificat
 
     Page<Shop> findByIsActiveTrue(Pageable pageable);
 
+    List<Shop> findAllByIsActiveTrue();
+
+    /** Apply a business-hours open/close flip; no-op for manual overrides or when already in that state. */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Shop s SET s.isAvailable = :available, s.availabilityUpdatedAt = :at " +
+           "WHERE s.id = :shopId AND (s.isAvailable IS NULL OR s.isAvailable <> :available) " +
+           "AND (s.isManualOverride IS NULL OR s.isManualOverride = false)")
+    int updateScheduledAvailability(@Param("shopId") Long shopId,
+                                    @Param("available") Boolean available,
+                                    @Param("at") LocalDateTime at);
+
     Page<Shop> findByStatus(Shop.ShopStatus status, Pageable pageable);
 
     Page<Shop> findByBusinessType(Shop.BusinessType businessType, Pageable pageable);
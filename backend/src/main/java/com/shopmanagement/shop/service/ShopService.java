@@ -11,6 +11,8 @@ import com.shopmanagement.shop.util.ShopSlugGenerator;
 import com.shopmanagement.service.EmailService;
 import com.shopmanagement.service.AuthService;
 import com.shopmanagement.service.SmsService;
+import com.shopmanagement.service.ShopOrderMetricsService;
+import com.shopmanagement.service.ShopAnalyticsRollupService;
 import com.shopmanagement.entity.User;
 import com.shopmanagement.entity.Order;
 import com.shopmanagement.entity.OrderItem;
@@ -64,6 +66,8 @@ public class ShopService {
     private final FirebaseNotificationService firebaseNotificationService;
     private final UserFcmTokenRepository userFcmTokenRepository;
     private final com.shopmanagement.service.BusinessHoursService businessHoursService;
+    private final ShopOrderMetricsService shopOrderMetricsService;
+    private final ShopAnalyticsRollupService shopAnalyticsRollupService;
     private final org.springframework.security.crypto.password.PasswordEncoder passwordEncoder;
 
     @Transactional
@@ -645,7 +649,7 @@ public class ShopService {
 
     @Transactional(readOnly = true)
     public Shop getShopByOwner(String username) {
-        log.info("Getting shop entity for user: {}", username);
+        log.debug("Getting shop entity for user: {}", username);
         
         // For admin users, return first active shop as demo
         if ("admin".equals(username) || "superadmin".equals(username)) {
@@ -667,7 +671,7 @@ public class ShopService {
         // Get the user's email from the database
         User user = userRepository.findByUsername(username).orElse(null);
         if (user != null && user.getEmail() != null) {
-            log.info("Looking for shop by owner email: {}", user.getEmail());
+            log.debug("Looking for shop by owner email: {}", user.getEmail());
             return shopRepository.findByOwnerEmail(user.getEmail()).orElse(null);
         }
         
@@ -737,66 +741,28 @@ public class ShopService {
             "state", shop.getState()
         ));
 
-        // Calculate real order metrics
-        Long totalOrders = orderRepository.countOrdersByShop(shop.getId());
-        BigDecimal totalRevenue = orderRepository.getTotalRevenueByShop(shop.getId());
-        if (totalRevenue == null) totalRevenue = BigDecimal.ZERO;
-
-        BigDecimal avgOrderValue = orderRepository.getAverageOrderValueByShop(shop.getId());
-        if (avgOrderValue == null) avgOrderValue = BigDecimal.ZERO;
-
-        // Get status breakdown
-        List<Object[]> statusBreakdownData = orderRepository.getOrderStatusDistribution(shop.getId());
-        Map<String, Long> statusBreakdown = new HashMap<>();
-        statusBreakdown.put("PENDING", 0L);
-        statusBreakdown.put("CONFIRMED", 0L);
-        statusBreakdown.put("PREPARING", 0L);
-        statusBreakdown.put("READY", 0L);
-        statusBreakdown.put("OUT_FOR_DELIVERY", 0L);
-        statusBreakdown.put("DELIVERED", 0L);
-        statusBreakdown.put("CANCELLED", 0L);
-
-        long completedOrders = 0;
-        for (Object[] row : statusBreakdownData) {
-            String orderStatus = row[0].toString();
-            Long count = (Long) row[1];
-            statusBreakdown.put(orderStatus, count);
-            if ("DELIVERED".equals(orderStatus)) {
-                completedOrders += count;
-            }
-        }
-
-        // Get today's orders (requires a custom query - using approximate for now)
-        LocalDateTime todayStart = LocalDateTime.now().toLocalDate().atStartOfDay();
-        Long todayOrders = orderRepository.countByShopIdAndCreatedAtAfter(shop.getId(), todayStart);
-        if (todayOrders == null) todayOrders = 0L;
-
-        BigDecimal todayRevenue = orderRepository.getTotalRevenueByShopAndDate(shop.getId(), todayStart);
-        if (todayRevenue == null) todayRevenue = BigDecimal.ZERO;
-
-        // Get monthly revenue (last 30 days)
-        LocalDateTime monthStart = LocalDateTime.now().minusDays(30);
-        BigDecimal monthlyRevenue = orderRepository.getTotalRevenueByShopAndDate(shop.getId(), monthStart);
-        if (monthlyRevenue == null) monthlyRevenue = BigDecimal.ZERO;
+        // Order metrics from the incrementally maintained per-shop counters
+        ShopOrderMetricsService.ShopOrderMetrics metrics = shopOrderMetricsService.getMetrics(shop.getId());
+        long completedOrders = metrics.count(Order.OrderStatus.DELIVERED);
 
         dashboard.put("orderMetrics", Map.of(
-            "totalOrders", totalOrders != null ? totalOrders.intValue() : 0,
-            "todayOrders", todayOrders.intValue(),
-            "pendingOrders", statusBreakdown.get("PENDING").intValue(),
+            "totalOrders", (int) metrics.totalOrders(),
+            "todayOrders", (int) metrics.todayOrders(),
+            "pendingOrders", (int) metrics.count(Order.OrderStatus.PENDING),
             "completedOrders", (int) completedOrders,
-            "cancelledOrders", statusBreakdown.get("CANCELLED").intValue(),
-            "totalRevenue", totalRevenue,
-            "todayRevenue", todayRevenue,
-            "monthlyRevenue", monthlyRevenue,
-            "averageOrderValue", avgOrderValue
+            "cancelledOrders", (int) metrics.count(Order.OrderStatus.CANCELLED),
+            "totalRevenue", metrics.totalRevenue(),
+            "todayRevenue", metrics.todayRevenue(),
+            "monthlyRevenue", metrics.last30DaysRevenue(),
+            "averageOrderValue", metrics.averageOrderValue()
         ));
 
         // Calculate real product metrics
         long totalProducts = shopProductRepository.countByShop(shop);
         long activeProducts = shopProductRepository.countAvailableProductsByShop(shop);
         long inactiveProducts = totalProducts - activeProducts;
-        long outOfStockProducts = shopProductRepository.findOutOfStockProducts(shop).size();
-        long lowStockProducts = shopProductRepository.findLowStockProducts(shop).size();
+        long outOfStockProducts = shopProductRepository.countOutOfStockProducts(shop);
+        long lowStockProducts = shopProductRepository.countLowStockProducts(shop);
 
         dashboard.put("productMetrics", Map.of(
             "totalProducts", (int) totalProducts,
@@ -872,30 +838,13 @@ public class ShopService {
                 .map(order -> convertToOrderResponse(order, orderAssignmentMap.get(order.getId())))
                 .toList();
         
-        // Calculate summary statistics
-        Long totalOrders = orderRepository.countOrdersByShop(shop.getId());
-        BigDecimal totalRevenue = orderRepository.getTotalRevenueByShop(shop.getId());
-        if (totalRevenue == null) totalRevenue = BigDecimal.ZERO;
-        
-        BigDecimal avgOrderValue = orderRepository.getAverageOrderValueByShop(shop.getId());
-        if (avgOrderValue == null) avgOrderValue = BigDecimal.ZERO;
-        
-        // Get status breakdown
-        List<Object[]> statusBreakdownData = orderRepository.getOrderStatusDistribution(shop.getId());
+        // Summary statistics from the per-shop order counters
+        ShopOrderMetricsService.ShopOrderMetrics metrics = shopOrderMetricsService.getMetrics(shop.getId());
         Map<String, Long> statusBreakdown = new HashMap<>();
-        statusBreakdown.put("PENDING", 0L);
-        statusBreakdown.put("CONFIRMED", 0L);
-        statusBreakdown.put("PREPARING", 0L);
-        statusBreakdown.put("READY", 0L);
-        statusBreakdown.put("OUT_FOR_DELIVERY", 0L);
-        statusBreakdown.put("DELIVERED", 0L);
-        statusBreakdown.put("CANCELLED", 0L);
-        
-        for (Object[] row : statusBreakdownData) {
-            String orderStatus = row[0].toString();
-            Long count = (Long) row[1];
-            statusBreakdown.put(orderStatus, count);
+        for (String status : List.of("PENDING", "CONFIRMED", "PREPARING", "READY", "OUT_FOR_DELIVERY", "DELIVERED", "CANCELLED")) {
+            statusBreakdown.put(status, 0L);
         }
+        metrics.statusCounts().forEach((status, count) -> statusBreakdown.put(status.name(), count));
         
         Map<String, Object> ordersData = new HashMap<>();
         ordersData.put("orders", orderResponses);
@@ -908,9 +857,9 @@ public class ShopService {
         
         // Summary data
         ordersData.put("summary", Map.of(
-            "totalOrders", totalOrders,
-            "totalRevenue", totalRevenue,
-            "avgOrderValue", avgOrderValue,
+            "totalOrders", metrics.totalOrders(),
+            "totalRevenue", metrics.totalRevenue(),
+            "avgOrderValue", metrics.averageOrderValue(),
             "statusBreakdown", statusBreakdown
         ));
         
@@ -934,58 +883,27 @@ public class ShopService {
             "days", days
         ));
         
-        // Sales analytics (mock data for now)
-        analytics.put("salesAnalytics", Map.of(
-            "totalRevenue", BigDecimal.ZERO,
-            "totalOrders", 0,
-            "avgOrderValue", BigDecimal.ZERO,
-            "revenueGrowth", 0.0,
-            "orderGrowth", 0.0,
-            "dailyRevenue", List.of(),
-            "dailyOrders", List.of(),
-            "hourlyPattern", Map.of(),
-            "weekdayPattern", Map.of()
-        ));
-        
-        // Customer analytics
-        analytics.put("customerAnalytics", Map.of(
-            "totalCustomers", 0,
-            "newCustomers", 0,
-            "returningCustomers", 0,
-            "customerRetentionRate", 0.0,
-            "avgOrdersPerCustomer", 0.0,
-            "topCustomers", List.of()
-        ));
-        
-        // Product analytics
-        analytics.put("productAnalytics", Map.of(
-            "totalProducts", 0,
-            "bestSellingProducts", List.of(),
-            "lowPerformingProducts", List.of(),
-            "categoryPerformance", Map.of(),
-            "stockAnalysis", Map.of(
-                "totalItems", 0,
-                "lowStock", 0,
-                "outOfStock", 0,
-                "overStock", 0
-            )
-        ));
-        
-        // Performance metrics
-        analytics.put("performanceMetrics", Map.of(
-            "orderFulfillmentRate", 0.0,
-            "avgDeliveryTime", "N/A",
-            "customerSatisfactionScore", 0.0,
-            "returnRate", 0.0,
-            "cancellationRate", 0.0
-        ));
-        
-        // Geographic analytics
-        analytics.put("geographicAnalytics", Map.of(
-            "ordersByLocation", Map.of(),
-            "deliveryZones", List.of(),
-            "topDeliveryAreas", List.of()
+        // Sales, customer, product, performance and geographic sections from the daily rollups
+        Map<String, Object> rollups = shopAnalyticsRollupService.getAnalytics(shop.getId(), days);
+        analytics.putAll(rollups);
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> productAnalytics = (Map<String, Object>) rollups.get("productAnalytics");
+        productAnalytics.put("totalProducts", shopProductRepository.countByShop(shop));
+        productAnalytics.put("stockAnalysis", Map.of(
+            "totalItems", shopProductRepository.countAvailableProductsByShop(shop),
+            "lowStock", shopProductRepository.countLowStockProducts(shop),
+            "outOfStock", shopProductRepository.countOutOfStockProducts(shop),
+            "overStock", 0
         ));
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> performanceMetrics = (Map<String, Object>) rollups.get("performanceMetrics");
+        performanceMetrics.put("customerSatisfactionScore", shop.getRating() != null ? shop.getRating() : BigDecimal.ZERO);
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> geographicAnalytics = (Map<String, Object>) rollups.get("geographicAnalytics");
+        geographicAnalytics.put("deliveryZones", List.of());
         
         return analytics;
     }
@@ -0,0 +1,22 @@
+-- Content-addressed upload store (ContentStoreService). Each distinct file is
+-- kept once on disk at uploads/cas/<aa>/<bb>/<sha256>.<ext> and has one row
+-- here counting the records that point at it.
+--
+-- A blob with ref_count = 0 is removed by the collector once
+-- collectable_after has passed: a grace period after the last release, or the
+-- retention window for transient files (shared bills) that are never
+-- referenced from a table.
+
+CREATE TABLE IF NOT EXISTS content_blobs (
+    sha256 CHAR(64) PRIMARY KEY,
+    extension VARCHAR(10) NOT NULL,
+    size_bytes BIGINT NOT NULL,
+    ref_count INTEGER NOT NULL DEFAULT 0,
+    collectable_after TIMESTAMP,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    last_stored_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- The collector only ever looks at unreferenced blobs
+CREATE INDEX IF NOT EXISTS idx_content_blobs_collectable
+    ON content_blobs (collectable_after) WHERE ref_count = 0;
@@ -0,0 +1,30 @@
+-- Image moderation verdicts, keyed by content hash, with a 64-bit perceptual
+-- hash (dHash) so near-duplicates (re-encoded or resized copies of an image
+-- already checked) reuse the verdict instead of calling the provider again.
+-- phash is NULL for images the server can't decode.
+
+CREATE TABLE IF NOT EXISTS image_moderation_verdicts (
+    sha256 CHAR(64) PRIMARY KEY,
+    phash BIGINT,
+    verdict VARCHAR(10) NOT NULL,        -- SAFE, UNSAFE
+    provider VARCHAR(20) NOT NULL,       -- NUDENET, GEMINI, PHASH (near-duplicate match)
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_image_moderation_verdicts_created
+    ON image_moderation_verdicts (created_at);
+
+-- Auto-approved posts waiting in PENDING_APPROVAL for the verdict on one of
+-- their images. ImageModerationHoldService approves the post once all its
+-- holds are cleared, or rejects it on an UNSAFE verdict.
+CREATE TABLE IF NOT EXISTS image_moderation_holds (
+    id BIGSERIAL PRIMARY KEY,
+    post_type VARCHAR(30) NOT NULL,
+    post_id BIGINT NOT NULL,
+    sha256 CHAR(64) NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT uk_image_moderation_holds UNIQUE (post_type, post_id, sha256)
+);
+
+CREATE INDEX IF NOT EXISTS idx_image_moderation_holds_sha256
+    ON image_moderation_holds (sha256);
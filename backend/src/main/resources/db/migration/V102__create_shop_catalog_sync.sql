@@ -0,0 +1,110 @@
+-- Catalog change versions for the offline POS delta sync
+-- (GET /api/pos/products/{shopId}/changes?since=...).
+--
+-- Every write to a shop_products row stamps it (sync_version) with the id of
+-- the writing transaction; a deleted row, or one moved to another shop, leaves
+-- a tombstone stamped the same way. A reader hands the client the xmin of its
+-- snapshot as the next cursor: every transaction below it has finished, so a
+-- client asking for stamps >= its cursor never misses a commit, however the
+-- writers interleave. Rows from transactions still running at the read come
+-- again on the next sync, which the client applies idempotently. No lock is
+-- taken, so concurrent POS bills on the same products don't queue on a counter.
+--
+-- Edits to the master product fields and images the POS shows re-stamp the
+-- shop products built on them. PosCatalogSyncService prunes old tombstones and
+-- raises the shop's min_version past them; a client behind it gets a full reset.
+
+ALTER TABLE shop_products ADD COLUMN IF NOT EXISTS sync_version BIGINT NOT NULL DEFAULT 1;
+
+CREATE TABLE IF NOT EXISTS shop_catalog_sync (
+    shop_id BIGINT PRIMARY KEY,
+    min_version BIGINT NOT NULL DEFAULT 0
+);
+
+CREATE TABLE IF NOT EXISTS shop_product_tombstones (
+    shop_product_id BIGINT PRIMARY KEY,
+    shop_id BIGINT NOT NULL,
+    version BIGINT NOT NULL,
+    deleted_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_shop_products_shop_sync_version ON shop_products (shop_id, sync_version);
+CREATE INDEX IF NOT EXISTS idx_shop_product_tombstones_shop_version ON shop_product_tombstones (shop_id, version);
+CREATE INDEX IF NOT EXISTS idx_shop_product_tombstones_deleted_at ON shop_product_tombstones (deleted_at);
+
+CREATE OR REPLACE FUNCTION stamp_shop_catalog_version()
+RETURNS TRIGGER AS $$
+DECLARE
+    stamp BIGINT;
+BEGIN
+    IF TG_OP = 'UPDATE'
+       AND NEW.sync_version IS NOT DISTINCT FROM OLD.sync_version
+       AND NEW.shop_id IS NOT DISTINCT FROM OLD.shop_id
+       AND NEW.master_product_id IS NOT DISTINCT FROM OLD.master_product_id
+       AND NEW.price IS NOT DISTINCT FROM OLD.price
+       AND NEW.stock_quantity IS NOT DISTINCT FROM OLD.stock_quantity
+       AND NEW.track_inventory IS NOT DISTINCT FROM OLD.track_inventory
+       AND NEW.is_available IS NOT DISTINCT FROM OLD.is_available
+       AND NEW.custom_name IS NOT DISTINCT FROM OLD.custom_name
+       AND NEW.updated_at IS NOT DISTINCT FROM OLD.updated_at THEN
+        RETURN NEW; -- nothing the POS caches changed
+    END IF;
+
+    stamp := pg_current_xact_id()::text::BIGINT;
+
+    IF TG_OP = 'DELETE' OR (TG_OP = 'UPDATE' AND NEW.shop_id IS DISTINCT FROM OLD.shop_id) THEN
+        INSERT INTO shop_product_tombstones (shop_product_id, shop_id, version, deleted_at)
+        VALUES (OLD.id, OLD.shop_id, stamp, CURRENT_TIMESTAMP)
+        ON CONFLICT (shop_product_id) DO UPDATE
+           SET shop_id = EXCLUDED.shop_id, version = EXCLUDED.version, deleted_at = EXCLUDED.deleted_at;
+        IF TG_OP = 'DELETE' THEN
+            RETURN OLD;
+        END IF;
+    END IF;
+
+    NEW.sync_version := stamp;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trigger_shop_catalog_version ON shop_products;
+CREATE TRIGGER trigger_shop_catalog_version
+    BEFORE INSERT OR UPDATE OR DELETE ON shop_products
+    FOR EACH ROW EXECUTE FUNCTION stamp_shop_catalog_version();
+
+-- Master product fields shown by the POS: re-stamp the shop products using it.
+-- Setting sync_version to 0 is only a marker; the trigger above replaces it.
+CREATE OR REPLACE FUNCTION touch_shop_products_of_master()
+RETURNS TRIGGER AS $$
+DECLARE
+    master_id BIGINT;
+BEGIN
+    IF TG_TABLE_NAME = 'master_products' THEN
+        master_id := NEW.id;
+    ELSIF TG_OP = 'DELETE' THEN
+        master_id := OLD.master_product_id;
+    ELSE
+        master_id := NEW.master_product_id;
+    END IF;
+    UPDATE shop_products SET sync_version = 0 WHERE master_product_id = master_id;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trigger_shop_catalog_master ON master_products;
+CREATE TRIGGER trigger_shop_catalog_master
+    AFTER UPDATE OF name, name_tamil, sku, barcode, category_id, base_unit, base_weight ON master_products
+    FOR EACH ROW
+    WHEN (OLD.name IS DISTINCT FROM NEW.name
+          OR OLD.name_tamil IS DISTINCT FROM NEW.name_tamil
+          OR OLD.sku IS DISTINCT FROM NEW.sku
+          OR OLD.barcode IS DISTINCT FROM NEW.barcode
+          OR OLD.category_id IS DISTINCT FROM NEW.category_id
+          OR OLD.base_unit IS DISTINCT FROM NEW.base_unit
+          OR OLD.base_weight IS DISTINCT FROM NEW.base_weight)
+    EXECUTE FUNCTION touch_shop_products_of_master();
+
+DROP TRIGGER IF EXISTS trigger_shop_catalog_master_image ON master_product_images;
+CREATE TRIGGER trigger_shop_catalog_master_image
+    AFTER INSERT OR DELETE OR UPDATE OF image_url, is_primary ON master_product_images
+    FOR EACH ROW EXECUTE FUNCTION touch_shop_products_of_master();
@@ -0,0 +1,17 @@
+-- Server-side customer carts. Carts live in memory on the API node
+-- (CartService) and are written here behind the request, a few seconds
+-- after the last change, so a restart or another node picks them up.
+-- items is the JSON list of {shopProductId, quantity, specialInstructions,
+-- addedPrice}; addedPrice only flags a price change to the customer, the
+-- cart is always priced from shop_products.
+
+CREATE TABLE IF NOT EXISTS customer_carts (
+    customer_id BIGINT PRIMARY KEY REFERENCES customers(id) ON DELETE CASCADE,
+    shop_id BIGINT NOT NULL,
+    items TEXT NOT NULL,
+    promo_code VARCHAR(50),
+    updated_at TIMESTAMP NOT NULL DEFAULT NOW()
+);
+
+-- Abandoned carts are purged by age
+CREATE INDEX IF NOT EXISTS idx_customer_carts_updated_at ON customer_carts(updated_at);
@@ -0,0 +1,5 @@
+-- PromotionEngine reads usage deltas by used_at, and the usage claim checks
+-- a promotion's earlier uses by phone as well as by customer.
+
+CREATE INDEX IF NOT EXISTS idx_promotion_usage_used_at ON promotion_usage(used_at);
+CREATE INDEX IF NOT EXISTS idx_promotion_phone ON promotion_usage(promotion_id, customer_phone);
@@ -0,0 +1,36 @@
+-- Delivery partner earnings ledger, written by PartnerEarningsService.
+--
+-- partner_earning_entries: one row per delivered assignment (DELIVERY, at
+--   most one per assignment) or admin correction (ADJUSTMENT, may be
+--   negative). Rows are never updated or deleted; a wrong amount is fixed
+--   with an adjustment.
+-- partner_earning_buckets: running totals per (partner, period, period start)
+--   for DAY, WEEK (starting Monday), MONTH and TOTAL (period_start
+--   1970-01-01), raised in the same transaction as each entry, so the
+--   earnings tab reads four rows however many deliveries the partner has.
+--   Buckets can be rebuilt from the entries at any time.
+
+CREATE TABLE IF NOT EXISTS partner_earning_entries (
+    id BIGSERIAL PRIMARY KEY,
+    partner_id BIGINT NOT NULL,
+    entry_type VARCHAR(20) NOT NULL,
+    assignment_id BIGINT UNIQUE,
+    order_number VARCHAR(50),
+    amount NUMERIC(10, 2) NOT NULL,
+    note VARCHAR(500),
+    created_by VARCHAR(100),
+    earned_at TIMESTAMP NOT NULL
+);
+
+-- Recent-earnings feed, newest first
+CREATE INDEX IF NOT EXISTS idx_partner_earning_entries_feed
+    ON partner_earning_entries(partner_id, earned_at DESC, id DESC);
+
+CREATE TABLE IF NOT EXISTS partner_earning_buckets (
+    partner_id BIGINT NOT NULL,
+    period VARCHAR(10) NOT NULL,
+    period_start DATE NOT NULL,
+    amount NUMERIC(14, 2) NOT NULL DEFAULT 0,
+    deliveries BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (partner_id, period, period_start)
+);
@@ -0,0 +1,21 @@
+-- Per-user token cut-off, shared by every backend node. A row is written
+-- whenever a user's role or enabled state changes or the user is deleted
+-- (VerifiedTokenCache, from UserAccessChangedEvent, in the same transaction).
+-- The role claim of a JWT issued at or before tokens_valid_after is no longer
+-- trusted: the user is looked up again, and disabled or deleted users are
+-- refused. Nodes load every row at start and poll for newer ones, so a change
+-- made on another node, or before a restart, still holds. Keyed by username
+-- (the JWT subject) with no foreign key, so the row outlives a deleted user.
+
+CREATE TABLE IF NOT EXISTS user_token_cutoffs (
+    username VARCHAR(50) PRIMARY KEY,
+    tokens_valid_after TIMESTAMP NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_user_token_cutoffs_valid_after ON user_token_cutoffs(tokens_valid_after);
+
+-- Users already disabled: cut off every token issued so far
+INSERT INTO user_token_cutoffs (username, tokens_valid_after)
+SELECT username, NOW() FROM users
+WHERE is_active IS NOT TRUE OR status <> 'ACTIVE'
+ON CONFLICT (username) DO NOTHING;
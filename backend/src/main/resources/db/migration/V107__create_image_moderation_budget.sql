@@ -0,0 +1,6 @@
+-- Moderation provider calls per day, shared by every node, so
+-- content.moderation.daily_budget caps the whole deployment. One row a day.
+CREATE TABLE IF NOT EXISTS image_moderation_budget (
+    day DATE PRIMARY KEY,
+    calls INT NOT NULL DEFAULT 0
+);
@@ -0,0 +1,7 @@
+-- When a node last took a webhook payload for processing. A stale RECEIVED
+-- payload is replayed by whichever node's sweeper claims it first (UPDATE ...
+-- FOR UPDATE SKIP LOCKED); the claim keeps other nodes off it for a while.
+-- New rows count as claimed by the node that stored them.
+
+ALTER TABLE whatsapp_webhook_payloads
+    ADD COLUMN IF NOT EXISTS claimed_at TIMESTAMP NOT NULL DEFAULT NOW();
@@ -0,0 +1,17 @@
+-- Raw Meta webhook deliveries, stored before the order bot runs so the
+-- webhook can be acknowledged immediately. A worker pool processes the
+-- messages afterwards; rows left in RECEIVED (crash, full queue) are
+-- replayed by the ingestion sweeper.
+
+CREATE TABLE IF NOT EXISTS whatsapp_webhook_payloads (
+    id BIGSERIAL PRIMARY KEY,
+    raw_body TEXT NOT NULL,
+    message_count INT NOT NULL DEFAULT 0,
+    status VARCHAR(20) NOT NULL DEFAULT 'RECEIVED',
+    error VARCHAR(500),
+    received_at TIMESTAMP NOT NULL DEFAULT NOW(),
+    processed_at TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_whatsapp_webhook_payloads_status
+    ON whatsapp_webhook_payloads(status, received_at);
@@ -0,0 +1,15 @@
+-- Logged-out (revoked) JWTs, shared by every backend node. Only the token's
+-- SHA-256 is stored, with the token's own expiry: once a token has expired it
+-- is rejected anyway, so its row is deleted by the revocation sweeper.
+-- revoked_at uses the DB clock so nodes can poll incrementally without
+-- depending on their own clocks.
+
+CREATE TABLE IF NOT EXISTS revoked_tokens (
+    id BIGSERIAL PRIMARY KEY,
+    token_hash VARCHAR(64) NOT NULL UNIQUE,
+    expires_at TIMESTAMP NOT NULL,
+    revoked_at TIMESTAMP NOT NULL DEFAULT NOW()
+);
+
+CREATE INDEX IF NOT EXISTS idx_revoked_tokens_revoked_at ON revoked_tokens(revoked_at);
+CREATE INDEX IF NOT EXISTS idx_revoked_tokens_expires_at ON revoked_tokens(expires_at);
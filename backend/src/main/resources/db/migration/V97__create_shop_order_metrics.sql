@@ -0,0 +1,30 @@
+-- Per-shop order counters, maintained in the same transaction as every order
+-- insert/status change (see ShopOrderMetricsService) so shop dashboards read a
+-- handful of rows instead of aggregating the shop's whole order history.
+--
+-- shop_order_status_metrics: lifetime, one row per (shop, current status).
+--   An order moves from its old status row to the new one on each transition.
+-- shop_order_daily_metrics: one row per (shop, day the order was placed).
+--
+-- "Revenue" follows the existing dashboard rule: paid, or delivered/completed.
+-- Both tables can be rebuilt from orders at any time (nightly + on demand).
+
+CREATE TABLE IF NOT EXISTS shop_order_status_metrics (
+    shop_id BIGINT NOT NULL,
+    status VARCHAR(30) NOT NULL,
+    order_count BIGINT NOT NULL DEFAULT 0,
+    revenue_count BIGINT NOT NULL DEFAULT 0,
+    revenue_amount NUMERIC(14, 2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (shop_id, status)
+);
+
+CREATE TABLE IF NOT EXISTS shop_order_daily_metrics (
+    shop_id BIGINT NOT NULL,
+    metric_date DATE NOT NULL,
+    orders_placed BIGINT NOT NULL DEFAULT 0,
+    items_placed BIGINT NOT NULL DEFAULT 0,
+    cancelled_count BIGINT NOT NULL DEFAULT 0,
+    revenue_count BIGINT NOT NULL DEFAULT 0,
+    revenue_amount NUMERIC(14, 2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (shop_id, metric_date)
+);
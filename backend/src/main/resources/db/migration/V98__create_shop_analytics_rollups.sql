@@ -0,0 +1,66 @@
+-- Daily per-shop fact tables behind the shop analytics endpoint, filled by
+-- ShopAnalyticsRollupService (incremental job for today/yesterday, nightly job
+-- for the last week, backfill on first start). A day's rows are always
+-- replaced as a whole, so re-running a rollup is safe.
+--
+-- Dates/hours are by order placement time. Revenue follows the dashboard
+-- rule: paid, or delivered/completed.
+
+CREATE TABLE IF NOT EXISTS shop_analytics_daily (
+    shop_id BIGINT NOT NULL,
+    metric_date DATE NOT NULL,
+    orders BIGINT NOT NULL DEFAULT 0,
+    revenue_orders BIGINT NOT NULL DEFAULT 0,
+    revenue NUMERIC(14, 2) NOT NULL DEFAULT 0,
+    completed_orders BIGINT NOT NULL DEFAULT 0,
+    cancelled_orders BIGINT NOT NULL DEFAULT 0,
+    returned_orders BIGINT NOT NULL DEFAULT 0,
+    delivered_with_time BIGINT NOT NULL DEFAULT 0,
+    delivery_minutes_total BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (shop_id, metric_date)
+);
+
+CREATE TABLE IF NOT EXISTS shop_analytics_hourly (
+    shop_id BIGINT NOT NULL,
+    metric_date DATE NOT NULL,
+    hour_of_day SMALLINT NOT NULL,
+    orders BIGINT NOT NULL DEFAULT 0,
+    revenue NUMERIC(14, 2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (shop_id, metric_date, hour_of_day)
+);
+
+-- product_id is the shop_product id (0 for items whose product was deleted)
+CREATE TABLE IF NOT EXISTS shop_analytics_products (
+    shop_id BIGINT NOT NULL,
+    metric_date DATE NOT NULL,
+    product_id BIGINT NOT NULL,
+    product_name VARCHAR(255),
+    category_name VARCHAR(255),
+    quantity BIGINT NOT NULL DEFAULT 0,
+    revenue NUMERIC(14, 2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (shop_id, metric_date, product_id)
+);
+
+CREATE TABLE IF NOT EXISTS shop_analytics_areas (
+    shop_id BIGINT NOT NULL,
+    metric_date DATE NOT NULL,
+    area VARCHAR(100) NOT NULL,
+    orders BIGINT NOT NULL DEFAULT 0,
+    revenue NUMERIC(14, 2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (shop_id, metric_date, area)
+);
+
+-- One row per (shop, customer): new vs returning and top customers for any
+-- window ending today come straight from first/last order times.
+CREATE TABLE IF NOT EXISTS shop_customer_stats (
+    shop_id BIGINT NOT NULL,
+    customer_id BIGINT NOT NULL,
+    first_order_at TIMESTAMP NOT NULL,
+    last_order_at TIMESTAMP NOT NULL,
+    order_count BIGINT NOT NULL DEFAULT 0,
+    revenue NUMERIC(14, 2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (shop_id, customer_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_shop_customer_stats_last_order
+    ON shop_customer_stats(shop_id, last_order_at);
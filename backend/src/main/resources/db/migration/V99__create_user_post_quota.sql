@@ -0,0 +1,113 @@
+-- Per-user count of active posts (PENDING_APPROVAL or APPROVED) across the
+-- nine classified-post modules, read by the global free-post limit check
+-- instead of nine COUNT(*) subqueries per post creation.
+--
+-- The count is kept by an AFTER trigger on each post table, so every write
+-- path (JPA saves, bulk JPQL expiry/approval, native SQL, other nodes) adjusts
+-- it in the same transaction. The trigger only fires when status or the owner
+-- column changes, not on view/report counter updates.
+-- PostQuotaLedgerService reconciles the table against the post tables nightly.
+
+CREATE TABLE IF NOT EXISTS user_post_quota (
+    user_id BIGINT PRIMARY KEY,
+    active_posts INTEGER NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- TG_ARGV[0]: name of the table's owner column (seller_user_id / owner_user_id)
+CREATE OR REPLACE FUNCTION adjust_user_post_quota()
+RETURNS TRIGGER AS $$
+DECLARE
+    old_user BIGINT;
+    new_user BIGINT;
+    old_active BOOLEAN := FALSE;
+    new_active BOOLEAN := FALSE;
+BEGIN
+    IF TG_OP IN ('UPDATE', 'DELETE') THEN
+        old_user := (to_jsonb(OLD) ->> TG_ARGV[0])::BIGINT;
+        old_active := OLD.status IN ('PENDING_APPROVAL', 'APPROVED');
+    END IF;
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        new_user := (to_jsonb(NEW) ->> TG_ARGV[0])::BIGINT;
+        new_active := NEW.status IN ('PENDING_APPROVAL', 'APPROVED');
+    END IF;
+
+    IF old_active AND new_active AND old_user IS NOT DISTINCT FROM new_user THEN
+        RETURN NULL;
+    END IF;
+    IF old_active AND old_user IS NOT NULL THEN
+        UPDATE user_post_quota
+           SET active_posts = GREATEST(active_posts - 1, 0), updated_at = CURRENT_TIMESTAMP
+         WHERE user_id = old_user;
+    END IF;
+    IF new_active AND new_user IS NOT NULL THEN
+        INSERT INTO user_post_quota (user_id, active_posts, updated_at)
+        VALUES (new_user, 1, CURRENT_TIMESTAMP)
+        ON CONFLICT (user_id) DO UPDATE
+           SET active_posts = user_post_quota.active_posts + 1, updated_at = CURRENT_TIMESTAMP;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trigger_user_post_quota ON marketplace_posts;
+CREATE TRIGGER trigger_user_post_quota
+    AFTER INSERT OR DELETE OR UPDATE OF status, seller_user_id ON marketplace_posts
+    FOR EACH ROW EXECUTE FUNCTION adjust_user_post_quota('seller_user_id');
+
+DROP TRIGGER IF EXISTS trigger_user_post_quota ON farmer_products;
+CREATE TRIGGER trigger_user_post_quota
+    AFTER INSERT OR DELETE OR UPDATE OF status, seller_user_id ON farmer_products
+    FOR EACH ROW EXECUTE FUNCTION adjust_user_post_quota('seller_user_id');
+
+DROP TRIGGER IF EXISTS trigger_user_post_quota ON labour_posts;
+CREATE TRIGGER trigger_user_post_quota
+    AFTER INSERT OR DELETE OR UPDATE OF status, seller_user_id ON labour_posts
+    FOR EACH ROW EXECUTE FUNCTION adjust_user_post_quota('seller_user_id');
+
+DROP TRIGGER IF EXISTS trigger_user_post_quota ON travel_posts;
+CREATE TRIGGER trigger_user_post_quota
+    AFTER INSERT OR DELETE OR UPDATE OF status, seller_user_id ON travel_posts
+    FOR EACH ROW EXECUTE FUNCTION adjust_user_post_quota('seller_user_id');
+
+DROP TRIGGER IF EXISTS trigger_user_post_quota ON parcel_service_posts;
+CREATE TRIGGER trigger_user_post_quota
+    AFTER INSERT OR DELETE OR UPDATE OF status, seller_user_id ON parcel_service_posts
+    FOR EACH ROW EXECUTE FUNCTION adjust_user_post_quota('seller_user_id');
+
+DROP TRIGGER IF EXISTS trigger_user_post_quota ON rental_posts;
+CREATE TRIGGER trigger_user_post_quota
+    AFTER INSERT OR DELETE OR UPDATE OF status, seller_user_id ON rental_posts
+    FOR EACH ROW EXECUTE FUNCTION adjust_user_post_quota('seller_user_id');
+
+DROP TRIGGER IF EXISTS trigger_user_post_quota ON real_estate_posts;
+CREATE TRIGGER trigger_user_post_quota
+    AFTER INSERT OR DELETE OR UPDATE OF status, owner_user_id ON real_estate_posts
+    FOR EACH ROW EXECUTE FUNCTION adjust_user_post_quota('owner_user_id');
+
+DROP TRIGGER IF EXISTS trigger_user_post_quota ON womens_corner_posts;
+CREATE TRIGGER trigger_user_post_quota
+    AFTER INSERT OR DELETE OR UPDATE OF status, seller_user_id ON womens_corner_posts
+    FOR EACH ROW EXECUTE FUNCTION adjust_user_post_quota('seller_user_id');
+
+DROP TRIGGER IF EXISTS trigger_user_post_quota ON local_shop_posts;
+CREATE TRIGGER trigger_user_post_quota
+    AFTER INSERT OR DELETE OR UPDATE OF status, seller_user_id ON local_shop_posts
+    FOR EACH ROW EXECUTE FUNCTION adjust_user_post_quota('seller_user_id');
+
+-- Initial counts (triggers are in place, so nothing is missed after this)
+INSERT INTO user_post_quota (user_id, active_posts)
+SELECT user_id, COUNT(*) FROM (
+    SELECT seller_user_id AS user_id FROM marketplace_posts WHERE status IN ('PENDING_APPROVAL', 'APPROVED')
+    UNION ALL SELECT seller_user_id FROM farmer_products WHERE status IN ('PENDING_APPROVAL', 'APPROVED')
+    UNION ALL SELECT seller_user_id FROM labour_posts WHERE status IN ('PENDING_APPROVAL', 'APPROVED')
+    UNION ALL SELECT seller_user_id FROM travel_posts WHERE status IN ('PENDING_APPROVAL', 'APPROVED')
+    UNION ALL SELECT seller_user_id FROM parcel_service_posts WHERE status IN ('PENDING_APPROVAL', 'APPROVED')
+    UNION ALL SELECT seller_user_id FROM rental_posts WHERE status IN ('PENDING_APPROVAL', 'APPROVED')
+    UNION ALL SELECT owner_user_id FROM real_estate_posts WHERE status IN ('PENDING_APPROVAL', 'APPROVED')
+    UNION ALL SELECT seller_user_id FROM womens_corner_posts WHERE status IN ('PENDING_APPROVAL', 'APPROVED')
+    UNION ALL SELECT seller_user_id FROM local_shop_posts WHERE status IN ('PENDING_APPROVAL', 'APPROVED')
+) active
+WHERE user_id IS NOT NULL
+GROUP BY user_id
+ON CONFLICT (user_id) DO UPDATE SET active_posts = EXCLUDED.active_posts, updated_at = CURRENT_TIMESTAMP;
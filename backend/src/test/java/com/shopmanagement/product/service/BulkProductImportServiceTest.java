@@ -0,0 +1,157 @@
+package com.shopmanagement.product.service;
+
+import com.shopmanagement.product.dto.BulkImportResponse;
+import com.shopmanagement.product.dto.MasterProductResponse;
+import com.shopmanagement.product.entity.MasterProduct;
+import com.shopmanagement.product.entity.MasterProductImage;
+import com.shopmanagement.product.entity.ProductCategory;
+import com.shopmanagement.product.repository.MasterProductImageRepository;
+import com.shopmanagement.product.repository.MasterProductRepository;
+import com.shopmanagement.product.repository.ProductCategoryRepository;
+import com.shopmanagement.product.repository.ShopProductRepository;
+import com.shopmanagement.service.ContentStoreService;
+import com.shopmanagement.service.ImageDerivativeService;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class BulkProductImportServiceTest {
+
+    private static final String STORED_URL = "/uploads/cas/ab/cd/" + "abcd".repeat(16) + ".jpg";
+
+    @TempDir
+    Path productImages;
+
+    private JdbcTemplate jdbcTemplate;
+    private PlatformTransactionManager transactionManager;
+    private MasterProductService masterProductService;
+    private MasterProductRepository masterProductRepository;
+    private MasterProductImageRepository masterProductImageRepository;
+    private ContentStoreService contentStoreService;
+    private BulkProductImportService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        masterProductService = mock(MasterProductService.class);
+        masterProductRepository = mock(MasterProductRepository.class);
+        masterProductImageRepository = mock(MasterProductImageRepository.class);
+        ProductCategoryRepository productCategoryRepository = mock(ProductCategoryRepository.class);
+        contentStoreService = mock(ContentStoreService.class);
+
+        when(productCategoryRepository.findByNameIgnoreCase("Uncategorized"))
+                .thenReturn(Optional.of(ProductCategory.builder().id(1L).name("Uncategorized").build()));
+        when(contentStoreService.store(any(InputStream.class), eq("jpg"))).thenReturn(new ContentStoreService.StoredContent(
+                STORED_URL, productImages.resolve("stored.jpg"), "abcd".repeat(16), 10, false));
+        when(masterProductService.createProduct(any()))
+                .thenReturn(MasterProductResponse.builder().id(11L).build(), MasterProductResponse.builder().id(12L).build());
+        when(masterProductRepository.findById(anyLong())).thenReturn(Optional.of(MasterProduct.builder().name("Rice").build()));
+        when(masterProductImageRepository.saveAndFlush(any(MasterProductImage.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        service = new BulkProductImportService(masterProductService, mock(ShopProductService.class), masterProductRepository,
+                masterProductImageRepository, productCategoryRepository, mock(ShopProductRepository.class), jdbcTemplate,
+                transactionManager, mock(ApplicationEventPublisher.class), mock(ImageDerivativeService.class),
+                contentStoreService);
+        ReflectionTestUtils.setField(service, "self", service);
+        ReflectionTestUtils.setField(service, "productImagesPath", productImages.toString());
+        ReflectionTestUtils.setField(service, "concurrentJobs", 1);
+        ReflectionTestUtils.setField(service, "imageThreads", 1);
+        ReflectionTestUtils.setField(service, "jobRetentionMinutes", 60L);
+        service.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.stop();
+    }
+
+    /** Header plus one row per {name, sku, imagePath}. */
+    private static MockMultipartFile workbook(String[]... rows) throws Exception {
+        try (XSSFWorkbook workbook = new XSSFWorkbook(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            var sheet = workbook.createSheet("Products");
+            Row header = sheet.createRow(0);
+            header.createCell(0).setCellValue("Name");
+            header.createCell(6).setCellValue("SKU");
+            header.createCell(23).setCellValue("Image");
+            for (int i = 0; i < rows.length; i++) {
+                Row row = sheet.createRow(i + 1);
+                row.createCell(0).setCellValue(rows[i][0]);
+                row.createCell(6).setCellValue(rows[i][1]);
+                row.createCell(23).setCellValue(rows[i][2]);
+            }
+            workbook.write(out);
+            return new MockMultipartFile("file", "products.xlsx",
+                    "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", out.toByteArray());
+        }
+    }
+
+    private static MockMultipartFile upload(String name) {
+        return new MockMultipartFile("images", name, "image/jpeg", ("bytes of " + name).getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void rowsOfAFailedChunkKeepTheirUploadedImage() throws Exception {
+        when(transactionManager.getTransaction(any())).thenThrow(new CannotCreateTransactionException("db down"));
+
+        BulkImportResponse response = service.importMasterProducts(
+                workbook(new String[]{"Ponni Rice", "RICE-1", "rice.jpg"}, new String[]{"Groundnut Oil", "OIL-1", "oil.jpg"}),
+                List.of(upload("rice.jpg")));
+
+        assertEquals(2, response.getSuccessCount());
+        ArgumentCaptor<MasterProductImage> linked = ArgumentCaptor.forClass(MasterProductImage.class);
+        verify(masterProductImageRepository, times(2)).saveAndFlush(linked.capture());
+        assertEquals(List.of(STORED_URL, "/uploads/products/master/oil.jpg"),
+                linked.getAllValues().stream().map(MasterProductImage::getImageUrl).toList());
+        verify(contentStoreService).retain(STORED_URL);
+        verify(contentStoreService).release(STORED_URL);
+        verify(contentStoreService, never()).release("/uploads/products/master/oil.jpg");
+    }
+
+    @Test
+    void uploadNoRowLinkedIsReleased() throws Exception {
+        doAnswer(inv -> {
+            ResultSet rs = mock(ResultSet.class);
+            when(rs.getString("sku")).thenReturn("RICE-1");
+            when(rs.getLong("id")).thenReturn(5L);
+            inv.<RowCallbackHandler>getArgument(1).processRow(rs);
+            return null;
+        }).when(jdbcTemplate).query(contains("SELECT id, sku FROM master_products"), any(RowCallbackHandler.class),
+                any(Object[].class));
+
+        BulkImportResponse response = service.importMasterProducts(
+                workbook(new String[]{"Ponni Rice", "RICE-1", "rice.jpg"}), List.of(upload("rice.jpg")));
+
+        assertEquals(1, response.getFailureCount());
+        verify(contentStoreService, never()).retain(anyString());
+        verify(contentStoreService).release(STORED_URL);
+        verify(masterProductImageRepository, never()).saveAndFlush(any());
+    }
+}
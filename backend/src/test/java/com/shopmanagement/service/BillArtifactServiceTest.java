@@ -0,0 +1,124 @@
+package com.shopmanagement.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shopmanagement.entity.Order;
+import com.shopmanagement.shop.entity.Shop;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class BillArtifactServiceTest {
+
+    private static final Duration RETENTION = Duration.ofDays(7);
+
+    @TempDir
+    Path storeDir;
+
+    private BillPdfService billPdfService;
+    private ContentStoreService contentStoreService;
+    private BillArtifactService service;
+    private Order order;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        billPdfService = mock(BillPdfService.class);
+        contentStoreService = mock(ContentStoreService.class);
+        when(billPdfService.generateBillPdf(any(Order.class))).thenReturn(new byte[]{1, 2, 3});
+        when(billPdfService.renderBillJpeg(any(byte[].class), anyString())).thenReturn(new byte[]{4, 5});
+        AtomicInteger stored = new AtomicInteger();
+        when(contentStoreService.storeTransient(any(byte[].class), anyString(), any(Duration.class))).thenAnswer(inv -> {
+            String name = "blob-" + stored.incrementAndGet() + "." + inv.getArgument(1);
+            Path path = Files.write(storeDir.resolve(name), (byte[]) inv.getArgument(0));
+            return new ContentStoreService.StoredContent("/uploads/cas/" + name, path, name, 3, false);
+        });
+        when(contentStoreService.extendRetention(anyString(), any(Duration.class))).thenReturn(true);
+
+        service = new BillArtifactService(billPdfService, new BillSettingsService(null, null, new ObjectMapper()),
+                contentStoreService);
+        ReflectionTestUtils.setField(service, "billRetentionDays", 7);
+        order = Order.builder()
+                .id(1L)
+                .orderNumber("POS-1")
+                .shop(Shop.builder().name("Test Stores").build())
+                .orderItems(new ArrayList<>())
+                .totalAmount(new BigDecimal("120.00"))
+                .updatedAt(LocalDateTime.of(2026, 10, 1, 10, 0))
+                .build();
+    }
+
+    @Test
+    void sameOrderVersionIsRenderedAndStoredOnce() throws Exception {
+        BillArtifactService.BillArtifacts first = service.artifactsFor(order);
+        BillArtifactService.BillArtifacts second = service.artifactsFor(order);
+
+        assertSame(first, second);
+        assertTrue(first.hasImage());
+        assertArrayEquals(new byte[]{1, 2, 3}, second.pdfBytes());
+        verify(billPdfService, times(1)).generateBillPdf(order);
+        verify(contentStoreService, times(1)).storeTransient(any(byte[].class), eq("pdf"), eq(RETENTION));
+        verify(contentStoreService, times(1)).storeTransient(any(byte[].class), eq("jpg"), eq(RETENTION));
+    }
+
+    @Test
+    void reusedBillGetsAnotherRetentionWindow() throws Exception {
+        BillArtifactService.BillArtifacts bill = service.artifactsFor(order);
+
+        service.artifactsFor(order);
+
+        verify(contentStoreService).extendRetention(bill.pdfUrl(), RETENTION);
+        verify(contentStoreService).extendRetention(bill.imageUrl(), RETENTION);
+    }
+
+    @Test
+    void billCollectedFromStoreIsRenderedAgain() throws Exception {
+        BillArtifactService.BillArtifacts first = service.artifactsFor(order);
+        when(contentStoreService.extendRetention(eq(first.pdfUrl()), any(Duration.class))).thenReturn(false);
+
+        BillArtifactService.BillArtifacts second = service.artifactsFor(order);
+
+        assertNotEquals(first.pdfUrl(), second.pdfUrl());
+        verify(billPdfService, times(2)).generateBillPdf(order);
+    }
+
+    @Test
+    void deletedFileIsRenderedAgain() throws Exception {
+        BillArtifactService.BillArtifacts first = service.artifactsFor(order);
+        Files.delete(first.pdfPath());
+
+        service.artifactsFor(order);
+
+        verify(billPdfService, times(2)).generateBillPdf(order);
+    }
+
+    @Test
+    void editedOrderIsRenderedAgain() throws Exception {
+        service.artifactsFor(order);
+
+        order.setTotalAmount(new BigDecimal("150.00"));
+        service.artifactsFor(order);
+
+        verify(billPdfService, times(2)).generateBillPdf(order);
+    }
+
+    @Test
+    void billIsNeverReferenced() throws Exception {
+        service.artifactsFor(order);
+
+        verify(contentStoreService, never()).retain(anyString());
+    }
+}
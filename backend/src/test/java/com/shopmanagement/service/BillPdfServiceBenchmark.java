@@ -0,0 +1,103 @@
+package com.shopmanagement.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shopmanagement.entity.Order;
+import com.shopmanagement.entity.OrderItem;
+import com.shopmanagement.shop.entity.Shop;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bill rendering cost for 5, 50 and 200 line bills: the PDF alone, and the
+ * PDF plus the WhatsApp JPEG. Not run by the test suite; after
+ * {@code mvn test-compile} run {@link #main} from the IDE, or
+ * {@code java -cp target/test-classes:<test classpath> com.shopmanagement.service.BillPdfServiceBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BillPdfServiceBenchmark {
+
+    @Param({"5", "50", "200"})
+    private int lines;
+
+    private BillPdfService billPdfService;
+    private Order order;
+    private byte[] pdf;
+
+    @Setup
+    public void setUp() {
+        billPdfService = new BillPdfService(new BillSettingsService(null, null, new ObjectMapper()));
+        Shop shop = Shop.builder()
+                .name("Benchmark Stores")
+                .ownerPhone("9876543210")
+                .build();
+        List<OrderItem> items = new ArrayList<>();
+        BigDecimal subtotal = BigDecimal.ZERO;
+        for (int i = 0; i < lines; i++) {
+            BigDecimal price = BigDecimal.valueOf(20 + i % 50);
+            int quantity = 1 + i % 3;
+            BigDecimal total = price.multiply(BigDecimal.valueOf(quantity));
+            items.add(OrderItem.builder()
+                    .productName("Product " + (i % 40) + " 1kg")
+                    .productNameTamil(i % 2 == 0 ? "அரிசி " + (i % 40) : null)
+                    .quantity(quantity)
+                    .unitPrice(price)
+                    .totalPrice(total)
+                    .build());
+            subtotal = subtotal.add(total);
+        }
+        order = Order.builder()
+                .id(1L)
+                .orderNumber("POS-BENCH-" + lines)
+                .shop(shop)
+                .orderItems(items)
+                .subtotal(subtotal)
+                .totalAmount(subtotal)
+                .paymentMethod(Order.PaymentMethod.UPI)
+                .createdAt(LocalDateTime.now())
+                .build();
+        pdf = billPdfService.generateBillPdf(order);
+    }
+
+    @Benchmark
+    public byte[] pdf() {
+        return billPdfService.generateBillPdf(order);
+    }
+
+    @Benchmark
+    public byte[] pdfAndJpeg() {
+        return billPdfService.renderBillJpeg(billPdfService.generateBillPdf(order), order.getOrderNumber());
+    }
+
+    @Benchmark
+    public byte[] jpegFromPdf() {
+        return billPdfService.renderBillJpeg(pdf, order.getOrderNumber());
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(BillPdfServiceBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
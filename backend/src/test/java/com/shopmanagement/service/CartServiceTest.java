@@ -0,0 +1,308 @@
+package com.shopmanagement.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shopmanagement.dto.customer.CartCheckoutRequest;
+import com.shopmanagement.dto.customer.CartItemRequest;
+import com.shopmanagement.dto.order.OrderResponse;
+import com.shopmanagement.entity.Customer;
+import com.shopmanagement.entity.Order;
+import com.shopmanagement.entity.Promotion;
+import com.shopmanagement.event.ShopProductChangedEvent;
+import com.shopmanagement.repository.CustomerRepository;
+import com.shopmanagement.repository.OrderRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class CartServiceTest {
+
+    private static final long CUSTOMER = 7L;
+    private static final long SHOP = 3L;
+    private static final long RICE = 101L;
+    private static final long OIL = 102L;
+    private static final long OTHER_SHOP_SOAP = 201L;
+
+    private JdbcTemplate jdbcTemplate;
+    private CustomerService customerService;
+    private PromotionService promotionService;
+    private OrderRepository orderRepository;
+    private CustomerRepository customerRepository;
+    private PlatformTransactionManager transactionManager;
+    private CartService service;
+
+    /** shop_products rows as the cart's product loader reads them. */
+    private final Map<Long, ResultSet> productRows = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        customerService = mock(CustomerService.class);
+        promotionService = mock(PromotionService.class);
+        orderRepository = mock(OrderRepository.class);
+        customerRepository = mock(CustomerRepository.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+
+        product(RICE, SHOP, "60.00", 10);
+        product(OIL, SHOP, "150.00", 2);
+        product(OTHER_SHOP_SOAP, 9L, "40.00", 50);
+        doAnswer(inv -> {
+            RowCallbackHandler handler = inv.getArgument(1);
+            for (ResultSet row : productRows.values()) {
+                handler.processRow(row);
+            }
+            return null;
+        }).when(jdbcTemplate).query(contains("FROM shop_products sp"), any(RowCallbackHandler.class), any(Object[].class));
+
+        Customer customer = new Customer();
+        customer.setId(CUSTOMER);
+        customer.setMobileNumber("9876543210");
+        when(customerService.findCustomerByEmailOrMobile("9876543210")).thenReturn(Optional.of(customer));
+        when(customerRepository.findById(CUSTOMER)).thenReturn(Optional.of(customer));
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("9876543210", null));
+
+        service = new CartService(jdbcTemplate, new ObjectMapper(), customerService, promotionService,
+                orderRepository, customerRepository, transactionManager);
+        ReflectionTestUtils.setField(service, "maxCarts", 1000L);
+        ReflectionTestUtils.setField(service, "idleMinutes", 60L);
+        ReflectionTestUtils.setField(service, "productCacheSize", 1000L);
+        ReflectionTestUtils.setField(service, "productTtlMinutes", 10L);
+        // The test flushes by hand
+        ReflectionTestUtils.setField(service, "flushSeconds", 3600L);
+        service.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.stop();
+        SecurityContextHolder.clearContext();
+    }
+
+    private void product(long id, long shopId, String price, int stock) {
+        try {
+            ResultSet rs = mock(ResultSet.class);
+            when(rs.getLong("id")).thenReturn(id);
+            when(rs.getLong("shop_id")).thenReturn(shopId);
+            when(rs.getString("name")).thenReturn("Product " + id);
+            when(rs.getBigDecimal("price")).thenReturn(new BigDecimal(price));
+            when(rs.getObject("stock_quantity")).thenReturn(stock);
+            when(rs.getInt("stock_quantity")).thenReturn(stock);
+            when(rs.getBoolean("track_inventory")).thenReturn(true);
+            when(rs.getBoolean("is_available")).thenReturn(true);
+            productRows.put(id, rs);
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** The customer's cart as another node stored it. */
+    private void storedCart(String items, LocalDateTime updatedAt) {
+        try {
+            ResultSet rs = mock(ResultSet.class);
+            when(rs.getLong("shop_id")).thenReturn(SHOP);
+            when(rs.getString("items")).thenReturn(items);
+            when(rs.getTimestamp("updated_at")).thenReturn(Timestamp.valueOf(updatedAt));
+            doAnswer(inv -> {
+                RowCallbackHandler handler = inv.getArgument(1);
+                handler.processRow(rs);
+                return null;
+            }).when(jdbcTemplate).query(contains("FROM customer_carts WHERE customer_id"), any(RowCallbackHandler.class),
+                    any(Object[].class));
+            when(jdbcTemplate.queryForList(contains("SELECT updated_at FROM customer_carts"), eq(Timestamp.class),
+                    any(Object[].class))).thenReturn(List.of(Timestamp.valueOf(updatedAt)));
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static CartItemRequest item(long productId, int quantity) {
+        return CartItemRequest.builder().shopProductId(productId).quantity(quantity).build();
+    }
+
+    @Test
+    void addingItemsPricesFromMemoryAndDefersTheWrite() {
+        service.addItem(item(RICE, 2));
+        CartService.CartView view = service.addItem(item(RICE, 1));
+
+        assertEquals(1, view.items().size());
+        assertEquals(3, view.totalItems());
+        assertEquals(0, new BigDecimal("180.00").compareTo(view.subtotal()));
+        assertEquals(0, new BigDecimal("9.00").compareTo(view.tax()));
+        assertTrue(view.checkoutReady());
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+        verify(jdbcTemplate, never()).update(anyString(), any(Object[].class));
+    }
+
+    @Test
+    void flushWritesChangedCartsOnceInOneBatch() {
+        service.addItem(item(RICE, 2));
+        service.addItem(item(OIL, 1));
+
+        service.flush();
+        service.flush();
+
+        verify(jdbcTemplate, times(1)).batchUpdate(contains("INSERT INTO customer_carts"), anyList());
+    }
+
+    @Test
+    void emptiedCartIsDeletedOnFlush() {
+        service.addItem(item(RICE, 2));
+        service.clear();
+
+        service.flush();
+
+        verify(jdbcTemplate).batchUpdate(contains("DELETE FROM customer_carts"), anyList());
+        verify(jdbcTemplate, never()).batchUpdate(contains("INSERT INTO customer_carts"), anyList());
+    }
+
+    @Test
+    void cartStoredLaterByAnotherNodeIsReloaded() {
+        service.addItem(item(RICE, 2));
+        service.flush();
+
+        storedCart("[{\"shopProductId\":" + OIL + ",\"quantity\":1,\"addedPrice\":150.00}]",
+                LocalDateTime.now().plusSeconds(5));
+        CartService.CartView cart = service.getCart(null);
+
+        assertEquals(1, cart.items().size());
+        assertEquals(OIL, cart.items().get(0).shopProductId());
+    }
+
+    @Test
+    void cartEmptiedByAnotherNodeIsDropped() {
+        service.addItem(item(RICE, 2));
+        service.flush();
+
+        // No stored row: queryForList answers with an empty list
+        assertTrue(service.getCart(null).items().isEmpty());
+    }
+
+    @Test
+    void pendingChangesAreNotReplacedByTheStoredCart() {
+        service.addItem(item(RICE, 2));
+
+        assertEquals(RICE, service.getCart(null).items().get(0).shopProductId());
+        // Only the first access, before the cart had changes, looked at the table
+        verify(jdbcTemplate, times(1)).queryForList(anyString(), eq(Timestamp.class), any(Object[].class));
+    }
+
+    @Test
+    void itemFromAnotherShopIsRefused() {
+        service.addItem(item(RICE, 1));
+
+        assertThrows(IllegalArgumentException.class, () -> service.addItem(item(OTHER_SHOP_SOAP, 1)));
+    }
+
+    @Test
+    void quantityBeyondStockIsRefused() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> service.addItem(item(OIL, 3)));
+
+        assertEquals("Only 2 of Product 102 left in stock", e.getMessage());
+    }
+
+    @Test
+    void publishedPriceChangeIsShownOnTheNextView() {
+        service.addItem(item(RICE, 2));
+        product(RICE, SHOP, "65.00", 10);
+
+        service.onShopProductChanged(new ShopProductChangedEvent(this, SHOP, RICE, ShopProductChangedEvent.Change.UPDATED));
+        CartService.CartLine line = service.getCart(null).items().get(0);
+
+        assertEquals(0, new BigDecimal("65.00").compareTo(line.unitPrice()));
+        assertEquals(0, new BigDecimal("60.00").compareTo(line.previousPrice()));
+        assertEquals("Price changed", line.message());
+    }
+
+    @Test
+    void checkoutPlacesOrderAndEmptiesCart() {
+        service.addItem(item(RICE, 2));
+        when(customerService.placeOrder(any())).thenReturn(Map.of("success", true,
+                "order", OrderResponse.builder().id(55L).orderNumber("ORD55").build()));
+
+        OrderResponse order = service.checkout(CartCheckoutRequest.builder().paymentMethod("CASH_ON_DELIVERY").build());
+
+        assertEquals(55L, order.getId());
+        assertTrue(service.getCart(null).items().isEmpty());
+        verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void refusedPromoClaimRollsTheOrderBackAndKeepsTheCart() {
+        Promotion promotion = mock(Promotion.class);
+        when(promotion.calculateDiscount(any())).thenReturn(new BigDecimal("20.00"));
+        when(promotionService.validatePromoCode(eq("SAVE20"), eq(CUSTOMER), any(), any(), any(), any()))
+                .thenReturn(PromotionService.PromoCodeValidationResult.success(promotion, new BigDecimal("20.00"), "ok"));
+        when(customerService.placeOrder(any())).thenReturn(Map.of("success", true,
+                "order", OrderResponse.builder().id(55L).orderNumber("ORD55").build()));
+        when(orderRepository.findById(55L)).thenReturn(Optional.of(new Order()));
+        when(orderRepository.countByCustomerId(CUSTOMER)).thenReturn(1L);
+        when(promotionService.recordPromotionUsage(any(), any(), any(), any(), any(), any(), any(), any(), any(),
+                any(), any())).thenReturn(false);
+        service.addItem(item(RICE, 2));
+        service.applyPromoCode("SAVE20");
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> service.checkout(CartCheckoutRequest.builder().paymentMethod("CASH_ON_DELIVERY").build()));
+
+        assertTrue(e.getMessage().startsWith("This promo code has reached its usage limit"));
+        verify(transactionManager).rollback(any());
+        verify(transactionManager, never()).commit(any());
+        CartService.CartView cart = service.getCart(null);
+        assertEquals(1, cart.items().size());
+        assertEquals("SAVE20", cart.promoCode());
+    }
+
+    @Test
+    void secondCheckoutWhileTheFirstRunsIsRefused() throws Exception {
+        service.addItem(item(RICE, 2));
+        CountDownLatch placing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(customerService.placeOrder(any())).thenAnswer(inv -> {
+            placing.countDown();
+            release.await();
+            return Map.of("success", true, "order", OrderResponse.builder().id(55L).orderNumber("ORD55").build());
+        });
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        Thread first = new Thread(() -> {
+            SecurityContextHolder.getContext().setAuthentication(auth);
+            service.checkout(CartCheckoutRequest.builder().paymentMethod("CASH_ON_DELIVERY").build());
+        });
+        first.start();
+        assertTrue(placing.await(10, TimeUnit.SECONDS));
+
+        assertThrows(IllegalStateException.class,
+                () -> service.checkout(CartCheckoutRequest.builder().paymentMethod("CASH_ON_DELIVERY").build()));
+        release.countDown();
+        first.join(10_000);
+        verify(customerService, times(1)).placeOrder(any());
+    }
+}
@@ -0,0 +1,201 @@
+package com.shopmanagement.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/** Reference counts and collection are SQL against content_blobs (V100), so this runs on PostgreSQL. */
+@Testcontainers(disabledWithoutDocker = true)
+class ContentStoreServiceTest {
+
+    private static final byte[] PHOTO = "jpeg bytes of a product photo".getBytes(StandardCharsets.UTF_8);
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:15-alpine");
+
+    @TempDir
+    Path uploadDir;
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private ImageDerivativeService imageDerivativeService;
+    private ContentStoreService store;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword());
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("DROP TABLE IF EXISTS content_blobs");
+        try (InputStream migration = getClass().getResourceAsStream("/db/migration/V100__create_content_blobs.sql")) {
+            jdbcTemplate.execute(new String(migration.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        imageDerivativeService = mock(ImageDerivativeService.class);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        store = new ContentStoreService(jdbcTemplate, transactionManager, imageDerivativeService);
+        ReflectionTestUtils.setField(store, "uploadDir", uploadDir.toString());
+        ReflectionTestUtils.setField(store, "releaseGraceMinutes", 0L);
+    }
+
+    private int refCount(String url) {
+        return jdbcTemplate.queryForObject("SELECT ref_count FROM content_blobs WHERE sha256 = ?", Integer.class,
+                ContentStoreService.sha256Of(url));
+    }
+
+    /** Let collectable_after (set to "now" with no grace) fall strictly behind the collector's clock. */
+    private void collectGarbage() throws InterruptedException {
+        Thread.sleep(20);
+        store.collectGarbage();
+    }
+
+    @Test
+    void sameBytesAreStoredOnceUnderOneUrl() throws Exception {
+        ContentStoreService.StoredContent first = store.store(new ByteArrayInputStream(PHOTO), "jpg");
+        ContentStoreService.StoredContent second = store.store(PHOTO, "JPG");
+
+        assertEquals(first.url(), second.url());
+        assertFalse(first.duplicate());
+        assertTrue(second.duplicate());
+        assertArrayEquals(PHOTO, Files.readAllBytes(first.path()));
+        assertTrue(first.url().startsWith("/uploads/cas/"));
+        assertEquals(2, refCount(first.url()));
+    }
+
+    @Test
+    void sameBytesUnderAnotherExtensionKeepTheFirstName() throws Exception {
+        ContentStoreService.StoredContent jpeg = store.store(PHOTO, "jpeg");
+        ContentStoreService.StoredContent jpg = store.store(PHOTO, "jpg");
+
+        assertEquals(jpeg.url(), jpg.url());
+        assertTrue(jpg.url().endsWith(".jpeg"));
+    }
+
+    @Test
+    void blobIsCollectedOnlyAfterItsLastReferenceIsReleased() throws Exception {
+        ContentStoreService.StoredContent stored = store.store(PHOTO, "jpg");
+        store.retain(stored.url());
+
+        assertTrue(store.release(stored.url()));
+        collectGarbage();
+        assertTrue(Files.exists(stored.path()), "one reference left");
+
+        store.release(stored.url());
+        collectGarbage();
+        assertFalse(Files.exists(stored.path()));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM content_blobs", Integer.class));
+        verify(imageDerivativeService).deleteDerivatives(stored.path());
+    }
+
+    @Test
+    void releaseWithinGracePeriodKeepsTheFile() throws Exception {
+        ReflectionTestUtils.setField(store, "releaseGraceMinutes", 60L);
+        ContentStoreService.StoredContent stored = store.store(PHOTO, "jpg");
+
+        store.release(stored.url());
+        collectGarbage();
+
+        assertTrue(Files.exists(stored.path()));
+    }
+
+    @Test
+    void referenceOfARolledBackSaveIsReleased() throws Exception {
+        ContentStoreService.StoredContent kept = store.store(PHOTO, "jpg");
+        String[] url = new String[1];
+
+        transactionTemplate.executeWithoutResult(status -> {
+            try {
+                url[0] = store.store(PHOTO, "jpg").url();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            status.setRollbackOnly();
+        });
+
+        assertEquals(kept.url(), url[0]);
+        assertEquals(1, refCount(kept.url()));
+    }
+
+    @Test
+    void referenceOfACommittedSaveIsKept() throws Exception {
+        String url = transactionTemplate.execute(status -> {
+            try {
+                return store.store(PHOTO, "jpg").url();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        assertEquals(1, refCount(url));
+    }
+
+    @Test
+    void storingAgainAfterReleaseSavesTheBlob() throws Exception {
+        ContentStoreService.StoredContent stored = store.store(PHOTO, "jpg");
+        store.release(stored.url());
+
+        store.store(PHOTO, "jpg");
+        collectGarbage();
+
+        assertTrue(Files.exists(stored.path()));
+        assertEquals(1, refCount(stored.url()));
+    }
+
+    @Test
+    void transientBlobIsKeptForItsRetentionWindow() throws Exception {
+        ContentStoreService.StoredContent kept = store.storeTransient(PHOTO, "pdf", Duration.ofDays(7));
+        ContentStoreService.StoredContent expired = store.storeTransient("old bill".getBytes(StandardCharsets.UTF_8),
+                "pdf", Duration.ofMillis(1));
+
+        collectGarbage();
+
+        assertTrue(Files.exists(kept.path()));
+        assertFalse(Files.exists(expired.path()));
+        assertEquals(0, refCount(kept.url()));
+    }
+
+    @Test
+    void extendingRetentionKeepsAnExpiringBlob() throws Exception {
+        ContentStoreService.StoredContent bill = store.storeTransient(PHOTO, "pdf", Duration.ofMillis(1));
+
+        assertTrue(store.extendRetention(bill.url(), Duration.ofDays(7)));
+        collectGarbage();
+
+        assertTrue(Files.exists(bill.path()));
+    }
+
+    @Test
+    void extendingRetentionOfCollectedBlobReportsItGone() throws Exception {
+        ContentStoreService.StoredContent bill = store.storeTransient(PHOTO, "pdf", Duration.ofMillis(1));
+        collectGarbage();
+
+        assertFalse(store.extendRetention(bill.url(), Duration.ofDays(7)));
+    }
+
+    @Test
+    void urlsOutsideTheStoreAreLeftToTheCaller() {
+        assertNull(ContentStoreService.sha256Of("/uploads/products/master/rice.jpg"));
+        assertFalse(store.release("/uploads/products/master/rice.jpg"));
+        assertFalse(store.extendRetention("/uploads/bills/invoice_1.pdf", Duration.ofDays(1)));
+    }
+}
@@ -0,0 +1,80 @@
+package com.shopmanagement.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class GlobalPostLimitServiceTest {
+
+    private static final Long USER = 5L;
+    private static final Long TOKEN = 90L;
+
+    private PostQuotaLedgerService ledger;
+    private PostPaymentService postPaymentService;
+    private SettingService settingService;
+    private GlobalPostLimitService service;
+
+    @BeforeEach
+    void setUp() {
+        ledger = mock(PostQuotaLedgerService.class);
+        postPaymentService = mock(PostPaymentService.class);
+        settingService = mock(SettingService.class);
+        when(settingService.getIntValue(eq("global.free_post_limit"), anyInt())).thenReturn(1);
+        service = new GlobalPostLimitService(ledger, postPaymentService, settingService);
+    }
+
+    @Test
+    void postWithinFreeLimitNeedsNoToken() {
+        when(ledger.lockActivePosts(USER)).thenReturn(0);
+
+        assertDoesNotThrow(() -> service.checkGlobalPostLimit(USER, null));
+        verify(ledger).lockActivePosts(USER);
+        verifyNoInteractions(postPaymentService);
+    }
+
+    @Test
+    void postBeyondFreeLimitWithoutTokenIsRefused() {
+        when(ledger.lockActivePosts(USER)).thenReturn(1);
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> service.checkGlobalPostLimit(USER, null));
+        assertEquals("LIMIT_REACHED", e.getMessage());
+    }
+
+    @Test
+    void postBeyondFreeLimitWithValidTokenIsAllowed() {
+        when(ledger.lockActivePosts(USER)).thenReturn(3);
+        when(postPaymentService.hasValidToken(TOKEN, USER)).thenReturn(true);
+
+        assertDoesNotThrow(() -> service.checkGlobalPostLimit(USER, TOKEN));
+    }
+
+    @Test
+    void postBeyondFreeLimitWithInvalidTokenIsRefused() {
+        when(ledger.lockActivePosts(USER)).thenReturn(3);
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> service.checkGlobalPostLimit(USER, TOKEN));
+        assertEquals("Invalid or expired payment token", e.getMessage());
+    }
+
+    @Test
+    void unlimitedSettingSkipsTheLedger() {
+        when(settingService.getIntValue(eq("global.free_post_limit"), anyInt())).thenReturn(-1);
+
+        service.checkGlobalPostLimit(USER, null);
+
+        verifyNoInteractions(ledger, postPaymentService);
+    }
+
+    @Test
+    void zeroFreePostsAlwaysNeedsAToken() {
+        when(settingService.getIntValue(eq("global.free_post_limit"), anyInt())).thenReturn(0);
+
+        assertThrows(RuntimeException.class, () -> service.checkGlobalPostLimit(USER, null));
+        verify(ledger, never()).lockActivePosts(anyLong());
+    }
+}
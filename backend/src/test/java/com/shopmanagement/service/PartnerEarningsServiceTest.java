@@ -0,0 +1,162 @@
+package com.shopmanagement.service;
+
+import com.shopmanagement.entity.Order;
+import com.shopmanagement.entity.OrderAssignment;
+import com.shopmanagement.entity.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** The ledger's upserts and conflict handling are SQL, so this runs against PostgreSQL (V105 as migrated). */
+@Testcontainers(disabledWithoutDocker = true)
+class PartnerEarningsServiceTest {
+
+    private static final long PARTNER = 11L;
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:15-alpine");
+
+    private JdbcTemplate jdbcTemplate;
+    private PartnerEarningsService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword());
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("DROP TABLE IF EXISTS partner_earning_entries, partner_earning_buckets");
+        try (InputStream migration = getClass().getResourceAsStream("/db/migration/V105__create_partner_earnings.sql")) {
+            jdbcTemplate.execute(new String(migration.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        service = new PartnerEarningsService(jdbcTemplate, new DataSourceTransactionManager(dataSource));
+    }
+
+    private static OrderAssignment delivered(long assignmentId, String commission, LocalDateTime completedAt) {
+        User partner = new User();
+        partner.setId(PARTNER);
+        Order order = new Order();
+        order.setOrderNumber("ORD-" + assignmentId);
+        OrderAssignment assignment = new OrderAssignment();
+        assignment.setId(assignmentId);
+        assignment.setDeliveryPartner(partner);
+        assignment.setOrder(order);
+        assignment.setPartnerCommission(new BigDecimal(commission));
+        assignment.setDeliveryCompletedAt(completedAt);
+        return assignment;
+    }
+
+    @Test
+    void deliveryRaisesEveryPeriod() {
+        service.recordDelivery(delivered(1, "40.00", LocalDateTime.now()));
+        service.recordDelivery(delivered(2, "25.50", LocalDateTime.now()));
+
+        PartnerEarningsService.EarningsSummary summary = service.getSummary(PARTNER);
+
+        for (PartnerEarningsService.Period period : List.of(summary.today(), summary.week(), summary.month(), summary.total())) {
+            assertEquals(0, new BigDecimal("65.50").compareTo(period.amount()));
+            assertEquals(2, period.deliveries());
+        }
+    }
+
+    @Test
+    void sameAssignmentIsCreditedOnce() {
+        OrderAssignment assignment = delivered(1, "40.00", LocalDateTime.now());
+
+        service.recordDelivery(assignment);
+        service.recordDelivery(assignment);
+
+        assertEquals(1, service.getRecentEntries(PARTNER, 0, 20).size());
+        assertEquals(0, new BigDecimal("40.00").compareTo(service.getSummary(PARTNER).total().amount()));
+        assertEquals(1, service.getSummary(PARTNER).total().deliveries());
+    }
+
+    @Test
+    void olderDeliveryCountsOnlyTowardsItsOwnPeriods() {
+        service.recordDelivery(delivered(1, "30.00", LocalDateTime.now().minusYears(1)));
+
+        PartnerEarningsService.EarningsSummary summary = service.getSummary(PARTNER);
+
+        assertEquals(0, summary.today().deliveries());
+        assertEquals(0, summary.month().deliveries());
+        assertEquals(1, summary.total().deliveries());
+    }
+
+    @Test
+    void adjustmentChangesAmountButNotDeliveries() {
+        service.recordDelivery(delivered(1, "40.00", LocalDateTime.now()));
+
+        service.recordAdjustment(PARTNER, new BigDecimal("-15.00"), "Wrong distance", "admin");
+
+        PartnerEarningsService.Period today = service.getSummary(PARTNER).today();
+        assertEquals(0, new BigDecimal("25.00").compareTo(today.amount()));
+        assertEquals(1, today.deliveries());
+        PartnerEarningsService.EarningEntry latest = service.getRecentEntries(PARTNER, 0, 20).get(0);
+        assertEquals(PartnerEarningsService.ADJUSTMENT, latest.type());
+        assertEquals("Wrong distance", latest.note());
+    }
+
+    @Test
+    void adjustmentNeedsAmountAndNote() {
+        assertThrows(IllegalArgumentException.class,
+                () -> service.recordAdjustment(PARTNER, BigDecimal.ZERO, "note", "admin"));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.recordAdjustment(PARTNER, BigDecimal.TEN, " ", "admin"));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM partner_earning_entries", Integer.class));
+    }
+
+    @Test
+    void rebuildMatchesIncrementalBuckets() {
+        service.recordDelivery(delivered(1, "40.00", LocalDateTime.now()));
+        service.recordDelivery(delivered(2, "20.00", LocalDateTime.now().minusDays(40)));
+        service.recordAdjustment(PARTNER, new BigDecimal("5.00"), "Tip", "admin");
+        PartnerEarningsService.EarningsSummary incremental = service.getSummary(PARTNER);
+
+        jdbcTemplate.update("UPDATE partner_earning_buckets SET amount = 0, deliveries = 0");
+        service.rebuildPartner(PARTNER);
+
+        assertEquals(normalized(incremental), normalized(service.getSummary(PARTNER)));
+    }
+
+    @Test
+    void partnerWithoutEntriesReadsZero() {
+        PartnerEarningsService.EarningsSummary summary = service.getSummary(PARTNER);
+
+        assertEquals(0, summary.total().deliveries());
+        assertEquals(0, BigDecimal.ZERO.compareTo(summary.total().amount()));
+    }
+
+    @Test
+    void recentEntriesAreNewestFirstAndPaged() {
+        LocalDateTime start = LocalDateTime.now().minusHours(5);
+        for (int i = 1; i <= 5; i++) {
+            service.recordDelivery(delivered(i, "10.00", start.plusHours(i)));
+        }
+
+        List<PartnerEarningsService.EarningEntry> firstPage = service.getRecentEntries(PARTNER, 0, 2);
+        List<PartnerEarningsService.EarningEntry> lastPage = service.getRecentEntries(PARTNER, 2, 2);
+
+        assertEquals(List.of("ORD-5", "ORD-4"), firstPage.stream().map(PartnerEarningsService.EarningEntry::orderNumber).toList());
+        assertEquals(List.of("ORD-1"), lastPage.stream().map(PartnerEarningsService.EarningEntry::orderNumber).toList());
+        assertEquals(5, service.getRecentEntries(PARTNER, 0, 10_000).size());
+    }
+
+    /** Same values whatever the NUMERIC scale the rows came back with. */
+    private static List<String> normalized(PartnerEarningsService.EarningsSummary summary) {
+        return List.of(summary.today(), summary.week(), summary.month(), summary.total()).stream()
+                .map(p -> p.amount().stripTrailingZeros().toPlainString() + "/" + p.deliveries())
+                .toList();
+    }
+}
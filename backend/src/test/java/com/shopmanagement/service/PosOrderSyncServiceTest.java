@@ -0,0 +1,203 @@
+package com.shopmanagement.service;
+
+import com.shopmanagement.dto.order.OrderResponse;
+import com.shopmanagement.dto.order.PosOrderItemRequest;
+import com.shopmanagement.dto.order.PosOrderRequest;
+import com.shopmanagement.dto.order.PosOrderSyncResult;
+import com.shopmanagement.entity.Customer;
+import com.shopmanagement.entity.Order;
+import com.shopmanagement.event.OrderStateChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/** The batch path is JDBC (row locks, batches, offline-id dedupe), so this runs on PostgreSQL. */
+@Testcontainers(disabledWithoutDocker = true)
+class PosOrderSyncServiceTest {
+
+    private static final long SHOP = 3L;
+    private static final long RICE = 101L;
+    private static final long OIL = 102L;
+    private static final long WALK_IN = 500L;
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:15-alpine");
+
+    private JdbcTemplate jdbcTemplate;
+    private PosService posService;
+    private ApplicationEventPublisher eventPublisher;
+    private PosOrderSyncService service;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword());
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("DROP TABLE IF EXISTS order_items, orders, shop_products, master_product_images, " +
+                "master_products, customers, shops");
+        jdbcTemplate.execute("CREATE TABLE shops (id BIGINT PRIMARY KEY)");
+        jdbcTemplate.execute("CREATE TABLE customers (id BIGINT PRIMARY KEY, mobile_number VARCHAR(20), email VARCHAR(100))");
+        jdbcTemplate.execute("CREATE TABLE master_products (id BIGINT PRIMARY KEY, name VARCHAR(200), name_tamil VARCHAR(200))");
+        jdbcTemplate.execute("CREATE TABLE master_product_images (id BIGSERIAL PRIMARY KEY, master_product_id BIGINT, " +
+                "image_url VARCHAR(500), is_primary BOOLEAN)");
+        jdbcTemplate.execute("CREATE TABLE shop_products (id BIGINT PRIMARY KEY, master_product_id BIGINT, " +
+                "price NUMERIC(10, 2), stock_quantity INT, track_inventory BOOLEAN, custom_name VARCHAR(200), " +
+                "status VARCHAR(20) DEFAULT 'ACTIVE', is_available BOOLEAN DEFAULT TRUE, updated_at TIMESTAMP)");
+        // notes is kept short so a test can make a chunk's insert fail
+        jdbcTemplate.execute("CREATE TABLE orders (id BIGSERIAL PRIMARY KEY, order_number VARCHAR(50) UNIQUE, " +
+                "customer_id BIGINT, shop_id BIGINT, status VARCHAR(30), payment_status VARCHAR(20), " +
+                "payment_method VARCHAR(20), delivery_type VARCHAR(20), order_type VARCHAR(20), subtotal NUMERIC(10, 2), " +
+                "tax_amount NUMERIC(10, 2), delivery_fee NUMERIC(10, 2), discount_amount NUMERIC(10, 2), " +
+                "total_amount NUMERIC(10, 2), notes VARCHAR(20), offline_order_id VARCHAR(100), " +
+                "driver_search_attempts INT, driver_search_completed BOOLEAN, created_by VARCHAR(100), " +
+                "updated_by VARCHAR(100), created_at TIMESTAMP, updated_at TIMESTAMP)");
+        jdbcTemplate.execute("CREATE TABLE order_items (id BIGSERIAL PRIMARY KEY, order_id BIGINT, shop_product_id BIGINT, " +
+                "quantity INT, unit_price NUMERIC(10, 2), total_price NUMERIC(10, 2), product_name VARCHAR(200), " +
+                "product_name_tamil VARCHAR(200), product_image_url VARCHAR(500), added_by_shop_owner BOOLEAN, " +
+                "created_at TIMESTAMP, updated_at TIMESTAMP)");
+
+        jdbcTemplate.update("INSERT INTO shops (id) VALUES (?)", SHOP);
+        jdbcTemplate.update("INSERT INTO customers (id, mobile_number) VALUES (?, ?)", WALK_IN, String.format("90000%05d", SHOP));
+        jdbcTemplate.update("INSERT INTO master_products (id, name, name_tamil) VALUES (1, 'Ponni Rice 1kg', 'அரிசி')");
+        jdbcTemplate.update("INSERT INTO shop_products (id, master_product_id, price, stock_quantity, track_inventory) " +
+                "VALUES (?, 1, 60.00, 10, TRUE)", RICE);
+        jdbcTemplate.update("INSERT INTO shop_products (id, price, stock_quantity, track_inventory, custom_name) " +
+                "VALUES (?, 150.00, 0, FALSE, 'Groundnut Oil')", OIL);
+
+        posService = mock(PosService.class);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        service = new PosOrderSyncService(posService, jdbcTemplate, new DataSourceTransactionManager(dataSource),
+                eventPublisher);
+    }
+
+    private static PosOrderRequest bill(String offlineId, long productId, int quantity) {
+        return PosOrderRequest.builder()
+                .shopId(SHOP)
+                .offlineOrderId(offlineId)
+                .paymentMethod(Order.PaymentMethod.CASH_ON_DELIVERY)
+                .items(List.of(PosOrderItemRequest.builder().shopProductId(productId).quantity(quantity).build()))
+                .build();
+    }
+
+    private int stockOf(long productId) {
+        return jdbcTemplate.queryForObject("SELECT stock_quantity FROM shop_products WHERE id = ?", Integer.class, productId);
+    }
+
+    private int count(String table) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Integer.class);
+    }
+
+    @Test
+    void batchCreatesEveryBillAndTakesStockOnce() {
+        Map<String, PosOrderSyncResult> results = service.syncOfflineOrders(List.of(
+                bill("off-1", RICE, 2), bill("off-2", RICE, 3), bill("off-3", OIL, 4)));
+
+        assertEquals(List.of("off-1", "off-2", "off-3"), List.copyOf(results.keySet()));
+        results.values().forEach(result -> assertEquals(PosOrderSyncResult.Status.CREATED, result.getStatus()));
+        assertEquals(0, new BigDecimal("120.00").compareTo(results.get("off-1").getTotalAmount()));
+        assertEquals(5, stockOf(RICE));
+        assertEquals(0, stockOf(OIL), "untracked stock is left alone");
+        assertEquals(3, count("orders"));
+        assertEquals("Ponni Rice 1kg", jdbcTemplate.queryForObject(
+                "SELECT product_name FROM order_items WHERE shop_product_id = ? LIMIT 1", String.class, RICE));
+        assertEquals(WALK_IN, jdbcTemplate.queryForObject("SELECT DISTINCT customer_id FROM orders", Long.class));
+        verify(eventPublisher, times(3)).publishEvent(any(OrderStateChangedEvent.class));
+        verifyNoInteractions(posService);
+    }
+
+    @Test
+    void billSyncedEarlierIsReportedAsDuplicate() {
+        Long existingId = jdbcTemplate.queryForObject("INSERT INTO orders (order_number, shop_id, offline_order_id, " +
+                "total_amount) VALUES ('ORD1', ?, 'off-1', 120.00) RETURNING id", Long.class, SHOP);
+
+        Map<String, PosOrderSyncResult> results = service.syncOfflineOrders(List.of(bill("off-1", RICE, 2)));
+
+        assertEquals(PosOrderSyncResult.Status.DUPLICATE, results.get("off-1").getStatus());
+        assertEquals(existingId, results.get("off-1").getOrderId());
+        assertEquals(1, count("orders"));
+        assertEquals(10, stockOf(RICE));
+    }
+
+    @Test
+    void billRepeatedInOneBatchIsWrittenOnce() {
+        Map<String, PosOrderSyncResult> results = service.syncOfflineOrders(List.of(
+                bill("off-1", RICE, 2), bill("off-1", RICE, 2)));
+
+        assertEquals(1, results.size());
+        assertEquals(1, count("orders"));
+        assertEquals(8, stockOf(RICE));
+    }
+
+    @Test
+    void billShortOfStockFailsAloneAndLeavesStockForTheNext() {
+        Map<String, PosOrderSyncResult> results = service.syncOfflineOrders(List.of(
+                bill("off-1", RICE, 11), bill("off-2", RICE, 10)));
+
+        assertEquals(PosOrderSyncResult.Status.FAILED, results.get("off-1").getStatus());
+        assertTrue(results.get("off-1").getMessage().startsWith("Insufficient stock"));
+        assertEquals(PosOrderSyncResult.Status.CREATED, results.get("off-2").getStatus());
+        assertEquals(0, stockOf(RICE));
+        assertEquals("OUT_OF_STOCK", jdbcTemplate.queryForObject(
+                "SELECT status FROM shop_products WHERE id = ?", String.class, RICE));
+    }
+
+    @Test
+    void unknownProductOrShopFailsTheBill() {
+        PosOrderRequest otherShop = bill("off-2", RICE, 1);
+        otherShop.setShopId(99L);
+
+        Map<String, PosOrderSyncResult> results = service.syncOfflineOrders(List.of(bill("off-1", 999L, 1), otherShop));
+
+        assertEquals("Product not found: 999", results.get("off-1").getMessage());
+        assertEquals("Shop not found with id: 99", results.get("off-2").getMessage());
+        assertEquals(0, count("orders"));
+    }
+
+    @Test
+    void unknownPhoneIsResolvedOncePerNumber() {
+        Customer created = new Customer();
+        created.setId(777L);
+        when(posService.getOrCreateWalkInCustomer(any(PosOrderRequest.class), eq(SHOP))).thenReturn(created);
+        PosOrderRequest first = bill("off-1", RICE, 1);
+        first.setCustomerPhone("9876543210");
+        PosOrderRequest second = bill("off-2", RICE, 1);
+        second.setCustomerPhone("9876543210");
+
+        service.syncOfflineOrders(List.of(first, second));
+
+        verify(posService, times(1)).getOrCreateWalkInCustomer(any(PosOrderRequest.class), anyLong());
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM orders WHERE customer_id = 777", Integer.class));
+    }
+
+    @Test
+    void failedChunkIsRetriedBillByBill() {
+        PosOrderRequest tooLong = bill("off-1", RICE, 1);
+        tooLong.setNotes("a note longer than the notes column allows");
+        when(posService.createPosOrder(any(PosOrderRequest.class))).thenReturn(OrderResponse.builder()
+                .id(42L).orderNumber("ORD42").totalAmount(new BigDecimal("60.00")).build());
+
+        Map<String, PosOrderSyncResult> results = service.syncOfflineOrders(List.of(tooLong, bill("off-2", RICE, 1)));
+
+        verify(posService, times(2)).createPosOrder(any(PosOrderRequest.class));
+        assertEquals(PosOrderSyncResult.Status.CREATED, results.get("off-1").getStatus());
+        assertEquals(42L, results.get("off-1").getOrderId());
+        assertEquals(0, count("orders"), "the failed chunk rolled back");
+        assertEquals(10, stockOf(RICE));
+    }
+}
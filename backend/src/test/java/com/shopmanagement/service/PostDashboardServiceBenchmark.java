@@ -0,0 +1,110 @@
+package com.shopmanagement.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admin dashboard moderation stats with 1k, 10k and 100k posts per module:
+ * the five count queries per module the dashboard used to send (45
+ * round-trips) against the one UNION ALL statement of
+ * {@link PostDashboardService}, cache dropped before each call. Needs Docker
+ * for the PostgreSQL container; not run by the test suite, run {@link #main}
+ * after {@code mvn test-compile} as with {@link BillPdfServiceBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PostDashboardServiceBenchmark {
+
+    private static final List<String> TABLES = List.of("labour_posts", "travel_posts", "parcel_service_posts",
+            "marketplace_posts", "farmer_products", "real_estate_posts", "rental_posts",
+            "womens_corner_posts", "local_shop_posts");
+
+    @Param({"1000", "10000", "100000"})
+    private int postsPerModule;
+
+    private PostgreSQLContainer<?> postgres;
+    private SingleConnectionDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private PostDashboardService service;
+
+    @Setup
+    public void setUp() {
+        postgres = new PostgreSQLContainer<>("postgres:15-alpine");
+        postgres.start();
+        // One reused connection, as from the pool: both variants pay round-trips, not connects
+        dataSource = new SingleConnectionDataSource(postgres.getJdbcUrl(), postgres.getUsername(),
+                postgres.getPassword(), true);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        for (String table : TABLES) {
+            jdbcTemplate.execute("CREATE TABLE " + table + " (id BIGSERIAL PRIMARY KEY, " +
+                    "status VARCHAR(30) NOT NULL, report_count INT NOT NULL DEFAULT 0)");
+            jdbcTemplate.execute("CREATE INDEX ON " + table + "(status)");
+            jdbcTemplate.update("INSERT INTO " + table + " (status, report_count) " +
+                    "SELECT (ARRAY['PENDING_APPROVAL', 'APPROVED', 'APPROVED', 'REJECTED', 'SOLD'])[1 + i % 5], " +
+                    "CASE WHEN i % 50 = 0 THEN 1 ELSE 0 END FROM generate_series(1, ?) AS i", postsPerModule);
+            jdbcTemplate.execute("ANALYZE " + table);
+        }
+        service = new PostDashboardService(jdbcTemplate);
+    }
+
+    @TearDown
+    public void tearDown() {
+        dataSource.destroy();
+        postgres.stop();
+    }
+
+    @Benchmark
+    public Map<String, Map<String, Long>> perModuleQueries() {
+        Map<String, Map<String, Long>> stats = new HashMap<>();
+        for (String table : TABLES) {
+            Map<String, Long> module = new HashMap<>();
+            module.put("total", count("SELECT COUNT(*) FROM " + table));
+            module.put("pending", count("SELECT COUNT(*) FROM " + table + " WHERE status = 'PENDING_APPROVAL'"));
+            module.put("approved", count("SELECT COUNT(*) FROM " + table + " WHERE status = 'APPROVED'"));
+            module.put("rejected", count("SELECT COUNT(*) FROM " + table + " WHERE status = 'REJECTED'"));
+            module.put("reported", count("SELECT COUNT(*) FROM " + table + " WHERE report_count > 0"));
+            stats.put(table, module);
+        }
+        return stats;
+    }
+
+    @Benchmark
+    public Map<String, Map<String, Long>> oneStatement() {
+        service.onPostChanged(null);
+        return service.getDashboardStats();
+    }
+
+    private long count(String sql) {
+        return jdbcTemplate.queryForObject(sql, Long.class);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(PostDashboardServiceBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,98 @@
+package com.shopmanagement.service;
+
+import com.shopmanagement.entity.LabourPost;
+import com.shopmanagement.event.PostChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class PostDashboardServiceTest {
+
+    private static final List<String> TABLES = List.of("labour_posts", "travel_posts", "parcel_service_posts",
+            "marketplace_posts", "farmer_products", "real_estate_posts", "rental_posts",
+            "womens_corner_posts", "local_shop_posts");
+
+    private JdbcTemplate jdbcTemplate;
+    private PostDashboardService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        ResultSet labour = row("labour", 10, 3, 6, 1, 2);
+        ResultSet rental = row("rental", 4, 0, 4, 0, 0);
+        doAnswer(inv -> {
+            RowCallbackHandler handler = inv.getArgument(1);
+            handler.processRow(labour);
+            handler.processRow(rental);
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class));
+        service = new PostDashboardService(jdbcTemplate);
+    }
+
+    private static ResultSet row(String module, long total, long pending, long approved, long rejected,
+                                 long reported) throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getString("module")).thenReturn(module);
+        when(rs.getLong("total")).thenReturn(total);
+        when(rs.getLong("pending")).thenReturn(pending);
+        when(rs.getLong("approved")).thenReturn(approved);
+        when(rs.getLong("rejected")).thenReturn(rejected);
+        when(rs.getLong("reported")).thenReturn(reported);
+        return rs;
+    }
+
+    @Test
+    void allModulesAreCountedInOneStatement() {
+        service.getDashboardStats();
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(jdbcTemplate, times(1)).query(sql.capture(), any(RowCallbackHandler.class));
+        verifyNoMoreInteractions(jdbcTemplate);
+        for (String table : TABLES) {
+            assertTrue(sql.getValue().contains("FROM " + table), table + " is in the statement");
+        }
+        assertEquals(TABLES.size() - 1, sql.getValue().split(" UNION ALL ").length - 1);
+    }
+
+    @Test
+    void rowsAreMappedAndModulesWithoutRowsReadZero() {
+        Map<String, Map<String, Long>> stats = service.getDashboardStats();
+
+        assertEquals(TABLES.size(), stats.size());
+        assertEquals(Map.of("total", 10L, "pending", 3L, "approved", 6L, "rejected", 1L, "reported", 2L),
+                stats.get("labour"));
+        assertEquals(4L, stats.get("rental").get("approved"));
+        assertEquals(Map.of("total", 0L, "pending", 0L, "approved", 0L, "rejected", 0L, "reported", 0L),
+                stats.get("womensCorner"));
+    }
+
+    @Test
+    void repeatedLoadsAreServedFromCache() {
+        service.getDashboardStats();
+        service.getDashboardStats();
+
+        verify(jdbcTemplate, times(1)).query(anyString(), any(RowCallbackHandler.class));
+    }
+
+    @Test
+    void postChangeDropsCachedStats() {
+        service.getDashboardStats();
+
+        service.onPostChanged(new PostChangedEvent(this, LabourPost.class, PostChangedEvent.Change.UPDATED,
+                false, null, null));
+        service.getDashboardStats();
+
+        verify(jdbcTemplate, times(2)).query(anyString(), any(RowCallbackHandler.class));
+    }
+}
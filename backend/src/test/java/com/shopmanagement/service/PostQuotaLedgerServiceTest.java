@@ -0,0 +1,156 @@
+package com.shopmanagement.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** The counters are kept by the V99 triggers, so this runs the migration against PostgreSQL. */
+@Testcontainers(disabledWithoutDocker = true)
+class PostQuotaLedgerServiceTest {
+
+    private static final long USER = 5L;
+
+    private static final List<String> SELLER_TABLES = List.of("marketplace_posts", "farmer_products", "labour_posts",
+            "travel_posts", "parcel_service_posts", "rental_posts", "womens_corner_posts", "local_shop_posts");
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:15-alpine");
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private PostQuotaLedgerService service;
+    private ExecutorService threads;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword());
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        jdbcTemplate.execute("DROP TABLE IF EXISTS user_post_quota, real_estate_posts, " + String.join(", ", SELLER_TABLES));
+        for (String table : SELLER_TABLES) {
+            jdbcTemplate.execute("CREATE TABLE " + table + " (id BIGSERIAL PRIMARY KEY, seller_user_id BIGINT, " +
+                    "status VARCHAR(30) NOT NULL, views INT NOT NULL DEFAULT 0)");
+        }
+        jdbcTemplate.execute("CREATE TABLE real_estate_posts (id BIGSERIAL PRIMARY KEY, owner_user_id BIGINT, " +
+                "status VARCHAR(30) NOT NULL, views INT NOT NULL DEFAULT 0)");
+        try (InputStream migration = getClass().getResourceAsStream("/db/migration/V99__create_user_post_quota.sql")) {
+            jdbcTemplate.execute(new String(migration.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        service = new PostQuotaLedgerService(jdbcTemplate, transactionManager);
+        threads = Executors.newFixedThreadPool(2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        threads.shutdownNow();
+    }
+
+    private long post(String table, String status) {
+        return jdbcTemplate.queryForObject("INSERT INTO " + table + " (seller_user_id, status) VALUES (?, ?) RETURNING id",
+                Long.class, USER, status);
+    }
+
+    @Test
+    void activePostsAcrossModulesAreCounted() {
+        post("marketplace_posts", "APPROVED");
+        post("labour_posts", "PENDING_APPROVAL");
+        post("local_shop_posts", "APPROVED");
+        post("travel_posts", "REJECTED");
+        jdbcTemplate.update("INSERT INTO real_estate_posts (owner_user_id, status) VALUES (?, 'APPROVED')", USER);
+
+        assertEquals(4, service.getActivePosts(USER));
+    }
+
+    @Test
+    void expiringOrDeletingAPostFreesItsSlot() {
+        long expiring = post("marketplace_posts", "APPROVED");
+        long deleted = post("rental_posts", "APPROVED");
+        post("farmer_products", "APPROVED");
+
+        jdbcTemplate.update("UPDATE marketplace_posts SET status = 'EXPIRED' WHERE id = ?", expiring);
+        jdbcTemplate.update("DELETE FROM rental_posts WHERE id = ?", deleted);
+
+        assertEquals(1, service.getActivePosts(USER));
+    }
+
+    @Test
+    void approvalAndCounterUpdatesDoNotCountTwice() {
+        long id = post("marketplace_posts", "PENDING_APPROVAL");
+
+        jdbcTemplate.update("UPDATE marketplace_posts SET status = 'APPROVED' WHERE id = ?", id);
+        jdbcTemplate.update("UPDATE marketplace_posts SET views = views + 1 WHERE id = ?", id);
+
+        assertEquals(1, service.getActivePosts(USER));
+    }
+
+    @Test
+    void userWithoutPostsReadsZero() {
+        assertEquals(0, service.getActivePosts(USER));
+        assertEquals(0, transactionTemplate.execute(status -> service.lockActivePosts(USER)));
+    }
+
+    @Test
+    void reconcileFixesDriftedCounters() {
+        post("marketplace_posts", "APPROVED");
+        post("labour_posts", "APPROVED");
+        jdbcTemplate.update("UPDATE user_post_quota SET active_posts = 7 WHERE user_id = ?", USER);
+        jdbcTemplate.update("INSERT INTO user_post_quota (user_id, active_posts) VALUES (6, 3)");
+
+        service.reconcile();
+
+        assertEquals(2, service.getActivePosts(USER));
+        assertEquals(0, service.getActivePosts(6L));
+    }
+
+    @Test
+    void concurrentCreateWaitsForTheFirstToCommit() throws Exception {
+        CountDownLatch firstLocked = new CountDownLatch(1);
+        CountDownLatch commitFirst = new CountDownLatch(1);
+
+        CompletableFuture<Integer> first = CompletableFuture.supplyAsync(() -> transactionTemplate.execute(status -> {
+            int count = service.lockActivePosts(USER);
+            firstLocked.countDown();
+            await(commitFirst);
+            post("marketplace_posts", "PENDING_APPROVAL");
+            return count;
+        }), threads);
+        assertTrue(firstLocked.await(10, TimeUnit.SECONDS));
+        CompletableFuture<Integer> second = CompletableFuture.supplyAsync(
+                () -> transactionTemplate.execute(status -> service.lockActivePosts(USER)), threads);
+        Thread.sleep(300);
+        assertFalse(second.isDone(), "second check waits on the user's counter");
+        commitFirst.countDown();
+
+        assertEquals(0, first.get(10, TimeUnit.SECONDS));
+        assertEquals(1, second.get(10, TimeUnit.SECONDS), "second check sees the first post");
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.shopmanagement.service;
+
+import com.shopmanagement.entity.Customer;
+import com.shopmanagement.entity.Promotion;
+import com.shopmanagement.entity.PromotionUsage;
+import com.shopmanagement.repository.PromotionRepository;
+import com.shopmanagement.repository.PromotionUsageRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/** claim against real PostgreSQL: the races it guards only show up under concurrent transactions. */
+@Testcontainers(disabledWithoutDocker = true)
+class PromotionEngineClaimTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:15-alpine");
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private PromotionEngine engine;
+    private ExecutorService threads;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword());
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        jdbcTemplate.execute("DROP TABLE IF EXISTS promotion_usage, promotions");
+        jdbcTemplate.execute("CREATE TABLE promotions (id BIGINT PRIMARY KEY, usage_limit INT, used_count INT NOT NULL DEFAULT 0)");
+        jdbcTemplate.execute("CREATE TABLE promotion_usage (id BIGSERIAL PRIMARY KEY, promotion_id BIGINT NOT NULL, " +
+                "customer_id BIGINT, order_id BIGINT, device_uuid VARCHAR(100), customer_phone VARCHAR(20), " +
+                "customer_email VARCHAR(100), discount_applied NUMERIC(10, 2), order_amount NUMERIC(10, 2), " +
+                "is_first_order BOOLEAN, ip_address VARCHAR(45), user_agent VARCHAR(500), shop_id BIGINT, used_at TIMESTAMP)");
+
+        engine = new PromotionEngine(mock(PromotionRepository.class), mock(PromotionUsageRepository.class), jdbcTemplate);
+        ReflectionTestUtils.setField(engine, "worker", Executors.newSingleThreadScheduledExecutor());
+        threads = Executors.newFixedThreadPool(2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        threads.shutdownNow();
+    }
+
+    private void insertPromotion(long id, Integer usageLimit) {
+        jdbcTemplate.update("INSERT INTO promotions (id, usage_limit) VALUES (?, ?)", id, usageLimit);
+    }
+
+    private static PromotionUsage usage(long promotionId, Long customerId, String phone) {
+        Promotion promotion = new Promotion();
+        promotion.setId(promotionId);
+        PromotionUsage usage = new PromotionUsage();
+        usage.setPromotion(promotion);
+        if (customerId != null) {
+            Customer customer = new Customer();
+            customer.setId(customerId);
+            usage.setCustomer(customer);
+        }
+        usage.setCustomerPhone(phone);
+        return usage;
+    }
+
+    private boolean claimInTransaction(PromotionUsage usage) {
+        return transactionTemplate.execute(status -> engine.claim(usage));
+    }
+
+    private int usedCount(long promotionId) {
+        return jdbcTemplate.queryForObject("SELECT used_count FROM promotions WHERE id = ?", Integer.class, promotionId);
+    }
+
+    private int usageRows(long promotionId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM promotion_usage WHERE promotion_id = ?", Integer.class, promotionId);
+    }
+
+    @Test
+    void claimRaisesUsedCountAndRecordsUsage() {
+        insertPromotion(1, null);
+
+        assertTrue(claimInTransaction(usage(1, 42L, "9876543210")));
+
+        assertEquals(1, usedCount(1));
+        assertEquals(1, usageRows(1));
+    }
+
+    @Test
+    void secondClaimBySameCustomerIsRefused() {
+        insertPromotion(1, null);
+        assertTrue(claimInTransaction(usage(1, 42L, "9876543210")));
+
+        assertFalse(claimInTransaction(usage(1, 42L, null)));
+        assertFalse(claimInTransaction(usage(1, null, "9876543210")));
+
+        assertEquals(1, usedCount(1));
+        assertEquals(1, usageRows(1));
+    }
+
+    @Test
+    void claimBeyondUsageLimitIsRefused() {
+        insertPromotion(1, 1);
+        assertTrue(claimInTransaction(usage(1, 42L, null)));
+
+        assertFalse(claimInTransaction(usage(1, 43L, null)));
+
+        assertEquals(1, usedCount(1));
+        assertEquals(1, usageRows(1));
+    }
+
+    @Test
+    void unknownPromotionIsRefused() {
+        assertFalse(claimInTransaction(usage(99, 42L, null)));
+    }
+
+    @Test
+    void concurrentClaimsBySameCustomerLetOnlyOneThrough() throws Exception {
+        insertPromotion(1, null);
+        CountDownLatch firstClaimed = new CountDownLatch(1);
+        CountDownLatch commitFirst = new CountDownLatch(1);
+
+        CompletableFuture<Boolean> first = CompletableFuture.supplyAsync(() -> transactionTemplate.execute(status -> {
+            boolean claimed = engine.claim(usage(1, 42L, "9876543210"));
+            firstClaimed.countDown();
+            await(commitFirst);
+            return claimed;
+        }), threads);
+        assertTrue(firstClaimed.await(10, TimeUnit.SECONDS));
+
+        // Same phone, checked out from another device while the first order is still open
+        CompletableFuture<Boolean> second = CompletableFuture.supplyAsync(
+                () -> claimInTransaction(usage(1, null, "9876543210")), threads);
+        Thread.sleep(300);
+        assertFalse(second.isDone(), "second claim waits for the first to commit");
+        commitFirst.countDown();
+
+        assertTrue(first.get(10, TimeUnit.SECONDS));
+        assertFalse(second.get(10, TimeUnit.SECONDS));
+        assertEquals(1, usedCount(1));
+        assertEquals(1, usageRows(1));
+    }
+
+    @Test
+    void concurrentClaimsForLastUseLetOnlyOneThrough() throws Exception {
+        insertPromotion(1, 1);
+        CountDownLatch firstClaimed = new CountDownLatch(1);
+        CountDownLatch commitFirst = new CountDownLatch(1);
+
+        CompletableFuture<Boolean> first = CompletableFuture.supplyAsync(() -> transactionTemplate.execute(status -> {
+            boolean claimed = engine.claim(usage(1, 42L, null));
+            firstClaimed.countDown();
+            await(commitFirst);
+            return claimed;
+        }), threads);
+        assertTrue(firstClaimed.await(10, TimeUnit.SECONDS));
+        CompletableFuture<Boolean> second = CompletableFuture.supplyAsync(
+                () -> claimInTransaction(usage(1, 43L, null)), threads);
+        Thread.sleep(300);
+        commitFirst.countDown();
+
+        assertTrue(first.get(10, TimeUnit.SECONDS));
+        assertFalse(second.get(10, TimeUnit.SECONDS));
+        assertEquals(1, usedCount(1));
+    }
+
+    @Test
+    void claimOfRolledBackOrderFreesTheUse() throws Exception {
+        insertPromotion(1, 1);
+        CountDownLatch firstClaimed = new CountDownLatch(1);
+        CountDownLatch rollBackFirst = new CountDownLatch(1);
+
+        CompletableFuture<Boolean> first = CompletableFuture.supplyAsync(() -> transactionTemplate.execute(status -> {
+            boolean claimed = engine.claim(usage(1, 42L, null));
+            firstClaimed.countDown();
+            await(rollBackFirst);
+            status.setRollbackOnly();
+            return claimed;
+        }), threads);
+        assertTrue(firstClaimed.await(10, TimeUnit.SECONDS));
+        CompletableFuture<Boolean> second = CompletableFuture.supplyAsync(
+                () -> claimInTransaction(usage(1, 42L, null)), threads);
+        Thread.sleep(300);
+        rollBackFirst.countDown();
+
+        assertTrue(first.get(10, TimeUnit.SECONDS));
+        assertTrue(second.get(10, TimeUnit.SECONDS));
+        assertEquals(1, usedCount(1));
+        assertEquals(1, usageRows(1));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
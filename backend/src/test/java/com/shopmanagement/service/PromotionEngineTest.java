@@ -0,0 +1,95 @@
+package com.shopmanagement.service;
+
+import com.shopmanagement.entity.Promotion;
+import com.shopmanagement.repository.PromotionRepository;
+import com.shopmanagement.repository.PromotionUsageRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+class PromotionEngineTest {
+
+    private PromotionRepository promotionRepository;
+    private PromotionUsageRepository promotionUsageRepository;
+    private PromotionEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        promotionRepository = mock(PromotionRepository.class);
+        promotionUsageRepository = mock(PromotionUsageRepository.class);
+        engine = new PromotionEngine(promotionRepository, promotionUsageRepository, mock(JdbcTemplate.class));
+    }
+
+    private Promotion promotion(LocalDateTime start, LocalDateTime end) {
+        Promotion promotion = Promotion.builder()
+                .id(1L)
+                .title("Save 20")
+                .code("SAVE20")
+                .type(Promotion.PromotionType.FIXED_AMOUNT)
+                .discountValue(new BigDecimal("20.00"))
+                .status(Promotion.PromotionStatus.ACTIVE)
+                .startDate(start)
+                .endDate(end)
+                .build();
+        when(promotionRepository.findByCode("SAVE20")).thenReturn(Optional.of(promotion));
+        return promotion;
+    }
+
+    private String rejection() {
+        PromotionService.PromoCodeValidationResult result =
+                engine.validate("save20", 7L, "9876543210", new BigDecimal("500.00"), 3L);
+        assertFalse(result.isValid());
+        return result.getMessage();
+    }
+
+    @Test
+    void promotionThatHasNotStartedIsNotYetValid() {
+        promotion(LocalDateTime.now().plusDays(1), LocalDateTime.now().plusDays(10));
+
+        assertEquals("This promo code is not yet valid", rejection());
+    }
+
+    @Test
+    void endedPromotionHasExpired() {
+        promotion(LocalDateTime.now().minusDays(10), LocalDateTime.now().minusDays(1));
+
+        assertEquals("This promo code has expired", rejection());
+    }
+
+    @Test
+    void fullyUsedPromotionHasReachedItsLimit() {
+        Promotion promotion = promotion(LocalDateTime.now().minusDays(1), LocalDateTime.now().plusDays(10));
+        promotion.setUsageLimit(5);
+        promotion.setUsedCount(5);
+
+        assertEquals("This promo code has reached its usage limit", rejection());
+    }
+
+    @Test
+    void suspendedPromotionIsNoLongerActive() {
+        Promotion promotion = promotion(LocalDateTime.now().minusDays(1), LocalDateTime.now().plusDays(10));
+        promotion.setStatus(Promotion.PromotionStatus.SUSPENDED);
+
+        assertEquals("This promo code has expired or is no longer active", rejection());
+    }
+
+    @Test
+    void perCustomerLimitMessageShowsTheRealCount() {
+        Promotion promotion = promotion(LocalDateTime.now().minusDays(1), LocalDateTime.now().plusDays(10));
+        promotion.setUsageLimitPerCustomer(0);
+        when(promotionUsageRepository.countByPromotionAndAnyIdentifier(eq(1L), eq(7L), isNull(), any()))
+                .thenReturn(2L);
+
+        assertTrue(rejection().startsWith("You have already used this promo code 2 time(s). Maximum allowed: 0."));
+    }
+}
@@ -0,0 +1,181 @@
+package com.shopmanagement.service;
+
+import com.shopmanagement.event.UserAccessChangedEvent;
+import com.shopmanagement.service.VerifiedTokenCache.VerifiedToken;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.security.access.expression.SecurityExpressionRoot;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class VerifiedTokenCacheTest {
+
+    private static final String TOKEN = "header.payload.signature";
+
+    private JdbcTemplate jdbcTemplate;
+    /** What user_token_cutoffs holds, as seen by the next refresh: username -> tokens_valid_after. */
+    private List<Map.Entry<String, Instant>> cutoffRows;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        cutoffRows = new ArrayList<>();
+        doAnswer(inv -> {
+            RowCallbackHandler handler = inv.getArgument(1);
+            Timestamp since = inv.getArgument(2);
+            for (Map.Entry<String, Instant> row : cutoffRows) {
+                if (row.getValue().isAfter(since.toInstant())) {
+                    ResultSet rs = mock(ResultSet.class);
+                    when(rs.getString("username")).thenReturn(row.getKey());
+                    when(rs.getTimestamp("tokens_valid_after")).thenReturn(Timestamp.from(row.getValue()));
+                    handler.processRow(rs);
+                }
+            }
+            return null;
+        }).when(jdbcTemplate).query(contains("user_token_cutoffs"), any(RowCallbackHandler.class), any(Timestamp.class));
+    }
+
+    private VerifiedTokenCache loadedCache() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(jdbcTemplate, 1000);
+        cache.refresh();
+        return cache;
+    }
+
+    private static VerifiedToken entry(String username, Instant trustedSince) {
+        return new VerifiedToken(username, 7L, List.of(new SimpleGrantedAuthority("ROLE_ADMIN")),
+                trustedSince, Instant.now().plus(1, ChronoUnit.HOURS));
+    }
+
+    @Test
+    void claimsAreNotTrustedUntilCutoffsHaveLoaded() {
+        doThrow(new DataAccessResourceFailureException("db down"))
+                .when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class), any(Timestamp.class));
+        VerifiedTokenCache cache = new VerifiedTokenCache(jdbcTemplate, 1000);
+
+        cache.refresh();
+
+        assertFalse(cache.claimsTrustedFor("alice", new Date()));
+    }
+
+    @Test
+    void claimsOfUsersWithoutCutoffAreTrusted() {
+        VerifiedTokenCache cache = loadedCache();
+
+        assertTrue(cache.claimsTrustedFor("alice", new Date()));
+    }
+
+    @Test
+    void cutoffWrittenBeforeRestartIsHonouredByFreshNode() {
+        Instant demotedAt = Instant.now().minus(10, ChronoUnit.MINUTES);
+        cutoffRows.add(Map.entry("alice", demotedAt));
+
+        VerifiedTokenCache cache = loadedCache();
+
+        assertFalse(cache.claimsTrustedFor("alice", Date.from(demotedAt.minus(1, ChronoUnit.HOURS))));
+        assertTrue(cache.claimsTrustedFor("alice", Date.from(demotedAt.plusSeconds(5))));
+        assertTrue(cache.claimsTrustedFor("bob", Date.from(demotedAt.minus(1, ChronoUnit.HOURS))));
+    }
+
+    @Test
+    void accessChangeWritesCutoffAndDropsCachedEntries() {
+        VerifiedTokenCache cache = loadedCache();
+        cache.put(TOKEN, entry("alice", Instant.now().minusSeconds(60)));
+        Date issuedBefore = Date.from(Instant.now().minusSeconds(60));
+
+        cache.onUserAccessChanged(new UserAccessChangedEvent(this, 7L, "alice"));
+
+        assertNull(cache.get(TOKEN));
+        assertFalse(cache.claimsTrustedFor("alice", issuedBefore));
+        verify(jdbcTemplate).update(contains("INSERT INTO user_token_cutoffs"), eq("alice"), any(Timestamp.class));
+    }
+
+    @Test
+    void cachedEntryIsDroppedWhenAnotherNodeCutsTheUserOff() {
+        VerifiedTokenCache cache = loadedCache();
+        cache.put(TOKEN, entry("alice", Instant.now().minusSeconds(60)));
+        assertNotNull(cache.get(TOKEN));
+
+        // Disabled on another node; this node only learns of it by polling
+        cutoffRows.add(Map.entry("alice", Instant.now()));
+        cache.refresh();
+
+        assertNull(cache.get(TOKEN));
+        assertNull(cache.get(TOKEN), "entry stays dropped");
+    }
+
+    @Test
+    void entryResolvedAfterCutoffIsKept() {
+        cutoffRows.add(Map.entry("alice", Instant.now().minusSeconds(30)));
+        VerifiedTokenCache cache = loadedCache();
+
+        cache.put(TOKEN, entry("alice", Instant.now()));
+
+        assertNotNull(cache.get(TOKEN));
+    }
+
+    @Test
+    void olderCutoffFromPollDoesNotReplaceNewerLocalOne() {
+        VerifiedTokenCache cache = loadedCache();
+        cache.onUserAccessChanged(new UserAccessChangedEvent(this, 7L, "alice"));
+        Date issuedJustBeforeLocalChange = Date.from(Instant.now().minusMillis(500));
+
+        cutoffRows.add(Map.entry("alice", Instant.now().minusSeconds(20)));
+        cache.refresh();
+
+        assertFalse(cache.claimsTrustedFor("alice", issuedJustBeforeLocalChange));
+    }
+
+    @Test
+    void ownIdCheckInPreAuthorizeReadsTheCachedPrincipal() {
+        VerifiedToken principal = new VerifiedToken("alice", 7L, List.of(new SimpleGrantedAuthority("ROLE_CUSTOMER")),
+                Instant.now(), Instant.now().plus(1, ChronoUnit.HOURS));
+        SecurityExpressionRoot root = new SecurityExpressionRoot(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.authorities())) {
+        };
+        Expression ownProfile = new SpelExpressionParser().parseExpression(
+                "hasRole('ADMIN') or hasRole('SUPER_ADMIN') or #id == authentication.principal.id");
+
+        StandardEvaluationContext own = new StandardEvaluationContext(root);
+        own.setVariable("id", 7L);
+        StandardEvaluationContext other = new StandardEvaluationContext(root);
+        other.setVariable("id", 8L);
+
+        assertEquals(Boolean.TRUE, ownProfile.getValue(own, Boolean.class));
+        assertEquals(Boolean.FALSE, ownProfile.getValue(other, Boolean.class));
+    }
+
+    @Test
+    void remoteUsersAreLookedUpAgainAfterTheShortTtl() {
+        VerifiedTokenCache cache = loadedCache();
+        ReflectionTestUtils.setField(cache, "remoteUsers", true);
+        ReflectionTestUtils.setField(cache, "remoteTtlSeconds", 0L);
+
+        cache.put(TOKEN, entry("alice", Instant.now()));
+
+        assertFalse(cache.claimsTrustedFor("alice", new Date()), "role changes there never write a cut-off here");
+        assertNull(cache.get(TOKEN));
+    }
+}
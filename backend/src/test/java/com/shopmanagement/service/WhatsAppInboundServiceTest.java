@@ -0,0 +1,108 @@
+package com.shopmanagement.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shopmanagement.entity.WhatsAppIncomingMessage;
+import com.shopmanagement.product.repository.ShopProductRepository;
+import com.shopmanagement.repository.WhatsAppIncomingMessageRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class WhatsAppInboundServiceTest {
+
+    private static final String MESSAGE_ID = "wamid.HBgM123";
+    private static final String FROM = "919876543210";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private WhatsAppIncomingMessageRepository repository;
+    private WhatsAppNotificationService notificationService;
+    private WhatsAppBotCatalogService botCatalog;
+    private WhatsAppInboundService service;
+
+    /** Rows "in the table": a save is visible to later existence checks, as after a flush. */
+    private List<WhatsAppIncomingMessage> stored;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(WhatsAppIncomingMessageRepository.class);
+        notificationService = mock(WhatsAppNotificationService.class);
+        botCatalog = mock(WhatsAppBotCatalogService.class);
+        stored = new ArrayList<>();
+        when(repository.save(any(WhatsAppIncomingMessage.class))).thenAnswer(inv -> {
+            WhatsAppIncomingMessage row = inv.getArgument(0);
+            if (!stored.contains(row)) {
+                stored.add(row);
+            }
+            return row;
+        });
+        when(repository.existsByWaMessageId(anyString())).thenAnswer(inv ->
+                stored.stream().anyMatch(row -> row.getWaMessageId().equals(inv.getArgument(0))));
+        service = new WhatsAppInboundService(repository, notificationService,
+                mock(ShopProductRepository.class), botCatalog);
+    }
+
+    private JsonNode textMessage(String body) throws Exception {
+        return objectMapper.readTree("""
+                {"id": "%s", "from": "%s", "type": "text", "timestamp": "1760000000",
+                 "text": {"body": %s}}
+                """.formatted(MESSAGE_ID, FROM, objectMapper.writeValueAsString(body)));
+    }
+
+    private long rowsFor(String waMessageId) {
+        return stored.stream().filter(row -> row.getWaMessageId().equals(waMessageId)).count();
+    }
+
+    @Test
+    void failureAfterHandlerStoredItsRowDoesNotInsertASecondRow() throws Exception {
+        // Multi-line text skips the product picker: stored as NEW, then the auto-reply fails
+        when(notificationService.sendTextMessage(anyString(), anyString()))
+                .thenThrow(new IllegalStateException("Meta API down"));
+
+        service.processMessage(textMessage("2 kg rice\n1 oil"), "Kumar");
+
+        assertEquals(1, rowsFor(MESSAGE_ID));
+        assertEquals("NEW", stored.get(0).getStatus());
+    }
+
+    @Test
+    void failureBeforeAnyRowWasStoredKeepsMessageForStaff() throws Exception {
+        when(botCatalog.resolveBotShopId()).thenThrow(new IllegalStateException("catalog unavailable"));
+
+        service.processMessage(textMessage("rice please"), "Kumar");
+
+        assertEquals(1, rowsFor(MESSAGE_ID));
+        assertEquals("NEW", stored.get(0).getStatus());
+        assertEquals("rice please", stored.get(0).getBody());
+    }
+
+    @Test
+    void alreadyStoredMessageIsNotProcessedAgain() throws Exception {
+        service.storeUnhandled(textMessage("2 kg rice\n1 oil"), "Kumar");
+        reset(notificationService);
+
+        service.processMessage(textMessage("2 kg rice\n1 oil"), "Kumar");
+
+        assertEquals(1, rowsFor(MESSAGE_ID));
+        verifyNoInteractions(notificationService);
+    }
+
+    @Test
+    void storeUnhandledSkipsMessagesAlreadyStored() throws Exception {
+        JsonNode message = textMessage("rice please");
+
+        service.storeUnhandled(message, "Kumar");
+        service.storeUnhandled(message, "Kumar");
+
+        assertEquals(1, rowsFor(MESSAGE_ID));
+        verify(repository, times(1)).save(any(WhatsAppIncomingMessage.class));
+    }
+}